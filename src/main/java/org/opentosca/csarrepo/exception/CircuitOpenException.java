@@ -0,0 +1,19 @@
+package org.opentosca.csarrepo.exception;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Provides an exception for calls which were rejected without contacting the
+ * remote server, because it is considered unavailable or busy
+ * 
+ * Extends {@link ProcessingException}, so it is handled like a server which
+ * was not reachable.
+ */
+@SuppressWarnings("serial")
+public class CircuitOpenException extends ProcessingException {
+
+	public CircuitOpenException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,225 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Read-only random access to a stored archive
+ *
+ * The archive is a sequence of parts of files, e.g. a whole file, a record of
+ * a pack segment or the inline segments and blobs of a manifest. Reading at a
+ * position only touches the part holding it, so a single entry can be read
+ * without reading the archive up to it. The files are opened at once and kept
+ * open until the channel is closed, so the archive stays readable if it is
+ * moved or compacted meanwhile.
+ */
+public class ArchiveChannel implements SeekableByteChannel {
+
+	private static final Logger LOGGER = LogManager.getLogger(ArchiveChannel.class);
+
+	private final List<Part> parts;
+	private final long[] starts;
+	private final long size;
+	private final File temporaryFile;
+	private final Map<File, FileChannel> channels = new HashMap<File, FileChannel>();
+	private long position;
+	private boolean open = true;
+
+	/**
+	 * @param parts
+	 *            the parts of the archive in order
+	 * @param temporaryFile
+	 *            file deleted when the channel is closed or <code>null</code>
+	 * @throws IOException
+	 *             if a file could not be opened
+	 */
+	ArchiveChannel(List<Part> parts, File temporaryFile) throws IOException {
+		this.parts = new ArrayList<Part>(parts);
+		this.starts = new long[parts.size()];
+		long start = 0;
+		for (int i = 0; i < parts.size(); i++) {
+			starts[i] = start;
+			start += parts.get(i).length;
+		}
+		this.size = start;
+		this.temporaryFile = temporaryFile;
+		try {
+			for (Part part : parts) {
+				if (!channels.containsKey(part.file)) {
+					channels.put(part.file, FileChannel.open(part.file.toPath(), StandardOpenOption.READ));
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file
+	 * @return a channel reading the whole file
+	 * @throws IOException
+	 */
+	static ArchiveChannel of(File file) throws IOException {
+		List<Part> parts = new ArrayList<Part>(1);
+		parts.add(new Part(file, 0, file.length()));
+		return new ArchiveChannel(parts, null);
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IOException {
+		int read = read(position, buffer);
+		if (0 < read) {
+			position += read;
+		}
+		return read;
+	}
+
+	/**
+	 * Reads at the given position without changing the position of the
+	 * channel.
+	 *
+	 * @param position
+	 * @param buffer
+	 * @return the number of bytes read, <code>-1</code> at the end
+	 * @throws IOException
+	 */
+	public synchronized int read(long position, ByteBuffer buffer) throws IOException {
+		ensureOpen();
+		if (position >= size) {
+			return -1;
+		}
+		int total = 0;
+		int index = indexOf(position);
+		while (buffer.hasRemaining() && index < parts.size()) {
+			Part part = parts.get(index);
+			long inPart = position - starts[index];
+			long available = part.length - inPart;
+			if (0 >= available) {
+				index++;
+				continue;
+			}
+			int limit = buffer.limit();
+			if (buffer.remaining() > available) {
+				buffer.limit(buffer.position() + (int) available);
+			}
+			int read;
+			try {
+				read = channels.get(part.file).read(buffer, part.offset + inPart);
+			} finally {
+				buffer.limit(limit);
+			}
+			if (0 >= read) {
+				throw new IOException("Unexpected end of " + part.file);
+			}
+			total += read;
+			position += read;
+		}
+		return total;
+	}
+
+	private int indexOf(long position) {
+		int low = 0;
+		int high = starts.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (starts[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	private void ensureOpen() throws ClosedChannelException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	@Override
+	public int write(ByteBuffer buffer) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized long position() throws IOException {
+		ensureOpen();
+		return position;
+	}
+
+	@Override
+	public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (0 > newPosition) {
+			throw new IllegalArgumentException("Negative position " + newPosition);
+		}
+		position = newPosition;
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		return size;
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!open) {
+			return;
+		}
+		open = false;
+		for (Map.Entry<File, FileChannel> entry : channels.entrySet()) {
+			try {
+				entry.getValue().close();
+			} catch (IOException e) {
+				LOGGER.warn("Could not close {}", entry.getKey(), e);
+			}
+		}
+		channels.clear();
+		if (null != temporaryFile && !temporaryFile.delete()) {
+			LOGGER.warn("Could not delete temporary file {}", temporaryFile);
+		}
+	}
+
+	/**
+	 * A part of a file
+	 */
+	static class Part {
+
+		private final File file;
+		private final long offset;
+		private final long length;
+
+		Part(File file, long offset, long length) {
+			this.file = file;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,526 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+
+/**
+ * Stores, reads and deletes archives on the volumes
+ *
+ * An archive is stored in one of four ways: as a whole in a file named by its
+ * filename, in a segment of the pack store, by its entries as manifest with
+ * shared blobs, or as delta against another archive. Reading and deleting
+ * work the same for all of them.
+ */
+class ArchiveStore {
+
+	private static final Logger LOGGER = LogManager.getLogger(ArchiveStore.class);
+
+	static final String MANIFEST_SUFFIX = ".manifest";
+	// deltas of deltas are decoded recursively, see deltaMaxChain
+	static final int MAX_DELTA_DEPTH = 64;
+
+	private static final String PACK_DIRECTORY = "packs";
+	private static final long DEFAULT_ENTRY_MIN_SIZE = 65536;
+	private static final long DEFAULT_PACK_MAX_SIZE = 262144;
+	private static final long DEFAULT_PACK_SEGMENT_SIZE = 67108864;
+	private static final int DEFAULT_DELTA_BLOCK_SIZE = 64;
+
+	private final VolumePool volumes;
+	private final PackStore packs;
+	private final EntryStore entryStore;
+	private final DeltaStore deltaStore;
+	private final DeltaIndex deltaIndex;
+	// held while a delta is installed or an archive is deleted, so no base is
+	// deleted while a delta against it is installed
+	private final Object deltaLock = new Object();
+
+	private final Map<UUID, Long> accessed = new ConcurrentHashMap<UUID, Long>();
+	private final AtomicLong packed = new AtomicLong();
+	private final AtomicLong entries = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong receivedBytes = new AtomicLong();
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	/**
+	 * @param volumes
+	 *            the volumes, the pack store is kept on the primary one
+	 */
+	ArchiveStore(VolumePool volumes) {
+		this.volumes = volumes;
+		this.packs = new PackStore(volumes.getPrimary().resolve(PACK_DIRECTORY), Long.getLong("packSegmentSize",
+				DEFAULT_PACK_SEGMENT_SIZE));
+		this.entryStore = new EntryStore(volumes, Long.getLong("entryDedupMinSize", DEFAULT_ENTRY_MIN_SIZE));
+		this.deltaStore = new DeltaStore(Integer.getInteger("deltaBlockSize", DEFAULT_DELTA_BLOCK_SIZE));
+		this.deltaIndex = new DeltaIndex(volumes);
+	}
+
+	/**
+	 * Moves the given file to the volume chosen for it.
+	 *
+	 * @param file
+	 *            temporary uploaded file
+	 * @param filename
+	 *            the filename (= UUID) of the stored file
+	 * @return the stored file
+	 * @throws PersistenceException
+	 */
+	File save(final File file, final UUID filename) throws PersistenceException {
+		try {
+			long length = file.length();
+			StorageVolume volume = volumes.place(length);
+			File newFile = volume.resolve(filename.toString());
+			volume.beginWrite();
+			try {
+				Files.move(file.toPath(), newFile.toPath());
+			} finally {
+				volume.endWrite(length);
+			}
+			LOGGER.info("Moved file {} to {} (size: {})", file.getAbsolutePath(), newFile.getAbsolutePath(),
+					newFile.length());
+			return newFile;
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**
+	 * Moves the given archive to a persistent place. If entry deduplication is
+	 * enabled with the property <code>entryDedup</code>, the archive is stored
+	 * by its zip entries, sharing the large entries with other archives.
+	 * Otherwise archives smaller than <code>packMaxSize</code> bytes are
+	 * appended to the segments of the pack store instead of taking a file
+	 * each.
+	 *
+	 * @param file
+	 *            temporary uploaded archive, removed afterwards
+	 * @param hash
+	 *            hash of the archive
+	 * @param filename
+	 *            the filename (= UUID) of the stored archive
+	 * @throws PersistenceException
+	 */
+	void saveArchive(final File file, final String hash, final UUID filename) throws PersistenceException {
+		long length = file.length();
+		receivedBytes.addAndGet(length);
+		if (Boolean.getBoolean("entryDedup")) {
+			StorageVolume volume = volumes.place(0);
+			File manifest = volume.resolve(filename.toString() + MANIFEST_SUFFIX);
+			try {
+				EntryStore.PackResult result = entryStore.pack(file, hash, manifest);
+				if (null != result) {
+					file.delete();
+					volume.beginWrite();
+					volume.endWrite(manifest.length());
+					packed.incrementAndGet();
+					entries.addAndGet(result.getBlobs());
+					reused.addAndGet(result.getReused());
+					storedBytes.addAndGet(result.getStoredBytes());
+					LOGGER.info("Stored {} by entries: {} of {} entries reused, {} of {} bytes written", manifest,
+							result.getReused(), result.getBlobs(), result.getStoredBytes(), length);
+					return;
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Could not store {} by entries, storing it as a whole", file, e);
+			}
+		}
+		storedBytes.addAndGet(length);
+		if (length < Long.getLong("packMaxSize", DEFAULT_PACK_MAX_SIZE)) {
+			StorageVolume volume = volumes.getPrimary();
+			volume.beginWrite();
+			try {
+				packs.put(filename, file);
+				file.delete();
+				LOGGER.info("Stored {} in the pack store (size: {})", filename, length);
+				return;
+			} catch (IOException e) {
+				LOGGER.warn("Could not store {} in the pack store, storing it as a file", file, e);
+			} finally {
+				volume.endWrite(length);
+			}
+		}
+		save(file, filename);
+	}
+
+	/**
+	 * Opens a stored archive, no matter how it is stored.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the content of the archive
+	 * @throws IOException
+	 *             if the archive doesn't exist or could not be read
+	 */
+	InputStream open(final UUID filename) throws IOException {
+		try {
+			return open(filename, 0);
+		} catch (FileNotFoundException e) {
+			// the archive may have been moved to another volume meanwhile
+			return open(filename, 0);
+		}
+	}
+
+	private InputStream open(final UUID filename, int depth) throws IOException {
+		File manifest = getManifest(filename);
+		if (null != manifest) {
+			return entryStore.open(manifest);
+		}
+		File delta = getDelta(filename);
+		if (null != delta) {
+			if (depth >= MAX_DELTA_DEPTH) {
+				throw new IOException("Delta chain of " + filename + " is too long or cyclic");
+			}
+			UUID base = DeltaStore.readHeader(delta).getBase();
+			File baseFile = getFile(base);
+			if (null == baseFile) {
+				try (InputStream inputStream = open(base, depth + 1)) {
+					baseFile = copyToTemporaryFile(inputStream);
+				}
+				return volumes.getVolume(delta).countReads(deltaStore.open(delta, baseFile, true));
+			}
+			return volumes.getVolume(delta).countReads(deltaStore.open(delta, baseFile, false));
+		}
+		File file = getFile(filename);
+		if (null == file) {
+			// throws FileNotFoundException if not packed either
+			return volumes.getPrimary().countReads(packs.open(filename));
+		}
+		return volumes.getVolume(file).countReads(new FileInputStream(file));
+	}
+
+	/**
+	 * Opens a stored archive for random access. Archives stored as manifest,
+	 * in a pack or as a whole are read in place, an archive stored as delta is
+	 * decoded to a temporary file first.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the archive, has to be closed
+	 * @throws IOException
+	 *             if the archive doesn't exist or could not be read
+	 */
+	ArchiveChannel openChannel(final UUID filename) throws IOException {
+		try {
+			return openChannelInPlace(filename);
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			// the archive may have been moved to another volume meanwhile
+			return openChannelInPlace(filename);
+		}
+	}
+
+	private ArchiveChannel openChannelInPlace(final UUID filename) throws IOException {
+		File manifest = getManifest(filename);
+		if (null != manifest) {
+			return new ArchiveChannel(entryStore.getParts(manifest), null);
+		}
+		if (null != getDelta(filename)) {
+			File temporaryFile;
+			try (InputStream inputStream = open(filename, 0)) {
+				temporaryFile = copyToTemporaryFile(inputStream);
+			}
+			return new ArchiveChannel(Arrays.asList(new ArchiveChannel.Part(temporaryFile, 0,
+					temporaryFile.length())), temporaryFile);
+		}
+		File file = getFile(filename);
+		if (null == file) {
+			// throws FileNotFoundException if not packed either
+			return new ArchiveChannel(Arrays.asList(packs.getPart(filename)), null);
+		}
+		return ArchiveChannel.of(file);
+	}
+
+	/**
+	 * Remembers that the archive was read right now.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 */
+	void recordAccess(final UUID filename) {
+		accessed.put(filename, System.currentTimeMillis());
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the time the archive was last read, stored or reused,
+	 *         <code>0</code> if it doesn't exist
+	 */
+	long getLastAccess(final UUID filename) {
+		Long lastAccess = accessed.get(filename);
+		return Math.max(null == lastAccess ? 0 : lastAccess, getLastModified(filename));
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return <code>true</code> if the archive is stored
+	 */
+	boolean exists(final UUID filename) {
+		return null != getStoredFile(filename) || null != getManifest(filename) || packs.contains(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the time the archive was stored or last reused, <code>0</code>
+	 *         if it doesn't exist
+	 */
+	long getLastModified(final UUID filename) {
+		File manifest = getManifest(filename);
+		if (null != manifest) {
+			return manifest.lastModified();
+		}
+		File file = getStoredFile(filename);
+		return null == file ? packs.getLastModified(filename) : file.lastModified();
+	}
+
+	/**
+	 * Marks the archive as used right now.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 */
+	void touch(final UUID filename) {
+		long now = System.currentTimeMillis();
+		File manifest = getManifest(filename);
+		File file = null == manifest ? getStoredFile(filename) : manifest;
+		if (null != file) {
+			file.setLastModified(now);
+		} else {
+			packs.touch(filename);
+		}
+	}
+
+	/**
+	 * Deletes the archive, unless it is the base of a delta. The blobs of a
+	 * manifest may be shared with other archives, they are left to the
+	 * garbage collection.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the result of the deletion
+	 */
+	boolean delete(final UUID filename) {
+		accessed.remove(filename);
+		synchronized (deltaLock) {
+			if (deltaIndex.isBase(filename)) {
+				// removed by the garbage collection once no delta needs it
+				LOGGER.info("Kept {} as base of deltas", filename);
+				return true;
+			}
+			File manifest = getManifest(filename);
+			if (null != manifest && manifest.delete()) {
+				LOGGER.info(String.format("Deleted manifest: %s", manifest.getAbsolutePath()));
+				return true;
+			}
+			File delta = getDelta(filename);
+			if (null != delta && delta.delete()) {
+				deltaIndex.remove(filename);
+				LOGGER.info("Deleted delta: {}", delta.getAbsolutePath());
+				return true;
+			}
+			File file = getFile(filename);
+			if (null != file) {
+				Boolean fileDeleted = file.delete();
+				if (fileDeleted) {
+					LOGGER.info(String.format("Deleted file: %s", file.getAbsolutePath()));
+				}
+				return fileDeleted;
+			}
+			if (packs.delete(filename)) {
+				LOGGER.info("Deleted {} from the pack store", filename);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the size of the archive, <code>0</code> if it doesn't exist
+	 */
+	long getSize(final UUID filename) {
+		File manifest = getManifest(filename);
+		if (null != manifest) {
+			try {
+				return entryStore.getLength(manifest);
+			} catch (IOException e) {
+				LOGGER.warn("Could not read manifest {}", manifest, e);
+				return 0;
+			}
+		}
+		File delta = getDelta(filename);
+		if (null != delta) {
+			try {
+				return DeltaStore.readHeader(delta).getLength();
+			} catch (IOException e) {
+				LOGGER.warn("Could not read delta {}", delta, e);
+				return 0;
+			}
+		}
+		File file = getFile(filename);
+		return null == file ? Math.max(0, packs.getLength(filename)) : file.length();
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the file or <code>null</code> if the archive is not stored as a
+	 *         whole
+	 */
+	File getFile(final UUID filename) {
+		return volumes.locate(filename.toString());
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the manifest or <code>null</code> if the archive is not stored
+	 *         by its entries
+	 */
+	File getManifest(final UUID filename) {
+		return volumes.locate(filename.toString() + MANIFEST_SUFFIX);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the delta or <code>null</code> if the archive is not stored as
+	 *         delta
+	 */
+	File getDelta(final UUID filename) {
+		return volumes.locate(filename.toString() + DeltaStore.DELTA_SUFFIX);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the delta or the archive itself, <code>null</code> if the
+	 *         archive is stored neither way
+	 */
+	File getStoredFile(final UUID filename) {
+		File delta = getDelta(filename);
+		return null == delta ? getFile(filename) : delta;
+	}
+
+	/**
+	 * @return a temporary file with the content of the archive, has to be
+	 *         deleted
+	 */
+	File copyToTemporaryFile(final UUID filename) throws IOException {
+		try (InputStream inputStream = open(filename)) {
+			return copyToTemporaryFile(inputStream);
+		}
+	}
+
+	static File copyToTemporaryFile(InputStream inputStream) throws IOException {
+		File temporaryFile = File.createTempFile("archive", ".tmp");
+		try {
+			Files.copy(inputStream, temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			temporaryFile.delete();
+			throw e;
+		}
+		return temporaryFile;
+	}
+
+	/**
+	 * @return the filename of the archive stored in the file with the given
+	 *         name, i.e. the archive itself, its manifest or its delta
+	 */
+	static UUID parseStoredName(String name) {
+		for (String suffix : new String[] { MANIFEST_SUFFIX, DeltaStore.DELTA_SUFFIX }) {
+			if (name.endsWith(suffix)) {
+				return parseFilename(name.substring(0, name.length() - suffix.length()));
+			}
+		}
+		return parseFilename(name);
+	}
+
+	private static UUID parseFilename(String name) {
+		try {
+			return UUID.fromString(name);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the figures of the stored archives.
+	 *
+	 * @param logicalSize
+	 *            size of all hashed files
+	 * @param recalls
+	 *            number of archives recalled from the cold tier
+	 * @param openIntents
+	 *            number of running operations in the intent journal
+	 * @return the statistics of the storage
+	 */
+	StorageStatistics getStatistics(long logicalSize, long recalls, long openIntents) {
+		long[] physical = new long[2];
+		for (StorageVolume volume : volumes.getAllVolumes()) {
+			measure(volume.getRoot(), physical);
+		}
+		return new StorageStatistics(logicalSize, physical[0], physical[1], packed.get(), entries.get(),
+				reused.get(), receivedBytes.get(), storedBytes.get(), recalls, packs.getRecordCount(),
+				packs.getSegmentCount(), packs.getSize(), packs.getLiveSize(), openIntents, volumes.getAllVolumes());
+	}
+
+	private static void measure(File directory, long[] physical) {
+		File[] files = directory.listFiles();
+		if (null == files) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				measure(file, physical);
+			} else {
+				physical[0] += file.length();
+				physical[1]++;
+			}
+		}
+	}
+
+	VolumePool getVolumes() {
+		return volumes;
+	}
+
+	PackStore getPacks() {
+		return packs;
+	}
+
+	EntryStore getEntryStore() {
+		return entryStore;
+	}
+
+	DeltaStore getDeltaStore() {
+		return deltaStore;
+	}
+
+	DeltaIndex getDeltaIndex() {
+		return deltaIndex;
+	}
+
+	/**
+	 * @return the lock held while a delta is installed or an archive is
+	 *         deleted
+	 */
+	Object getDeltaLock() {
+		return deltaLock;
+	}
+}
@@ -0,0 +1,143 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bases of the stored deltas
+ *
+ * The headers of the deltas are read once on first use. Afterwards the index
+ * is kept up to date when a delta is installed, inflated or deleted, so
+ * finding out whether an archive is the base of a delta needs no access to the
+ * storage. As long as a delta could not be read, every archive counts as base,
+ * since it may be the base of that delta.
+ */
+class DeltaIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(DeltaIndex.class);
+
+	private final VolumePool volumes;
+	private Map<UUID, UUID> bases;
+	private Map<UUID, Set<UUID>> deltas;
+	private Set<UUID> unreadable;
+
+	/**
+	 * @param volumes
+	 *            the volumes holding the deltas
+	 */
+	DeltaIndex(VolumePool volumes) {
+		this.volumes = volumes;
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of an archive
+	 * @return <code>true</code> if a delta refers to the archive, or a delta
+	 *         could not be read
+	 */
+	synchronized boolean isBase(UUID filename) {
+		load();
+		return !unreadable.isEmpty() || deltas.containsKey(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of an archive
+	 * @return the deltas referring to the archive
+	 */
+	synchronized Set<UUID> getDeltas(UUID filename) {
+		load();
+		Set<UUID> result = deltas.get(filename);
+		return null == result ? new HashSet<UUID>() : new HashSet<UUID>(result);
+	}
+
+	/**
+	 * Records a delta, e.g. right before it is installed.
+	 *
+	 * @param delta
+	 *            the filename (= UUID) of the archive stored as delta
+	 * @param base
+	 *            the filename of its base
+	 */
+	synchronized void put(UUID delta, UUID base) {
+		load();
+		remove(delta);
+		bases.put(delta, base);
+		Set<UUID> baseDeltas = deltas.get(base);
+		if (null == baseDeltas) {
+			baseDeltas = new HashSet<UUID>();
+			deltas.put(base, baseDeltas);
+		}
+		baseDeltas.add(delta);
+	}
+
+	/**
+	 * Forgets a delta, e.g. after it was inflated or deleted.
+	 *
+	 * @param delta
+	 *            the filename (= UUID) of the archive stored as delta
+	 */
+	synchronized void remove(UUID delta) {
+		load();
+		unreadable.remove(delta);
+		UUID base = bases.remove(delta);
+		if (null == base) {
+			return;
+		}
+		Set<UUID> baseDeltas = deltas.get(base);
+		baseDeltas.remove(delta);
+		if (baseDeltas.isEmpty()) {
+			deltas.remove(base);
+		}
+	}
+
+	private void load() {
+		if (null != bases) {
+			return;
+		}
+		bases = new HashMap<UUID, UUID>();
+		deltas = new HashMap<UUID, Set<UUID>>();
+		unreadable = new HashSet<UUID>();
+		for (StorageVolume volume : volumes.getAllVolumes()) {
+			File[] files = volume.getRoot().listFiles();
+			if (null == files) {
+				continue;
+			}
+			for (File file : files) {
+				String name = file.getName();
+				if (!name.endsWith(DeltaStore.DELTA_SUFFIX)) {
+					continue;
+				}
+				UUID delta;
+				try {
+					delta = UUID.fromString(name.substring(0, name.length() - DeltaStore.DELTA_SUFFIX.length()));
+				} catch (IllegalArgumentException e) {
+					continue;
+				}
+				try {
+					UUID base = DeltaStore.readHeader(file).getBase();
+					bases.put(delta, base);
+					if (!deltas.containsKey(base)) {
+						deltas.put(base, new HashSet<UUID>());
+					}
+					deltas.get(base).add(delta);
+				} catch (FileNotFoundException e) {
+					// deleted meanwhile
+				} catch (IOException e) {
+					LOGGER.error("Could not read delta {}, keeping all archives", file, e);
+					unreadable.add(delta);
+				}
+			}
+		}
+		LOGGER.info("Indexed {} deltas against {} bases", bases.size(), deltas.size());
+	}
+}
@@ -0,0 +1,277 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+
+/**
+ * Stores archives as deltas against other archives and back as a whole
+ *
+ * A delta replaces the previous representation of its archive only after it
+ * was decoded once. Installing a delta holds the delta lock of the
+ * {@link ArchiveStore}, so its base cannot be deleted meanwhile.
+ */
+class DeltaRepacker {
+
+	private static final Logger LOGGER = LogManager.getLogger(DeltaRepacker.class);
+
+	private static final int COMPARE_BUFFER_SIZE = 1048576;
+
+	private final ArchiveStore store;
+
+	DeltaRepacker(ArchiveStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the filename of the base of the archive, <code>null</code> if
+	 *         it is not stored as delta
+	 */
+	UUID getBase(final UUID filename) {
+		File delta = store.getDelta(filename);
+		if (null == delta) {
+			return null;
+		}
+		try {
+			return DeltaStore.readHeader(delta).getBase();
+		} catch (IOException e) {
+			LOGGER.warn("Could not read delta {}", delta, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return number of deltas decoded to read the archive, <code>0</code> if
+	 *         it is not stored as delta
+	 */
+	int getDepth(final UUID filename) {
+		int depth = 0;
+		for (UUID base = getBase(filename); null != base && depth < ArchiveStore.MAX_DELTA_DEPTH; base = getBase(base)) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * Stores the archive as delta against the given base, if the delta takes
+	 * at most the given part of the space the archive takes now. Blobs of a
+	 * previous manifest are left to the garbage collection.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @param base
+	 *            the filename of the archive to encode against
+	 * @param maxRatio
+	 *            part of the current size, between <code>0</code> and
+	 *            <code>1</code>
+	 * @return the saved bytes, <code>0</code> if the archive was not encoded
+	 * @throws PersistenceException
+	 *             if an archive could not be read or the delta could not be
+	 *             written
+	 */
+	long deltify(final UUID filename, final UUID base, double maxRatio) throws PersistenceException {
+		if (filename.equals(base) || null != store.getDelta(filename) || !store.exists(filename)
+				|| !store.exists(base)) {
+			return 0;
+		}
+		// a chain leading back to the archive could never be decoded
+		int depth = 0;
+		for (UUID next = getBase(base); null != next; next = getBase(next)) {
+			if (next.equals(filename) || ++depth >= ArchiveStore.MAX_DELTA_DEPTH) {
+				return 0;
+			}
+		}
+
+		VolumePool volumes = store.getVolumes();
+		DeltaStore deltaStore = store.getDeltaStore();
+		File manifest = store.getManifest(filename);
+		File file = null == manifest ? store.getFile(filename) : null;
+		File target = null;
+		File baseFile = store.getFile(base);
+		boolean temporaryBase = null == baseFile;
+		File temporaryFile = null;
+		try {
+			long size = getStoredSize(filename, base);
+			target = null == file ? store.copyToTemporaryFile(filename) : file;
+			if (temporaryBase) {
+				baseFile = store.copyToTemporaryFile(base);
+			}
+			StorageVolume volume = null == file ? volumes.place(0) : volumes.getVolume(file);
+			temporaryFile = File.createTempFile("delta", ".tmp", volume.getRoot());
+			volume.beginWrite();
+			long length;
+			try {
+				length = deltaStore.encode(target, baseFile, base, temporaryFile, (long) (maxRatio * size));
+			} finally {
+				volume.endWrite(temporaryFile.length());
+			}
+			if (-1 == length) {
+				return 0;
+			}
+			try (InputStream expected = new FileInputStream(target);
+					InputStream decoded = deltaStore.open(temporaryFile, baseFile, false)) {
+				if (!sameContent(expected, decoded)) {
+					throw new IOException("Delta of " + filename + " does not decode to the archive");
+				}
+			}
+			synchronized (store.getDeltaLock()) {
+				// either archive may have been deleted while the delta was encoded
+				if (!store.exists(base) || !isStoredAs(filename, manifest, file)) {
+					LOGGER.info("{} or its base {} was deleted meanwhile, dropping the delta", filename, base);
+					return 0;
+				}
+				store.getDeltaIndex().put(filename, base);
+				try {
+					Files.move(temporaryFile.toPath(), volume.resolve(filename.toString() + DeltaStore.DELTA_SUFFIX)
+							.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					store.getDeltaIndex().remove(filename);
+					throw e;
+				}
+				if (null != manifest) {
+					manifest.delete();
+				} else if (null != file) {
+					file.delete();
+				} else {
+					store.getPacks().delete(filename);
+				}
+			}
+			LOGGER.info("Stored {} as delta against {} ({} instead of {} bytes)", filename, base, length, size);
+			return size - length;
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			if (null != temporaryFile) {
+				temporaryFile.delete();
+			}
+			if (null != target && target != file) {
+				target.delete();
+			}
+			if (temporaryBase && null != baseFile) {
+				baseFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Stores an archive stored as delta as a whole again.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the additionally used bytes, <code>0</code> if the archive is
+	 *         not stored as delta
+	 * @throws PersistenceException
+	 *             if the archive could not be decoded or written
+	 */
+	long inflate(final UUID filename) throws PersistenceException {
+		File delta = store.getDelta(filename);
+		if (null == delta) {
+			return 0;
+		}
+		StorageVolume volume = store.getVolumes().getVolume(delta);
+		File temporaryFile = null;
+		try {
+			temporaryFile = File.createTempFile("inflate", ".tmp", volume.getRoot());
+			volume.beginWrite();
+			try (InputStream inputStream = store.open(filename)) {
+				Files.copy(inputStream, temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				volume.endWrite(temporaryFile.length());
+			}
+			File file = volume.resolve(filename.toString());
+			long length = delta.length();
+			synchronized (store.getDeltaLock()) {
+				if (!delta.isFile()) {
+					// deleted meanwhile
+					return 0;
+				}
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				delta.delete();
+				store.getDeltaIndex().remove(filename);
+			}
+			LOGGER.info("Stored delta {} as a whole ({} instead of {} bytes)", filename, file.length(), length);
+			return file.length() - length;
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			if (null != temporaryFile) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the archive is still stored the way it was
+	 *         when the delta was encoded
+	 */
+	private boolean isStoredAs(final UUID filename, File manifest, File file) {
+		if (null != manifest) {
+			return manifest.isFile();
+		}
+		if (null != file) {
+			return file.isFile();
+		}
+		return store.getPacks().contains(filename);
+	}
+
+	/**
+	 * @return the space taken by the archive, for a manifest including the
+	 *         blobs which the base doesn't use
+	 */
+	private long getStoredSize(final UUID filename, final UUID base) throws IOException {
+		File manifest = store.getManifest(filename);
+		if (null == manifest) {
+			File file = store.getFile(filename);
+			return null == file ? Math.max(0, store.getPacks().getLength(filename)) : file.length();
+		}
+		EntryStore entryStore = store.getEntryStore();
+		Set<String> blobs = new HashSet<String>(entryStore.getBlobHashes(manifest));
+		File baseManifest = store.getManifest(base);
+		if (null != baseManifest) {
+			blobs.removeAll(entryStore.getBlobHashes(baseManifest));
+		}
+		long size = manifest.length();
+		for (String hash : blobs) {
+			size += entryStore.getBlob(hash).length();
+		}
+		return size;
+	}
+
+	private static boolean sameContent(InputStream expected, InputStream actual) throws IOException {
+		byte[] expectedBuffer = new byte[COMPARE_BUFFER_SIZE];
+		byte[] actualBuffer = new byte[COMPARE_BUFFER_SIZE];
+		while (true) {
+			int read = expected.read(expectedBuffer);
+			if (-1 == read) {
+				return -1 == actual.read();
+			}
+			int offset = 0;
+			while (offset < read) {
+				int actualRead = actual.read(actualBuffer, offset, read - offset);
+				if (-1 == actualRead) {
+					return false;
+				}
+				offset += actualRead;
+			}
+			for (int i = 0; i < read; i++) {
+				if (expectedBuffer[i] != actualBuffer[i]) {
+					return false;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,443 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+
+/**
+ * Encodes archives as binary delta against a similar archive, its base
+ *
+ * A delta consists of a header, i.e. the filename of the base and the length
+ * of the encoded archive, followed by instructions which either copy a range
+ * of the base or insert literal bytes. The encoder finds the copied ranges by
+ * the rolling checksums of the blocks of the base, like rsync. Unchanged
+ * entries of consecutive versions of an archive end up as copies, so the
+ * delta mostly consists of the changed entries and the central directory.
+ *
+ * A delta is decoded while it is read, only the base must be a file, since
+ * the copied ranges are read at random.
+ */
+class DeltaStore {
+
+	static final String DELTA_SUFFIX = ".delta";
+
+	private static final int DELTA_MAGIC = 0x43535244;
+	private static final byte COPY = 0;
+	private static final byte INSERT = 1;
+	private static final byte END = 2;
+	private static final int MAX_CANDIDATES = 16;
+	private static final int MAX_INSERT = 1048576;
+
+	private final int blockSize;
+
+	/**
+	 * @param blockSize
+	 *            size of the blocks of the base in bytes, the shortest range
+	 *            which is copied
+	 */
+	DeltaStore(int blockSize) {
+		this.blockSize = Math.max(16, blockSize);
+	}
+
+	/**
+	 * Writes the delta of the target against the base.
+	 *
+	 * @param target
+	 *            the archive to encode
+	 * @param base
+	 *            the archive to copy from
+	 * @param baseFilename
+	 *            filename of the base, stored in the header
+	 * @param delta
+	 *            the delta to write
+	 * @param maxLength
+	 *            length of the delta from which on the encoding is given up
+	 * @return the length of the delta or <code>-1</code>, if the encoding was
+	 *         given up and no delta was written
+	 * @throws IOException
+	 */
+	long encode(File target, File base, UUID baseFilename, File delta, long maxLength) throws IOException {
+		if (Integer.MAX_VALUE < target.length() || Integer.MAX_VALUE < base.length()) {
+			return -1;
+		}
+		boolean written = false;
+		try (RandomAccessFile targetFile = new RandomAccessFile(target, "r");
+				RandomAccessFile baseFile = new RandomAccessFile(base, "r");
+				CountingOutputStream outputStream = new CountingOutputStream(new FileOutputStream(delta), maxLength)) {
+			MappedByteBuffer targetData = targetFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					targetFile.length());
+			MappedByteBuffer baseData = baseFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, baseFile.length());
+			DataOutputStream output = new DataOutputStream(outputStream);
+			output.writeInt(DELTA_MAGIC);
+			output.writeLong(baseFilename.getMostSignificantBits());
+			output.writeLong(baseFilename.getLeastSignificantBits());
+			output.writeLong(targetData.limit());
+			encode(targetData, baseData, new BlockIndex(baseData), output);
+			output.writeByte(END);
+			output.flush();
+			written = true;
+			return outputStream.count;
+		} catch (DeltaTooLargeException e) {
+			return -1;
+		} finally {
+			if (!written) {
+				delta.delete();
+			}
+		}
+	}
+
+	private void encode(ByteBuffer target, ByteBuffer base, BlockIndex index, DataOutputStream output)
+			throws IOException {
+		int length = target.limit();
+		int literal = 0;
+		int position = 0;
+		int checksum = length >= blockSize ? checksum(target, 0) : 0;
+		while (position + blockSize <= length) {
+			int match = index.find(checksum, target, position);
+			if (-1 == match) {
+				if (position + blockSize < length) {
+					checksum = roll(checksum, target.get(position), target.get(position + blockSize));
+				}
+				position++;
+				continue;
+			}
+			int start = position;
+			int baseStart = match;
+			// take back bytes of the pending literal which match as well
+			while (start > literal && baseStart > 0 && target.get(start - 1) == base.get(baseStart - 1)) {
+				start--;
+				baseStart--;
+			}
+			int end = position + blockSize;
+			int baseEnd = match + blockSize;
+			while (end < length && baseEnd < base.limit() && target.get(end) == base.get(baseEnd)) {
+				end++;
+				baseEnd++;
+			}
+			insert(target, literal, start, output);
+			output.writeByte(COPY);
+			output.writeInt(baseStart);
+			output.writeInt(end - start);
+			position = end;
+			literal = end;
+			if (position + blockSize <= length) {
+				checksum = checksum(target, position);
+			}
+		}
+		insert(target, literal, length, output);
+	}
+
+	private static void insert(ByteBuffer target, int from, int to, DataOutputStream output) throws IOException {
+		byte[] buffer = new byte[Math.min(MAX_INSERT, Math.max(0, to - from))];
+		for (int offset = from; offset < to; offset += buffer.length) {
+			int length = Math.min(buffer.length, to - offset);
+			ByteBuffer slice = target.duplicate();
+			slice.position(offset);
+			slice.get(buffer, 0, length);
+			output.writeByte(INSERT);
+			output.writeInt(length);
+			output.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * @return the rolling checksum of the block starting at the offset
+	 */
+	private int checksum(ByteBuffer data, int offset) {
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < blockSize; i++) {
+			int value = data.get(offset + i) & 0xFF;
+			a += value;
+			b += (blockSize - i) * value;
+		}
+		return (a & 0xFFFF) | (b & 0xFFFF) << 16;
+	}
+
+	/**
+	 * @return the checksum of the block moved by one byte
+	 */
+	private int roll(int checksum, byte removed, byte added) {
+		int a = checksum & 0xFFFF;
+		int b = checksum >>> 16;
+		a = (a - (removed & 0xFF) + (added & 0xFF)) & 0xFFFF;
+		b = (b - blockSize * (removed & 0xFF) + a) & 0xFFFF;
+		return a | b << 16;
+	}
+
+	/**
+	 * @param delta
+	 * @return the header of the delta
+	 * @throws IOException
+	 *             if the file is no delta
+	 */
+	static Header readHeader(File delta) throws IOException {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(delta))) {
+			return readHeader(input, delta);
+		}
+	}
+
+	private static Header readHeader(DataInputStream input, File delta) throws IOException {
+		if (DELTA_MAGIC != input.readInt()) {
+			throw new IOException(delta + " is no delta");
+		}
+		UUID base = new UUID(input.readLong(), input.readLong());
+		return new Header(base, input.readLong());
+	}
+
+	/**
+	 * @param delta
+	 * @param base
+	 *            the base named in the header of the delta
+	 * @param temporaryBase
+	 *            <code>true</code> to delete the base when the stream is
+	 *            closed
+	 * @return the decoded archive
+	 * @throws IOException
+	 */
+	InputStream open(File delta, File base, boolean temporaryBase) throws IOException {
+		try {
+			return new DeltaInputStream(delta, base, temporaryBase);
+		} catch (IOException e) {
+			if (temporaryBase) {
+				base.delete();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Header of a delta
+	 */
+	static class Header {
+
+		private final UUID base;
+		private final long length;
+
+		Header(UUID base, long length) {
+			this.base = base;
+			this.length = length;
+		}
+
+		/**
+		 * @return the filename of the base
+		 */
+		UUID getBase() {
+			return base;
+		}
+
+		/**
+		 * @return the length of the encoded archive
+		 */
+		long getLength() {
+			return length;
+		}
+	}
+
+	/**
+	 * Blocks of the base by their checksum, chained in arrays to keep large
+	 * bases cheap
+	 */
+	private class BlockIndex {
+
+		private final ByteBuffer base;
+		private final int[] heads;
+		private final int[] next;
+
+		BlockIndex(ByteBuffer base) {
+			this.base = base;
+			int blocks = base.limit() / blockSize;
+			int size = Integer.highestOneBit(Math.max(1, blocks)) << 1;
+			this.heads = new int[size];
+			this.next = new int[blocks];
+			// later blocks first, so the chains prefer earlier blocks
+			for (int block = blocks - 1; block >= 0; block--) {
+				int slot = slot(checksum(base, block * blockSize));
+				next[block] = heads[slot];
+				heads[slot] = block + 1;
+			}
+		}
+
+		/**
+		 * @return the offset of a block of the base equal to the block of the
+		 *         target, <code>-1</code> if there is none
+		 */
+		int find(int checksum, ByteBuffer target, int position) {
+			int candidates = 0;
+			for (int block = heads[slot(checksum)]; 0 != block && candidates < MAX_CANDIDATES; block = next[block - 1]) {
+				candidates++;
+				int offset = (block - 1) * blockSize;
+				if (equal(target, position, offset)) {
+					return offset;
+				}
+			}
+			return -1;
+		}
+
+		private boolean equal(ByteBuffer target, int position, int offset) {
+			for (int i = 0; i < blockSize; i++) {
+				if (target.get(position + i) != base.get(offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int slot(int checksum) {
+			return (checksum ^ checksum >>> 15) & (heads.length - 1);
+		}
+	}
+
+	/**
+	 * Counts the written bytes and gives up once the limit is exceeded
+	 */
+	private static class CountingOutputStream extends BufferedOutputStream {
+
+		private final long maxLength;
+		private long count;
+
+		CountingOutputStream(FileOutputStream outputStream, long maxLength) {
+			super(outputStream, 65536);
+			this.maxLength = maxLength;
+		}
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			count(1);
+			super.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			count(len);
+			super.write(b, off, len);
+		}
+
+		private void count(long length) throws IOException {
+			count += length;
+			if (count > maxLength) {
+				throw new DeltaTooLargeException();
+			}
+		}
+	}
+
+	/**
+	 * Thrown when a delta exceeds its limit, the encoding is given up
+	 */
+	@SuppressWarnings("serial")
+	private static class DeltaTooLargeException extends IOException {
+	}
+
+	/**
+	 * Decodes a delta while it is read
+	 */
+	private static class DeltaInputStream extends InputStream {
+
+		private final DataInputStream delta;
+		private final RandomAccessFile base;
+		private final File baseFile;
+		private final boolean temporaryBase;
+		private final long length;
+		private long produced;
+		private byte operation = -1;
+		private long baseOffset;
+		private int remaining;
+
+		DeltaInputStream(File deltaFile, File baseFile, boolean temporaryBase) throws IOException {
+			this.baseFile = baseFile;
+			this.temporaryBase = temporaryBase;
+			this.delta = new DataInputStream(new BufferedInputStream(new FileInputStream(deltaFile), 65536));
+			try {
+				this.length = readHeader(delta, deltaFile).getLength();
+				this.base = new RandomAccessFile(baseFile, "r");
+			} catch (IOException e) {
+				delta.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return -1 == read(single, 0, 1) ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (0 == length) {
+				return 0;
+			}
+			while (0 == remaining) {
+				if (END == operation) {
+					return -1;
+				}
+				next();
+			}
+			int read;
+			if (COPY == operation) {
+				read = base.getChannel().read(ByteBuffer.wrap(buffer, offset, Math.min(length, remaining)),
+						baseOffset);
+				if (0 >= read) {
+					throw new EOFException("Base of delta ends unexpectedly");
+				}
+				baseOffset += read;
+			} else {
+				read = delta.read(buffer, offset, Math.min(length, remaining));
+				if (-1 == read) {
+					throw new EOFException("Delta ends unexpectedly");
+				}
+			}
+			remaining -= read;
+			produced += read;
+			return read;
+		}
+
+		private void next() throws IOException {
+			operation = delta.readByte();
+			switch (operation) {
+			case COPY:
+				baseOffset = delta.readInt() & 0xFFFFFFFFL;
+				remaining = delta.readInt();
+				break;
+			case INSERT:
+				remaining = delta.readInt();
+				break;
+			case END:
+				if (produced != length) {
+					throw new EOFException("Delta decoded to " + produced + " instead of " + length + " bytes");
+				}
+				remaining = 0;
+				break;
+			default:
+				throw new IOException("Unknown delta instruction " + operation);
+			}
+			if (0 > remaining) {
+				throw new IOException("Invalid delta instruction length " + remaining);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				delta.close();
+				base.close();
+			} finally {
+				if (temporaryBase) {
+					baseFile.delete();
+				}
+			}
+		}
+	}
+}
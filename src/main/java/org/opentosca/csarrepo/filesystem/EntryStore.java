@@ -0,0 +1,606 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.util.FileHasher;
+
+/**
+ * Stores archives by their zip entries
+ *
+ * The compressed data of every entry of at least <code>minSize</code> bytes is
+ * stored once as blob, named by its SHA-256 hash, and shared by all archives
+ * containing it. Everything else of the archive, i.e. headers, small entries
+ * and the central directory, is kept in a manifest next to the references to
+ * the blobs. Since the compressed data is stored as it is, concatenating the
+ * parts yields exactly the original archive.
+ *
+ * Archives which cannot be split, e.g. ZIP64 archives or no zip at all, are
+ * not packed.
+ */
+class EntryStore {
+
+	private static final Logger LOGGER = LogManager.getLogger(EntryStore.class);
+
+	static final String BLOB_DIRECTORY = "blobs";
+
+	private static final int MANIFEST_MAGIC = 0x43535250;
+	private static final int MANIFEST_VERSION = 1;
+	private static final byte INLINE = 0;
+	private static final byte BLOB = 1;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int END_LENGTH = 22;
+	private static final int BUFFER_SIZE = 65536;
+
+	private final VolumePool volumes;
+	private final long minSize;
+
+	/**
+	 * @param volumes
+	 *            volumes holding the blobs in their blob directory
+	 * @param minSize
+	 *            minimum compressed size of the entries stored as blobs
+	 */
+	EntryStore(VolumePool volumes, long minSize) {
+		this.volumes = volumes;
+		this.minSize = minSize;
+	}
+
+	/**
+	 * Packs the given archive into the given manifest. The packed archive is
+	 * verified against the given hash.
+	 *
+	 * @param archive
+	 * @param hash
+	 *            SHA-256 hash of the archive
+	 * @param manifest
+	 *            the manifest to write
+	 * @return the outcome or <code>null</code>, if the archive was not packed
+	 * @throws IOException
+	 */
+	PackResult pack(File archive, String hash, File manifest) throws IOException {
+		List<Segment> segments;
+		try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+			segments = split(file);
+		}
+		if (null == segments) {
+			return null;
+		}
+
+		int blobs = 0;
+		int reused = 0;
+		long storedBytes = 0;
+		for (Segment segment : segments) {
+			if (BLOB == segment.type) {
+				blobs++;
+				segment.hash = hashRange(archive, segment.offset, segment.length);
+				File blob = getBlob(segment.hash);
+				if (blob.isFile()) {
+					// protects the blob from being collected meanwhile
+					blob.setLastModified(System.currentTimeMillis());
+					reused++;
+				} else {
+					storeBlob(archive, segment);
+					storedBytes += segment.length;
+				}
+			}
+		}
+		if (0 == blobs) {
+			return null;
+		}
+
+		try {
+			writeManifest(archive, segments, manifest);
+			// never keep a manifest which does not restore the archive
+			try (InputStream inputStream = open(manifest)) {
+				if (!hash.equals(FileHasher.toHex(digest(inputStream)))) {
+					throw new IOException("Packed archive does not match " + hash);
+				}
+			}
+		} catch (IOException e) {
+			manifest.delete();
+			throw e;
+		}
+		return new PackResult(archive.length(), blobs, reused, storedBytes + manifest.length());
+	}
+
+	/**
+	 * @param manifest
+	 * @return the archive of the given manifest as stream
+	 * @throws IOException
+	 */
+	InputStream open(File manifest) throws IOException {
+		return new PackedInputStream(manifest, readSegments(manifest));
+	}
+
+	/**
+	 * @param manifest
+	 * @return the parts of the files the archive of the given manifest
+	 *         consists of, in order
+	 * @throws IOException
+	 *             if a blob is missing or damaged
+	 */
+	List<ArchiveChannel.Part> getParts(File manifest) throws IOException {
+		List<Segment> segments = readSegments(manifest);
+		List<ArchiveChannel.Part> parts = new ArrayList<ArchiveChannel.Part>(segments.size());
+		for (Segment segment : segments) {
+			if (INLINE == segment.type) {
+				parts.add(new ArchiveChannel.Part(manifest, segment.offset, segment.length));
+				continue;
+			}
+			File blob = getBlob(segment.hash);
+			if (blob.length() != segment.length) {
+				LOGGER.error("Blob {} of {} is missing or damaged", segment.hash, manifest);
+				throw new IOException("Blob " + segment.hash + " is missing or damaged");
+			}
+			parts.add(new ArchiveChannel.Part(blob, 0, segment.length));
+		}
+		return parts;
+	}
+
+	/**
+	 * @param manifest
+	 * @return the size of the archive of the given manifest
+	 * @throws IOException
+	 */
+	long getLength(File manifest) throws IOException {
+		long length = 0;
+		for (Segment segment : readSegments(manifest)) {
+			length += segment.length;
+		}
+		return length;
+	}
+
+	/**
+	 * @param manifest
+	 * @return the hashes of the blobs the given manifest refers to
+	 * @throws IOException
+	 */
+	List<String> getBlobHashes(File manifest) throws IOException {
+		List<String> hashes = new ArrayList<String>();
+		for (Segment segment : readSegments(manifest)) {
+			if (BLOB == segment.type) {
+				hashes.add(segment.hash);
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * @param hash
+	 * @return the blob on the volume holding it, or where it would be on the
+	 *         primary volume if no volume does
+	 */
+	File getBlob(String hash) {
+		File blob = volumes.locate(getBlobPath(hash));
+		return null == blob ? volumes.getPrimary().resolve(getBlobPath(hash)) : blob;
+	}
+
+	/**
+	 * @param hash
+	 * @return the path of the blob below the root of a volume
+	 */
+	static String getBlobPath(String hash) {
+		return BLOB_DIRECTORY + File.separator + hash.substring(0, 2) + File.separator + hash;
+	}
+
+	/**
+	 * Splits the archive into the compressed data of the large entries and
+	 * the remaining parts.
+	 *
+	 * @return the segments in order or <code>null</code>, if the archive cannot
+	 *         be split
+	 */
+	private List<Segment> split(RandomAccessFile file) throws IOException {
+		long length = file.length();
+		ByteBuffer end = findEnd(file);
+		if (null == end) {
+			return null;
+		}
+		int entries = end.getShort(10) & 0xFFFF;
+		long centralSize = end.getInt(12) & 0xFFFFFFFFL;
+		long centralOffset = end.getInt(16) & 0xFFFFFFFFL;
+		if (0xFFFF == entries || 0xFFFFFFFFL == centralOffset || centralOffset + centralSize > length
+				|| centralSize > Integer.MAX_VALUE) {
+			// ZIP64 or broken
+			return null;
+		}
+
+		ByteBuffer central = read(file, centralOffset, (int) centralSize);
+		ByteBuffer localHeader = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+		List<Segment> data = new ArrayList<Segment>();
+		int position = 0;
+		for (int i = 0; i < entries; i++) {
+			if (position + 46 > central.limit() || CENTRAL_HEADER_SIGNATURE != central.getInt(position)) {
+				return null;
+			}
+			long compressedSize = central.getInt(position + 20) & 0xFFFFFFFFL;
+			int nameLength = central.getShort(position + 28) & 0xFFFF;
+			int extraLength = central.getShort(position + 30) & 0xFFFF;
+			int commentLength = central.getShort(position + 32) & 0xFFFF;
+			long localOffset = central.getInt(position + 42) & 0xFFFFFFFFL;
+			if (0xFFFFFFFFL == compressedSize || 0xFFFFFFFFL == localOffset) {
+				return null;
+			}
+			position += 46 + nameLength + extraLength + commentLength;
+
+			if (compressedSize < minSize) {
+				continue;
+			}
+			localHeader.clear();
+			file.getChannel().read(localHeader, localOffset);
+			if (localHeader.hasRemaining() || LOCAL_HEADER_SIGNATURE != localHeader.getInt(0)) {
+				return null;
+			}
+			long dataOffset = localOffset + 30 + (localHeader.getShort(26) & 0xFFFF)
+					+ (localHeader.getShort(28) & 0xFFFF);
+			if (dataOffset + compressedSize > centralOffset) {
+				return null;
+			}
+			data.add(new Segment(BLOB, dataOffset, compressedSize));
+		}
+
+		Collections.sort(data, new Comparator<Segment>() {
+
+			@Override
+			public int compare(Segment first, Segment second) {
+				return Long.compare(first.offset, second.offset);
+			}
+		});
+		List<Segment> segments = new ArrayList<Segment>();
+		long cursor = 0;
+		for (Segment segment : data) {
+			if (segment.offset < cursor) {
+				// overlapping entries
+				return null;
+			}
+			if (segment.offset > cursor) {
+				segments.add(new Segment(INLINE, cursor, segment.offset - cursor));
+			}
+			segments.add(segment);
+			cursor = segment.offset + segment.length;
+		}
+		if (length > cursor) {
+			segments.add(new Segment(INLINE, cursor, length - cursor));
+		}
+		return segments;
+	}
+
+	/**
+	 * @return the end of central directory record or <code>null</code>, if
+	 *         there is none
+	 */
+	private static ByteBuffer findEnd(RandomAccessFile file) throws IOException {
+		long length = file.length();
+		if (length < END_LENGTH) {
+			return null;
+		}
+		// the record is followed by a comment of at most 65535 bytes
+		long start = Math.max(0, length - END_LENGTH - 0xFFFF);
+		ByteBuffer tail = read(file, start, (int) (length - start));
+		for (int position = tail.limit() - END_LENGTH; position >= 0; position--) {
+			if (END_SIGNATURE == tail.getInt(position)) {
+				tail.position(position);
+				return tail.slice().order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+		return null;
+	}
+
+	private static ByteBuffer read(RandomAccessFile file, long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		file.seek(offset);
+		file.readFully(bytes);
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void storeBlob(File archive, Segment segment) throws IOException {
+		StorageVolume volume = volumes.place(segment.length);
+		File blob = volume.resolve(getBlobPath(segment.hash));
+		File directory = blob.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Could not create " + directory);
+		}
+		File temporaryFile = File.createTempFile("blob", ".tmp", directory);
+		volume.beginWrite();
+		try {
+			try (InputStream inputStream = new RangeInputStream(archive, segment.offset, segment.length);
+					OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+				copy(inputStream, outputStream);
+			}
+			try {
+				Files.move(temporaryFile.toPath(), blob.toPath());
+			} catch (FileAlreadyExistsException e) {
+				// stored concurrently
+			}
+		} finally {
+			volume.endWrite(segment.length);
+			temporaryFile.delete();
+		}
+	}
+
+	private static void writeManifest(File archive, List<Segment> segments, File manifest) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerOutput = new DataOutputStream(header);
+		headerOutput.writeInt(MANIFEST_VERSION);
+		headerOutput.writeInt(segments.size());
+		for (Segment segment : segments) {
+			headerOutput.writeByte(segment.type);
+			headerOutput.writeLong(segment.length);
+			if (BLOB == segment.type) {
+				headerOutput.writeUTF(segment.hash);
+			}
+		}
+		headerOutput.flush();
+
+		try (DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(manifest))) {
+			outputStream.writeInt(MANIFEST_MAGIC);
+			outputStream.writeInt(header.size());
+			header.writeTo(outputStream);
+			for (Segment segment : segments) {
+				if (INLINE == segment.type) {
+					try (InputStream inputStream = new RangeInputStream(archive, segment.offset, segment.length)) {
+						copy(inputStream, outputStream);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the segments of a manifest, the offsets of the inline segments
+	 * point into the manifest.
+	 */
+	private static List<Segment> readSegments(File manifest) throws IOException {
+		try (DataInputStream inputStream = new DataInputStream(new FileInputStream(manifest))) {
+			if (MANIFEST_MAGIC != inputStream.readInt()) {
+				throw new IOException(manifest + " is no manifest");
+			}
+			byte[] header = new byte[inputStream.readInt()];
+			inputStream.readFully(header);
+			DataInputStream headerInput = new DataInputStream(new ByteArrayInputStream(header));
+			if (MANIFEST_VERSION != headerInput.readInt()) {
+				throw new IOException(manifest + " has an unknown version");
+			}
+			int count = headerInput.readInt();
+			List<Segment> segments = new ArrayList<Segment>(count);
+			long inlineOffset = 8 + header.length;
+			for (int i = 0; i < count; i++) {
+				byte type = headerInput.readByte();
+				long length = headerInput.readLong();
+				if (BLOB == type) {
+					Segment segment = new Segment(BLOB, 0, length);
+					segment.hash = headerInput.readUTF();
+					segments.add(segment);
+				} else {
+					segments.add(new Segment(INLINE, inlineOffset, length));
+					inlineOffset += length;
+				}
+			}
+			return segments;
+		}
+	}
+
+	private static String hashRange(File archive, long offset, long length) throws IOException {
+		try (InputStream inputStream = new RangeInputStream(archive, offset, length)) {
+			return FileHasher.toHex(digest(inputStream));
+		}
+	}
+
+	private static byte[] digest(InputStream inputStream) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while (-1 != (read = inputStream.read(buffer))) {
+			messageDigest.update(buffer, 0, read);
+		}
+		return messageDigest.digest();
+	}
+
+	private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while (-1 != (read = inputStream.read(buffer))) {
+			outputStream.write(buffer, 0, read);
+		}
+	}
+
+	private static class Segment {
+
+		private final byte type;
+		private final long offset;
+		private final long length;
+		private String hash;
+
+		Segment(byte type, long offset, long length) {
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Outcome of packing an archive
+	 */
+	static class PackResult {
+
+		private final long length;
+		private final int blobs;
+		private final int reused;
+		private final long storedBytes;
+
+		PackResult(long length, int blobs, int reused, long storedBytes) {
+			this.length = length;
+			this.blobs = blobs;
+			this.reused = reused;
+			this.storedBytes = storedBytes;
+		}
+
+		long getLength() {
+			return length;
+		}
+
+		int getBlobs() {
+			return blobs;
+		}
+
+		int getReused() {
+			return reused;
+		}
+
+		/**
+		 * @return bytes newly written for the archive, manifest and new blobs
+		 */
+		long getStoredBytes() {
+			return storedBytes;
+		}
+	}
+
+	/**
+	 * Reads a part of a file
+	 */
+	static class RangeInputStream extends InputStream {
+
+		private final FileInputStream inputStream;
+		private long remaining;
+
+		RangeInputStream(File file, long offset, long length) throws IOException {
+			this.inputStream = new FileInputStream(file);
+			this.remaining = length;
+			try {
+				this.inputStream.getChannel().position(offset);
+			} catch (IOException e) {
+				this.inputStream.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return -1 == read(single, 0, 1) ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (0 >= remaining) {
+				return -1;
+			}
+			int read = inputStream.read(buffer, offset, (int) Math.min(length, remaining));
+			if (-1 == read) {
+				throw new EOFException("Unexpected end of stored data");
+			}
+			remaining -= read;
+			return read;
+		}
+
+		@Override
+		public void close() throws IOException {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Concatenates the segments of a manifest, opening one file at a time
+	 */
+	private class PackedInputStream extends InputStream {
+
+		private final File manifest;
+		private final List<Segment> segments;
+		private int next;
+		private InputStream current;
+
+		PackedInputStream(File manifest, List<Segment> segments) {
+			this.manifest = manifest;
+			this.segments = segments;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return -1 == read(single, 0, 1) ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (0 == length) {
+				return 0;
+			}
+			while (true) {
+				if (null == current) {
+					if (next == segments.size()) {
+						return -1;
+					}
+					current = openSegment(segments.get(next++));
+				}
+				int read = current.read(buffer, offset, length);
+				if (-1 != read) {
+					return read;
+				}
+				current.close();
+				current = null;
+			}
+		}
+
+		private InputStream openSegment(Segment segment) throws IOException {
+			if (INLINE == segment.type) {
+				return volumes.getVolume(manifest).countReads(
+						new RangeInputStream(manifest, segment.offset, segment.length));
+			}
+			try {
+				return openBlob(segment);
+			} catch (IOException e) {
+				// the blob may have been moved to another volume meanwhile
+				return openBlob(segment);
+			}
+		}
+
+		private InputStream openBlob(Segment segment) throws IOException {
+			File blob = getBlob(segment.hash);
+			if (blob.length() != segment.length) {
+				LOGGER.error("Blob {} of {} is missing or damaged", segment.hash, manifest);
+				throw new IOException("Blob " + segment.hash + " is missing or damaged");
+			}
+			return volumes.getVolume(blob).countReads(new RangeInputStream(blob, 0, segment.length));
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (null != current) {
+				current.close();
+				current = null;
+			}
+			next = segments.size();
+		}
+	}
+}
@@ -5,36 +5,54 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.util.Hash;
+import org.opentosca.csarrepo.util.RateLimiter;
 
 /**
  * Provides the file system functionality.
  *
+ * Facade of the storage: archives are stored, read and deleted by the
+ * {@link ArchiveStore}, stored as deltas by the {@link DeltaRepacker}, removed
+ * by the {@link GarbageSweeper} once unreferenced, checked by the
+ * {@link StorageScrubber} and moved between volumes by the {@link VolumeMover}.
+ *
  * @author Fabian Toth, Dennis Przytarski
  */
 public class FileSystem {
 
 	private static final Logger LOGGER = LogManager.getLogger(FileSystem.class);
 
-	private static final String BASE_PATH = System.getProperty("csarFilePath") + File.separator;
+	private static final String JOURNAL = "intents.journal";
+	private static final long DEFAULT_JOURNAL_COMPACT_SIZE = 1048576;
+
+	private static final VolumePool VOLUMES = VolumePool.fromProperties();
+	private static final ArchiveStore ARCHIVES = new ArchiveStore(VOLUMES);
+	private static final DeltaRepacker DELTAS = new DeltaRepacker(ARCHIVES);
+	private static final GarbageSweeper SWEEPER = new GarbageSweeper(ARCHIVES);
+	private static final StorageScrubber SCRUBBER = new StorageScrubber(ARCHIVES);
+	private static final VolumeMover MOVER = new VolumeMover(ARCHIVES);
+	private static final IntentJournal INTENTS = new IntentJournal(VOLUMES.getPrimary().resolve(JOURNAL),
+			Long.getLong("journalCompactSize", DEFAULT_JOURNAL_COMPACT_SIZE));
 
 	public FileSystem() {
-		// ensure the base_path is available
-		File file = new File(BASE_PATH);
-		if (!file.exists()) {
-			file.mkdir();
-			LOGGER.info("Created " + BASE_PATH + " to store CSARs");
+		// ensure the volumes are available
+		for (StorageVolume volume : VOLUMES.getAllVolumes()) {
+			if (!volume.getRoot().exists()) {
+				volume.getRoot().mkdirs();
+				LOGGER.info("Created " + volume.getRoot() + " to store CSARs");
+			}
 		}
 	}
 
 	/**
-	 * moves the given file to a persistent place
+	 * moves the given file to a persistent place on the volume chosen for it
 	 *
 	 * @param file
 	 *            temporary uploaded file
@@ -42,16 +60,131 @@ public class FileSystem {
 	 * @throws PersistenceException
 	 */
 	public File saveToFileSystem(final File file) throws PersistenceException {
-		try {
-			UUID filename = UUID.randomUUID();
-			File newFile = new File(this.generateFilePath(filename));
-			Files.move(file.toPath(), newFile.toPath());
-			LOGGER.info("Moved file {} to {} (size: {})", file.getAbsolutePath(), newFile.getAbsolutePath(),
-					newFile.length());
-			return newFile;
-		} catch (IOException e) {
-			throw new PersistenceException(e);
+		return ARCHIVES.save(file, UUID.randomUUID());
+	}
+
+	/**
+	 * Moves the given archive to a persistent place, see
+	 * {@link ArchiveStore#saveArchive(File, String, UUID)}.
+	 *
+	 * @param file
+	 *            temporary uploaded archive, removed afterwards
+	 * @param hash
+	 *            hash of the archive
+	 * @return the filename of the stored archive
+	 * @throws PersistenceException
+	 */
+	public UUID saveArchive(final File file, final String hash) throws PersistenceException {
+		return saveArchive(file, hash, UUID.randomUUID());
+	}
+
+	/**
+	 * Moves the given archive to a persistent place under the given filename,
+	 * e.g. one written to the journal before.
+	 *
+	 * @param file
+	 *            temporary uploaded archive, removed afterwards
+	 * @param hash
+	 *            hash of the archive
+	 * @param filename
+	 *            the filename (= UUID) of the stored archive
+	 * @return the filename of the stored archive
+	 * @throws PersistenceException
+	 */
+	public UUID saveArchive(final File file, final String hash, final UUID filename) throws PersistenceException {
+		ARCHIVES.saveArchive(file, hash, filename);
+		return filename;
+	}
+
+	/**
+	 * Opens a stored archive, no matter how it is stored. An archive in the
+	 * cold tier is recalled first.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the content of the archive
+	 * @throws IOException
+	 *             if the archive doesn't exist or could not be read
+	 */
+	public InputStream getInputStream(final UUID filename) throws IOException {
+		ARCHIVES.recordAccess(filename);
+		MOVER.recall(filename);
+		return ARCHIVES.open(filename);
+	}
+
+	/**
+	 * Opens a stored archive for random access, e.g. to read single entries.
+	 * An archive in the cold tier is recalled first.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the archive, has to be closed
+	 * @throws IOException
+	 *             if the archive doesn't exist or could not be read
+	 */
+	public ArchiveChannel getChannel(final UUID filename) throws IOException {
+		ARCHIVES.recordAccess(filename);
+		MOVER.recall(filename);
+		return ARCHIVES.openChannel(filename);
+	}
+
+	/**
+	 * Opens a stored archive to read its central directory. An archive stored
+	 * by its entries is read from its manifest, which holds the central
+	 * directory, so it is not recalled from the cold tier and its blobs are
+	 * not read.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the archive, has to be closed
+	 * @throws IOException
+	 *             if the archive doesn't exist or could not be read
+	 */
+	public ArchiveChannel getDirectoryChannel(final UUID filename) throws IOException {
+		if (null != ARCHIVES.getManifest(filename)) {
+			return ARCHIVES.openChannel(filename);
 		}
+		return getChannel(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the time the archive was last read, stored or reused,
+	 *         <code>0</code> if it doesn't exist
+	 */
+	public long getLastAccess(final UUID filename) {
+		return ARCHIVES.getLastAccess(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return <code>true</code> if the archive is stored
+	 */
+	public boolean exists(final UUID filename) {
+		return ARCHIVES.exists(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the time the archive was stored or last reused, <code>0</code>
+	 *         if it doesn't exist
+	 */
+	public long getLastModified(final UUID filename) {
+		return ARCHIVES.getLastModified(filename);
+	}
+
+	/**
+	 * Marks the archive as used right now, so it is not collected as garbage
+	 * while it is being reused.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 */
+	public void touch(final UUID filename) {
+		ARCHIVES.touch(filename);
 	}
 
 	/**
@@ -62,15 +195,7 @@ public class FileSystem {
 	 * @return the result of the deletion
 	 */
 	public boolean deleteFromFileSystem(final UUID filename) {
-		File file = new File(generateFilePath(filename));
-		if (file.exists() && file.isFile()) {
-			Boolean fileDeleted = file.delete();
-			if (fileDeleted) {
-				LOGGER.info(String.format("Deleted file: %s", file.getAbsolutePath()));
-			}
-			return fileDeleted;
-		}
-		return false;
+		return ARCHIVES.delete(filename);
 	}
 
 	/**
@@ -78,14 +203,12 @@ public class FileSystem {
 	 *
 	 * @param filename
 	 *            the filename (= UUID) of the hashed file
-	 * @return the file or <code>null</code> if the file doesn't exist
+	 * @return the file or <code>null</code> if the file doesn't exist, is
+	 *         stored by its entries or packed, see
+	 *         {@link #getInputStream(UUID)}
 	 */
 	public File getFile(final UUID filename) {
-		File file = new File(generateFilePath(filename));
-		if (file.exists() && file.isFile()) {
-			return file;
-		}
-		return null;
+		return ARCHIVES.getFile(filename);
 	}
 
 	/**
@@ -96,11 +219,7 @@ public class FileSystem {
 	 * @return <code>true</code> if the deletions was successful
 	 */
 	public boolean deleteFile(final UUID filename) {
-		File file = new File(generateFilePath(filename));
-		if (file.exists() && file.isFile()) {
-			return file.delete();
-		}
-		return false;
+		return ARCHIVES.delete(filename);
 	}
 
 	/**
@@ -111,21 +230,196 @@ public class FileSystem {
 	 * @return the size of the file
 	 */
 	public long getFileSize(final UUID filename) {
-		File file = new File(generateFilePath(filename));
-		if (file.exists() && file.isFile()) {
-			return file.length();
-		}
-		return 0;
+		return ARCHIVES.getSize(filename);
 	}
 
 	/**
-	 * 
+	 * See {@link GarbageSweeper#sweep(Set, long, boolean, RateLimiter)}.
+	 *
+	 * @param referenced
+	 *            filenames of the hashed files
+	 * @param gracePeriod
+	 *            minimum age in milliseconds of the removed files
+	 * @param dryRun
+	 *            <code>true</code> to only count the files
+	 * @param rateLimiter
+	 *            limits the file operations
+	 * @return the removed files
+	 * @throws InterruptedException
+	 *             if the sweep was interrupted
+	 */
+	public SweepResult sweep(Set<UUID> referenced, long gracePeriod, boolean dryRun, RateLimiter rateLimiter)
+			throws InterruptedException {
+		return SWEEPER.sweep(referenced, gracePeriod, dryRun, rateLimiter);
+	}
+
+	/**
+	 * Rewrites the segments of the pack store which consist mostly of deleted
+	 * archives, see <code>packCompactRatio</code>.
+	 *
+	 * @return the reclaimed bytes
+	 * @throws PersistenceException
+	 *             if a segment could not be rewritten
+	 */
+	public long compactPacks() throws PersistenceException {
+		return SWEEPER.compactPacks();
+	}
+
+	/**
+	 * See {@link StorageScrubber#verify(UUID, String, long, RateLimiter)}.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @param hash
+	 *            expected SHA-256 hash
+	 * @param size
+	 *            expected size
+	 * @param rateLimiter
+	 *            limits the bytes read
+	 * @return the state of the stored archive
+	 * @throws InterruptedException
+	 *             if the check was interrupted
+	 */
+	public Integrity verify(final UUID filename, String hash, long size, RateLimiter rateLimiter)
+			throws InterruptedException {
+		return SCRUBBER.verify(filename, hash, size, rateLimiter);
+	}
+
+	/**
+	 * @return the id of the last hashed file checked by the scrubber, or
+	 *         <code>0</code> to start from the beginning
+	 */
+	public long getScrubCursor() {
+		return SCRUBBER.getCursor();
+	}
+
+	/**
+	 * Persists the progress of the scrubber, so it continues where it stopped
+	 * after a restart.
+	 *
+	 * @param hashedFileId
+	 *            id of the last checked hashed file
+	 */
+	public void setScrubCursor(long hashedFileId) {
+		SCRUBBER.setCursor(hashedFileId);
+	}
+
+	/**
+	 * See {@link VolumeMover#rebalance(long, RateLimiter)}.
+	 *
+	 * @param threshold
+	 *            allowed difference of the used space in percent
+	 * @param rateLimiter
+	 *            limits the bytes moved
+	 * @return the moved files
+	 * @throws InterruptedException
+	 *             if the rebalancing was interrupted
+	 */
+	public MoveResult rebalance(long threshold, RateLimiter rateLimiter) throws InterruptedException {
+		return MOVER.rebalance(threshold, rateLimiter);
+	}
+
+	/**
+	 * See {@link VolumeMover#tier(Set, long, RateLimiter)}.
+	 *
+	 * @param hot
+	 *            filenames of the archives which always stay on the other
+	 *            volumes
+	 * @param coldAfter
+	 *            time in milliseconds without access after which an archive
+	 *            is moved to the cold tier
+	 * @param rateLimiter
+	 *            limits the bytes moved
+	 * @return the moved files
+	 * @throws InterruptedException
+	 *             if the tiering was interrupted
+	 */
+	public TierResult tier(Set<UUID> hot, long coldAfter, RateLimiter rateLimiter) throws InterruptedException {
+		return MOVER.tier(hot, coldAfter, rateLimiter);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the filename of the base of the archive, <code>null</code> if
+	 *         it is not stored as delta
+	 */
+	public UUID getDeltaBase(final UUID filename) {
+		return DELTAS.getBase(filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return number of deltas decoded to read the archive, <code>0</code> if
+	 *         it is not stored as delta
+	 */
+	public int getDeltaDepth(final UUID filename) {
+		return DELTAS.getDepth(filename);
+	}
+
+	/**
+	 * See {@link DeltaRepacker#deltify(UUID, UUID, double)}.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @param base
+	 *            the filename of the archive to encode against, usually the
+	 *            next version
+	 * @param maxRatio
+	 *            part of the current size, between <code>0</code> and
+	 *            <code>1</code>
+	 * @return the saved bytes, <code>0</code> if the archive was not encoded
+	 * @throws PersistenceException
+	 *             if an archive could not be read or the delta could not be
+	 *             written
+	 */
+	public long deltify(final UUID filename, final UUID base, double maxRatio) throws PersistenceException {
+		return DELTAS.deltify(filename, base, maxRatio);
+	}
+
+	/**
+	 * Stores an archive stored as delta as a whole again, e.g. since it became
+	 * the latest version.
+	 *
 	 * @param filename
 	 *            the filename (= UUID) of the hashed file
-	 * @return the absolute path of the file
+	 * @return the additionally used bytes, <code>0</code> if the archive is
+	 *         not stored as delta
+	 * @throws PersistenceException
+	 *             if the archive could not be decoded or written
+	 */
+	public long inflate(final UUID filename) throws PersistenceException {
+		return DELTAS.inflate(filename);
+	}
+
+	/**
+	 * @return the journal of the operations changing both the storage and the
+	 *         database, stored on the primary volume
+	 */
+	public IntentJournal getJournal() {
+		return INTENTS;
+	}
+
+	/**
+	 * @return the storage volumes, the first one is the primary volume and the
+	 *         cold tier, if any, is the last one
+	 */
+	public List<StorageVolume> getVolumes() {
+		return VOLUMES.getAllVolumes();
+	}
+
+	/**
+	 * Returns the figures of the stored archives. The blobs shared by the
+	 * archives are not removed with the archives, so the physical size
+	 * includes blobs which are no longer referenced.
+	 *
+	 * @param logicalSize
+	 *            size of all hashed files
+	 * @return the statistics of the storage
 	 */
-	private String generateFilePath(UUID filename) {
-		return BASE_PATH + filename.toString();
+	public StorageStatistics getStatistics(long logicalSize) {
+		return ARCHIVES.getStatistics(logicalSize, MOVER.getRecalls(), INTENTS.getOpenCount());
 	}
 
 	/**
@@ -0,0 +1,216 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Removes the archives and blobs no longer used and compacts the pack store
+ */
+class GarbageSweeper {
+
+	private static final Logger LOGGER = LogManager.getLogger(GarbageSweeper.class);
+
+	private static final double DEFAULT_PACK_COMPACT_RATIO = 0.5;
+
+	private final ArchiveStore store;
+
+	GarbageSweeper(ArchiveStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Removes the archives which are not referenced and the blobs which are
+	 * not used by any remaining archive. Files modified within the grace
+	 * period are kept, since they may belong to an upload which is not
+	 * committed yet. The bases of the remaining deltas are kept as well.
+	 *
+	 * @param referenced
+	 *            filenames of the hashed files
+	 * @param gracePeriod
+	 *            minimum age in milliseconds of the removed files
+	 * @param dryRun
+	 *            <code>true</code> to only count the files
+	 * @param rateLimiter
+	 *            limits the file operations
+	 * @return the removed files
+	 * @throws InterruptedException
+	 *             if the sweep was interrupted
+	 */
+	SweepResult sweep(Set<UUID> referenced, long gracePeriod, boolean dryRun, RateLimiter rateLimiter)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() - gracePeriod;
+		SweepResult result = new SweepResult();
+		PackStore packs = store.getPacks();
+		List<File> files = new ArrayList<File>();
+		for (StorageVolume volume : store.getVolumes().getAllVolumes()) {
+			File[] volumeFiles = volume.getRoot().listFiles();
+			if (null != volumeFiles) {
+				files.addAll(Arrays.asList(volumeFiles));
+			}
+		}
+
+		Set<UUID> kept = new HashSet<UUID>(referenced);
+		Set<UUID> scannedDeltas;
+		try {
+			scannedDeltas = keepDeltaBases(files, kept, deadline);
+		} catch (IOException e) {
+			// any archive may be the base of the unreadable delta
+			LOGGER.error("Could not read delta, skipping sweep", e);
+			return result;
+		}
+
+		for (UUID filename : packs.getFilenames()) {
+			if (!kept.contains(filename) && packs.getLastModified(filename) < deadline) {
+				rateLimiter.acquire(1);
+				synchronized (store.getDeltaLock()) {
+					if (!isNeededBase(filename, kept, scannedDeltas)) {
+						result.removePacked(packs, filename, dryRun);
+					}
+				}
+			}
+		}
+
+		Set<String> used = new HashSet<String>();
+		for (File file : files) {
+			if (!file.isFile()) {
+				continue;
+			}
+			boolean manifest = file.getName().endsWith(ArchiveStore.MANIFEST_SUFFIX);
+			UUID filename = ArchiveStore.parseStoredName(file.getName());
+			if (null == filename) {
+				continue;
+			}
+			if (!kept.contains(filename) && file.lastModified() < deadline) {
+				rateLimiter.acquire(1);
+				synchronized (store.getDeltaLock()) {
+					if (file.getName().endsWith(DeltaStore.DELTA_SUFFIX)) {
+						if (result.remove(file, dryRun, false) && !dryRun) {
+							store.getDeltaIndex().remove(filename);
+						}
+					} else if (!isNeededBase(filename, kept, scannedDeltas)) {
+						result.remove(file, dryRun, false);
+					}
+				}
+				continue;
+			}
+			if (manifest) {
+				rateLimiter.acquire(1);
+				try {
+					used.addAll(store.getEntryStore().getBlobHashes(file));
+				} catch (IOException e) {
+					// keep all blobs, the manifest may refer to any of them
+					LOGGER.error("Could not read manifest {}, skipping blobs", file, e);
+					return result;
+				}
+			}
+		}
+
+		List<File> blobDirectories = new ArrayList<File>();
+		for (StorageVolume volume : store.getVolumes().getAllVolumes()) {
+			File[] volumeDirectories = volume.resolve(EntryStore.BLOB_DIRECTORY).listFiles();
+			if (null != volumeDirectories) {
+				blobDirectories.addAll(Arrays.asList(volumeDirectories));
+			}
+		}
+		for (File blobDirectory : blobDirectories) {
+			File[] blobs = blobDirectory.listFiles();
+			if (null == blobs) {
+				continue;
+			}
+			for (File blob : blobs) {
+				if (!used.contains(blob.getName()) && blob.lastModified() < deadline) {
+					rateLimiter.acquire(1);
+					result.remove(blob, dryRun, true);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the bases of the kept deltas to the kept archives, following chains
+	 * of deltas.
+	 *
+	 * @param files
+	 *            the files of all volumes
+	 * @param kept
+	 *            the kept archives
+	 * @param deadline
+	 *            deltas modified afterwards are kept in any case
+	 * @return the filenames of the found deltas
+	 * @throws IOException
+	 *             if a delta could not be read
+	 */
+	private static Set<UUID> keepDeltaBases(List<File> files, Set<UUID> kept, long deadline) throws IOException {
+		Map<UUID, UUID> bases = new HashMap<UUID, UUID>();
+		for (File file : files) {
+			if (file.isFile() && file.getName().endsWith(DeltaStore.DELTA_SUFFIX)) {
+				UUID filename = ArchiveStore.parseStoredName(file.getName());
+				if (null != filename) {
+					bases.put(filename, DeltaStore.readHeader(file).getBase());
+					if (file.lastModified() >= deadline) {
+						kept.add(filename);
+					}
+				}
+			}
+		}
+		boolean added = true;
+		while (added) {
+			added = false;
+			for (Map.Entry<UUID, UUID> delta : bases.entrySet()) {
+				if (kept.contains(delta.getKey()) && kept.add(delta.getValue())) {
+					added = true;
+				}
+			}
+		}
+		return bases.keySet();
+	}
+
+	/**
+	 * @return <code>true</code> if a kept delta or one stored after the files
+	 *         were listed refers to the archive
+	 */
+	private boolean isNeededBase(UUID filename, Set<UUID> kept, Set<UUID> scannedDeltas) {
+		for (UUID delta : store.getDeltaIndex().getDeltas(filename)) {
+			if (kept.contains(delta) || !scannedDeltas.contains(delta)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Rewrites the segments of the pack store which consist mostly of deleted
+	 * archives, see <code>packCompactRatio</code>.
+	 *
+	 * @return the reclaimed bytes
+	 * @throws PersistenceException
+	 *             if a segment could not be rewritten
+	 */
+	long compactPacks() throws PersistenceException {
+		double ratio = DEFAULT_PACK_COMPACT_RATIO;
+		try {
+			ratio = Double.parseDouble(System.getProperty("packCompactRatio", "" + DEFAULT_PACK_COMPACT_RATIO));
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Invalid packCompactRatio, using {}", ratio);
+		}
+		try {
+			return store.getPacks().compact(ratio);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package org.opentosca.csarrepo.filesystem;
+
+/**
+ * State of a stored archive
+ */
+public enum Integrity {
+	INTACT, MISSING, TRUNCATED, CORRUPT
+}
@@ -0,0 +1,388 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+
+/**
+ * Write-ahead journal of operations which change both the storage and the
+ * database
+ *
+ * An operation writes its intent, i.e. its kind and the data needed to
+ * complete or undo it, before its first change and its outcome after the last
+ * one. Every record is a line with a checksum and is forced to disk before
+ * the operation continues. A torn record at the end, e.g. after a crash, is
+ * cut off. The intents without outcome are left to the recovery at the next
+ * start.
+ *
+ * Once the journal exceeds its compaction size, it is rewritten with the open
+ * intents only. So replaying it depends on the number of operations running
+ * at a crash, not on the size of the storage.
+ */
+public class IntentJournal {
+
+	private static final Logger LOGGER = LogManager.getLogger(IntentJournal.class);
+
+	private static final String BEGIN = "BEGIN";
+	private static final String SET = "SET";
+	private static final String COMMIT = "COMMIT";
+	private static final String ABORT = "ABORT";
+
+	// keys of the data of the operations
+	public static final String CSAR_ID = "csarId";
+	public static final String CSAR_FILE_ID = "csarFileId";
+	public static final String CSAR_FILE_IDS = "csarFileIds";
+	public static final String VERSION = "version";
+	public static final String CREATED_FILENAME = "createdFilename";
+	public static final String REUSED_FILENAME = "reusedFilename";
+	public static final String FILENAME = "filename";
+	public static final String SERVICE_TEMPLATE_ID = "serviceTemplateId";
+	public static final String NAMESPACE = "namespace";
+
+	/**
+	 * Kind of a journaled operation
+	 */
+	public enum Kind {
+		INGEST, DELETE_CSAR_FILE, DELETE_CSAR
+	}
+
+	private final File file;
+	private final long compactSize;
+	private final Map<Long, Intent> open = new LinkedHashMap<Long, Intent>();
+	private final List<Intent> recovered = new ArrayList<Intent>();
+	private FileChannel channel;
+	private long nextId = 1;
+	private long size;
+	private boolean loaded;
+
+	/**
+	 * @param file
+	 *            the journal
+	 * @param compactSize
+	 *            size in bytes after which the journal is rewritten
+	 */
+	IntentJournal(File file, long compactSize) {
+		this.file = file;
+		this.compactSize = compactSize;
+	}
+
+	/**
+	 * Writes the intent of a new operation.
+	 *
+	 * @param kind
+	 * @param data
+	 *            data needed to complete or undo the operation
+	 * @return the intent, to add data and write the outcome
+	 * @throws PersistenceException
+	 *             if the journal could not be written, the operation must not
+	 *             start then
+	 */
+	public synchronized Intent begin(Kind kind, Map<String, String> data) throws PersistenceException {
+		load();
+		Intent intent = new Intent(nextId++, kind);
+		StringBuilder records = new StringBuilder(record(BEGIN, intent.id, kind.name()));
+		for (Map.Entry<String, String> entry : data.entrySet()) {
+			records.append(record(SET, intent.id, encode(entry.getKey()) + " " + encode(entry.getValue())));
+		}
+		append(records.toString());
+		intent.data.putAll(data);
+		open.put(intent.id, intent);
+		return intent;
+	}
+
+	/**
+	 * @return the intents which were open when the journal was read at the
+	 *         start, i.e. the operations interrupted by a crash
+	 */
+	public synchronized List<Intent> getRecovered() {
+		load();
+		return new ArrayList<Intent>(recovered);
+	}
+
+	/**
+	 * @return number of intents without outcome
+	 */
+	public synchronized int getOpenCount() {
+		load();
+		return open.size();
+	}
+
+	private synchronized void set(Intent intent, Map<String, String> data) throws PersistenceException {
+		StringBuilder records = new StringBuilder();
+		for (Map.Entry<String, String> entry : data.entrySet()) {
+			records.append(record(SET, intent.id, encode(entry.getKey()) + " " + encode(entry.getValue())));
+		}
+		append(records.toString());
+		intent.data.putAll(data);
+	}
+
+	private synchronized void end(Intent intent, String outcome) throws PersistenceException {
+		if (!open.containsKey(intent.id)) {
+			return;
+		}
+		append(record(outcome, intent.id, ""));
+		open.remove(intent.id);
+		recovered.remove(intent);
+		if (size > compactSize) {
+			compact();
+		}
+	}
+
+	/**
+	 * Reads the journal at the first access.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (file.isFile()) {
+			try {
+				replay(Files.readAllBytes(file.toPath()));
+			} catch (IOException e) {
+				LOGGER.error("Could not read journal {}", file, e);
+			}
+		}
+		recovered.addAll(open.values());
+		if (!recovered.isEmpty()) {
+			LOGGER.warn("Journal {} contains {} interrupted operations", file, recovered.size());
+		}
+		try {
+			compact();
+		} catch (PersistenceException e) {
+			LOGGER.error("Could not compact journal {}", file, e);
+		}
+	}
+
+	private void replay(byte[] content) {
+		int offset = 0;
+		while (offset < content.length) {
+			int end = offset;
+			while (end < content.length && '\n' != content[end]) {
+				end++;
+			}
+			if (end == content.length || !replay(new String(content, offset, end - offset, StandardCharsets.UTF_8))) {
+				// the records following a damaged one are not trusted
+				LOGGER.warn("Journal {} is damaged at {}, cutting off {} bytes", file, offset, content.length - offset);
+				return;
+			}
+			offset = end + 1;
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the record is damaged
+	 */
+	private boolean replay(String line) {
+		String[] fields = line.split(" ", -1);
+		if (4 > fields.length || !fields[0].equals(checksum(line.substring(fields[0].length() + 1)))) {
+			return false;
+		}
+		long id;
+		try {
+			id = Long.parseLong(fields[2]);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		nextId = Math.max(nextId, id + 1);
+		if (BEGIN.equals(fields[1])) {
+			try {
+				open.put(id, new Intent(id, Kind.valueOf(fields[3])));
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+		} else if (SET.equals(fields[1]) && 5 == fields.length) {
+			Intent intent = open.get(id);
+			if (null != intent) {
+				intent.data.put(decode(fields[3]), decode(fields[4]));
+			}
+		} else if (COMMIT.equals(fields[1]) || ABORT.equals(fields[1])) {
+			open.remove(id);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Rewrites the journal with the open intents only.
+	 */
+	private void compact() throws PersistenceException {
+		StringBuilder records = new StringBuilder();
+		for (Intent intent : open.values()) {
+			records.append(record(BEGIN, intent.id, intent.kind.name()));
+			for (Map.Entry<String, String> entry : intent.data.entrySet()) {
+				records.append(record(SET, intent.id, encode(entry.getKey()) + " " + encode(entry.getValue())));
+			}
+		}
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		try {
+			close();
+			file.getParentFile().mkdirs();
+			try (FileChannel temporaryChannel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				temporaryChannel.write(ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8)));
+				temporaryChannel.force(true);
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			size = channel.size();
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
+	private void append(String records) throws PersistenceException {
+		try {
+			if (null == channel) {
+				file.getParentFile().mkdirs();
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND);
+				size = channel.size();
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				size += channel.write(buffer);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			close();
+			throw new PersistenceException(e);
+		}
+	}
+
+	private void close() {
+		if (null != channel) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOGGER.warn("Could not close journal {}", file, e);
+			}
+			channel = null;
+		}
+	}
+
+	private static String record(String type, long id, String fields) {
+		String record = type + " " + id + " " + fields;
+		return checksum(record) + " " + record + "\n";
+	}
+
+	private static String checksum(String record) {
+		CRC32 crc = new CRC32();
+		crc.update(record.getBytes(StandardCharsets.UTF_8));
+		return String.format("%08x", crc.getValue());
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(null == value ? "" : value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			return value;
+		}
+	}
+
+	/**
+	 * Intent of a running or interrupted operation
+	 */
+	public class Intent {
+
+		private final long id;
+		private final Kind kind;
+		private final Map<String, String> data = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+
+		Intent(long id, Kind kind) {
+			this.id = id;
+			this.kind = kind;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @param key
+		 * @return the value or <code>null</code> if it was not written yet
+		 */
+		public String get(String key) {
+			return data.get(key);
+		}
+
+		/**
+		 * Writes data determined while the operation runs, before it is used.
+		 *
+		 * @param key
+		 * @param value
+		 * @throws PersistenceException
+		 *             if the journal could not be written
+		 */
+		public void set(String key, String value) throws PersistenceException {
+			set(Collections.singletonMap(key, value));
+		}
+
+		/**
+		 * @param data
+		 * @throws PersistenceException
+		 *             if the journal could not be written
+		 * @see #set(String, String)
+		 */
+		public void set(Map<String, String> data) throws PersistenceException {
+			IntentJournal.this.set(this, data);
+		}
+
+		/**
+		 * Writes that the operation is complete.
+		 *
+		 * @throws PersistenceException
+		 *             if the journal could not be written, the operation is
+		 *             completed again at the next start then
+		 */
+		public void commit() throws PersistenceException {
+			end(this, COMMIT);
+		}
+
+		/**
+		 * Writes that the operation failed or was undone. Data left by a
+		 * failed operation is no longer referenced and removed by the garbage
+		 * collection. If the journal could not be written, the operation is
+		 * resolved at the next start.
+		 */
+		public void abort() {
+			try {
+				end(this, ABORT);
+			} catch (PersistenceException e) {
+				LOGGER.error("Could not write the outcome of operation {}", id, e);
+			}
+		}
+	}
+}
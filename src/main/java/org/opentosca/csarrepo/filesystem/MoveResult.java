@@ -0,0 +1,76 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Files moved between volumes
+ */
+public class MoveResult {
+
+	private static final Logger LOGGER = LogManager.getLogger(MoveResult.class);
+
+	private long files;
+	private long bytes;
+	private long failed;
+
+	void move(StorageVolume source, StorageVolume target, String path) {
+		File from = source.resolve(path);
+		File to = target.resolve(path);
+		long length = from.length();
+		boolean copied = false;
+		try {
+			if (!to.isFile()) {
+				File directory = to.getParentFile();
+				if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+					throw new IOException("Could not create " + directory);
+				}
+				File temporaryFile = File.createTempFile("move", ".tmp", directory);
+				target.beginWrite();
+				try {
+					Files.copy(from.toPath(), temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.COPY_ATTRIBUTES);
+					Files.move(temporaryFile.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+					copied = true;
+				} finally {
+					target.endWrite(length);
+					temporaryFile.delete();
+				}
+				source.addReadBytes(length);
+			}
+			Files.delete(from.toPath());
+			LOGGER.info("Moved {} to {} ({} bytes)", from, to, length);
+			files++;
+			bytes += length;
+		} catch (NoSuchFileException e) {
+			// deleted meanwhile, e.g. by the garbage collection
+			if (copied) {
+				to.delete();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Could not move {} to {}", from, to, e);
+			failed++;
+		}
+	}
+
+	public long getFiles() {
+		return files;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of files which could not be moved
+	 */
+	public long getFailed() {
+		return failed;
+	}
+}
@@ -0,0 +1,451 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Stores small archives in append-only segment files
+ *
+ * Every archive is appended to the active segment as a record of a header,
+ * i.e. filename, time and length, and the content. A deletion appends a
+ * tombstone. Once the active segment exceeds <code>segmentSize</code> bytes,
+ * a new segment is started. The index of the records is kept in memory and
+ * rebuilt from the record headers at the start, so its cost depends on the
+ * number of records, not on the size of the archives. A torn record at the
+ * end of the active segment, e.g. after a crash, is cut off.
+ *
+ * Compaction copies the live records of mostly deleted segments to the active
+ * segment and removes the old segment.
+ */
+class PackStore {
+
+	private static final Logger LOGGER = LogManager.getLogger(PackStore.class);
+
+	private static final int RECORD_MAGIC = 0x43535241;
+	private static final byte DATA = 0;
+	private static final byte TOMBSTONE = 1;
+	private static final int HEADER_LENGTH = 4 + 1 + 8 + 8 + 8 + 8;
+	private static final String SEGMENT_PREFIX = "pack-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	private final File directory;
+	private final long segmentSize;
+	private final Map<UUID, Location> index = new HashMap<UUID, Location>();
+	private final Map<UUID, Long> touched = new HashMap<UUID, Long>();
+	private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+	private boolean loaded;
+
+	/**
+	 * @param directory
+	 *            directory of the segments
+	 * @param segmentSize
+	 *            size in bytes after which a new segment is started
+	 */
+	PackStore(File directory, long segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Appends the given file as new record.
+	 *
+	 * @param filename
+	 * @param file
+	 * @throws IOException
+	 */
+	synchronized void put(UUID filename, File file) throws IOException {
+		load();
+		Segment segment = getActiveSegment();
+		try (FileInputStream inputStream = new FileInputStream(file)) {
+			append(segment, DATA, filename, System.currentTimeMillis(), inputStream.getChannel(), file.length());
+		}
+	}
+
+	/**
+	 * @param filename
+	 * @return the content of the record
+	 * @throws FileNotFoundException
+	 *             if there is no such record, or its segment was compacted
+	 *             meanwhile
+	 * @throws IOException
+	 */
+	InputStream open(UUID filename) throws IOException {
+		Location location;
+		synchronized (this) {
+			load();
+			location = index.get(filename);
+		}
+		if (null == location) {
+			throw new FileNotFoundException(filename.toString());
+		}
+		return new EntryStore.RangeInputStream(location.segment.file, location.offset, location.length);
+	}
+
+	/**
+	 * @param filename
+	 * @return the part of the segment holding the record
+	 * @throws FileNotFoundException
+	 *             if there is no such record
+	 */
+	synchronized ArchiveChannel.Part getPart(UUID filename) throws FileNotFoundException {
+		load();
+		Location location = index.get(filename);
+		if (null == location) {
+			throw new FileNotFoundException(filename.toString());
+		}
+		return new ArchiveChannel.Part(location.segment.file, location.offset, location.length);
+	}
+
+	synchronized boolean contains(UUID filename) {
+		load();
+		return index.containsKey(filename);
+	}
+
+	/**
+	 * @param filename
+	 * @return the length of the record, <code>-1</code> if there is none
+	 */
+	synchronized long getLength(UUID filename) {
+		load();
+		Location location = index.get(filename);
+		return null == location ? -1 : location.length;
+	}
+
+	/**
+	 * @param filename
+	 * @return the time the record was written or last touched,
+	 *         <code>0</code> if there is none
+	 */
+	synchronized long getLastModified(UUID filename) {
+		load();
+		Location location = index.get(filename);
+		if (null == location) {
+			return 0;
+		}
+		Long time = touched.get(filename);
+		return null == time ? location.time : Math.max(time, location.time);
+	}
+
+	/**
+	 * Marks the record as used right now. The time is not persisted.
+	 *
+	 * @param filename
+	 * @return <code>false</code> if there is no such record
+	 */
+	synchronized boolean touch(UUID filename) {
+		load();
+		Location location = index.get(filename);
+		if (null == location) {
+			return false;
+		}
+		touched.put(filename, System.currentTimeMillis());
+		return true;
+	}
+
+	/**
+	 * Appends a tombstone for the given record.
+	 *
+	 * @param filename
+	 * @return <code>false</code> if there is no such record
+	 */
+	synchronized boolean delete(UUID filename) {
+		load();
+		Location location = index.get(filename);
+		if (null == location) {
+			return false;
+		}
+		try {
+			append(getActiveSegment(), TOMBSTONE, filename, System.currentTimeMillis(), null, 0);
+		} catch (IOException e) {
+			LOGGER.error("Could not delete {} from {}", filename, directory, e);
+			return false;
+		}
+		index.remove(filename);
+		touched.remove(filename);
+		location.segment.liveBytes -= location.length;
+		return true;
+	}
+
+	/**
+	 * @return the filenames of all records
+	 */
+	synchronized Set<UUID> getFilenames() {
+		load();
+		return new HashSet<UUID>(index.keySet());
+	}
+
+	/**
+	 * Rewrites the segments whose live records take less than the given part
+	 * of the segment.
+	 *
+	 * @param minLiveRatio
+	 *            part of a segment, between <code>0</code> and <code>1</code>
+	 * @return the reclaimed bytes
+	 * @throws IOException
+	 */
+	synchronized long compact(double minLiveRatio) throws IOException {
+		load();
+		long reclaimed = 0;
+		for (Segment segment : new ArrayList<Segment>(segments.values())) {
+			if (segment == segments.lastEntry().getValue()) {
+				// never compact the active segment
+				break;
+			}
+			long length = segment.file.length();
+			long liveBytes = segment.liveBytes;
+			if (liveBytes >= minLiveRatio * length) {
+				continue;
+			}
+			boolean older = segment != segments.firstEntry().getValue();
+			try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+				long offset = 0;
+				while (offset + HEADER_LENGTH <= length) {
+					Header header = readHeader(file, offset);
+					if (null == header) {
+						throw new IOException("Segment " + segment.file + " is damaged at " + offset);
+					}
+					long dataOffset = offset + HEADER_LENGTH;
+					Location location = index.get(header.filename);
+					if (DATA == header.type && null != location && location.segment == segment
+							&& location.offset == dataOffset) {
+						append(getActiveSegment(), DATA, header.filename, header.time, file.getChannel()
+								.position(dataOffset), header.length);
+					} else if (TOMBSTONE == header.type && older) {
+						// a record in an older segment may still exist
+						append(getActiveSegment(), TOMBSTONE, header.filename, header.time, null, 0);
+					}
+					offset = dataOffset + header.length;
+				}
+			}
+			segments.remove(segment.id);
+			if (!segment.file.delete()) {
+				LOGGER.warn("Could not delete compacted segment {}", segment.file);
+			}
+			reclaimed += length - liveBytes;
+			LOGGER.info("Compacted segment {}, {} bytes reclaimed", segment.file, length - liveBytes);
+		}
+		return reclaimed;
+	}
+
+	/**
+	 * @return number of segments
+	 */
+	synchronized int getSegmentCount() {
+		load();
+		return segments.size();
+	}
+
+	/**
+	 * @return number of records
+	 */
+	synchronized int getRecordCount() {
+		load();
+		return index.size();
+	}
+
+	/**
+	 * @return the size of all segments
+	 */
+	synchronized long getSize() {
+		load();
+		long size = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.file.length();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the size of the live records
+	 */
+	synchronized long getLiveSize() {
+		load();
+		long size = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.liveBytes;
+		}
+		return size;
+	}
+
+	private void append(Segment segment, byte type, UUID filename, long time, FileChannel source, long length)
+			throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment.file, "rw")) {
+			FileChannel channel = file.getChannel();
+			long offset = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.putInt(RECORD_MAGIC).put(type).putLong(filename.getMostSignificantBits())
+					.putLong(filename.getLeastSignificantBits()).putLong(time).putLong(length);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, offset + header.position());
+			}
+			long written = 0;
+			while (written < length) {
+				long transferred = channel.transferFrom(source, offset + HEADER_LENGTH + written, length - written);
+				if (0 >= transferred) {
+					channel.truncate(offset);
+					throw new EOFException("Unexpected end of " + filename);
+				}
+				written += transferred;
+			}
+			channel.force(false);
+			if (DATA == type) {
+				Location previous = index.put(filename, new Location(segment, offset + HEADER_LENGTH, length, time));
+				if (null != previous) {
+					previous.segment.liveBytes -= previous.length;
+				}
+				segment.liveBytes += length;
+			}
+		}
+	}
+
+	private Segment getActiveSegment() throws IOException {
+		if (!segments.isEmpty()) {
+			Segment active = segments.lastEntry().getValue();
+			if (active.file.length() < segmentSize) {
+				return active;
+			}
+		}
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Could not create " + directory);
+		}
+		long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+		Segment segment = new Segment(id, new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, id,
+				SEGMENT_SUFFIX)));
+		segments.put(id, segment);
+		return segment;
+	}
+
+	/**
+	 * Rebuilds the index from the segments, oldest first.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = directory.listFiles();
+		if (null == files) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				try {
+					long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length()
+							- SEGMENT_SUFFIX.length()));
+					segments.put(id, new Segment(id, file));
+				} catch (NumberFormatException e) {
+					LOGGER.warn("Ignoring {}", file);
+				}
+			}
+		}
+		for (Segment segment : segments.values()) {
+			try {
+				loadSegment(segment, segment == segments.lastEntry().getValue());
+			} catch (IOException e) {
+				LOGGER.error("Could not read segment {}", segment.file, e);
+			}
+		}
+		LOGGER.info("Loaded {} records from {} segments in {}", index.size(), segments.size(), directory);
+	}
+
+	private void loadSegment(Segment segment, boolean active) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment.file, active ? "rw" : "r")) {
+			long length = file.length();
+			long offset = 0;
+			while (offset < length) {
+				Header header = offset + HEADER_LENGTH <= length ? readHeader(file, offset) : null;
+				if (null == header || offset + HEADER_LENGTH + header.length > length) {
+					if (active) {
+						LOGGER.warn("Cutting off torn record at {} of {}", offset, segment.file);
+						file.setLength(offset);
+					} else {
+						LOGGER.error("Segment {} is damaged at {}", segment.file, offset);
+					}
+					return;
+				}
+				long dataOffset = offset + HEADER_LENGTH;
+				Location previous = index.remove(header.filename);
+				if (null != previous) {
+					previous.segment.liveBytes -= previous.length;
+				}
+				if (DATA == header.type) {
+					index.put(header.filename, new Location(segment, dataOffset, header.length, header.time));
+					segment.liveBytes += header.length;
+				}
+				offset = dataOffset + header.length;
+			}
+		}
+	}
+
+	private static Header readHeader(RandomAccessFile file, long offset) throws IOException {
+		byte[] bytes = new byte[HEADER_LENGTH];
+		file.seek(offset);
+		file.readFully(bytes);
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (RECORD_MAGIC != input.readInt()) {
+			return null;
+		}
+		Header header = new Header();
+		header.type = input.readByte();
+		header.filename = new UUID(input.readLong(), input.readLong());
+		header.time = input.readLong();
+		header.length = input.readLong();
+		return 0 > header.length ? null : header;
+	}
+
+	private static class Header {
+
+		private byte type;
+		private UUID filename;
+		private long time;
+		private long length;
+	}
+
+	private static class Segment {
+
+		private final long id;
+		private final File file;
+		private long liveBytes;
+
+		Segment(long id, File file) {
+			this.id = id;
+			this.file = file;
+		}
+	}
+
+	private static class Location {
+
+		private final Segment segment;
+		private final long offset;
+		private final long length;
+		private final long time;
+
+		Location(Segment segment, long offset, long length, long time) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.time = time;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.util.FileHasher;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Checks stored archives against their hashes
+ *
+ * The progress of the scrubber is kept in a cursor file on the primary volume.
+ */
+class StorageScrubber {
+
+	private static final Logger LOGGER = LogManager.getLogger(StorageScrubber.class);
+
+	private static final String SCRUB_CURSOR = "scrub.cursor";
+	private static final int VERIFY_BUFFER_SIZE = 1048576;
+
+	private final ArchiveStore store;
+
+	StorageScrubber(ArchiveStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Reads the whole archive and compares it with the expected hash and
+	 * size. Blobs of archives stored by their entries are checked as part of
+	 * the archive.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @param hash
+	 *            expected SHA-256 hash
+	 * @param size
+	 *            expected size
+	 * @param rateLimiter
+	 *            limits the bytes read
+	 * @return the state of the stored archive
+	 * @throws InterruptedException
+	 *             if the check was interrupted
+	 */
+	Integrity verify(final UUID filename, String hash, long size, RateLimiter rateLimiter)
+			throws InterruptedException {
+		File manifest = store.getManifest(filename);
+		if (null != manifest) {
+			EntryStore entryStore = store.getEntryStore();
+			try {
+				for (String blobHash : entryStore.getBlobHashes(manifest)) {
+					if (!entryStore.getBlob(blobHash).isFile()) {
+						LOGGER.error("Blob {} of {} is missing", blobHash, manifest);
+						return Integrity.MISSING;
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.error("Could not read manifest {}", manifest, e);
+				return Integrity.CORRUPT;
+			}
+		} else if (null == store.getStoredFile(filename) && !store.getPacks().contains(filename)) {
+			return Integrity.MISSING;
+		}
+
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		long length = 0;
+		try (InputStream inputStream = store.open(filename)) {
+			byte[] buffer = new byte[VERIFY_BUFFER_SIZE];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				messageDigest.update(buffer, 0, read);
+				length += read;
+				rateLimiter.acquire(read);
+			}
+		} catch (FileNotFoundException e) {
+			return Integrity.MISSING;
+		} catch (EOFException e) {
+			LOGGER.error("Archive {} ends unexpectedly", filename, e);
+			return Integrity.TRUNCATED;
+		} catch (IOException e) {
+			LOGGER.error("Could not read archive {}", filename, e);
+			return Integrity.CORRUPT;
+		}
+		if (length < size) {
+			return Integrity.TRUNCATED;
+		}
+		if (length != size || !FileHasher.toHex(messageDigest.digest()).equalsIgnoreCase(hash)) {
+			return Integrity.CORRUPT;
+		}
+		return Integrity.INTACT;
+	}
+
+	/**
+	 * @return the id of the last hashed file checked by the scrubber, or
+	 *         <code>0</code> to start from the beginning
+	 */
+	long getCursor() {
+		File cursor = store.getVolumes().getPrimary().resolve(SCRUB_CURSOR);
+		if (!cursor.isFile()) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(new String(Files.readAllBytes(cursor.toPath()), StandardCharsets.UTF_8).trim());
+		} catch (IOException | NumberFormatException e) {
+			LOGGER.warn("Could not read {}, starting from the beginning", cursor, e);
+			return 0;
+		}
+	}
+
+	/**
+	 * @param hashedFileId
+	 *            id of the last checked hashed file
+	 */
+	void setCursor(long hashedFileId) {
+		StorageVolume primary = store.getVolumes().getPrimary();
+		File cursor = primary.resolve(SCRUB_CURSOR);
+		File tmpCursor = primary.resolve(SCRUB_CURSOR + ".tmp");
+		try {
+			Files.write(tmpCursor.toPath(), Long.toString(hashedFileId).getBytes(StandardCharsets.UTF_8));
+			Files.move(tmpCursor.toPath(), cursor.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write {}", cursor, e);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.util.List;
+
+/**
+ * Figures of the stored archives
+ */
+public class StorageStatistics {
+
+	private final long logicalSize;
+	private final long physicalSize;
+	private final long files;
+	private final long packed;
+	private final long entries;
+	private final long reused;
+	private final long receivedBytes;
+	private final long storedBytes;
+	private final long recalls;
+	private final long packRecords;
+	private final long packSegments;
+	private final long packSize;
+	private final long packLiveSize;
+	private final long openIntents;
+	private final List<StorageVolume> volumes;
+
+	StorageStatistics(long logicalSize, long physicalSize, long files, long packed, long entries, long reused,
+			long receivedBytes, long storedBytes, long recalls, long packRecords, long packSegments,
+			long packSize, long packLiveSize, long openIntents, List<StorageVolume> volumes) {
+		this.logicalSize = logicalSize;
+		this.physicalSize = physicalSize;
+		this.files = files;
+		this.packed = packed;
+		this.entries = entries;
+		this.reused = reused;
+		this.receivedBytes = receivedBytes;
+		this.storedBytes = storedBytes;
+		this.recalls = recalls;
+		this.packRecords = packRecords;
+		this.packSegments = packSegments;
+		this.packSize = packSize;
+		this.packLiveSize = packLiveSize;
+		this.openIntents = openIntents;
+		this.volumes = volumes;
+	}
+
+	/**
+	 * @return the size of all stored archives
+	 */
+	public long getLogicalSize() {
+		return logicalSize;
+	}
+
+	/**
+	 * @return the size of all files in the storage
+	 */
+	public long getPhysicalSize() {
+		return physicalSize;
+	}
+
+	public long getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return the logical size in percent of the physical size
+	 */
+	public long getDedupRatio() {
+		return 0 == physicalSize ? 100 : Math.round(100.0 * logicalSize / physicalSize);
+	}
+
+	/**
+	 * @return number of archives stored by their entries since the start
+	 */
+	public long getPacked() {
+		return packed;
+	}
+
+	/**
+	 * @return number of large entries of these archives
+	 */
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return number of these entries which were already stored
+	 */
+	public long getReused() {
+		return reused;
+	}
+
+	/**
+	 * @return the written bytes in percent of the received bytes since the
+	 *         start
+	 */
+	public long getWrittenRatio() {
+		return 0 == receivedBytes ? 100 : Math.round(100.0 * storedBytes / receivedBytes);
+	}
+
+	/**
+	 * @return number of archives recalled from the cold tier since the
+	 *         start
+	 */
+	public long getRecalls() {
+		return recalls;
+	}
+
+	/**
+	 * @return number of archives in the pack store
+	 */
+	public long getPackRecords() {
+		return packRecords;
+	}
+
+	/**
+	 * @return number of segments of the pack store
+	 */
+	public long getPackSegments() {
+		return packSegments;
+	}
+
+	public long getPackSize() {
+		return packSize;
+	}
+
+	/**
+	 * @return the size of deleted archives in percent of the size of the
+	 *         pack store, reclaimed by the compaction
+	 */
+	public long getPackGarbageRatio() {
+		return 0 == packSize ? 0 : Math.round(100.0 * (packSize - packLiveSize) / packSize);
+	}
+
+	/**
+	 * @return number of running uploads and deletions in the intent
+	 *         journal
+	 */
+	public long getOpenIntents() {
+		return openIntents;
+	}
+
+	/**
+	 * @return the storage volumes and their figures
+	 */
+	public List<StorageVolume> getVolumes() {
+		return volumes;
+	}
+}
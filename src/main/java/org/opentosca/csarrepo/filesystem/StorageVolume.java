@@ -0,0 +1,165 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A storage directory, usually one per disk, and its figures
+ */
+public class StorageVolume {
+
+	private final File root;
+	private final boolean cold;
+	private final long started = System.currentTimeMillis();
+	private final AtomicLong readBytes = new AtomicLong();
+	private final AtomicLong writtenBytes = new AtomicLong();
+	private final AtomicInteger activeWrites = new AtomicInteger();
+
+	StorageVolume(File root, boolean cold) {
+		this.root = root.getAbsoluteFile();
+		this.cold = cold;
+	}
+
+	File getRoot() {
+		return root;
+	}
+
+	/**
+	 * @param relativePath
+	 *            path below the root of the volume
+	 * @return the file on this volume, existing or not
+	 */
+	File resolve(String relativePath) {
+		return new File(root, relativePath);
+	}
+
+	/**
+	 * @param file
+	 * @return <code>true</code> if the given file is stored on this volume
+	 */
+	boolean contains(File file) {
+		for (File parent = file.getAbsoluteFile(); null != parent; parent = parent.getParentFile()) {
+			if (root.equals(parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param inputStream
+	 *            stream of a file on this volume
+	 * @return the stream, counting the bytes read
+	 */
+	InputStream countReads(InputStream inputStream) {
+		return new FilterInputStream(inputStream) {
+
+			@Override
+			public int read() throws IOException {
+				int read = super.read();
+				if (-1 != read) {
+					readBytes.incrementAndGet();
+				}
+				return read;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = super.read(buffer, offset, length);
+				if (0 < read) {
+					readBytes.addAndGet(read);
+				}
+				return read;
+			}
+		};
+	}
+
+	/**
+	 * @param read
+	 *            number of bytes read without a stream of this volume
+	 */
+	void addReadBytes(long read) {
+		readBytes.addAndGet(read);
+	}
+
+	void beginWrite() {
+		activeWrites.incrementAndGet();
+	}
+
+	/**
+	 * @param written
+	 *            number of bytes written since {@link #beginWrite()}
+	 */
+	void endWrite(long written) {
+		activeWrites.decrementAndGet();
+		writtenBytes.addAndGet(written);
+	}
+
+	int getActiveWrites() {
+		return activeWrites.get();
+	}
+
+	/**
+	 * @return <code>true</code> if this is the cold tier
+	 */
+	public boolean isCold() {
+		return cold;
+	}
+
+	public String getPath() {
+		return root.getPath();
+	}
+
+	public long getFreeSpace() {
+		return root.getUsableSpace();
+	}
+
+	public long getTotalSpace() {
+		return root.getTotalSpace();
+	}
+
+	/**
+	 * @return the used space in percent of the total space
+	 */
+	public long getUsedRatio() {
+		long total = getTotalSpace();
+		return 0 == total ? 100 : Math.round(100.0 * (total - getFreeSpace()) / total);
+	}
+
+	/**
+	 * @return bytes read since the start
+	 */
+	public long getReadBytes() {
+		return readBytes.get();
+	}
+
+	/**
+	 * @return bytes written since the start
+	 */
+	public long getWrittenBytes() {
+		return writtenBytes.get();
+	}
+
+	/**
+	 * @return average bytes read per second since the start
+	 */
+	public long getReadThroughput() {
+		return perSecond(readBytes.get());
+	}
+
+	/**
+	 * @return average bytes written per second since the start
+	 */
+	public long getWrittenThroughput() {
+		return perSecond(writtenBytes.get());
+	}
+
+	private long perSecond(long bytes) {
+		long seconds = Math.max(1, (System.currentTimeMillis() - started) / 1000);
+		return bytes / seconds;
+	}
+}
@@ -0,0 +1,78 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Files removed by a sweep of the garbage collection
+ */
+public class SweepResult {
+
+	private static final Logger LOGGER = LogManager.getLogger(SweepResult.class);
+
+	private long archives;
+	private long blobs;
+	private long bytes;
+	private long failed;
+
+	/**
+	 * @return <code>true</code> if the file was removed or would be removed
+	 */
+	boolean remove(File file, boolean dryRun, boolean blob) {
+		long length = file.length();
+		if (!dryRun && !file.delete()) {
+			LOGGER.warn("Could not delete {}", file);
+			failed++;
+			return false;
+		}
+		if (!dryRun) {
+			LOGGER.info("Deleted unreferenced {} ({} bytes)", file, length);
+		}
+		if (blob) {
+			blobs++;
+		} else {
+			archives++;
+		}
+		bytes += length;
+		return true;
+	}
+
+	void removePacked(PackStore packs, UUID filename, boolean dryRun) {
+		long length = packs.getLength(filename);
+		if (!dryRun && !packs.delete(filename)) {
+			failed++;
+			return;
+		}
+		if (!dryRun) {
+			LOGGER.info("Deleted unreferenced {} from the pack store ({} bytes)", filename, length);
+		}
+		archives++;
+		bytes += Math.max(0, length);
+	}
+
+	/**
+	 * @return number of removed archives, including manifests and leftovers
+	 *         of uploads
+	 */
+	public long getArchives() {
+		return archives;
+	}
+
+	public long getBlobs() {
+		return blobs;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of files which could not be removed
+	 */
+	public long getFailed() {
+		return failed;
+	}
+}
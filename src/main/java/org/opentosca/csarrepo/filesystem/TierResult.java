@@ -0,0 +1,24 @@
+package org.opentosca.csarrepo.filesystem;
+
+/**
+ * Files moved between the cold tier and the other volumes
+ */
+public class TierResult {
+
+	private final MoveResult demoted = new MoveResult();
+	private final MoveResult promoted = new MoveResult();
+
+	/**
+	 * @return the files moved to the cold tier
+	 */
+	public MoveResult getDemoted() {
+		return demoted;
+	}
+
+	/**
+	 * @return the files moved back from the cold tier
+	 */
+	public MoveResult getPromoted() {
+		return promoted;
+	}
+}
@@ -0,0 +1,243 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Moves archives and blobs between the volumes
+ *
+ * Balances the used space of the volumes, moves archives not accessed for a
+ * while to the cold tier and recalls them when they are read. Files are copied
+ * before they are removed from their volume, so they can be read all the time.
+ */
+class VolumeMover {
+
+	private static final Logger LOGGER = LogManager.getLogger(VolumeMover.class);
+
+	private final ArchiveStore store;
+	private final AtomicLong recalls = new AtomicLong();
+	private final Object recallLock = new Object();
+
+	VolumeMover(ArchiveStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Moves the archive and its blobs from the cold tier back to the other
+	 * volumes. The archive stays readable if this fails.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 */
+	void recall(final UUID filename) {
+		VolumePool volumes = store.getVolumes();
+		StorageVolume cold = volumes.getCold();
+		if (null == cold) {
+			return;
+		}
+		File manifest = store.getManifest(filename);
+		File file = null == manifest ? store.getStoredFile(filename) : manifest;
+		if (null == file || !cold.contains(file)) {
+			return;
+		}
+		synchronized (recallLock) {
+			MoveResult result = new MoveResult();
+			if (null != manifest) {
+				EntryStore entryStore = store.getEntryStore();
+				try {
+					for (String hash : entryStore.getBlobHashes(manifest)) {
+						File blob = entryStore.getBlob(hash);
+						if (cold.contains(blob)) {
+							result.move(cold, volumes.place(blob.length()), EntryStore.getBlobPath(hash));
+						}
+					}
+				} catch (IOException e) {
+					LOGGER.warn("Could not read manifest {}", manifest, e);
+				}
+			}
+			result.move(cold, volumes.place(file.length()), file.getName());
+			recalls.incrementAndGet();
+			LOGGER.info("Recalled {} from the cold tier ({} files, {} bytes)", filename, result.getFiles(),
+					result.getBytes());
+		}
+	}
+
+	/**
+	 * @return number of archives recalled from the cold tier since the start
+	 */
+	long getRecalls() {
+		return recalls.get();
+	}
+
+	/**
+	 * Moves archives and blobs from the fullest volumes to the emptiest ones,
+	 * until the used space of the volumes differs by less than the threshold.
+	 * Volumes on the same disk are not balanced against each other.
+	 *
+	 * @param threshold
+	 *            allowed difference of the used space in percent
+	 * @param rateLimiter
+	 *            limits the bytes moved
+	 * @return the moved files
+	 * @throws InterruptedException
+	 *             if the rebalancing was interrupted
+	 */
+	MoveResult rebalance(long threshold, RateLimiter rateLimiter) throws InterruptedException {
+		MoveResult result = new MoveResult();
+		List<StorageVolume> volumes = store.getVolumes().getVolumes();
+		Set<StorageVolume> done = new HashSet<StorageVolume>();
+		while (true) {
+			StorageVolume fullest = null;
+			for (StorageVolume volume : volumes) {
+				if (!done.contains(volume) && (null == fullest || volume.getUsedRatio() > fullest.getUsedRatio())) {
+					fullest = volume;
+				}
+			}
+			if (null == fullest) {
+				return result;
+			}
+			done.add(fullest);
+			StorageVolume emptiest = null;
+			for (StorageVolume volume : volumes) {
+				if (volume != fullest && !VolumePool.isSameDisk(volume, fullest)
+						&& (null == emptiest || volume.getUsedRatio() < emptiest.getUsedRatio())) {
+					emptiest = volume;
+				}
+			}
+			if (null == emptiest) {
+				continue;
+			}
+			for (String path : listFiles(fullest)) {
+				if (fullest.getUsedRatio() - emptiest.getUsedRatio() < threshold) {
+					break;
+				}
+				rateLimiter.acquire(fullest.resolve(path).length());
+				result.move(fullest, emptiest, path);
+			}
+		}
+	}
+
+	/**
+	 * Moves the archives which are neither hot nor accessed within the given
+	 * time to the cold tier, and the archives which are hot again back. Blobs
+	 * follow their archives, unless an archive which stays on the other
+	 * volumes uses them as well.
+	 *
+	 * @param hot
+	 *            filenames of the archives which always stay on the other
+	 *            volumes
+	 * @param coldAfter
+	 *            time in milliseconds without access after which an archive
+	 *            is moved to the cold tier
+	 * @param rateLimiter
+	 *            limits the bytes moved
+	 * @return the moved files
+	 * @throws InterruptedException
+	 *             if the tiering was interrupted
+	 */
+	TierResult tier(Set<UUID> hot, long coldAfter, RateLimiter rateLimiter) throws InterruptedException {
+		TierResult result = new TierResult();
+		VolumePool volumes = store.getVolumes();
+		EntryStore entryStore = store.getEntryStore();
+		StorageVolume cold = volumes.getCold();
+		if (null == cold) {
+			return result;
+		}
+		long deadline = System.currentTimeMillis() - coldAfter;
+		Set<String> hotBlobs = new HashSet<String>();
+		Set<String> coldBlobs = new HashSet<String>();
+		boolean moveBlobs = true;
+		for (StorageVolume volume : volumes.getAllVolumes()) {
+			File[] files = volume.getRoot().listFiles();
+			if (null == files) {
+				continue;
+			}
+			for (File file : files) {
+				String name = file.getName();
+				boolean manifest = name.endsWith(ArchiveStore.MANIFEST_SUFFIX);
+				UUID filename = ArchiveStore.parseStoredName(name);
+				if (null == filename || !file.isFile()) {
+					continue;
+				}
+				boolean keepHot = hot.contains(filename) || store.getLastAccess(filename) >= deadline;
+				if (manifest) {
+					try {
+						(keepHot ? hotBlobs : coldBlobs).addAll(entryStore.getBlobHashes(file));
+					} catch (IOException e) {
+						// the manifest may refer to any blob
+						LOGGER.error("Could not read manifest {}, skipping blobs", file, e);
+						moveBlobs = false;
+					}
+				}
+				if (keepHot && volume == cold) {
+					rateLimiter.acquire(file.length());
+					result.getPromoted().move(cold, volumes.place(file.length()), name);
+				} else if (!keepHot && volume != cold) {
+					rateLimiter.acquire(file.length());
+					result.getDemoted().move(volume, cold, name);
+				}
+			}
+		}
+		if (!moveBlobs) {
+			return result;
+		}
+		for (String hash : hotBlobs) {
+			File blob = entryStore.getBlob(hash);
+			if (blob.isFile() && cold.contains(blob)) {
+				rateLimiter.acquire(blob.length());
+				result.getPromoted().move(cold, volumes.place(blob.length()), EntryStore.getBlobPath(hash));
+			}
+		}
+		coldBlobs.removeAll(hotBlobs);
+		for (String hash : coldBlobs) {
+			File blob = entryStore.getBlob(hash);
+			if (blob.isFile() && !cold.contains(blob)) {
+				rateLimiter.acquire(blob.length());
+				result.getDemoted().move(volumes.getVolume(blob), cold, EntryStore.getBlobPath(hash));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the paths of the archives, manifests, deltas and blobs of the
+	 *         volume
+	 */
+	private static List<String> listFiles(StorageVolume volume) {
+		List<String> paths = new ArrayList<String>();
+		File[] files = volume.getRoot().listFiles();
+		if (null != files) {
+			for (File file : files) {
+				if (file.isFile() && null != ArchiveStore.parseStoredName(file.getName())) {
+					paths.add(file.getName());
+				}
+			}
+		}
+		File[] blobDirectories = volume.resolve(EntryStore.BLOB_DIRECTORY).listFiles();
+		if (null != blobDirectories) {
+			for (File blobDirectory : blobDirectories) {
+				File[] blobs = blobDirectory.listFiles();
+				if (null == blobs) {
+					continue;
+				}
+				for (File blob : blobs) {
+					if (!blob.getName().endsWith(".tmp")) {
+						paths.add(EntryStore.BLOB_DIRECTORY + File.separator + blobDirectory.getName()
+								+ File.separator + blob.getName());
+					}
+				}
+			}
+		}
+		return paths;
+	}
+}
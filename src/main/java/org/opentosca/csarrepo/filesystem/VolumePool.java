@@ -0,0 +1,190 @@
+package org.opentosca.csarrepo.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The storage directories of the repository
+ *
+ * The first volume is <code>csarFilePath</code>, further volumes are listed
+ * comma separated in <code>csarFileVolumes</code>, so disks can be added
+ * without moving the stored files. New files are placed on the volume with the
+ * most free space relative to the writes in progress, skipping volumes which
+ * would drop below <code>volumeMinFreeSpace</code> bytes. Files are read from
+ * whichever volume holds them.
+ *
+ * Optionally <code>coldStoragePath</code> is a cold tier, e.g. a directory on
+ * a slow disk, which takes rarely used files. It is searched last, and new
+ * files are never placed there.
+ */
+class VolumePool {
+
+	private static final Logger LOGGER = LogManager.getLogger(VolumePool.class);
+
+	private static final long DEFAULT_MIN_FREE_SPACE = 104857600;
+
+	private final List<StorageVolume> volumes;
+	private final StorageVolume cold;
+	private final List<StorageVolume> allVolumes;
+	private final long minFreeSpace;
+
+	/**
+	 * @param roots
+	 *            the directories of the volumes, the first one is the primary
+	 *            volume
+	 * @param coldRoot
+	 *            the directory of the cold tier or <code>null</code>
+	 * @param minFreeSpace
+	 *            free space in bytes a volume keeps when placing files
+	 */
+	VolumePool(List<File> roots, File coldRoot, long minFreeSpace) {
+		List<StorageVolume> volumes = new ArrayList<StorageVolume>();
+		for (File root : roots) {
+			volumes.add(createVolume(root, false));
+		}
+		this.volumes = Collections.unmodifiableList(volumes);
+		this.cold = null == coldRoot ? null : createVolume(coldRoot, true);
+		List<StorageVolume> allVolumes = new ArrayList<StorageVolume>(volumes);
+		if (null != cold) {
+			allVolumes.add(cold);
+		}
+		this.allVolumes = Collections.unmodifiableList(allVolumes);
+		this.minFreeSpace = minFreeSpace;
+	}
+
+	private static StorageVolume createVolume(File root, boolean cold) {
+		if (!root.exists()) {
+			root.mkdirs();
+			LOGGER.info("Created " + root + " to store CSARs");
+		}
+		return new StorageVolume(root, cold);
+	}
+
+	/**
+	 * @return the pool configured by the properties
+	 * @throws IllegalStateException
+	 *             if the property <code>csarFilePath</code> is not set
+	 */
+	static VolumePool fromProperties() {
+		String primaryPath = System.getProperty("csarFilePath");
+		if (null == primaryPath || primaryPath.trim().isEmpty()) {
+			throw new IllegalStateException("Property csarFilePath is not set, check WEB-INF/repository.properties");
+		}
+		List<File> roots = new ArrayList<File>();
+		roots.add(new File(primaryPath.trim()));
+		for (String path : System.getProperty("csarFileVolumes", "").split(",")) {
+			if (!path.trim().isEmpty()) {
+				roots.add(new File(path.trim()));
+			}
+		}
+		String coldPath = System.getProperty("coldStoragePath", "").trim();
+		return new VolumePool(roots, coldPath.isEmpty() ? null : new File(coldPath), Long.getLong(
+				"volumeMinFreeSpace", DEFAULT_MIN_FREE_SPACE));
+	}
+
+	/**
+	 * @return the volumes new files are placed on
+	 */
+	List<StorageVolume> getVolumes() {
+		return volumes;
+	}
+
+	/**
+	 * @return the volumes including the cold tier
+	 */
+	List<StorageVolume> getAllVolumes() {
+		return allVolumes;
+	}
+
+	/**
+	 * @return the cold tier or <code>null</code>
+	 */
+	StorageVolume getCold() {
+		return cold;
+	}
+
+	/**
+	 * @return the volume keeping the state of the repository, e.g. the cursor
+	 *         of the scrubber
+	 */
+	StorageVolume getPrimary() {
+		return volumes.get(0);
+	}
+
+	/**
+	 * @param relativePath
+	 * @return the existing file on any volume or <code>null</code>
+	 */
+	File locate(String relativePath) {
+		for (StorageVolume volume : allVolumes) {
+			File file = volume.resolve(relativePath);
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param file
+	 * @return the volume holding the given file, the primary volume for
+	 *         foreign files
+	 */
+	StorageVolume getVolume(File file) {
+		for (StorageVolume volume : allVolumes) {
+			if (volume.contains(file)) {
+				return volume;
+			}
+		}
+		return getPrimary();
+	}
+
+	/**
+	 * Chooses the volume for a new file.
+	 *
+	 * @param size
+	 *            size of the new file
+	 * @return the volume with the most free space per write in progress
+	 */
+	StorageVolume place(long size) {
+		StorageVolume best = null;
+		double bestScore = -1;
+		StorageVolume largest = getPrimary();
+		for (StorageVolume volume : volumes) {
+			long free = volume.getFreeSpace();
+			if (free > largest.getFreeSpace()) {
+				largest = volume;
+			}
+			if (free - size < minFreeSpace) {
+				continue;
+			}
+			double score = (double) free / (1 + volume.getActiveWrites());
+			if (score > bestScore) {
+				best = volume;
+				bestScore = score;
+			}
+		}
+		return null == best ? largest : best;
+	}
+
+	/**
+	 * @return <code>true</code> if both volumes are on the same disk, so
+	 *         moving files between them does not free space
+	 */
+	static boolean isSameDisk(StorageVolume first, StorageVolume second) {
+		try {
+			FileStore firstStore = Files.getFileStore(first.getRoot().toPath());
+			return firstStore.equals(Files.getFileStore(second.getRoot().toPath()));
+		} catch (IOException e) {
+			return true;
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package org.opentosca.csarrepo.model.join;
 
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 
 import javax.persistence.Column;
 import javax.persistence.Embeddable;
@@ -82,6 +84,28 @@ public class CsarFileOpenToscaServer {
 		this.location = location;
 	}
 
+	/**
+	 * The name of the CSAR inside the OpenTOSCA container, which is the last
+	 * segment of the location. Falls back to the name of the CSAR file, if no
+	 * location is known.
+	 * 
+	 * @return the name of the CSAR inside the container
+	 */
+	public String getCsarName() {
+		if (null != location) {
+			String path = location.endsWith("/") ? location.substring(0, location.length() - 1) : location;
+			String name = path.substring(path.lastIndexOf('/') + 1);
+			if (!name.isEmpty()) {
+				try {
+					return URLDecoder.decode(name, "UTF-8");
+				} catch (UnsupportedEncodingException e) {
+					return name;
+				}
+			}
+		}
+		return null == csarFile ? null : csarFile.getName();
+	}
+
 	/**
 	 * Embedded class for wrapping composite primary keys
 	 *
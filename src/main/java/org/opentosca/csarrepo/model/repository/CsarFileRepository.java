@@ -7,6 +7,7 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.WineryServer;
@@ -46,6 +47,28 @@ public class CsarFileRepository {
 		return csarFile;
 	}
 
+	/**
+	 * Returns the given version of a CSAR.
+	 * 
+	 * @param csarId
+	 * @param version
+	 * @return the CSAR file or <code>null</code> if there is no such version
+	 * @throws PersistenceException
+	 */
+	public CsarFile getByCsarAndVersion(long csarId, long version) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		try {
+			Criteria criteria = session.createCriteria(CsarFile.class);
+			criteria.add(Restrictions.eq("csar.id", csarId));
+			criteria.add(Restrictions.eq("version", version));
+			return (CsarFile) criteria.uniqueResult();
+		} catch (HibernateException e) {
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
 	/**
 	 * Gets all CSAR files.
 	 * 
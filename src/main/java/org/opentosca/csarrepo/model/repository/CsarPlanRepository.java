@@ -1,6 +1,10 @@
 package org.opentosca.csarrepo.model.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
@@ -73,6 +77,48 @@ public class CsarPlanRepository {
 		return csarPlanList;
 	}
 
+	/**
+	 * Returns the plans of the given CSAR files with one query.
+	 * 
+	 * @param csarFileIds
+	 * @return the plans by CSAR file id, ordered by name, CSAR files without
+	 *         plans are missing
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<Long, List<Plan>> getByCsarFileIds(Collection<Long> csarFileIds) throws PersistenceException {
+		Map<Long, List<Plan>> plans = new HashMap<Long, List<Plan>>();
+		if (csarFileIds.isEmpty()) {
+			return plans;
+		}
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<Object[]> rows = session
+					.createQuery(
+							"SELECT csarFile.id, plan FROM CsarFile csarFile, Plan plan WHERE csarFile.id IN (:csarFileIds) AND plan.planId.hashedFile = csarFile.hashedFile ORDER BY plan.name")
+					.setParameterList("csarFileIds", csarFileIds).list();
+			tx.commit();
+			for (Object[] row : rows) {
+				Long csarFileId = (Long) row[0];
+				if (!plans.containsKey(csarFileId)) {
+					plans.put(csarFileId, new ArrayList<Plan>());
+				}
+				plans.get(csarFileId).add((Plan) row[1]);
+			}
+			return plans;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
 	/**
 	 * @param csarPlan
 	 *            to be stored
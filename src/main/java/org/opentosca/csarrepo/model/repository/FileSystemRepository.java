@@ -1,6 +1,10 @@
 package org.opentosca.csarrepo.model.repository;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
@@ -182,6 +186,255 @@ public class FileSystemRepository {
 		}
 	}
 	
+	/**
+	 * Returns the hashed file stored under the given filename
+	 * 
+	 * @param filename
+	 * @return the hashed file or <code>null</code> if there is none
+	 * @throws PersistenceException
+	 */
+	public HashedFile getByFilename(UUID filename) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		try {
+			Criteria fileSystemEntryCriteria = session.createCriteria(HashedFile.class);
+			fileSystemEntryCriteria.add(Restrictions.eq("filename", filename.toString()));
+			return (HashedFile) fileSystemEntryCriteria.uniqueResult();
+		} catch (HibernateException e) {
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the hashed files which are not used by any CSAR file
+	 * 
+	 * @return the unreferenced hashed files
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public List<HashedFile> getUnreferenced() throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<HashedFile> result = session.createQuery(
+					"SELECT hashedFile FROM HashedFile hashedFile WHERE hashedFile.csarFiles IS EMPTY").list();
+			tx.commit();
+			return result;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the filenames of all hashed files
+	 * 
+	 * @return the filenames (= UUID) in the file system
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<UUID> getFilenames() throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<String> result = session.createQuery("SELECT hashedFile.filename FROM HashedFile hashedFile")
+					.list();
+			tx.commit();
+			Set<UUID> filenames = new HashSet<UUID>();
+			for (String filename : result) {
+				filenames.add(UUID.fromString(filename));
+			}
+			return filenames;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Deletes the given hashed file and its plans, unless a CSAR file uses it
+	 * meanwhile.
+	 * 
+	 * @param hashedFile
+	 * @return <code>true</code> if the hashed file was deleted
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	public boolean deleteUnreferenced(HashedFile hashedFile) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			long references = (Long) session
+					.createQuery("SELECT COUNT(*) FROM CsarFile csarFile WHERE csarFile.hashedFile = :hashedFileId")
+					.setString("hashedFileId", hashedFile.getId() + "").uniqueResult();
+			if (0 < references) {
+				tx.commit();
+				return false;
+			}
+			session.createQuery("DELETE Plan plan WHERE plan.planId.hashedFile = :hashedFileId")
+					.setString("hashedFileId", hashedFile.getId() + "").executeUpdate();
+			session.createQuery("DELETE HashedFile hashedFile WHERE hashedFile.id = :hashedFileId")
+					.setString("hashedFileId", hashedFile.getId() + "").executeUpdate();
+			tx.commit();
+			return true;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the filenames of the hashed files used by the latest version of
+	 * a CSAR or deployed to an OpenTOSCA server
+	 * 
+	 * @return the filenames (= UUID) in the file system
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<UUID> getHotFilenames() throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<String> result = session.createQuery(
+					"SELECT DISTINCT csarFile.hashedFile.filename FROM CsarFile csarFile "
+							+ "WHERE csarFile.version = (SELECT MAX(latest.version) FROM CsarFile latest "
+							+ "WHERE latest.csar = csarFile.csar) OR csarFile.csarFileOpenToscaServer IS NOT EMPTY")
+					.list();
+			tx.commit();
+			Set<UUID> filenames = new HashSet<UUID>();
+			for (String filename : result) {
+				filenames.add(UUID.fromString(filename));
+			}
+			return filenames;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the filenames of the versions of every CSAR, the latest version
+	 * first
+	 * 
+	 * @return the filenames (= UUID) per CSAR
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public List<List<UUID>> getVersionFilenames() throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<Object[]> result = session.createQuery(
+					"SELECT csarFile.csar.id, csarFile.hashedFile.filename FROM CsarFile csarFile "
+							+ "ORDER BY csarFile.csar.id, csarFile.version DESC").list();
+			tx.commit();
+			List<List<UUID>> versions = new ArrayList<List<UUID>>();
+			Object csarId = null;
+			for (Object[] row : result) {
+				if (!row[0].equals(csarId)) {
+					csarId = row[0];
+					versions.add(new ArrayList<UUID>());
+				}
+				versions.get(versions.size() - 1).add(UUID.fromString((String) row[1]));
+			}
+			return versions;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the hashed files following the given id in the order of their
+	 * ids, to walk all hashed files in batches
+	 * 
+	 * @param afterId
+	 *            id of the last hashed file of the previous batch, or
+	 *            <code>0</code>
+	 * @param maxResults
+	 *            maximum size of the batch
+	 * @return the next hashed files, empty at the end
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public List<HashedFile> getBatch(long afterId, int maxResults) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<HashedFile> result = session
+					.createQuery(
+							"SELECT hashedFile FROM HashedFile hashedFile WHERE hashedFile.id > :afterId ORDER BY hashedFile.id")
+					.setLong("afterId", afterId).setMaxResults(maxResults).list();
+			tx.commit();
+			return result;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Sums up the sizes of all hashed files
+	 * 
+	 * @return size in bytes
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	public long getTotalSize() throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			Long size = (Long) session.createQuery("SELECT SUM(hashedFile.size) FROM HashedFile hashedFile")
+					.uniqueResult();
+			tx.commit();
+			return null == size ? 0 : size;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
 	/**
 	 * counts the number of available instances
 	 * 
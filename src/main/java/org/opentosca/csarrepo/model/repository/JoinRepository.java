@@ -1,5 +1,9 @@
 package org.opentosca.csarrepo.model.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -18,6 +22,8 @@ import org.opentosca.csarrepo.model.join.CsarFileOpenToscaServer;
  */
 public class JoinRepository {
 
+	private static final int DELETE_BATCH_SIZE = 500;
+
 	public void removeCsarFileOpenToscaServer(CsarFile csarFile, OpenToscaServer openToscaServer)
 			throws PersistenceException {
 		Session session = HibernateUtil.getSession();
@@ -39,6 +45,49 @@ public class JoinRepository {
 		}
 	}
 
+	/**
+	 * Removes the mappings of the given CSAR files to the given server in one
+	 * transaction, e.g. after the CSARs disappeared from the container.
+	 * 
+	 * @param openToscaServer
+	 * @param csarFileIds
+	 *            ids of the CSAR files whose mappings are removed
+	 * @return number of removed mappings
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	public int removeCsarFileOpenToscaServers(OpenToscaServer openToscaServer, Collection<Long> csarFileIds)
+			throws PersistenceException {
+		if (csarFileIds.isEmpty()) {
+			return 0;
+		}
+		List<Long> ids = new ArrayList<Long>(csarFileIds);
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			int removed = 0;
+			for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+				List<Long> batch = ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size()));
+				removed += session
+						.createQuery(
+								"DELETE CsarFileOpenToscaServer map WHERE map.openToscaServer = :openToscaServerId AND map.csarFile.id IN (:csarFileIds)")
+						.setString("openToscaServerId", openToscaServer.getId() + "")
+						.setParameterList("csarFileIds", batch)
+						.executeUpdate();
+			}
+			tx.commit();
+			return removed;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
 	public CsarFileOpenToscaServer getCsarFileOpenToscaServer(CsarFile csarFile, OpenToscaServer openToscaServer)
 			throws PersistenceException {
 		Session session = HibernateUtil.getSession();
@@ -62,6 +111,74 @@ public class JoinRepository {
 			session.close();
 		}
 	}
+
+	/**
+	 * Returns the deployments on the given server whose CSAR files have the
+	 * given content.
+	 * 
+	 * @param openToscaServer
+	 * @param hash
+	 *            hash of the hashed file
+	 * @return the deployments, empty if the content is not deployed
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public List<CsarFileOpenToscaServer> getCsarFileOpenToscaServersByHash(OpenToscaServer openToscaServer,
+			String hash) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<CsarFileOpenToscaServer> result = session
+					.createQuery(
+							"SELECT map FROM CsarFileOpenToscaServer map WHERE map.openToscaServer = :openToscaServerId AND map.csarFile.hashedFile.hash = :hash")
+					.setString("openToscaServerId", openToscaServer.getId() + "").setString("hash", hash).list();
+			tx.commit();
+			return result;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the deployments on the given server which share the given
+	 * location inside the container.
+	 * 
+	 * @param openToscaServer
+	 * @param location
+	 * @return the deployments
+	 * @throws PersistenceException
+	 *             upon problems committing the underlying transaction
+	 */
+	@SuppressWarnings("unchecked")
+	public List<CsarFileOpenToscaServer> getCsarFileOpenToscaServersByLocation(OpenToscaServer openToscaServer,
+			String location) throws PersistenceException {
+		Session session = HibernateUtil.getSession();
+		Transaction tx = null;
+		try {
+			tx = session.beginTransaction();
+			List<CsarFileOpenToscaServer> result = session
+					.createQuery(
+							"SELECT map FROM CsarFileOpenToscaServer map WHERE map.openToscaServer = :openToscaServerId AND map.location = :location")
+					.setString("openToscaServerId", openToscaServer.getId() + "").setString("location", location)
+					.list();
+			tx.commit();
+			return result;
+		} catch (HibernateException e) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			throw new PersistenceException(e);
+		} finally {
+			session.close();
+		}
+	}
 	
 	/**
 	 * counts the number of available instances
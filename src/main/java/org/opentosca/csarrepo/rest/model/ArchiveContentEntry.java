@@ -0,0 +1,60 @@
+package org.opentosca.csarrepo.rest.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Entry class for the listing of a directory of a CSAR file
+ */
+@XmlRootElement(name = "content")
+public class ArchiveContentEntry extends AbstractEntry {
+
+	private String path;
+
+	private String hash;
+
+	private List<ArchiveEntryEntry> entries = new ArrayList<ArchiveEntryEntry>();
+
+	protected ArchiveContentEntry() {
+		super();
+	}
+
+	public ArchiveContentEntry(String path, String hash, List<ArchiveEntryEntry> entries, List<SimpleXLink> links) {
+		super(links, null);
+		this.path = path;
+		this.hash = hash;
+		this.entries = entries;
+	}
+
+	@XmlElement(name = "path")
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	@XmlElement(name = "hash")
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	@XmlElement(name = "entry")
+	@XmlElementWrapper(name = "entries")
+	public List<ArchiveEntryEntry> getEntries() {
+		return entries;
+	}
+
+	public void setEntries(List<ArchiveEntryEntry> entries) {
+		this.entries = entries;
+	}
+}
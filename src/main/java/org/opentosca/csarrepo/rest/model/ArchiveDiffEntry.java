@@ -0,0 +1,131 @@
+package org.opentosca.csarrepo.rest.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.opentosca.csarrepo.util.ArchiveDiff;
+import org.opentosca.csarrepo.util.ZipDirectory;
+
+/**
+ * Entry class for the differences between two CSAR files
+ */
+@XmlRootElement(name = "diff")
+public class ArchiveDiffEntry extends AbstractEntry {
+
+	private long from;
+
+	private long to;
+
+	private String fromHash;
+
+	private String toHash;
+
+	private int unchanged;
+
+	private List<ArchiveEntryEntry> added = new ArrayList<ArchiveEntryEntry>();
+
+	private List<ArchiveEntryEntry> removed = new ArrayList<ArchiveEntryEntry>();
+
+	private List<ChangedEntryEntry> changed = new ArrayList<ChangedEntryEntry>();
+
+	protected ArchiveDiffEntry() {
+		super();
+	}
+
+	public ArchiveDiffEntry(long from, long to, ArchiveDiff diff, List<SimpleXLink> links) {
+		super(links, null);
+		this.from = from;
+		this.to = to;
+		this.fromHash = diff.getFromHash();
+		this.toHash = diff.getToHash();
+		this.unchanged = diff.getUnchanged();
+		for (ZipDirectory.Entry entry : diff.getAdded()) {
+			this.added.add(new ArchiveEntryEntry(entry, null));
+		}
+		for (ZipDirectory.Entry entry : diff.getRemoved()) {
+			this.removed.add(new ArchiveEntryEntry(entry, null));
+		}
+		for (ArchiveDiff.Change change : diff.getChanged()) {
+			this.changed.add(new ChangedEntryEntry(change));
+		}
+	}
+
+	@XmlElement(name = "from")
+	public long getFrom() {
+		return from;
+	}
+
+	public void setFrom(long from) {
+		this.from = from;
+	}
+
+	@XmlElement(name = "to")
+	public long getTo() {
+		return to;
+	}
+
+	public void setTo(long to) {
+		this.to = to;
+	}
+
+	@XmlElement(name = "from_hash")
+	public String getFromHash() {
+		return fromHash;
+	}
+
+	public void setFromHash(String fromHash) {
+		this.fromHash = fromHash;
+	}
+
+	@XmlElement(name = "to_hash")
+	public String getToHash() {
+		return toHash;
+	}
+
+	public void setToHash(String toHash) {
+		this.toHash = toHash;
+	}
+
+	@XmlElement(name = "unchanged")
+	public int getUnchanged() {
+		return unchanged;
+	}
+
+	public void setUnchanged(int unchanged) {
+		this.unchanged = unchanged;
+	}
+
+	@XmlElement(name = "entry")
+	@XmlElementWrapper(name = "added")
+	public List<ArchiveEntryEntry> getAdded() {
+		return added;
+	}
+
+	public void setAdded(List<ArchiveEntryEntry> added) {
+		this.added = added;
+	}
+
+	@XmlElement(name = "entry")
+	@XmlElementWrapper(name = "removed")
+	public List<ArchiveEntryEntry> getRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(List<ArchiveEntryEntry> removed) {
+		this.removed = removed;
+	}
+
+	@XmlElement(name = "entry")
+	@XmlElementWrapper(name = "changed")
+	public List<ChangedEntryEntry> getChanged() {
+		return changed;
+	}
+
+	public void setChanged(List<ChangedEntryEntry> changed) {
+		this.changed = changed;
+	}
+}
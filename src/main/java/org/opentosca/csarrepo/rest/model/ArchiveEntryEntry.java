@@ -0,0 +1,106 @@
+package org.opentosca.csarrepo.rest.model;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.opentosca.csarrepo.util.ZipDirectory;
+
+/**
+ * Entry class for a single entry of a CSAR file
+ */
+@XmlRootElement(name = "entry")
+public class ArchiveEntryEntry {
+
+	private String name;
+
+	private boolean directory;
+
+	private long size;
+
+	private long compressedSize;
+
+	private String crc;
+
+	private Date lastModified;
+
+	private SimpleXLink link;
+
+	protected ArchiveEntryEntry() {
+		super();
+	}
+
+	public ArchiveEntryEntry(ZipDirectory.Entry entry, SimpleXLink link) {
+		this.name = entry.getName();
+		this.directory = entry.isDirectory();
+		this.size = entry.getSize();
+		this.compressedSize = entry.getCompressedSize();
+		this.crc = this.directory ? null : String.format("%08x", entry.getCrc());
+		this.lastModified = 0 == entry.getLastModified() ? null : new Date(entry.getLastModified());
+		this.link = link;
+	}
+
+	@XmlElement(name = "name")
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@XmlElement(name = "directory")
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(boolean directory) {
+		this.directory = directory;
+	}
+
+	@XmlElement(name = "size")
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	@XmlElement(name = "compressed_size")
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	public void setCompressedSize(long compressedSize) {
+		this.compressedSize = compressedSize;
+	}
+
+	@XmlElement(name = "crc")
+	public String getCrc() {
+		return crc;
+	}
+
+	public void setCrc(String crc) {
+		this.crc = crc;
+	}
+
+	@XmlElement(name = "lastmodified")
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	@XmlElement(name = "link")
+	public SimpleXLink getLink() {
+		return link;
+	}
+
+	public void setLink(SimpleXLink link) {
+		this.link = link;
+	}
+}
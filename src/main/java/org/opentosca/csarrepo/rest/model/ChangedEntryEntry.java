@@ -0,0 +1,92 @@
+package org.opentosca.csarrepo.rest.model;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.opentosca.csarrepo.util.ArchiveDiff;
+
+/**
+ * Entry class for an entry which differs between two CSAR files
+ */
+@XmlRootElement(name = "changed")
+public class ChangedEntryEntry {
+
+	private String name;
+
+	private long fromSize;
+
+	private long toSize;
+
+	private String fromCrc;
+
+	private String toCrc;
+
+	private String textDiff;
+
+	protected ChangedEntryEntry() {
+		super();
+	}
+
+	public ChangedEntryEntry(ArchiveDiff.Change change) {
+		this.name = change.getName();
+		this.fromSize = change.getFrom().getSize();
+		this.toSize = change.getTo().getSize();
+		this.fromCrc = String.format("%08x", change.getFrom().getCrc());
+		this.toCrc = String.format("%08x", change.getTo().getCrc());
+		this.textDiff = change.getTextDiff();
+	}
+
+	@XmlElement(name = "name")
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@XmlElement(name = "from_size")
+	public long getFromSize() {
+		return fromSize;
+	}
+
+	public void setFromSize(long fromSize) {
+		this.fromSize = fromSize;
+	}
+
+	@XmlElement(name = "to_size")
+	public long getToSize() {
+		return toSize;
+	}
+
+	public void setToSize(long toSize) {
+		this.toSize = toSize;
+	}
+
+	@XmlElement(name = "from_crc")
+	public String getFromCrc() {
+		return fromCrc;
+	}
+
+	public void setFromCrc(String fromCrc) {
+		this.fromCrc = fromCrc;
+	}
+
+	@XmlElement(name = "to_crc")
+	public String getToCrc() {
+		return toCrc;
+	}
+
+	public void setToCrc(String toCrc) {
+		this.toCrc = toCrc;
+	}
+
+	@XmlElement(name = "text_diff")
+	public String getTextDiff() {
+		return textDiff;
+	}
+
+	public void setTextDiff(String textDiff) {
+		this.textDiff = textDiff;
+	}
+}
@@ -0,0 +1,89 @@
+package org.opentosca.csarrepo.rest.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.opentosca.csarrepo.util.DeploymentJob;
+
+/**
+ * Entry class for the progress of a deployment job
+ */
+@XmlRootElement(name = "deployment")
+public class DeploymentJobEntry extends AbstractEntry {
+
+	private long id;
+
+	private long csarFileId;
+
+	private Date created;
+
+	private boolean finished;
+
+	private List<DeploymentTargetEntry> targets = new ArrayList<DeploymentTargetEntry>();
+
+	protected DeploymentJobEntry() {
+		super();
+	}
+
+	public DeploymentJobEntry(DeploymentJob job, List<SimpleXLink> links) {
+		super(links, null);
+		this.id = job.getId();
+		this.csarFileId = job.getCsarFileId();
+		this.created = job.getCreated();
+		this.finished = job.isFinished();
+		for (DeploymentJob.Target target : job.getTargets()) {
+			this.targets.add(new DeploymentTargetEntry(target));
+		}
+	}
+
+	@XmlElement(name = "id")
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	@XmlElement(name = "csar_file_id")
+	public long getCsarFileId() {
+		return csarFileId;
+	}
+
+	public void setCsarFileId(long csarFileId) {
+		this.csarFileId = csarFileId;
+	}
+
+	@XmlElement(name = "created")
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+
+	@XmlElement(name = "finished")
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public void setFinished(boolean finished) {
+		this.finished = finished;
+	}
+
+	@XmlElement(name = "target")
+	@XmlElementWrapper(name = "targets")
+	public List<DeploymentTargetEntry> getTargets() {
+		return targets;
+	}
+
+	public void setTargets(List<DeploymentTargetEntry> targets) {
+		this.targets = targets;
+	}
+}
@@ -0,0 +1,118 @@
+package org.opentosca.csarrepo.rest.model;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.opentosca.csarrepo.util.DeploymentJob;
+
+/**
+ * Entry class for a single target of a deployment job
+ */
+@XmlRootElement(name = "target")
+public class DeploymentTargetEntry {
+
+	private long openToscaServerId;
+
+	private String name;
+
+	private String address;
+
+	private String status;
+
+	private String message;
+
+	private String warning;
+
+	private Date started;
+
+	private Date finished;
+
+	protected DeploymentTargetEntry() {
+		super();
+	}
+
+	public DeploymentTargetEntry(DeploymentJob.Target target) {
+		this.openToscaServerId = target.getOpenToscaServerId();
+		this.name = target.getName();
+		this.address = target.getAddress();
+		this.status = target.getStatus().name();
+		this.message = target.getMessage();
+		this.warning = target.getWarning();
+		this.started = target.getStarted();
+		this.finished = target.getFinished();
+	}
+
+	@XmlElement(name = "opentosca_id")
+	public long getOpenToscaServerId() {
+		return openToscaServerId;
+	}
+
+	public void setOpenToscaServerId(long openToscaServerId) {
+		this.openToscaServerId = openToscaServerId;
+	}
+
+	@XmlElement(name = "name")
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@XmlElement(name = "address")
+	public String getAddress() {
+		return address;
+	}
+
+	public void setAddress(String address) {
+		this.address = address;
+	}
+
+	@XmlElement(name = "status")
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	@XmlElement(name = "message")
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@XmlElement(name = "warning")
+	public String getWarning() {
+		return warning;
+	}
+
+	public void setWarning(String warning) {
+		this.warning = warning;
+	}
+
+	@XmlElement(name = "started")
+	public Date getStarted() {
+		return started;
+	}
+
+	public void setStarted(Date started) {
+		this.started = started;
+	}
+
+	@XmlElement(name = "finished")
+	public Date getFinished() {
+		return finished;
+	}
+
+	public void setFinished(Date finished) {
+		this.finished = finished;
+	}
+}
@@ -1,33 +1,64 @@
 package org.opentosca.csarrepo.rest.resource;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.model.Csar;
 import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.rest.model.ArchiveContentEntry;
+import org.opentosca.csarrepo.rest.model.ArchiveDiffEntry;
+import org.opentosca.csarrepo.rest.model.ArchiveEntryEntry;
 import org.opentosca.csarrepo.rest.model.CsarFileEntry;
 import org.opentosca.csarrepo.rest.model.SimpleXLink;
+import org.opentosca.csarrepo.rest.util.ByteRange;
 import org.opentosca.csarrepo.rest.util.LinkBuilder;
+import org.opentosca.csarrepo.service.BrowseCsarFileService;
+import org.opentosca.csarrepo.service.DeployToOpenToscaServersService;
+import org.opentosca.csarrepo.service.DeployToOpenToscaService.DuplicatePolicy;
+import org.opentosca.csarrepo.service.DiffCsarFilesService;
 import org.opentosca.csarrepo.service.DownloadCsarFileService;
+import org.opentosca.csarrepo.service.ShowCsarFileService;
 import org.opentosca.csarrepo.service.ShowCsarService;
+import org.opentosca.csarrepo.util.DeploymentJob;
+import org.opentosca.csarrepo.util.ArchiveCache;
+import org.opentosca.csarrepo.util.ArchiveDiff;
+import org.opentosca.csarrepo.util.CsarFileContent;
 import org.opentosca.csarrepo.util.DownloadCsarFileObject;
 import org.opentosca.csarrepo.util.StringUtils;
+import org.opentosca.csarrepo.util.ZipDirectory;
 
 public class CsarFileResource {
 
 	private static final Logger LOGGER = LogManager.getLogger(CsarFileResource.class);
+	private static final int BUFFER_SIZE = 65536;
 	private UriInfo uriInfo;
 	private long csarId;
 	private long id;
@@ -49,6 +80,7 @@ public class CsarFileResource {
 		links.add(LinkBuilder.selfLink(uriInfo));
 		links.add(new SimpleXLink(LinkBuilder.linkToCsar(uriInfo, csarId), "parent"));
 		links.add(new SimpleXLink(LinkBuilder.linkToCsarFileDownloadFromCsarFile(uriInfo), "download"));
+		links.add(new SimpleXLink(LinkBuilder.linkToCsarFileContentFromCsarFile(uriInfo), "content"));
 
 		// FIXME: use new ShowCsarFileService
 		// TODO: use real userid
@@ -75,6 +107,40 @@ public class CsarFileResource {
 		return Response.ok(csarFileEntry).build();
 	}
 
+	/**
+	 * Deploys the file to several OpenTOSCA servers in the background
+	 * 
+	 * @param openToscaIds
+	 *            ids of the target servers
+	 * @param duplicates
+	 *            how servers which already host the content are handled:
+	 *            reuse, fail or upload
+	 * @return the location of the deployment job
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_XML)
+	@Path("/deploy")
+	public Response deploy(@QueryParam("opentosca") List<Long> openToscaIds,
+			@QueryParam("duplicates") String duplicates) {
+		DuplicatePolicy duplicatePolicy;
+		try {
+			duplicatePolicy = DuplicatePolicy.parse(duplicates);
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity("Invalid duplicate policy " + duplicates).build();
+		}
+
+		// TODO: use real UserID
+		DeployToOpenToscaServersService deployService = new DeployToOpenToscaServersService(0L, id, openToscaIds,
+				duplicatePolicy);
+
+		if (deployService.hasErrors()) {
+			return Response.status(Status.BAD_REQUEST).entity(StringUtils.join(deployService.getErrors())).build();
+		}
+
+		DeploymentJob job = deployService.getResult();
+		return Response.accepted().location(LinkBuilder.linkToDeploymentJob(uriInfo, job.getId())).build();
+	}
+
 	@GET
 	@Produces("application/vnd.opentosca.csar+zip")
 	@Path("/download")
@@ -100,9 +166,230 @@ public class CsarFileResource {
 		DownloadCsarFileObject csarFileObject = downService.getResult();
 		File file = csarFileObject.getFile();
 
-		ResponseBuilder response = Response.ok((Object) file);
+		// once opened, the archive may be evicted from the cache while it is
+		// streamed
+		long length = file.length();
+		InputStream inputStream;
+		try {
+			inputStream = new FileInputStream(file);
+		} catch (FileNotFoundException e) {
+			return Response.serverError().entity(e.getMessage()).build();
+		} finally {
+			ArchiveCache.release(file);
+		}
+
+		ResponseBuilder response = Response.ok(inputStream);
 		response.header("Content-Disposition", "attachment; filename=" + csarFileObject.getFilename());
-		response.header("Content-Length", file.length());
+		response.header("Content-Length", length);
+		return response.build();
+	}
+
+	/**
+	 * Lists the root directory of the file
+	 *
+	 * @param recursive
+	 *            whether the content of subdirectories is listed too
+	 * @return the entries with name, sizes and CRC
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_XML)
+	@Path("/content")
+	public Response getContent(@QueryParam("recursive") boolean recursive, @Context Request request) {
+		return getContent("", recursive, null, null, request);
+	}
+
+	/**
+	 * Reads a single entry of the file, only the entry is read from the
+	 * storage. A single byte range is served partially.
+	 *
+	 * @param path
+	 *            path of the entry in the archive, a directory is listed
+	 * @param recursive
+	 *            whether the content of subdirectories is listed too
+	 * @param range
+	 *            the requested range, if any
+	 * @param ifRange
+	 *            the entity tag the range is requested for, if any
+	 * @return the content of the entry or the listing of the directory
+	 */
+	@GET
+	@Path("/content/{path: .+}")
+	public Response getContent(@PathParam("path") String path, @QueryParam("recursive") boolean recursive,
+			@HeaderParam("Range") String range, @HeaderParam("If-Range") String ifRange, @Context Request request) {
+		// TODO: use real UserID
+		BrowseCsarFileService browseService = new BrowseCsarFileService(0L, id);
+
+		if (browseService.hasErrors()) {
+			return Response.serverError().entity(StringUtils.join(browseService.getErrors())).build();
+		}
+
+		CsarFileContent content = browseService.getResult();
+		ZipDirectory.Entry entry = content.getDirectory().getEntry(path);
+		if (null == entry || entry.isDirectory()) {
+			return list(content, path, recursive, request);
+		}
+
+		// stored archives never change, so the hash and the CRC identify the
+		// entry
+		EntityTag entityTag = new EntityTag(content.getHash() + "-" + String.format("%08x", entry.getCrc()));
+		ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+		if (null != notModified) {
+			return notModified.tag(entityTag).header("Accept-Ranges", "bytes").build();
+		}
+
+		ByteRange byteRange = ByteRange.parse(range, entry.getSize());
+		if (null != ifRange && !ifRange.equals(entityTag.toString())) {
+			byteRange = null;
+		}
+		if (null != byteRange && !byteRange.isSatisfiable()) {
+			return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE).tag(entityTag)
+					.header("Content-Range", byteRange.toContentRange()).build();
+		}
+
+		final InputStream inputStream;
+		try {
+			inputStream = content.open(entry);
+		} catch (IOException e) {
+			LOGGER.error("Could not read {} of csar file {}", path, id, e);
+			return Response.serverError().entity(e.getMessage()).build();
+		}
+		final long start = null == byteRange ? 0 : byteRange.getStart();
+		final long length = null == byteRange ? entry.getSize() : byteRange.getLength();
+		StreamingOutput output = new StreamingOutput() {
+
+			@Override
+			public void write(OutputStream outputStream) throws IOException {
+				try (InputStream entryStream = inputStream) {
+					copyRange(entryStream, outputStream, start, length);
+				}
+			}
+		};
+
+		ResponseBuilder response = null == byteRange ? Response.ok(output) : Response.status(
+				Status.PARTIAL_CONTENT).entity(output);
+		if (null != byteRange) {
+			response.header("Content-Range", byteRange.toContentRange());
+		}
+		response.type(getMediaType(path));
+		response.tag(entityTag);
+		response.header("Accept-Ranges", "bytes");
+		response.header("Content-Length", length);
 		return response.build();
 	}
+
+	/**
+	 * Compares the entries of the file with another file by name, size and
+	 * CRC, without reading unchanged entries
+	 *
+	 * @param other
+	 *            id of the csar file to compare with
+	 * @param text
+	 *            whether changed XML entries are compared line by line
+	 * @return the added, removed and changed entries from this file to the
+	 *         other one
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_XML)
+	@Path("/diff/{other}")
+	public Response getDiff(@PathParam("other") long other, @QueryParam("text") boolean text,
+			@Context Request request) {
+		// TODO: use real UserID
+		// the diff only depends on the two archives, so a repeated request is
+		// answered before anything is compared
+		ShowCsarFileService fromService = new ShowCsarFileService(0L, id);
+		ShowCsarFileService toService = new ShowCsarFileService(0L, other);
+		if (fromService.hasErrors() || toService.hasErrors()) {
+			List<String> errors = new ArrayList<String>(fromService.getErrors());
+			errors.addAll(toService.getErrors());
+			return Response.serverError().entity(StringUtils.join(errors)).build();
+		}
+		CsarFile from = fromService.getResult();
+		CsarFile to = toService.getResult();
+		if (null == from || null == to) {
+			return Response.serverError().entity("CSAR file " + (null == from ? id : other) + " does not exist")
+					.build();
+		}
+		EntityTag entityTag = new EntityTag(from.getHashedFile().getHash() + "-" + to.getHashedFile().getHash()
+				+ (text ? "-t" : ""));
+		ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+		if (null != notModified) {
+			return notModified.tag(entityTag).build();
+		}
+
+		DiffCsarFilesService diffService = new DiffCsarFilesService(0L, id, other, text);
+
+		if (diffService.hasErrors()) {
+			return Response.serverError().entity(StringUtils.join(diffService.getErrors())).build();
+		}
+
+		ArchiveDiff diff = diffService.getResult();
+		List<SimpleXLink> links = new LinkedList<SimpleXLink>();
+		links.add(LinkBuilder.selfLink(uriInfo));
+		links.add(new SimpleXLink(LinkBuilder.linkToCsarFile(uriInfo, csarId, id), "parent"));
+		return Response.ok(new ArchiveDiffEntry(id, other, diff, links)).tag(entityTag).build();
+	}
+
+	private Response list(CsarFileContent content, String path, boolean recursive, Request request) {
+		EntityTag entityTag = new EntityTag(content.getHash() + (recursive ? "-r" : ""));
+		ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+		if (null != notModified) {
+			return notModified.tag(entityTag).build();
+		}
+
+		List<ZipDirectory.Entry> entries = content.getDirectory().list(path, recursive);
+		if (null == entries) {
+			return Response.status(Status.NOT_FOUND).entity("No entry " + path).build();
+		}
+		List<ArchiveEntryEntry> entryEntries = new ArrayList<ArchiveEntryEntry>(entries.size());
+		for (ZipDirectory.Entry entry : entries) {
+			SimpleXLink link = new SimpleXLink(LinkBuilder.linkToCsarFileContent(uriInfo, csarId, id,
+					entry.getName()), entry.getName());
+			entryEntries.add(new ArchiveEntryEntry(entry, link));
+		}
+		List<SimpleXLink> links = new LinkedList<SimpleXLink>();
+		links.add(LinkBuilder.selfLink(uriInfo));
+		links.add(new SimpleXLink(LinkBuilder.linkToCsarFile(uriInfo, csarId, id), "parent"));
+
+		return Response.ok(new ArchiveContentEntry(path, content.getHash(), entryEntries, links))
+				.type(MediaType.APPLICATION_XML_TYPE).tag(entityTag).build();
+	}
+
+	private static void copyRange(InputStream inputStream, OutputStream outputStream, long start, long length)
+			throws IOException {
+		long skipped = 0;
+		while (skipped < start) {
+			long count = inputStream.skip(start - skipped);
+			if (0 >= count) {
+				if (-1 == inputStream.read()) {
+					throw new EOFException("Entry ends before " + start);
+				}
+				count = 1;
+			}
+			skipped += count;
+		}
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long remaining = length;
+		while (0 < remaining) {
+			int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (-1 == read) {
+				throw new EOFException("Entry ends " + remaining + " bytes early");
+			}
+			outputStream.write(buffer, 0, read);
+			remaining -= read;
+		}
+	}
+
+	private static MediaType getMediaType(String path) {
+		if (ArchiveDiff.isXml(path)) {
+			return MediaType.APPLICATION_XML_TYPE;
+		}
+		String name = path.toLowerCase(Locale.ENGLISH);
+		if (name.endsWith(".meta") || name.endsWith(".txt") || name.endsWith(".properties")) {
+			return MediaType.TEXT_PLAIN_TYPE;
+		}
+		if (name.endsWith(".zip") || name.endsWith(".war") || name.endsWith(".jar")) {
+			return MediaType.valueOf("application/zip");
+		}
+		return MediaType.APPLICATION_OCTET_STREAM_TYPE;
+	}
 }
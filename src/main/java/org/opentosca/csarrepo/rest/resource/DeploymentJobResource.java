@@ -0,0 +1,44 @@
+package org.opentosca.csarrepo.rest.resource;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+
+import org.opentosca.csarrepo.rest.model.DeploymentJobEntry;
+import org.opentosca.csarrepo.rest.model.SimpleXLink;
+import org.opentosca.csarrepo.rest.util.LinkBuilder;
+import org.opentosca.csarrepo.util.DeploymentJob;
+
+/**
+ * Progress of a deployment to several OpenTOSCA servers
+ */
+public class DeploymentJobResource {
+
+	private UriInfo uriInfo;
+	private long id;
+
+	public DeploymentJobResource(UriInfo uriInfo, long id) {
+		this.uriInfo = uriInfo;
+		this.id = id;
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_XML)
+	public Response getDeploymentJob() {
+		DeploymentJob job = DeploymentJob.get(id);
+		if (null == job) {
+			return Response.status(Status.NOT_FOUND).entity("Unknown deployment job " + id).build();
+		}
+
+		List<SimpleXLink> links = new LinkedList<SimpleXLink>();
+		links.add(LinkBuilder.selfLink(uriInfo));
+
+		return Response.ok(new DeploymentJobEntry(job, links)).build();
+	}
+}
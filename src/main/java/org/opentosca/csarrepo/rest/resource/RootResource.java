@@ -5,6 +5,7 @@ import java.util.List;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
@@ -54,4 +55,9 @@ public class RootResource {
 		return new OpenToscaListResource(uriInfo);
 	}
 
+	@Path("/deployment/{id}")
+	public Object getDeploymentJob(@PathParam("id") long id) {
+		return new DeploymentJobResource(uriInfo, id);
+	}
+
 }
@@ -0,0 +1,88 @@
+package org.opentosca.csarrepo.rest.util;
+
+/**
+ * A single range of a <code>Range</code> request header
+ *
+ * Only single byte ranges are served partially. Requests for several ranges
+ * or with other units are answered with the whole content, as HTTP allows.
+ */
+public class ByteRange {
+
+	private static final String BYTES_UNIT = "bytes=";
+
+	private final long start;
+	private final long end;
+	private final long length;
+
+	private ByteRange(long start, long end, long length) {
+		this.start = start;
+		this.end = end;
+		this.length = length;
+	}
+
+	/**
+	 * @param header
+	 *            the <code>Range</code> header or <code>null</code>
+	 * @param length
+	 *            the length of the content
+	 * @return the requested range or <code>null</code> if the whole content
+	 *         is sent
+	 */
+	public static ByteRange parse(String header, long length) {
+		if (null == header || !header.startsWith(BYTES_UNIT) || -1 != header.indexOf(',')) {
+			return null;
+		}
+		String spec = header.substring(BYTES_UNIT.length()).trim();
+		int dash = spec.indexOf('-');
+		if (-1 == dash) {
+			return null;
+		}
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			if (first.isEmpty()) {
+				// the last bytes
+				long suffix = Long.parseLong(last);
+				if (0 > suffix) {
+					return null;
+				}
+				return 0 == suffix || 0 == length ? unsatisfiable(length) : new ByteRange(Math.max(0, length
+						- suffix), length - 1, length);
+			}
+			long start = Long.parseLong(first);
+			long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+			if (0 > start || end < start) {
+				return null;
+			}
+			return start >= length ? unsatisfiable(length) : new ByteRange(start, Math.min(end, length - 1), length);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static ByteRange unsatisfiable(long length) {
+		return new ByteRange(-1, -1, length);
+	}
+
+	/**
+	 * @return <code>false</code> if the range lies behind the content
+	 */
+	public boolean isSatisfiable() {
+		return 0 <= start;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	/**
+	 * @return the value of the <code>Content-Range</code> header
+	 */
+	public String toContentRange() {
+		return isSatisfiable() ? "bytes " + start + "-" + end + "/" + length : "bytes */" + length;
+	}
+}
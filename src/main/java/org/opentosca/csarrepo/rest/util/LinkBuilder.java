@@ -1,6 +1,8 @@
 package org.opentosca.csarrepo.rest.util;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -47,8 +49,31 @@ public class LinkBuilder {
 				.buildFromMap(paramMap);
 	}
 
+	public static URI linkToDeploymentJob(UriInfo uriInfo, long id) {
+		return uriInfo.getBaseUriBuilder().path(RootResource.class).path(RootResource.class, "getDeploymentJob")
+				.build(id);
+	}
+
 	public static URI linkToCsarFileDownloadFromCsarFile(UriInfo uriInfo) {
 		return uriInfo.getAbsolutePathBuilder().path("download").build(new Object[0]);
 	}
 
+	public static URI linkToCsarFileContentFromCsarFile(UriInfo uriInfo) {
+		return uriInfo.getAbsolutePathBuilder().path("content").build(new Object[0]);
+	}
+
+	public static URI linkToCsarFileContent(UriInfo uriInfo, long csarId, long csarFileId, String path) {
+		// entry names may contain characters UriBuilder takes for templates
+		StringBuilder link = new StringBuilder(linkToCsarFile(uriInfo, csarId, csarFileId).toString());
+		link.append("/content");
+		try {
+			for (String segment : path.split("/", -1)) {
+				link.append('/').append(URLEncoder.encode(segment, "UTF-8").replace("+", "%20"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		return URI.create(link.toString());
+	}
+
 }
@@ -0,0 +1,57 @@
+package org.opentosca.csarrepo.service;
+
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.HashedFile;
+import org.opentosca.csarrepo.model.repository.CsarFileRepository;
+import org.opentosca.csarrepo.util.ArchiveIndex;
+import org.opentosca.csarrepo.util.CsarFileContent;
+
+/**
+ * Provides access to the single entries of a CSAR file, without reading the
+ * whole archive
+ */
+public class BrowseCsarFileService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(BrowseCsarFileService.class);
+
+	private CsarFileContent content;
+
+	/**
+	 * @param userId
+	 *            of the user
+	 * @param csarFileId
+	 *            id of the csar file
+	 */
+	public BrowseCsarFileService(long userId, long csarFileId) {
+		super(userId);
+		try {
+			CsarFile csarFile = new CsarFileRepository().getbyId(csarFileId);
+			if (null == csarFile) {
+				this.addError("CSAR file " + csarFileId + " does not exist");
+				return;
+			}
+			HashedFile hashedFile = csarFile.getHashedFile();
+			FileSystem fileSystem = new FileSystem();
+			this.content = new CsarFileContent(fileSystem, hashedFile.getFilename(), hashedFile.getHash(),
+					ArchiveIndex.getDirectory(fileSystem, hashedFile.getFilename()));
+		} catch (IOException | PersistenceException e) {
+			LOGGER.error("Could not read the entries of csar file {}", csarFileId, e);
+			this.addError(e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the content of the CSAR file
+	 */
+	public CsarFileContent getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.content;
+	}
+}
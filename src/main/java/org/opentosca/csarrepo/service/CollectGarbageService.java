@@ -0,0 +1,105 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.SweepResult;
+import org.opentosca.csarrepo.model.HashedFile;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.GarbageCollectionResult;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Removes stored data which is no longer used
+ *
+ * Marks the archives of all hashed files and the blobs of these archives and
+ * sweeps everything else: hashed files without CSAR files, including their
+ * plans, archives without hashed file, e.g. left by failed uploads, and blobs
+ * without archive. Archives still used as base of a delta are kept.
+ * Afterwards the pack store is compacted. Only data untouched for
+ * <code>gcGracePeriod</code> milliseconds is removed, so running uploads keep
+ * their data. The file and database operations are limited to
+ * <code>gcOpsPerSecond</code>.
+ */
+public class CollectGarbageService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(CollectGarbageService.class);
+
+	private static final long DEFAULT_GRACE_PERIOD = 86400000;
+	private static final double DEFAULT_OPS_PER_SECOND = 100;
+
+	private GarbageCollectionResult result;
+
+	/**
+	 * @param userId
+	 * @param dryRun
+	 *            <code>true</code> to only determine what would be removed
+	 */
+	public CollectGarbageService(long userId, boolean dryRun) {
+		super(userId);
+		Date started = new Date();
+
+		long gracePeriod = Long.getLong("gcGracePeriod", DEFAULT_GRACE_PERIOD);
+		long deadline = System.currentTimeMillis() - gracePeriod;
+		RateLimiter rateLimiter = new RateLimiter(getOpsPerSecond());
+		FileSystem fileSystem = new FileSystem();
+		FileSystemRepository fileSystemRepository = new FileSystemRepository();
+
+		int hashedFiles = 0;
+		SweepResult sweep = null;
+		long compacted = 0;
+		try {
+			Set<UUID> referenced = fileSystemRepository.getFilenames();
+			for (HashedFile hashedFile : fileSystemRepository.getUnreferenced()) {
+				if (fileSystem.getLastModified(hashedFile.getFilename()) >= deadline) {
+					continue;
+				}
+				rateLimiter.acquire(1);
+				if (dryRun || fileSystemRepository.deleteUnreferenced(hashedFile)) {
+					referenced.remove(hashedFile.getFilename());
+					hashedFiles++;
+				}
+			}
+			sweep = fileSystem.sweep(referenced, gracePeriod, dryRun, rateLimiter);
+			if (0 < sweep.getFailed()) {
+				this.addError(sweep.getFailed() + " files could not be deleted");
+			}
+			if (!dryRun) {
+				compacted = fileSystem.compactPacks();
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.addError("Garbage collection was interrupted");
+		}
+
+		result = new GarbageCollectionResult(started, dryRun, hashedFiles, null == sweep ? 0 : sweep.getArchives(),
+				null == sweep ? 0 : sweep.getBlobs(), (null == sweep ? 0 : sweep.getBytes()) + compacted,
+				this.getErrors());
+		LOGGER.info("Garbage collection{}: {} hashed files, {} archives, {} blobs, {} bytes", dryRun ? " (dry run)"
+				: "", hashedFiles, result.getArchives(), result.getBlobs(), result.getBytes());
+	}
+
+	private static double getOpsPerSecond() {
+		try {
+			return Double.parseDouble(System.getProperty("gcOpsPerSecond", "" + DEFAULT_OPS_PER_SECOND));
+		} catch (NumberFormatException e) {
+			return DEFAULT_OPS_PER_SECOND;
+		}
+	}
+
+	/**
+	 * @return the outcome of the garbage collection
+	 */
+	public GarbageCollectionResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
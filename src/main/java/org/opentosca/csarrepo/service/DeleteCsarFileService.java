@@ -1,15 +1,23 @@
 package org.opentosca.csarrepo.service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.IntentJournal;
 import org.opentosca.csarrepo.model.Csar;
 import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.HashedFile;
 import org.opentosca.csarrepo.model.repository.CsarFileRepository;
 import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.ArchiveCache;
+import org.opentosca.csarrepo.util.ArchiveIndex;
+import org.opentosca.csarrepo.util.PlanIndex;
 
 /**
- * Deletes the given CSAR file.
+ * Deletes the given CSAR file. The deletion is written to the intent journal,
+ * so a deletion interrupted by a crash is completed at the next start.
  * 
  * @author Dennis Przytarski
  */
@@ -27,26 +35,38 @@ public class DeleteCsarFileService extends AbstractService {
 		super(userId);
 		this.csarFileId = csarFileId;
 
+		IntentJournal.Intent intent = null;
 		try {
 			FileSystemRepository fileSystemRepository = new FileSystemRepository();
 			CsarFileRepository csarFileRepository = new CsarFileRepository();
+			FileSystem fileSystem = new FileSystem();
 			CsarFile csarFile = csarFileRepository.getbyId(this.csarFileId);
 			this.csar = csarFile.getCsar();
 
 			HashedFile hashedFile = csarFile.getHashedFile();
+			Map<String, String> data = new HashMap<String, String>();
+			data.put(IntentJournal.CSAR_FILE_ID, Long.toString(this.csarFileId));
+			data.put(IntentJournal.FILENAME, hashedFile.getFilename().toString());
+			intent = fileSystem.getJournal().begin(IntentJournal.Kind.DELETE_CSAR_FILE, data);
 
 			// csar file must be deleted before hashed file
 			csarFileRepository.delete(csarFile);
+			ArchiveCache.invalidate(this.csarFileId);
+			PlanIndex.invalidate(this.csarFileId);
 
 			// delete hashed file from database and file system, if necessary
 			if (fileSystemRepository.isHashDeletable(hashedFile.getHash())) {
 				fileSystemRepository.delete(hashedFile);
-				FileSystem fileSystem = new FileSystem();
 				fileSystem.deleteFromFileSystem(hashedFile.getFilename());
+				ArchiveIndex.invalidate(hashedFile.getFilename());
 			}
+			intent.commit();
 
 			this.returnValue = true;
 		} catch (PersistenceException e) {
+			if (null != intent) {
+				intent.abort();
+			}
 			this.addError(e.getMessage());
 		}
 	}
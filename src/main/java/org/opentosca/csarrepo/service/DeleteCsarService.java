@@ -1,12 +1,23 @@
 package org.opentosca.csarrepo.service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.IntentJournal;
 import org.opentosca.csarrepo.model.Csar;
 import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.repository.CsarFileRepository;
 import org.opentosca.csarrepo.model.repository.CsarRepository;
+import org.opentosca.csarrepo.util.ArchiveCache;
+import org.opentosca.csarrepo.util.PlanIndex;
 
 /**
+ * Deletes the given CSAR with all its CSAR files. The deletion is written to
+ * the intent journal, so a deletion interrupted by a crash is completed at the
+ * next start. The archives are removed by the garbage collection.
+ * 
  * @author Dennis Przytarski
  */
 public class DeleteCsarService extends AbstractService {
@@ -22,6 +33,7 @@ public class DeleteCsarService extends AbstractService {
 		super(userId);
 		this.csarId = csarId;
 
+		IntentJournal.Intent intent = null;
 		try {
 			CsarRepository csarRepository = new CsarRepository();
 			CsarFileRepository csarFileRepository = new CsarFileRepository();
@@ -31,13 +43,31 @@ public class DeleteCsarService extends AbstractService {
 				this.addError("invalidCsar");
 				return;
 			}
-			
+
+			// the CSAR files tell the recovery whether the deletion started
+			StringBuilder csarFileIds = new StringBuilder();
+			for (CsarFile csarFile : csar.getCsarFiles()) {
+				if (0 < csarFileIds.length()) {
+					csarFileIds.append(',');
+				}
+				csarFileIds.append(csarFile.getId());
+			}
+			Map<String, String> data = new HashMap<String, String>();
+			data.put(IntentJournal.CSAR_ID, Long.toString(this.csarId));
+			data.put(IntentJournal.CSAR_FILE_IDS, csarFileIds.toString());
+			intent = new FileSystem().getJournal().begin(IntentJournal.Kind.DELETE_CSAR, data);
 			for (CsarFile csarFile : csar.getCsarFiles()) {
 				csarFileRepository.delete(csarFile);
+				ArchiveCache.invalidate(csarFile.getId());
+				PlanIndex.invalidate(csarFile.getId());
 			}
 			csarRepository.delete(csar);
+			intent.commit();
 			this.returnValue = true;
 		} catch (PersistenceException e) {
+			if (null != intent) {
+				intent.abort();
+			}
 			this.addError(e.getMessage());
 		}
 	}
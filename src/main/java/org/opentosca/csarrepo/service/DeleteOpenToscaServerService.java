@@ -3,6 +3,7 @@ package org.opentosca.csarrepo.service;
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
 import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.util.LivedataCache;
 
 /**
  * Service deleting OpenToscaServers
@@ -29,6 +30,8 @@ public class DeleteOpenToscaServerService extends AbstractService {
 			}
 
 			otServerRepo.delete(otServer);
+			LivedataCache.invalidate(opentoscaServerId);
+			ReconcileOpenToscaServerService.invalidate(opentoscaServerId);
 		} catch (PersistenceException e) {
 			this.addError(e.getMessage());
 		}
@@ -0,0 +1,251 @@
+package org.opentosca.csarrepo.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import net.lingala.zip4j.exception.ZipException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.DeploymentException;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.repository.CsarFileRepository;
+import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.service.DeployToOpenToscaService.DuplicatePolicy;
+import org.opentosca.csarrepo.util.ArchiveCache;
+import org.opentosca.csarrepo.util.DeploymentJob;
+import org.opentosca.csarrepo.util.FanOut;
+import org.opentosca.csarrepo.util.RemoteIoExecutor;
+
+/**
+ * Service which deploys a CSAR file to several OpenTOSCA servers in the
+ * background
+ *
+ * Servers which already host the same content are handled according to the
+ * {@link DuplicatePolicy} without an upload. For all other servers the
+ * archive is prepared once and uploaded in parallel. The number of parallel
+ * uploads and the timeout of a single upload can be configured with the
+ * properties <code>deployConcurrency</code> and <code>deployTimeout</code>.
+ * Jobs and uploads run on the deploy executors of {@link RemoteIoExecutor}.
+ * The progress is reported by the returned {@link DeploymentJob}. An upload
+ * which times out may keep running, so the archive is only given back once
+ * every started upload has returned.
+ */
+public class DeployToOpenToscaServersService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(DeployToOpenToscaServersService.class);
+
+	private static final int DEFAULT_CONCURRENCY = 4;
+	private static final long DEFAULT_TIMEOUT = 600000;
+
+	private DeploymentJob job;
+
+	/**
+	 * @param userId
+	 * @param csarFileId
+	 *            the CSAR file to deploy
+	 * @param openToscaIds
+	 *            the target servers
+	 * @param duplicatePolicy
+	 *            what to do with servers which already host the content
+	 */
+	public DeployToOpenToscaServersService(long userId, long csarFileId, List<Long> openToscaIds,
+			DuplicatePolicy duplicatePolicy) {
+		super(userId);
+
+		CsarFile csarFile;
+		List<OpenToscaServer> openToscaServers = new ArrayList<OpenToscaServer>();
+		try {
+			csarFile = new CsarFileRepository().getbyId(csarFileId);
+			if (null == csarFile) {
+				this.addError("invalidCsarFile");
+				return;
+			}
+			OpenToscaServerRepository openToscaServerRepository = new OpenToscaServerRepository();
+			for (Long openToscaId : openToscaIds) {
+				OpenToscaServer openToscaServer = openToscaServerRepository.getbyId(openToscaId);
+				if (null == openToscaServer) {
+					this.addError("invalidOpenToscaServer " + openToscaId);
+					return;
+				}
+				openToscaServers.add(openToscaServer);
+			}
+		} catch (PersistenceException e) {
+			this.addError("Couldn't determine required parameters " + e.getMessage());
+			return;
+		}
+		if (openToscaServers.isEmpty()) {
+			this.addError("No OpenTOSCA server selected");
+			return;
+		}
+
+		job = DeploymentJob.create(csarFile, openToscaServers);
+		try {
+			RemoteIoExecutor.getDeployExecutor().submit(new DeployTask(job, duplicatePolicy));
+		} catch (RejectedExecutionException e) {
+			job = null;
+			this.addError("Too many deployments in progress, please try again later");
+		}
+	}
+
+	/**
+	 * @return the started job
+	 */
+	public DeploymentJob getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return job;
+	}
+
+	private static class DeployTask implements Runnable {
+
+		private final DeploymentJob job;
+		private final DuplicatePolicy duplicatePolicy;
+		private File zipArchive;
+		// the task and the running uploads, a timed out upload may still read
+		// the archive after the job has finished
+		private int archiveHolders = 1;
+
+		DeployTask(DeploymentJob job, DuplicatePolicy duplicatePolicy) {
+			this.job = job;
+			this.duplicatePolicy = duplicatePolicy;
+		}
+
+		@Override
+		public void run() {
+			CsarFile csarFile;
+			try {
+				csarFile = new CsarFileRepository().getbyId(job.getCsarFileId());
+			} catch (PersistenceException e) {
+				csarFile = null;
+			}
+			if (null == csarFile) {
+				for (DeploymentJob.Target target : job.getTargets()) {
+					job.fail(target.getOpenToscaServerId(), "CSAR file was deleted");
+				}
+				return;
+			}
+
+			Map<Long, Callable<String>> uploads = new LinkedHashMap<Long, Callable<String>>();
+			for (DeploymentJob.Target target : job.getTargets()) {
+				final long openToscaServerId = target.getOpenToscaServerId();
+				if (reuse(csarFile, openToscaServerId)) {
+					continue;
+				}
+				uploads.put(openToscaServerId, new Callable<String>() {
+
+					@Override
+					public String call() throws Exception {
+						return deploy(openToscaServerId);
+					}
+				});
+			}
+
+			if (uploads.isEmpty()) {
+				LOGGER.info("Deployment job {} finished without uploads", job.getId());
+				return;
+			}
+
+			try {
+				zipArchive = DeployToOpenToscaService.prepareArchive(csarFile);
+			} catch (ZipException | IOException e) {
+				LOGGER.error("Failed to prepare archive for deployment job " + job.getId(), e);
+				for (Long openToscaServerId : uploads.keySet()) {
+					job.fail(openToscaServerId, "Failed to prepare archive: " + e.getMessage());
+				}
+				return;
+			}
+
+			try {
+				FanOut.Result<Long, String> result = FanOut.invokeAll(RemoteIoExecutor.getDeployUploadExecutor(),
+						uploads, Integer.getInteger("deployConcurrency", DEFAULT_CONCURRENCY),
+						Long.getLong("deployTimeout", DEFAULT_TIMEOUT));
+				for (Map.Entry<Long, String> failure : result.getFailures().entrySet()) {
+					job.fail(failure.getKey(), failure.getValue());
+				}
+				LOGGER.info("Deployment job {} finished: {} deployed, {} reused, {} failed", job.getId(),
+						job.count(DeploymentJob.Status.DEPLOYED), job.count(DeploymentJob.Status.REUSED),
+						job.count(DeploymentJob.Status.FAILED));
+			} finally {
+				releaseArchive();
+			}
+		}
+
+		/**
+		 * @return <code>false</code> if the archive was already given back,
+		 *         since all uploads were given up
+		 */
+		private synchronized boolean acquireArchive() {
+			if (0 == archiveHolders) {
+				return false;
+			}
+			archiveHolders++;
+			return true;
+		}
+
+		/**
+		 * Gives the archive back to the {@link ArchiveCache} once neither the
+		 * task nor any upload uses it.
+		 */
+		private synchronized void releaseArchive() {
+			if (0 == --archiveHolders) {
+				ArchiveCache.release(zipArchive);
+			}
+		}
+
+		/**
+		 * Applies the duplicate policy to the given server.
+		 * 
+		 * @return <code>true</code> if the server needs no upload
+		 */
+		private boolean reuse(CsarFile csarFile, long openToscaServerId) {
+			try {
+				OpenToscaServer openToscaServer = new OpenToscaServerRepository().getbyId(openToscaServerId);
+				if (null == openToscaServer) {
+					throw new PersistenceException("OpenTOSCA server was deleted");
+				}
+				String location = DeployToOpenToscaService.reuseDeployment(openToscaServer, csarFile, duplicatePolicy);
+				if (null == location) {
+					return false;
+				}
+				job.reuse(openToscaServerId, location);
+			} catch (DeploymentException | PersistenceException e) {
+				job.fail(openToscaServerId, e.getMessage());
+			}
+			return true;
+		}
+
+		private String deploy(long openToscaServerId) throws Exception {
+			if (!acquireArchive()) {
+				throw new DeploymentException("Deployment job " + job.getId() + " was given up");
+			}
+			job.start(openToscaServerId);
+			try {
+				// every upload uses its own entities, they are saved concurrently
+				CsarFile csarFile = new CsarFileRepository().getbyId(job.getCsarFileId());
+				OpenToscaServer openToscaServer = new OpenToscaServerRepository().getbyId(openToscaServerId);
+				if (null == csarFile || null == openToscaServer) {
+					throw new PersistenceException("CSAR file or OpenTOSCA server was deleted");
+				}
+				String location = DeployToOpenToscaService.deploy(openToscaServer, csarFile, zipArchive);
+				job.succeed(openToscaServerId, location);
+				return location;
+			} catch (Exception e) {
+				LOGGER.warn("Deployment job {} failed for OpenTOSCA server {}: {}", job.getId(), openToscaServerId,
+						e.getMessage());
+				job.fail(openToscaServerId, e.getMessage());
+				throw e;
+			} finally {
+				releaseArchive();
+			}
+		}
+	}
+}
@@ -10,20 +10,58 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.DeploymentException;
 import org.opentosca.csarrepo.exception.PersistenceException;
-import org.opentosca.csarrepo.filesystem.FileSystem;
 import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.join.CsarFileOpenToscaServer;
 import org.opentosca.csarrepo.model.repository.CsarFileRepository;
+import org.opentosca.csarrepo.model.repository.JoinRepository;
 import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.util.ArchiveCache;
 import org.opentosca.csarrepo.util.ContainerApiClient;
-import org.opentosca.csarrepo.util.ZipUtils;
+import org.opentosca.csarrepo.util.CsarFileIdResolver;
+import org.opentosca.csarrepo.util.LivedataCache;
 
 public class DeployToOpenToscaService extends AbstractService {
 
 	private boolean success = false;
+	private String location;
+	private boolean reused = false;
 	private static final Logger LOGGER = LogManager.getLogger(DeployToOpenToscaService.class);
 
+	/**
+	 * What to do if a CSAR file with the same content is already deployed on
+	 * the target server
+	 */
+	public enum DuplicatePolicy {
+		/** map the CSAR file to the existing deployment without an upload */
+		REUSE,
+		/** reject the deployment */
+		FAIL,
+		/** upload the archive anyway */
+		UPLOAD;
+
+		/**
+		 * @param value
+		 *            name of the policy, case insensitive
+		 * @return the policy or the default of the property
+		 *         <code>deployDuplicatePolicy</code>, if no value is given
+		 * @throws IllegalArgumentException
+		 *             if the value is unknown
+		 */
+		public static DuplicatePolicy parse(String value) {
+			if (null == value || value.trim().isEmpty()) {
+				value = System.getProperty("deployDuplicatePolicy", REUSE.name());
+			}
+			return DuplicatePolicy.valueOf(value.trim().toUpperCase());
+		}
+	}
+
 	public DeployToOpenToscaService(long userId, long openToscaId, long csarFileId) throws ZipException, IOException {
+		this(userId, openToscaId, csarFileId, DuplicatePolicy.parse(null));
+	}
+
+	public DeployToOpenToscaService(long userId, long openToscaId, long csarFileId, DuplicatePolicy duplicatePolicy)
+			throws ZipException, IOException {
 		super(userId);
 
 		OpenToscaServerRepository openToscaServerRepository = new OpenToscaServerRepository();
@@ -39,34 +77,142 @@ public class DeployToOpenToscaService extends AbstractService {
 			return;
 		}
 
-		// TODO: move this addition of meta data to a utility class, copied from
-		// DownloadCsarFileServlet
-		FileSystem fileSystem = new FileSystem();
-		File file = fileSystem.getFile(csarFile.getHashedFile().getFilename());
-		File zipArchive = DownloadCsarFileService.duplicateFile(file);
-		File csarRepositoryFile = DownloadCsarFileService.transformBytesToFile(Long.toString(csarFileId).getBytes());
+		try {
+			location = reuseDeployment(openToscaServer, csarFile, duplicatePolicy);
+			if (null != location) {
+				reused = true;
+				success = true;
+				return;
+			}
+		} catch (DeploymentException | PersistenceException e) {
+			this.addError(e.getMessage());
+			return;
+		}
 
-		ZipUtils.add(zipArchive, csarRepositoryFile);
-		String filename = csarFile.getName();
+		File zipArchive = prepareArchive(csarFile);
 
 		try {
-			ContainerApiClient containerApiClient = new ContainerApiClient(openToscaServer);
-			String location = containerApiClient.uploadFileToOpenTOSCA(zipArchive, filename);
-
-			// create meta-data
-			csarFile.addOpenToscaServer(openToscaServer, location);
-			csarFileRepo.save(csarFile);
+			location = deploy(openToscaServer, csarFile, zipArchive);
 			success = true;
 		} catch (DeploymentException | PersistenceException | URISyntaxException e) {
 			this.addError(e.getMessage());
 			return;
+		} finally {
+			ArchiveCache.release(zipArchive);
 		}
 	}
 
+	/**
+	 * Checks whether the content of the CSAR file is already deployed on the
+	 * given server by another CSAR file and applies the given policy. Nothing
+	 * is transferred to the server.
+	 * 
+	 * @param openToscaServer
+	 * @param csarFile
+	 * @param duplicatePolicy
+	 * @return the location of the reused deployment or <code>null</code>, if
+	 *         the archive has to be uploaded
+	 * @throws DeploymentException
+	 *             if the content is deployed and the policy is
+	 *             {@link DuplicatePolicy#FAIL}
+	 * @throws PersistenceException
+	 */
+	public static String reuseDeployment(OpenToscaServer openToscaServer, CsarFile csarFile,
+			DuplicatePolicy duplicatePolicy) throws DeploymentException, PersistenceException {
+		if (DuplicatePolicy.UPLOAD == duplicatePolicy) {
+			return null;
+		}
+
+		JoinRepository joinRepo = new JoinRepository();
+		CsarFileOpenToscaServer existing = null;
+		for (CsarFileOpenToscaServer mapping : joinRepo.getCsarFileOpenToscaServersByHash(openToscaServer, csarFile
+				.getHashedFile().getHash())) {
+			if (csarFile.getId().equals(mapping.getCsarFile().getId())) {
+				throw new DeploymentException(String.format("CSAR file %s is already deployed on %s at %s",
+						csarFile.getName(), openToscaServer.getName(), mapping.getLocation()));
+			}
+			existing = mapping;
+		}
+		if (null == existing) {
+			return null;
+		}
+
+		if (DuplicatePolicy.FAIL == duplicatePolicy) {
+			throw new DeploymentException(String.format(
+					"The same content is already deployed on %s as CSAR file %d at %s", openToscaServer.getName(),
+					existing.getCsarFile().getId(), existing.getLocation()));
+		}
+
+		csarFile.addOpenToscaServer(openToscaServer, existing.getLocation());
+		new CsarFileRepository().save(csarFile);
+		LivedataCache.refresh(openToscaServer.getId());
+		LOGGER.info("Reused deployment {} of CSAR file {} on {} for CSAR file {}", existing.getLocation(), existing
+				.getCsarFile().getId(), openToscaServer.getAddress(), csarFile.getId());
+		return existing.getLocation();
+	}
+
+	/**
+	 * Builds the archive to deploy, i.e. the CSAR file with the
+	 * CSAR-REPOSITORY.txt containing its id. The archive is taken from the
+	 * {@link ArchiveCache} and must be given back with
+	 * {@link ArchiveCache#release(File)}.
+	 * 
+	 * @param csarFile
+	 * @return the archive
+	 * @throws ZipException
+	 * @throws IOException
+	 */
+	public static File prepareArchive(CsarFile csarFile) throws ZipException, IOException {
+		return ArchiveCache.acquire(csarFile);
+	}
+
+	/**
+	 * Uploads a prepared archive to the given server and stores the
+	 * deployment.
+	 * 
+	 * @param openToscaServer
+	 * @param csarFile
+	 * @param zipArchive
+	 *            archive built by {@link #prepareArchive(CsarFile)}
+	 * @return the location of the CSAR inside the container
+	 * @throws DeploymentException
+	 * @throws PersistenceException
+	 * @throws URISyntaxException
+	 */
+	public static String deploy(OpenToscaServer openToscaServer, CsarFile csarFile, File zipArchive)
+			throws DeploymentException, PersistenceException, URISyntaxException {
+		String filename = csarFile.getName();
+		ContainerApiClient containerApiClient = new ContainerApiClient(openToscaServer);
+		String location = containerApiClient.uploadFileToOpenTOSCA(zipArchive, filename);
+
+		// create meta-data
+		csarFile.addOpenToscaServer(openToscaServer, location);
+		new CsarFileRepository().save(csarFile);
+		CsarFileIdResolver.invalidate(openToscaServer, filename);
+		LivedataCache.refresh(openToscaServer.getId());
+		LOGGER.info("Deployed CSAR file {} to {}", csarFile.getId(), openToscaServer.getAddress());
+		return location;
+	}
+
 	public boolean getResult() {
 		this.logInvalidResultAccess("getResult");
 
 		return this.success;
 	}
 
+	/**
+	 * @return the location of the CSAR inside the container
+	 */
+	public String getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return <code>true</code> if an existing deployment was reused instead
+	 *         of uploading the archive
+	 */
+	public boolean isReused() {
+		return reused;
+	}
+
 }
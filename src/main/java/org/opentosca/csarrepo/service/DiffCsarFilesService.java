@@ -0,0 +1,105 @@
+package org.opentosca.csarrepo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.util.ArchiveDiff;
+import org.opentosca.csarrepo.util.CsarFileContent;
+import org.opentosca.csarrepo.util.TextDiff;
+import org.opentosca.csarrepo.util.ZipDirectory;
+
+/**
+ * Compares the entries of two CSAR files
+ *
+ * The entries are compared by the metadata of the central directories, so
+ * unchanged entries are never read. The directories come from the
+ * {@link org.opentosca.csarrepo.util.ArchiveIndex}, which on a cache miss reads
+ * them from the archive, or from its manifest if it is stored by its entries.
+ * Only for the textual diff the changed XML entries of at most
+ * <code>diffMaxTextSize</code> bytes are read.
+ */
+public class DiffCsarFilesService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(DiffCsarFilesService.class);
+
+	private static final long DEFAULT_MAX_TEXT_SIZE = 1048576;
+	private static final int CONTEXT_LINES = 3;
+
+	private ArchiveDiff diff;
+
+	/**
+	 * @param userId
+	 *            of the user
+	 * @param fromCsarFileId
+	 *            id of the older csar file
+	 * @param toCsarFileId
+	 *            id of the newer csar file
+	 * @param textDiff
+	 *            whether changed XML entries are compared line by line
+	 */
+	public DiffCsarFilesService(long userId, long fromCsarFileId, long toCsarFileId, boolean textDiff) {
+		super(userId);
+		try {
+			CsarFileContent from = getContent(userId, fromCsarFileId);
+			CsarFileContent to = getContent(userId, toCsarFileId);
+			if (this.hasErrors()) {
+				return;
+			}
+			this.diff = ArchiveDiff.compare(from.getHash(), from.getDirectory(), to.getHash(),
+					to.getDirectory());
+			if (textDiff) {
+				long maxTextSize = Long.getLong("diffMaxTextSize", DEFAULT_MAX_TEXT_SIZE);
+				for (ArchiveDiff.Change change : diff.getChanged()) {
+					if (ArchiveDiff.isXml(change.getName()) && maxTextSize >= change.getFrom().getSize()
+							&& maxTextSize >= change.getTo().getSize()) {
+						change.setTextDiff(TextDiff.unified(fromCsarFileId + "/" + change.getName(), toCsarFileId
+								+ "/" + change.getName(), readLines(from, change.getFrom()), readLines(to,
+								change.getTo()), CONTEXT_LINES));
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.error("Could not compare csar files {} and {}", fromCsarFileId, toCsarFileId, e);
+			this.addError(e.getMessage());
+		}
+	}
+
+	private CsarFileContent getContent(long userId, long csarFileId) {
+		BrowseCsarFileService browseService = new BrowseCsarFileService(userId, csarFileId);
+		if (browseService.hasErrors()) {
+			for (String error : browseService.getErrors()) {
+				this.addError(error);
+			}
+			return null;
+		}
+		return browseService.getResult();
+	}
+
+	private static List<String> readLines(CsarFileContent content, ZipDirectory.Entry entry)
+			throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) entry.getSize());
+		try (InputStream inputStream = content.open(entry)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				outputStream.write(buffer, 0, read);
+			}
+		}
+		return Arrays.asList(new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\r?\n", -1));
+	}
+
+	/**
+	 * @return the differences from the older to the newer csar file
+	 */
+	public ArchiveDiff getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.diff;
+	}
+}
@@ -1,43 +1,47 @@
 package org.opentosca.csarrepo.service;
 
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.opentosca.csarrepo.exception.DeploymentException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
-import org.opentosca.csarrepo.util.ContainerApiClient;
 import org.opentosca.csarrepo.util.DeployedCsarObject;
-import org.opentosca.csarrepo.util.PlanInvocationHelper;
-import org.opentosca.csarrepo.util.jaxb.SimpleXLink;
+import org.opentosca.csarrepo.util.LivedataCache;
+import org.opentosca.csarrepo.util.LivedataSnapshot;
 
 /**
  * Service which returns a List containing information of deployed CSARs inside
  * an existing OpenTOSCA-Server
  * 
+ * The information is taken from the cached {@link LivedataSnapshot} of the
+ * server.
+ * 
  * @author Dennis Przytarski, Thomas Kosch
  */
 public class LivedataOpenToscaCsarService extends AbstractService {
 
 	private List<DeployedCsarObject> deployedCsars = new ArrayList<DeployedCsarObject>();
+	private LivedataSnapshot snapshot;
 
 	/**
 	 * @param userId
 	 */
 	public LivedataOpenToscaCsarService(long userId, OpenToscaServer openToscaServer) {
+		this(userId, openToscaServer, false);
+	}
+
+	/**
+	 * @param userId
+	 * @param openToscaServer
+	 * @param refresh
+	 *            <code>true</code> to refresh the snapshot before
+	 */
+	public LivedataOpenToscaCsarService(long userId, OpenToscaServer openToscaServer, boolean refresh) {
 		super(userId);
-		try {
-			ContainerApiClient client = new ContainerApiClient(openToscaServer);
-			List<SimpleXLink> links = client.getDeployedCsars();
-
-			for (SimpleXLink link : links) {
-				Long id = PlanInvocationHelper.getCsarFileId(openToscaServer, link.getTitle());
-				if (null != id) {
-					deployedCsars.add(new DeployedCsarObject(id, link.getTitle()));
-				}
-			}
-		} catch (URISyntaxException | DeploymentException e) {
-			this.addError(e.getMessage());
+		snapshot = LivedataCache.getSnapshot(openToscaServer.getId(), refresh);
+		if (null == snapshot.getDeployedCsars()) {
+			this.addError(snapshot.getLastError());
+		} else {
+			deployedCsars = snapshot.getDeployedCsars();
 		}
 	}
 
@@ -51,4 +55,11 @@ public class LivedataOpenToscaCsarService extends AbstractService {
 		return deployedCsars;
 	}
 
+	/**
+	 * @return the snapshot the result was taken from
+	 */
+	public LivedataSnapshot getSnapshot() {
+		return snapshot;
+	}
+
 }
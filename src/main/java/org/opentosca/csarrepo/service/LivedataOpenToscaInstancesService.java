@@ -1,33 +1,49 @@
 package org.opentosca.csarrepo.service;
 
-import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
 
-import org.opentosca.csarrepo.exception.DeploymentException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
-import org.opentosca.csarrepo.util.ContainerApiClient;
+import org.opentosca.csarrepo.util.LivedataCache;
+import org.opentosca.csarrepo.util.LivedataSnapshot;
 import org.opentosca.csarrepo.util.jaxb.ServiceInstanceEntry;
 
 /**
  * Service which returns a List containing information about running Instances
  * inside an existing OpenTOSCA-Server
  * 
+ * The information is taken from the cached {@link LivedataSnapshot} of the
+ * server.
+ * 
  * @author Marcus Eisele (marcus.eisele@gmail.com)
  */
 public class LivedataOpenToscaInstancesService extends AbstractService {
 
 	private List<ServiceInstanceEntry> runningLiveInstances;
+	private List<String> warnings = new ArrayList<String>();
+	private LivedataSnapshot snapshot;
 
 	/**
 	 * @param userId
 	 */
 	public LivedataOpenToscaInstancesService(long userId, OpenToscaServer openToscaServer) {
+		this(userId, openToscaServer, false);
+	}
+
+	/**
+	 * @param userId
+	 * @param openToscaServer
+	 * @param refresh
+	 *            <code>true</code> to refresh the snapshot before
+	 */
+	public LivedataOpenToscaInstancesService(long userId, OpenToscaServer openToscaServer, boolean refresh) {
 		super(userId);
-		try {
-			ContainerApiClient client = new ContainerApiClient(openToscaServer);
-			runningLiveInstances = client.getServiceInstances();
-		} catch (URISyntaxException | DeploymentException e) {
-			this.addError(e.getMessage());
+		snapshot = LivedataCache.getSnapshot(openToscaServer.getId(), refresh);
+		if (null == snapshot.getServiceInstances()) {
+			this.addError(snapshot.getLastError());
+		} else {
+			runningLiveInstances = snapshot.getServiceInstances();
+			warnings = snapshot.getWarnings();
 		}
 	}
 
@@ -41,4 +57,18 @@ public class LivedataOpenToscaInstancesService extends AbstractService {
 		return runningLiveInstances;
 	}
 
+	/**
+	 * @return messages for the instances which could not be retrieved
+	 */
+	public List<String> getWarnings() {
+		return warnings;
+	}
+
+	/**
+	 * @return the snapshot the result was taken from
+	 */
+	public LivedataSnapshot getSnapshot() {
+		return snapshot;
+	}
+
 }
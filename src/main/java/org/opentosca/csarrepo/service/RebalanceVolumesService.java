@@ -0,0 +1,69 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.Date;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.MoveResult;
+import org.opentosca.csarrepo.util.RateLimiter;
+import org.opentosca.csarrepo.util.RebalanceResult;
+
+/**
+ * Moves stored files between the storage volumes until their used space
+ * differs by less than <code>rebalanceThreshold</code> percent
+ *
+ * The moved bytes are limited to <code>rebalanceMBPerSecond</code>.
+ */
+public class RebalanceVolumesService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(RebalanceVolumesService.class);
+
+	private static final long DEFAULT_THRESHOLD = 10;
+	private static final double DEFAULT_MB_PER_SECOND = 20;
+
+	private RebalanceResult result;
+
+	/**
+	 * @param userId
+	 */
+	public RebalanceVolumesService(long userId) {
+		super(userId);
+		Date started = new Date();
+
+		long threshold = Long.getLong("rebalanceThreshold", DEFAULT_THRESHOLD);
+		RateLimiter rateLimiter = new RateLimiter(getMBPerSecond() * 1048576);
+
+		MoveResult moved = null;
+		try {
+			moved = new FileSystem().rebalance(threshold, rateLimiter);
+			if (0 < moved.getFailed()) {
+				this.addError(moved.getFailed() + " files could not be moved");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.addError("Rebalancing was interrupted");
+		}
+
+		result = new RebalanceResult(started, null == moved ? 0 : moved.getFiles(), null == moved ? 0
+				: moved.getBytes(), this.getErrors());
+		LOGGER.info("Rebalancing: {} files, {} bytes moved", result.getFiles(), result.getBytes());
+	}
+
+	private static double getMBPerSecond() {
+		try {
+			return Double.parseDouble(System.getProperty("rebalanceMBPerSecond", "" + DEFAULT_MB_PER_SECOND));
+		} catch (NumberFormatException e) {
+			return DEFAULT_MB_PER_SECOND;
+		}
+	}
+
+	/**
+	 * @return the outcome of the rebalancing
+	 */
+	public RebalanceResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
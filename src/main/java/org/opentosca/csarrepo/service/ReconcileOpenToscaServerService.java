@@ -0,0 +1,159 @@
+package org.opentosca.csarrepo.service;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.DeploymentException;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.join.CsarFileOpenToscaServer;
+import org.opentosca.csarrepo.model.repository.JoinRepository;
+import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.util.ContainerApiClient;
+import org.opentosca.csarrepo.util.CsarFileIdResolver;
+import org.opentosca.csarrepo.util.LivedataCache;
+import org.opentosca.csarrepo.util.ReconcileResult;
+import org.opentosca.csarrepo.util.jaxb.SimpleXLink;
+
+/**
+ * Compares the deployments stored for an OpenTOSCA server with the CSARs of
+ * its container
+ *
+ * Deployments whose CSAR is missing in the container, e.g. because it was
+ * removed in the container directly, are removed in one batch. A deployment
+ * is only removed if it is missing in two reconciliations in a row, so CSARs
+ * which are just being deployed or a container which lists its CSARs
+ * incompletely while starting do not lose their deployments. If the container
+ * cannot be reached, nothing is changed.
+ */
+public class ReconcileOpenToscaServerService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(ReconcileOpenToscaServerService.class);
+
+	// ids of the CSAR files missing in the last reconciliation by server
+	private static final Map<Long, Set<Long>> MISSING = new ConcurrentHashMap<Long, Set<Long>>();
+
+	private ReconcileResult result;
+
+	/**
+	 * @param userId
+	 * @param openToscaServerId
+	 */
+	public ReconcileOpenToscaServerService(long userId, long openToscaServerId) {
+		super(userId);
+		Date started = new Date();
+
+		OpenToscaServer openToscaServer;
+		try {
+			openToscaServer = new OpenToscaServerRepository().getbyId(openToscaServerId);
+			if (null == openToscaServer) {
+				this.addError("invalidOpenToscaServer");
+				return;
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+			return;
+		}
+
+		List<CsarFileOpenToscaServer> mappings = openToscaServer.getCsarFileOpenToscaServer();
+		Set<String> deployed = new HashSet<String>();
+		try {
+			for (SimpleXLink link : new ContainerApiClient(openToscaServer).getDeployedCsars()) {
+				deployed.add(link.getTitle());
+			}
+		} catch (URISyntaxException | DeploymentException e) {
+			this.addError(e.getMessage());
+			result = new ReconcileResult(started, mappings.size(), 0, 0, 0, 0, this.getErrors());
+			return;
+		}
+
+		Set<String> tracked = new HashSet<String>();
+		Set<Long> missing = new HashSet<Long>();
+		List<CsarFileOpenToscaServer> stale = new ArrayList<CsarFileOpenToscaServer>();
+		Set<Long> missingBefore = MISSING.get(openToscaServerId);
+		for (CsarFileOpenToscaServer mapping : mappings) {
+			String csarName = mapping.getCsarName();
+			if (null == mapping.getCsarFile() || null == csarName) {
+				continue;
+			}
+			tracked.add(csarName);
+			if (deployed.contains(csarName)) {
+				continue;
+			}
+			Long csarFileId = mapping.getCsarFile().getId();
+			if (null != missingBefore && missingBefore.contains(csarFileId)) {
+				stale.add(mapping);
+			} else {
+				missing.add(csarFileId);
+			}
+		}
+
+		int removed = 0;
+		if (!stale.isEmpty()) {
+			Set<Long> csarFileIds = new HashSet<Long>();
+			for (CsarFileOpenToscaServer mapping : stale) {
+				csarFileIds.add(mapping.getCsarFile().getId());
+			}
+			try {
+				removed = new JoinRepository().removeCsarFileOpenToscaServers(openToscaServer, csarFileIds);
+			} catch (PersistenceException e) {
+				this.addError(e.getMessage());
+				// try again next time
+				missing.addAll(csarFileIds);
+			}
+			if (0 < removed) {
+				for (CsarFileOpenToscaServer mapping : stale) {
+					CsarFileIdResolver.invalidate(openToscaServer, mapping.getCsarName());
+				}
+				LivedataCache.refresh(openToscaServerId);
+			}
+		}
+		if (missing.isEmpty()) {
+			MISSING.remove(openToscaServerId);
+		} else {
+			MISSING.put(openToscaServerId, missing);
+		}
+
+		int untracked = 0;
+		for (String csarName : deployed) {
+			if (!tracked.contains(csarName)) {
+				untracked++;
+			}
+		}
+
+		result = new ReconcileResult(started, mappings.size(), deployed.size(), removed, missing.size(), untracked,
+				this.getErrors());
+		if (0 < result.getDrift()) {
+			LOGGER.info("Reconciled {}: {} deployments, {} CSARs, {} removed, {} missing, {} untracked",
+					openToscaServer.getAddress(), result.getMappings(), result.getDeployed(), removed,
+					missing.size(), untracked);
+		}
+	}
+
+	/**
+	 * Drops the state of the given server, e.g. after it was deleted.
+	 *
+	 * @param openToscaServerId
+	 */
+	public static void invalidate(long openToscaServerId) {
+		MISSING.remove(openToscaServerId);
+	}
+
+	/**
+	 * @return the outcome of the reconciliation or <code>null</code>, if the
+	 *         server could not be loaded
+	 */
+	public ReconcileResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
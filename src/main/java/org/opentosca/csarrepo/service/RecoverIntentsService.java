@@ -0,0 +1,190 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.IntentJournal;
+import org.opentosca.csarrepo.model.Csar;
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.HashedFile;
+import org.opentosca.csarrepo.model.repository.CsarFileRepository;
+import org.opentosca.csarrepo.model.repository.CsarRepository;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.RecoveryResult;
+
+/**
+ * Resolves the operations of the intent journal interrupted by a crash
+ *
+ * Every operation is completed or undone, depending on the state of the
+ * database: an upload whose CSAR file exists is completed, otherwise its new
+ * hashed file and archive are removed. A deletion is completed if its CSAR
+ * file, its CSAR or any CSAR file of its CSAR is gone, otherwise nothing
+ * happened yet and it is undone without a change. Operations which cannot
+ * be resolved, e.g. since the database is not available, stay in the journal
+ * for the next start. Runs before any request is served, so no upload can use
+ * a hashed file which is removed meanwhile.
+ */
+public class RecoverIntentsService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(RecoverIntentsService.class);
+
+	private final FileSystem fileSystem = new FileSystem();
+	private final FileSystemRepository fileSystemRepository = new FileSystemRepository();
+	private final CsarFileRepository csarFileRepository = new CsarFileRepository();
+	private final CsarRepository csarRepository = new CsarRepository();
+
+	private RecoveryResult result;
+
+	/**
+	 * @param userId
+	 */
+	public RecoverIntentsService(long userId) {
+		super(userId);
+		Date started = new Date();
+
+		long rolledForward = 0;
+		long rolledBack = 0;
+		for (IntentJournal.Intent intent : fileSystem.getJournal().getRecovered()) {
+			try {
+				boolean forward;
+				switch (intent.getKind()) {
+				case INGEST:
+					forward = recoverIngest(intent);
+					break;
+				case DELETE_CSAR_FILE:
+					forward = recoverCsarFileDeletion(intent);
+					break;
+				case DELETE_CSAR:
+					forward = recoverCsarDeletion(intent);
+					break;
+				default:
+					continue;
+				}
+				if (forward) {
+					intent.commit();
+					rolledForward++;
+				} else {
+					intent.abort();
+					rolledBack++;
+				}
+				LOGGER.info("Rolled {} {} operation {}", forward ? "forward" : "back", intent.getKind(),
+						intent.getId());
+			} catch (PersistenceException | IllegalArgumentException e) {
+				LOGGER.error("Could not recover {} operation {}", intent.getKind(), intent.getId(), e);
+				this.addError(String.format("%s operation %d: %s", intent.getKind(), intent.getId(), e.getMessage()));
+			}
+		}
+
+		result = new RecoveryResult(started, rolledForward, rolledBack, this.getErrors());
+		if (0 < rolledForward + rolledBack || this.hasErrors()) {
+			LOGGER.info("Recovery: {} operations rolled forward, {} back, {} failed", rolledForward, rolledBack,
+					this.getErrors().size());
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the upload was completed
+	 */
+	private boolean recoverIngest(IntentJournal.Intent intent) throws PersistenceException {
+		long csarId = Long.parseLong(intent.get(IntentJournal.CSAR_ID));
+		String created = intent.get(IntentJournal.CREATED_FILENAME);
+		String reused = intent.get(IntentJournal.REUSED_FILENAME);
+		String version = intent.get(IntentJournal.VERSION);
+		String stored = null == created ? reused : created;
+
+		if (null != version && null != stored) {
+			CsarFile csarFile = csarFileRepository.getByCsarAndVersion(csarId, Long.parseLong(version));
+			if (null != csarFile && UUID.fromString(stored).equals(csarFile.getHashedFile().getFilename())) {
+				// the CSAR file is saved, only the CSAR may lack its service template
+				Csar csar = csarRepository.getbyId(csarId);
+				String serviceTemplateId = intent.get(IntentJournal.SERVICE_TEMPLATE_ID);
+				if (null != csar && null == csar.getServiceTemplateId() && !isEmpty(serviceTemplateId)) {
+					csar.setServiceTemplateId(serviceTemplateId);
+					String namespace = intent.get(IntentJournal.NAMESPACE);
+					csar.setNamespace(isEmpty(namespace) ? null : namespace);
+					csarRepository.save(csar);
+				}
+				return true;
+			}
+		}
+
+		if (null != created) {
+			UUID filename = UUID.fromString(created);
+			HashedFile hashedFile = fileSystemRepository.getByFilename(filename);
+			if (null == hashedFile || fileSystemRepository.deleteUnreferenced(hashedFile)) {
+				fileSystem.deleteFromFileSystem(filename);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the deletion was completed
+	 */
+	private boolean recoverCsarFileDeletion(IntentJournal.Intent intent) throws PersistenceException {
+		long csarFileId = Long.parseLong(intent.get(IntentJournal.CSAR_FILE_ID));
+		if (null != csarFileRepository.getbyId(csarFileId)) {
+			// the deletion did not start
+			return false;
+		}
+		UUID filename = UUID.fromString(intent.get(IntentJournal.FILENAME));
+		HashedFile hashedFile = fileSystemRepository.getByFilename(filename);
+		if (null == hashedFile || fileSystemRepository.deleteUnreferenced(hashedFile)) {
+			fileSystem.deleteFromFileSystem(filename);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the deletion was completed
+	 */
+	private boolean recoverCsarDeletion(IntentJournal.Intent intent) throws PersistenceException {
+		Csar csar = csarRepository.getbyId(Long.parseLong(intent.get(IntentJournal.CSAR_ID)));
+		if (null == csar) {
+			return true;
+		}
+		if (!isDeletionStarted(intent.get(IntentJournal.CSAR_FILE_IDS))) {
+			return false;
+		}
+		for (CsarFile csarFile : new ArrayList<CsarFile>(csar.getCsarFiles())) {
+			csarFileRepository.delete(csarFile);
+		}
+		csarRepository.delete(csar);
+		return true;
+	}
+
+	/**
+	 * @param csarFileIds
+	 *            comma separated ids of the CSAR files of the deleted CSAR
+	 * @return <code>true</code> if any of them is gone
+	 */
+	private boolean isDeletionStarted(String csarFileIds) throws PersistenceException {
+		if (isEmpty(csarFileIds)) {
+			return false;
+		}
+		for (String csarFileId : csarFileIds.split(",")) {
+			if (null == csarFileRepository.getbyId(Long.parseLong(csarFileId))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isEmpty(String value) {
+		return null == value || value.isEmpty();
+	}
+
+	/**
+	 * @return the outcome of the recovery
+	 */
+	public RecoveryResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
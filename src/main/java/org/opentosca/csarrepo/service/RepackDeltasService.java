@@ -0,0 +1,120 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.DeltaRepackResult;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Stores the archives of old versions as deltas against the next version
+ *
+ * The versions of every CSAR are walked from the latest one on. An archive is
+ * encoded against the next version, if it is neither used by a latest version
+ * nor deployed, the chain of deltas to decode stays within
+ * <code>deltaMaxChain</code> and the delta takes at most
+ * <code>deltaMaxRatio</code> of the current size. A longer chain starts over
+ * with an archive stored as a whole. Deltas of archives which became hot, of
+ * chains which became too long and against a base which is no longer the
+ * next version, e.g. after a version was deleted, are stored as a whole
+ * again. The read bytes are limited to <code>deltaMBPerSecond</code>.
+ */
+public class RepackDeltasService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(RepackDeltasService.class);
+
+	private static final int DEFAULT_MAX_CHAIN = 4;
+	private static final double DEFAULT_MAX_RATIO = 0.5;
+	private static final double DEFAULT_MB_PER_SECOND = 20;
+
+	private DeltaRepackResult result;
+
+	/**
+	 * @param userId
+	 */
+	public RepackDeltasService(long userId) {
+		super(userId);
+		Date started = new Date();
+
+		int maxChain = Integer.getInteger("deltaMaxChain", DEFAULT_MAX_CHAIN);
+		double maxRatio = getDouble("deltaMaxRatio", DEFAULT_MAX_RATIO);
+		RateLimiter rateLimiter = new RateLimiter(getDouble("deltaMBPerSecond", DEFAULT_MB_PER_SECOND) * 1048576);
+		FileSystem fileSystem = new FileSystem();
+		FileSystemRepository fileSystemRepository = new FileSystemRepository();
+
+		long encoded = 0;
+		long inflated = 0;
+		long savedBytes = 0;
+		try {
+			Set<UUID> hot = fileSystemRepository.getHotFilenames();
+			// an archive may be used by several CSARs, the first one decides
+			Set<UUID> done = new HashSet<UUID>();
+			for (List<UUID> versions : fileSystemRepository.getVersionFilenames()) {
+				for (int i = 0; i < versions.size(); i++) {
+					UUID filename = versions.get(i);
+					if (!done.add(filename)) {
+						continue;
+					}
+					try {
+						UUID currentBase = fileSystem.getDeltaBase(filename);
+						UUID base = 0 == i || hot.contains(filename) ? null : versions.get(i - 1);
+						if (null != currentBase) {
+							if (currentBase.equals(base) && fileSystem.getDeltaDepth(filename) <= maxChain) {
+								continue;
+							}
+							rateLimiter.acquire(fileSystem.getFileSize(filename));
+							savedBytes -= fileSystem.inflate(filename);
+							inflated++;
+						}
+						if (null == base || fileSystem.getDeltaDepth(base) >= maxChain) {
+							continue;
+						}
+						rateLimiter.acquire(fileSystem.getFileSize(filename) + fileSystem.getFileSize(base));
+						long saved = fileSystem.deltify(filename, base, maxRatio);
+						if (0 < saved) {
+							savedBytes += saved;
+							encoded++;
+						}
+					} catch (PersistenceException e) {
+						LOGGER.warn("Could not repack {}", filename, e);
+						this.addError(e.getMessage());
+					}
+				}
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.addError("Delta repacking was interrupted");
+		}
+
+		result = new DeltaRepackResult(started, encoded, inflated, savedBytes, this.getErrors());
+		LOGGER.info("Delta repacking: {} archives encoded, {} inflated, {} bytes saved", encoded, inflated,
+				savedBytes);
+	}
+
+	private static double getDouble(String key, double defaultValue) {
+		try {
+			return Double.parseDouble(System.getProperty(key, "" + defaultValue));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @return the outcome of the repacking
+	 */
+	public DeltaRepackResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
@@ -0,0 +1,115 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.Integrity;
+import org.opentosca.csarrepo.model.HashedFile;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.RateLimiter;
+import org.opentosca.csarrepo.util.ScrubResult;
+import org.opentosca.csarrepo.util.TimeWindow;
+
+/**
+ * Checks the stored archives against the hash and size of their hashed files
+ *
+ * Continues at the persisted cursor and walks the hashed files in the order of
+ * their ids until the end of the store is reached or the given window closes.
+ * Reads are limited to <code>scrubMBPerSecond</code>.
+ */
+public class ScrubStorageService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(ScrubStorageService.class);
+
+	private static final double DEFAULT_MB_PER_SECOND = 10;
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
+	private ScrubResult result;
+
+	/**
+	 * @param userId
+	 * @param window
+	 *            the time to stop at, <code>null</code> to run until the end
+	 *            of the store
+	 */
+	public ScrubStorageService(long userId, TimeWindow window) {
+		super(userId);
+		Date started = new Date();
+
+		RateLimiter rateLimiter = new RateLimiter(getMBPerSecond() * 1048576);
+		int batchSize = Integer.getInteger("scrubBatchSize", DEFAULT_BATCH_SIZE);
+		FileSystem fileSystem = new FileSystem();
+		FileSystemRepository fileSystemRepository = new FileSystemRepository();
+
+		long cursor = fileSystem.getScrubCursor();
+		long checked = 0;
+		long bytes = 0;
+		boolean passCompleted = false;
+		List<Long> intact = new ArrayList<Long>();
+		List<ScrubResult.Finding> damaged = new ArrayList<ScrubResult.Finding>();
+		try {
+			scrub: while (true) {
+				List<HashedFile> batch = fileSystemRepository.getBatch(cursor, batchSize);
+				if (batch.isEmpty()) {
+					cursor = 0;
+					passCompleted = true;
+					break;
+				}
+				for (HashedFile hashedFile : batch) {
+					if (null != window && !window.isOpen()) {
+						break scrub;
+					}
+					Integrity integrity = fileSystem.verify(hashedFile.getFilename(), hashedFile.getHash(),
+							hashedFile.getSize(), rateLimiter);
+					if (Integrity.MISSING == integrity && null == fileSystemRepository.getbyId(hashedFile.getId())) {
+						// deleted while being checked
+						integrity = Integrity.INTACT;
+					}
+					if (Integrity.INTACT == integrity) {
+						intact.add(hashedFile.getId());
+					} else {
+						LOGGER.error("Archive {} of hashed file {} is {}", hashedFile.getFilename(),
+								hashedFile.getId(), integrity);
+						damaged.add(new ScrubResult.Finding(hashedFile.getId(), hashedFile.getHash(), integrity));
+					}
+					checked++;
+					bytes += hashedFile.getSize();
+					cursor = hashedFile.getId();
+				}
+				fileSystem.setScrubCursor(cursor);
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.addError("Integrity check was interrupted");
+		}
+		fileSystem.setScrubCursor(cursor);
+
+		result = new ScrubResult(started, checked, bytes, passCompleted, intact, damaged, this.getErrors());
+		LOGGER.info("Integrity check: {} hashed files, {} bytes checked, {} damaged{}", checked, bytes,
+				damaged.size(), passCompleted ? ", pass completed" : "");
+	}
+
+	private static double getMBPerSecond() {
+		try {
+			return Double.parseDouble(System.getProperty("scrubMBPerSecond", "" + DEFAULT_MB_PER_SECOND));
+		} catch (NumberFormatException e) {
+			return DEFAULT_MB_PER_SECOND;
+		}
+	}
+
+	/**
+	 * @return the outcome of the integrity check
+	 */
+	public ScrubResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
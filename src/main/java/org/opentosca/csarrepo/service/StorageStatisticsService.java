@@ -0,0 +1,39 @@
+package org.opentosca.csarrepo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.StorageStatistics;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+
+public class StorageStatisticsService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(StorageStatisticsService.class);
+	private StorageStatistics statistics;
+
+	/**
+	 * Compares the size of the stored archives with the size of the storage
+	 */
+	public StorageStatisticsService(long userId) {
+		super(userId);
+
+		try {
+			FileSystemRepository repo = new FileSystemRepository();
+			this.statistics = new FileSystem().getStatistics(repo.getTotalSize());
+		} catch (PersistenceException e) {
+			LOGGER.error(e);
+			super.addError("Loading storage statistics failed");
+		}
+	}
+
+	/**
+	 * 
+	 * @return statistics
+	 */
+	public StorageStatistics getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.statistics;
+	}
+}
@@ -0,0 +1,269 @@
+package org.opentosca.csarrepo.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.model.Csar;
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.HashedFile;
+import org.opentosca.csarrepo.model.WineryServer;
+import org.opentosca.csarrepo.model.repository.CsarRepository;
+import org.opentosca.csarrepo.model.repository.WineryServerRepository;
+import org.opentosca.csarrepo.util.ArchiveDiff;
+import org.opentosca.csarrepo.util.ArchiveIndex;
+import org.opentosca.csarrepo.util.EtagCache;
+import org.opentosca.csarrepo.util.FanOut;
+import org.opentosca.csarrepo.util.Servicetemplate;
+import org.opentosca.csarrepo.util.StringUtils;
+import org.opentosca.csarrepo.util.WineryApiClient;
+import org.opentosca.csarrepo.util.WineryCsarFileObject;
+import org.opentosca.csarrepo.util.WinerySyncResult;
+import org.opentosca.csarrepo.util.WineryTemplateCache;
+import org.opentosca.csarrepo.util.ZipDirectory;
+
+/**
+ * Mirrors the service templates of a winery server into the repository
+ *
+ * Every CSAR whose service template is offered by the winery gets a new
+ * version, if the template was changed since its latest version. Unchanged
+ * templates are detected with conditional requests, if winery sends entity
+ * tags, and otherwise by comparing the entries of the pulled archive with
+ * those of the latest version by name and CRC. Winery builds the archive anew
+ * for every pull, so its hash changes even if the template did not. Changed
+ * templates are pulled in parallel and stored through
+ * {@link UploadCsarFileService}. Templates without a CSAR are imported as new
+ * CSARs, if the property <code>winerySyncImportNew</code> is set.
+ *
+ * The number of parallel pulls and the timeout of a single template can be
+ * configured with the properties <code>winerySyncConcurrency</code> and
+ * <code>winerySyncTimeout</code>.
+ */
+public class SyncWineryServerService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(SyncWineryServerService.class);
+
+	private static final int DEFAULT_CONCURRENCY = 4;
+	private static final long DEFAULT_TIMEOUT = 600000;
+
+	// entity tag and hash of the last pull by winery and template address
+	private static final EtagCache<String> PULLS = new EtagCache<String>(Integer.getInteger("winerySyncCacheSize",
+			10000));
+
+	private enum Outcome {
+		UNCHANGED, UPDATED, IMPORTED, SKIPPED
+	}
+
+	private WinerySyncResult result;
+
+	/**
+	 * @param userId
+	 * @param wineryServerId
+	 */
+	public SyncWineryServerService(long userId, long wineryServerId) {
+		super(userId);
+		Date started = new Date();
+
+		WineryServer wineryServer;
+		Map<String, List<Csar>> csars = new LinkedHashMap<String, List<Csar>>();
+		try {
+			wineryServer = new WineryServerRepository().getbyId(wineryServerId);
+			if (null == wineryServer) {
+				this.addError("invalidWineryServer");
+				return;
+			}
+			for (Csar csar : new CsarRepository().getAll()) {
+				if (null == csar.getServiceTemplateId()) {
+					continue;
+				}
+				String key = getKey(csar.getNamespace(), csar.getServiceTemplateId());
+				if (!csars.containsKey(key)) {
+					csars.put(key, new ArrayList<Csar>());
+				}
+				csars.get(key).add(csar);
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+			return;
+		}
+
+		final WineryApiClient client = new WineryApiClient(wineryServer.getAddress());
+		List<Servicetemplate> serviceTemplates;
+		try {
+			serviceTemplates = client.getServiceTemplates();
+			WineryTemplateCache.put(wineryServer.getAddress(), serviceTemplates);
+		} catch (Exception e) {
+			this.addError(e.getMessage());
+			result = new WinerySyncResult(started, 0, 0, 0, 0, this.getErrors());
+			return;
+		}
+
+		final long userIdForImport = userId;
+		final long wineryId = wineryServerId;
+		final boolean importNew = Boolean.getBoolean("winerySyncImportNew");
+		Map<String, Callable<Outcome>> pulls = new LinkedHashMap<String, Callable<Outcome>>();
+		for (final Servicetemplate serviceTemplate : serviceTemplates) {
+			final List<Csar> mirrors = csars.get(getKey(serviceTemplate.getNamespace(), serviceTemplate.getId()));
+			final String address = wineryServer.getAddress().toExternalForm() + "|"
+					+ serviceTemplate.getWineryAddress();
+			pulls.put(serviceTemplate.getNamespace() + " " + serviceTemplate.getId(), new Callable<Outcome>() {
+
+				@Override
+				public Outcome call() throws Exception {
+					if (null != mirrors) {
+						return update(client, address, serviceTemplate, mirrors);
+					}
+					if (importNew) {
+						return importNew(userIdForImport, wineryId, serviceTemplate);
+					}
+					return Outcome.SKIPPED;
+				}
+			});
+		}
+
+		FanOut.Result<String, Outcome> pulled = FanOut.invokeAll(pulls,
+				Integer.getInteger("winerySyncConcurrency", DEFAULT_CONCURRENCY),
+				Long.getLong("winerySyncTimeout", DEFAULT_TIMEOUT));
+
+		int unchanged = 0;
+		int updated = 0;
+		int imported = 0;
+		for (Outcome outcome : pulled.getResults().values()) {
+			if (Outcome.UNCHANGED == outcome) {
+				unchanged++;
+			} else if (Outcome.UPDATED == outcome) {
+				updated++;
+			} else if (Outcome.IMPORTED == outcome) {
+				imported++;
+			}
+		}
+		for (Map.Entry<String, String> failure : pulled.getFailures().entrySet()) {
+			this.addError(failure.getKey() + ": " + failure.getValue());
+		}
+
+		result = new WinerySyncResult(started, serviceTemplates.size(), unchanged, updated, imported,
+				this.getErrors());
+		LOGGER.info("Synchronized {}: {} templates, {} unchanged, {} updated, {} imported, {} failed",
+				wineryServer.getAddress(), result.getTemplates(), unchanged, updated, imported, result.getFailed());
+	}
+
+	/**
+	 * Pulls the template and adds it as new version to the CSARs whose latest
+	 * version differs.
+	 */
+	private static Outcome update(WineryApiClient client, String address, Servicetemplate serviceTemplate,
+			List<Csar> mirrors) throws Exception {
+		EtagCache.Entry<String> lastPull = PULLS.get(address);
+		WineryCsarFileObject object = client.pullFromWinery(serviceTemplate.getWineryAddress(),
+				null == lastPull ? null : lastPull.getEtag());
+		if (null == object) {
+			return Outcome.UNCHANGED;
+		}
+
+		FileSystem fileSystem = new FileSystem();
+		File temporaryFile;
+		try (InputStream inputStream = object.getInputStream()) {
+			temporaryFile = fileSystem.saveTempFile(inputStream);
+		}
+		try {
+			String hash = fileSystem.generateHash(temporaryFile);
+			ZipDirectory directory = readDirectory(temporaryFile);
+			Outcome outcome = Outcome.UNCHANGED;
+			CsarRepository csarRepository = new CsarRepository();
+			for (Csar csar : mirrors) {
+				CsarFile lastCsarFile = csarRepository.getLastCsarFile(csar);
+				if (null != lastCsarFile && isSame(fileSystem, hash, directory, lastCsarFile.getHashedFile())) {
+					continue;
+				}
+				UploadCsarFileService uploadService;
+				try (InputStream inputStream = new FileInputStream(temporaryFile)) {
+					uploadService = new UploadCsarFileService(0L, csar.getId(), inputStream, object.getFilename());
+				}
+				if (uploadService.hasErrors()) {
+					throw new Exception(StringUtils.join(uploadService.getErrors()));
+				}
+				LOGGER.info("Added version {} of CSAR {} from {}", uploadService.getResult().getVersion(),
+						csar.getId(), address);
+				outcome = Outcome.UPDATED;
+			}
+
+			// only remembered once all mirrors are up to date
+			if (null != object.getEtag()) {
+				PULLS.put(address, object.getEtag(), hash);
+			}
+			return outcome;
+		} finally {
+			temporaryFile.delete();
+		}
+	}
+
+	/**
+	 * @return the central directory of the pulled archive or
+	 *         <code>null</code>, if it is no zip archive
+	 */
+	private static ZipDirectory readDirectory(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return ZipDirectory.read(channel);
+		} catch (IOException e) {
+			LOGGER.warn("Could not read entries of {}, comparing its hash only: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the pulled archive has the same content as
+	 *         the given stored file
+	 */
+	private static boolean isSame(FileSystem fileSystem, String hash, ZipDirectory directory, HashedFile hashedFile) {
+		if (hash.equals(hashedFile.getHash())) {
+			return true;
+		}
+		if (null == directory) {
+			return false;
+		}
+		try {
+			ZipDirectory stored = ArchiveIndex.getDirectory(fileSystem, hashedFile.getFilename());
+			return ArchiveDiff.compare(hashedFile.getHash(), stored, hash, directory).isEmpty();
+		} catch (IOException e) {
+			LOGGER.warn("Could not read entries of stored file {}: {}", hashedFile.getFilename(), e.getMessage());
+			return false;
+		}
+	}
+
+	private static Outcome importNew(long userId, long wineryServerId, Servicetemplate serviceTemplate)
+			throws Exception {
+		ImportCsarFromWineryService importService = new ImportCsarFromWineryService(userId, wineryServerId,
+				serviceTemplate.getWineryAddress());
+		if (importService.hasErrors()) {
+			throw new Exception(StringUtils.join(importService.getErrors()));
+		}
+		return Outcome.IMPORTED;
+	}
+
+	private static String getKey(String namespace, String serviceTemplateId) {
+		return namespace + "|" + serviceTemplateId;
+	}
+
+	/**
+	 * @return the outcome of the synchronization or <code>null</code>, if the
+	 *         server could not be loaded
+	 */
+	public WinerySyncResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
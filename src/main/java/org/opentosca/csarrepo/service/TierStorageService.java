@@ -0,0 +1,78 @@
+package org.opentosca.csarrepo.service;
+
+import java.util.Date;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.TierResult;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.util.RateLimiter;
+import org.opentosca.csarrepo.util.TieringResult;
+
+/**
+ * Moves the archives of old versions to the cold tier
+ *
+ * An archive is moved, if no latest version of a CSAR uses it, it is not
+ * deployed and it was not read for <code>tierColdAfter</code> milliseconds.
+ * Archives which became hot again are moved back. The moved bytes are limited
+ * to <code>tierMBPerSecond</code>.
+ */
+public class TierStorageService extends AbstractService {
+
+	private static final Logger LOGGER = LogManager.getLogger(TierStorageService.class);
+
+	private static final long DEFAULT_COLD_AFTER = 2592000000L;
+	private static final double DEFAULT_MB_PER_SECOND = 20;
+
+	private TieringResult result;
+
+	/**
+	 * @param userId
+	 */
+	public TierStorageService(long userId) {
+		super(userId);
+		Date started = new Date();
+
+		long coldAfter = Long.getLong("tierColdAfter", DEFAULT_COLD_AFTER);
+		RateLimiter rateLimiter = new RateLimiter(getMBPerSecond() * 1048576);
+
+		TierResult moved = null;
+		try {
+			moved = new FileSystem().tier(new FileSystemRepository().getHotFilenames(), coldAfter, rateLimiter);
+			long failed = moved.getDemoted().getFailed() + moved.getPromoted().getFailed();
+			if (0 < failed) {
+				this.addError(failed + " files could not be moved");
+			}
+		} catch (PersistenceException e) {
+			this.addError(e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.addError("Tiering was interrupted");
+		}
+
+		result = new TieringResult(started, null == moved ? 0 : moved.getDemoted().getFiles(), null == moved ? 0
+				: moved.getPromoted().getFiles(), null == moved ? 0 : moved.getDemoted().getBytes()
+				+ moved.getPromoted().getBytes(), this.getErrors());
+		LOGGER.info("Tiering: {} files moved to the cold tier, {} back, {} bytes", result.getDemoted(),
+				result.getPromoted(), result.getBytes());
+	}
+
+	private static double getMBPerSecond() {
+		try {
+			return Double.parseDouble(System.getProperty("tierMBPerSecond", "" + DEFAULT_MB_PER_SECOND));
+		} catch (NumberFormatException e) {
+			return DEFAULT_MB_PER_SECOND;
+		}
+	}
+
+	/**
+	 * @return the outcome of the tiering
+	 */
+	public TieringResult getResult() {
+		super.logInvalidResultAccess("getResult");
+
+		return this.result;
+	}
+}
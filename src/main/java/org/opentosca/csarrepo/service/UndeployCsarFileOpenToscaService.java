@@ -14,6 +14,8 @@ import org.opentosca.csarrepo.model.repository.CsarFileRepository;
 import org.opentosca.csarrepo.model.repository.JoinRepository;
 import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
 import org.opentosca.csarrepo.util.ContainerApiClient;
+import org.opentosca.csarrepo.util.CsarFileIdResolver;
+import org.opentosca.csarrepo.util.LivedataCache;
 
 public class UndeployCsarFileOpenToscaService extends AbstractService {
 
@@ -43,9 +45,16 @@ public class UndeployCsarFileOpenToscaService extends AbstractService {
 			ContainerApiClient containerApiClient = new ContainerApiClient(openToscaServer);
 			JoinRepository joinRepo = new JoinRepository();
 			CsarFileOpenToscaServer mapping = joinRepo.getCsarFileOpenToscaServer(csarFile, openToscaServer);
-			containerApiClient.deleteCsarAtLocation(mapping.getLocation());
+			if (isSharedDeployment(joinRepo, csarFile, openToscaServer, mapping.getLocation())) {
+				// another CSAR file with the same content reuses the deployment
+				LOGGER.info("Keeping {} on {}, it is still used by other CSAR files", mapping.getLocation(), address);
+			} else {
+				containerApiClient.deleteCsarAtLocation(mapping.getLocation());
+			}
 			// update meta-data
 			csarFile.removeOpenToscaServer(openToscaServer);
+			CsarFileIdResolver.invalidate(openToscaServer, mapping.getCsarName());
+			LivedataCache.refresh(openToscaId);
 			success = true;
 
 		} catch (URISyntaxException | PersistenceException | DeploymentException e) {
@@ -54,6 +63,17 @@ public class UndeployCsarFileOpenToscaService extends AbstractService {
 		}
 	}
 
+	private static boolean isSharedDeployment(JoinRepository joinRepo, CsarFile csarFile,
+			OpenToscaServer openToscaServer, String location) throws PersistenceException {
+		for (CsarFileOpenToscaServer other : joinRepo.getCsarFileOpenToscaServersByLocation(openToscaServer,
+				location)) {
+			if (!csarFile.getId().equals(other.getCsarFile().getId())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public boolean getResult() {
 		this.logInvalidResultAccess("getResult");
 
@@ -6,6 +6,7 @@ import java.net.URL;
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
 import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.util.LivedataCache;
 
 public class UpdateOpenToscaServerService extends AbstractService {
 
@@ -51,6 +52,7 @@ public class UpdateOpenToscaServerService extends AbstractService {
 				try {
 					// save data
 					repo.save(ots);
+					LivedataCache.invalidate(openToscaServerId);
 				} catch (PersistenceException e) {
 					this.addError("savingOpenToscaServerFailed");
 				}
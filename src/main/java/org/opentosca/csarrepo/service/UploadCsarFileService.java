@@ -4,7 +4,10 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -22,6 +25,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.PersistenceException;
 import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.filesystem.IntentJournal;
 import org.opentosca.csarrepo.model.Csar;
 import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.HashedFile;
@@ -91,7 +95,9 @@ public class UploadCsarFileService extends AbstractService {
 	}
 
 	/**
-	 * Moves the uploaded file to the filesystem and creates a csar file.
+	 * Moves the uploaded file to the filesystem and creates a csar file. The
+	 * steps are written to the intent journal, so an upload interrupted by a
+	 * crash is completed or undone at the next start.
 	 * 
 	 * @param csarId
 	 * @param inputStream
@@ -102,6 +108,7 @@ public class UploadCsarFileService extends AbstractService {
 		CsarFileRepository csarFileRepository = new CsarFileRepository();
 		FileSystemRepository fileSystemRepository = new FileSystemRepository();
 
+		IntentJournal.Intent intent = null;
 		try {
 			Csar csar = csarRepository.getbyId(csarId);
 			if (null == csar) {
@@ -112,11 +119,13 @@ public class UploadCsarFileService extends AbstractService {
 			}
 
 			FileSystem fileSystem = new FileSystem();
+			intent = fileSystem.getJournal().begin(IntentJournal.Kind.INGEST,
+					Collections.singletonMap(IntentJournal.CSAR_ID, Long.toString(csarId)));
 			File temporaryFile = fileSystem.saveTempFile(inputStream);
 
-			HashedFile hashedFile = getHashedFileForTempFile(temporaryFile);
+			Document document = prepareXml(temporaryFile);
 
-			Document document = prepareXml(fileSystem.getFile(hashedFile.getFilename()));
+			HashedFile hashedFile = getHashedFileForTempFile(temporaryFile, intent);
 
 			parseServiceTemplateFromXml(csar, document);
 
@@ -137,13 +146,22 @@ public class UploadCsarFileService extends AbstractService {
 			} else {
 				this.csarFile.setVersion(1);
 			}
+			Map<String, String> step = new HashMap<String, String>();
+			step.put(IntentJournal.VERSION, Long.toString(this.csarFile.getVersion()));
+			step.put(IntentJournal.SERVICE_TEMPLATE_ID, csar.getServiceTemplateId());
+			step.put(IntentJournal.NAMESPACE, csar.getNamespace());
+			intent.set(step);
 			csarFileRepository.save(csarFile);
 
 			csar.getCsarFiles().add(csarFile);
 
 			csarRepository.save(csar);
+			intent.commit();
 		} catch (IllegalStateException | IOException | ParserConfigurationException | PersistenceException
 				| SAXException | XPathExpressionException e) {
+			if (null != intent) {
+				intent.abort();
+			}
 			this.addError(e.getMessage());
 			LOGGER.error(e.getMessage());
 			return;
@@ -258,11 +276,15 @@ public class UploadCsarFileService extends AbstractService {
 	 * returns hashedFile matching given hash
 	 * 
 	 * @param temporaryFile
+	 * @param intent
+	 *            intent of the upload, takes the filename before the archive
+	 *            is stored
 	 * @return
 	 * @throws PersistenceException
 	 * @throws ZipException
 	 */
-	private HashedFile getHashedFileForTempFile(File temporaryFile) throws PersistenceException {
+	private HashedFile getHashedFileForTempFile(File temporaryFile, IntentJournal.Intent intent)
+			throws PersistenceException {
 
 		FileSystemRepository fileSystemRepository = new FileSystemRepository();
 		FileSystem fileSystem = new FileSystem();
@@ -276,14 +298,18 @@ public class UploadCsarFileService extends AbstractService {
 		String hash = fileSystem.generateHash(temporaryFile);
 		HashedFile hashedFile = null;
 		if (!fileSystemRepository.containsHash(hash)) {
+			UUID filename = UUID.randomUUID();
+			intent.set(IntentJournal.CREATED_FILENAME, filename.toString());
 			hashedFile = new HashedFile();
-			File newFile = fileSystem.saveToFileSystem(temporaryFile);
-			hashedFile.setFilename(UUID.fromString(newFile.getName()));
+			hashedFile.setSize(temporaryFile.length());
+			hashedFile.setFilename(fileSystem.saveArchive(temporaryFile, hash, filename));
 			hashedFile.setHash(hash);
-			hashedFile.setSize(newFile.length());
 			fileSystemRepository.save(hashedFile);
 		} else {
 			hashedFile = fileSystemRepository.getByHash(hash);
+			intent.set(IntentJournal.REUSED_FILENAME, hashedFile.getFilename().toString());
+			// keeps the garbage collection away until the CSAR file is saved
+			fileSystem.touch(hashedFile.getFilename());
 		}
 		return hashedFile;
 	}
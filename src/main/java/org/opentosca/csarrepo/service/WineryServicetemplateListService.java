@@ -3,28 +3,62 @@ package org.opentosca.csarrepo.service;
 import java.net.URL;
 import java.util.List;
 
+import org.opentosca.csarrepo.util.ServicetemplatePage;
 import org.opentosca.csarrepo.util.Servicetemplate;
-import org.opentosca.csarrepo.util.WineryApiClient;
+import org.opentosca.csarrepo.util.WineryTemplateCache;
 
 public class WineryServicetemplateListService extends AbstractService {
 
+	private static final int DEFAULT_PAGE_SIZE = 50;
+
 	private List<Servicetemplate> result;
-	
+	private ServicetemplatePage page;
+
 	public WineryServicetemplateListService(long userId, URL wineryAddress) {
 		super(userId);
-		
-		WineryApiClient client = new WineryApiClient(wineryAddress);
+
 		try {
-			this.result = client.getServiceTemplates();
+			this.result = WineryTemplateCache.getServiceTemplates(wineryAddress);
 		} catch (Exception e) {
 			this.addError(e.getMessage());
 		}
 	}
-	
+
+	/**
+	 * Lists one page of the service templates whose namespace or name
+	 * contains the given filter. The page size can be configured with the
+	 * property <code>wineryTemplatePageSize</code>.
+	 *
+	 * @param userId
+	 * @param wineryAddress
+	 * @param filter
+	 *            text to search for or <code>null</code>
+	 * @param page
+	 *            number of the page, starting at 1
+	 */
+	public WineryServicetemplateListService(long userId, URL wineryAddress, String filter, int page) {
+		this(userId, wineryAddress);
+
+		if (null != this.result) {
+			this.page = new ServicetemplatePage(this.result, filter, page, Integer.getInteger(
+					"wineryTemplatePageSize", DEFAULT_PAGE_SIZE));
+			this.result = this.page.getServiceTemplates();
+		}
+	}
+
 	public List<Servicetemplate> getResult() {
 		super.logInvalidResultAccess("getResult");
-		
+
 		return this.result;
 	}
 
+	/**
+	 * @return the listed page or <code>null</code>, if no page was requested
+	 */
+	public ServicetemplatePage getPage() {
+		super.logInvalidResultAccess("getPage");
+
+		return this.page;
+	}
+
 }
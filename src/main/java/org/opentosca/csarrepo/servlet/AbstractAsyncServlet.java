@@ -0,0 +1,185 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.AuthenticationException;
+import org.opentosca.csarrepo.model.User;
+import org.opentosca.csarrepo.util.RemoteIoExecutor;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * Abstraction for servlets which have to wait for remote servers
+ *
+ * Authentication and the data model are prepared on the request thread. The
+ * remote calls and the rendering of the template run on the
+ * {@link RemoteIoExecutor}, so the request thread is released while remote I/O
+ * is in flight. If the data is not available in time, an error message is
+ * rendered instead. The request may be recycled by the container once the
+ * timeout message is written, so its path and parameters are read before the
+ * remote calls start.
+ *
+ * Subclasses have to be registered with <code>asyncSupported = true</code>.
+ */
+@SuppressWarnings("serial")
+public abstract class AbstractAsyncServlet extends AbstractServlet {
+
+	private static final Logger LOGGER = LogManager.getLogger(AbstractAsyncServlet.class);
+	private static final long DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * @return the name of the template to render
+	 */
+	protected abstract String getTemplateName();
+
+	/**
+	 * Loads the data of the page into the given data model. Runs on a thread of
+	 * the {@link RemoteIoExecutor}.
+	 *
+	 * @param pathInfo
+	 *            the path info of the request
+	 * @param parameters
+	 *            the first value of each request parameter
+	 * @param session
+	 *            the session of the user
+	 * @param user
+	 *            the authenticated user
+	 * @param root
+	 *            the data model of the template
+	 * @throws ServletException
+	 */
+	protected abstract void loadData(String pathInfo, Map<String, String> parameters, HttpSession session,
+			User user, Map<String, Object> root) throws ServletException;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		final User user;
+		final Map<String, Object> root;
+		final Template template;
+		try {
+			user = checkUserAuthentication(request, response);
+			root = getRoot(request);
+			template = getTemplate(this.getServletContext(), getTemplateName());
+		} catch (AuthenticationException e) {
+			return;
+		}
+
+		final String uri = request.getRequestURI();
+		final String pathInfo = request.getPathInfo();
+		final Map<String, String> parameters = new HashMap<String, String>();
+		for (String name : Collections.list(request.getParameterNames())) {
+			parameters.put(name, request.getParameter(name));
+		}
+		final HttpSession session = request.getSession();
+
+		final AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(Long.getLong("livedataTimeout", DEFAULT_TIMEOUT));
+		// guards that either the result or the timeout message is written
+		final AtomicBoolean responded = new AtomicBoolean(false);
+		final AtomicReference<Future<?>> task = new AtomicReference<Future<?>>();
+
+		asyncContext.addListener(new AsyncListener() {
+
+			@Override
+			public void onTimeout(AsyncEvent event) throws IOException {
+				if (responded.compareAndSet(false, true)) {
+					if (null != task.get()) {
+						task.get().cancel(true);
+					}
+					LOGGER.warn("Timeout while loading {}", uri);
+					asyncContext.getResponse().getWriter()
+							.print("<div class=\"alert alert-warning\" role=\"alert\">Server did not respond in time</div>");
+					asyncContext.complete();
+				}
+			}
+
+			@Override
+			public void onError(AsyncEvent event) throws IOException {
+				if (responded.compareAndSet(false, true)) {
+					if (null != task.get()) {
+						task.get().cancel(true);
+					}
+					LOGGER.warn("Error while loading {}", uri, event.getThrowable());
+					asyncContext.complete();
+				}
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) throws IOException {
+				return;
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) throws IOException {
+				return;
+			}
+		});
+
+		try {
+			task.set(RemoteIoExecutor.getExecutor().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					String error = null;
+					try {
+						loadData(pathInfo, parameters, session, user, root);
+					} catch (ServletException | RuntimeException e) {
+						LOGGER.error("Failed to load " + uri, e);
+						error = e.getMessage();
+					}
+
+					// the timeout message has already been written
+					if (!responded.compareAndSet(false, true)) {
+						return;
+					}
+
+					try {
+						if (null == error) {
+							template.process(root, asyncContext.getResponse().getWriter());
+						} else {
+							asyncContext.getResponse().getWriter().print(error);
+						}
+					} catch (TemplateException e) {
+						printQuietly(asyncContext, e.getMessage());
+					} catch (IOException e) {
+						LOGGER.warn("Failed to write response for " + uri, e);
+					} finally {
+						asyncContext.complete();
+					}
+				}
+			}));
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Remote I/O executor is saturated, rejecting {}", uri);
+			responded.set(true);
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			asyncContext.complete();
+		}
+	}
+
+	private static void printQuietly(AsyncContext asyncContext, String message) {
+		try {
+			asyncContext.getResponse().getWriter().print(message);
+		} catch (IOException e) {
+			LOGGER.debug("Failed to write message", e);
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package org.opentosca.csarrepo.servlet;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,15 +21,9 @@ import org.opentosca.csarrepo.model.User;
 import org.opentosca.csarrepo.service.LoadCheckedUserService;
 import org.opentosca.csarrepo.service.LoadUserService;
 import org.opentosca.csarrepo.util.Hash;
-import org.opentosca.csarrepo.util.PlanInvocationHelper;
 import org.opentosca.csarrepo.util.StringUtils;
 
-import freemarker.ext.beans.BeansWrapper;
-import freemarker.ext.beans.BeansWrapperBuilder;
-import freemarker.template.Configuration;
 import freemarker.template.Template;
-import freemarker.template.TemplateExceptionHandler;
-import freemarker.template.TemplateHashModel;
 import freemarker.template.TemplateModelException;
 
 /**
@@ -46,15 +39,12 @@ public abstract class AbstractServlet extends HttpServlet {
 	private static final String ERRORS = "errors";
 	private static final String SUCCESSES = "successes";
 	private static final Logger LOGGER = LogManager.getLogger(AbstractServlet.class);
-	private Configuration cfg = new Configuration(Configuration.VERSION_2_3_21);
 
 	/**
 	 * @see HttpServlet#HttpServlet()
 	 */
 	public AbstractServlet() {
 		super();
-		cfg.setDefaultEncoding("UTF-8");
-		cfg.setTemplateExceptionHandler(TemplateExceptionHandler.HTML_DEBUG_HANDLER);
 	}
 
 	/**
@@ -75,13 +65,8 @@ public abstract class AbstractServlet extends HttpServlet {
 		root.put("basePath", this.getBasePath());
 
 		try {
-			BeansWrapper beansWrapper = new BeansWrapperBuilder(Configuration.VERSION_2_3_21).build();
-			TemplateHashModel staticModels = beansWrapper.getStaticModels();
-			TemplateHashModel stringUtils = (TemplateHashModel) staticModels.get(StringUtils.class.getCanonicalName());
-			TemplateHashModel planInvocationHelper = (TemplateHashModel) staticModels.get(PlanInvocationHelper.class
-					.getCanonicalName());
-			root.put("StringUtils", stringUtils);
-			root.put("PlanInvocationHelper", planInvocationHelper);
+			root.put("StringUtils", FreemarkerConfiguration.getStringUtils());
+			root.put("ServerHealth", FreemarkerConfiguration.getServerHealth());
 		} catch (TemplateModelException e) {
 			throw new ServletException(e);
 		}
@@ -168,13 +153,14 @@ public abstract class AbstractServlet extends HttpServlet {
 	}
 
 	/**
+	 * Returns the template from the shared template cache
+	 * 
 	 * @param sc
 	 * @param templateName
 	 * @throws IOException
 	 */
 	public Template getTemplate(ServletContext sc, String templateName) throws IOException {
-		cfg.setDirectoryForTemplateLoading(new File(this.getServletContext().getRealPath("/")));
-		return cfg.getTemplate(templateName);
+		return FreemarkerConfiguration.getTemplate(sc, templateName);
 	}
 
 	/**
@@ -232,6 +218,17 @@ public abstract class AbstractServlet extends HttpServlet {
 		((List<String>) request.getSession().getAttribute(ERRORS)).addAll(errors);
 	}
 
+	/**
+	 * Add notification errors to the session, e.g. from a thread which must
+	 * not access the request.
+	 * 
+	 * @param session
+	 * @param errors
+	 */
+	protected static void addErrors(HttpSession session, List<String> errors) {
+		((List<String>) session.getAttribute(ERRORS)).addAll(errors);
+	}
+
 	/**
 	 * Get notification successes from the request.
 	 * 
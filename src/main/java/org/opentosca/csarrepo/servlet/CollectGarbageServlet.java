@@ -0,0 +1,55 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.opentosca.csarrepo.exception.AuthenticationException;
+
+/**
+ * Starts a garbage collection of the storage
+ */
+@SuppressWarnings("serial")
+@WebServlet(CollectGarbageServlet.PATH)
+public class CollectGarbageServlet extends AbstractServlet {
+
+	public static final String PATH = "/collectgarbage";
+	private static final String PARAM_DRY_RUN = "dryrun";
+
+	public CollectGarbageServlet() {
+		super();
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.sendError(405, "Method Not Allowed");
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
+	 *      response)
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		try {
+			checkUserAuthentication(request, response);
+			boolean dryRun = null != request.getParameter(PARAM_DRY_RUN);
+
+			if (GarbageCollectionListener.collect(dryRun)) {
+				AbstractServlet.addSuccess(request, dryRun ? "Dry run of the garbage collection started"
+						: "Garbage collection started");
+			} else {
+				AbstractServlet.addError(request, "Garbage collection is already running");
+			}
+			this.redirect(request, response, DashboardServlet.PATH);
+		} catch (AuthenticationException e) {
+			return;
+		}
+	}
+}
@@ -19,6 +19,7 @@ import org.opentosca.csarrepo.model.join.CsarFileOpenToscaServer;
 import org.opentosca.csarrepo.service.ListOpenToscaServerService;
 import org.opentosca.csarrepo.service.ListWineryServerService;
 import org.opentosca.csarrepo.service.ShowCsarFileService;
+import org.opentosca.csarrepo.util.DeploymentJob;
 import org.opentosca.csarrepo.util.StringUtils;
 
 import freemarker.template.Template;
@@ -76,6 +77,7 @@ public class CsarFileDetailsServlet extends AbstractServlet {
 			List<CsarFileOpenToscaServer> csarFileOpenToscaServers = csarFile.getCsarFileOpenToscaServer();
 
 			root.put("opentoscaDeployedTo", csarFileOpenToscaServers);
+			root.put("deploymentJobs", DeploymentJob.getByCsarFile(csarFileId));
 			root.put("cloudInstances", csarFile.getCloudInstances());
 			root.put("csarFile", csarFile);
 			root.put("hashedFile", csarFile.getHashedFile());
@@ -18,6 +18,8 @@ import org.opentosca.csarrepo.service.CountHashedFileService;
 import org.opentosca.csarrepo.service.CountOpenToscaServerService;
 import org.opentosca.csarrepo.service.CountUserService;
 import org.opentosca.csarrepo.service.CountWineryServerService;
+import org.opentosca.csarrepo.service.StorageStatisticsService;
+import org.opentosca.csarrepo.util.ArchiveCache;
 
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
@@ -103,6 +105,28 @@ public class DashboardServlet extends AbstractServlet {
 			} else {
 				root.put("wServers", wServers.getResult());
 			}
+			StorageStatisticsService storage = new StorageStatisticsService(user.getId());
+			if(storage.hasErrors()) {
+				AbstractServlet.addErrors(request, storage.getErrors());
+			} else {
+				root.put("storage", storage.getResult());
+			}
+			root.put("gcResult", GarbageCollectionListener.getLastResult());
+			root.put("gcRunning", GarbageCollectionListener.isRunning());
+			root.put("gcReclaimed", GarbageCollectionListener.getReclaimed());
+			root.put("scrub", StorageScrubListener.getStatistics());
+			root.put("scrubResult", StorageScrubListener.getLastResult());
+			root.put("scrubRunning", StorageScrubListener.isRunning());
+			root.put("scrubDamaged", StorageScrubListener.getDamaged());
+			root.put("rebalanceResult", VolumeRebalanceListener.getLastResult());
+			root.put("rebalanceRunning", VolumeRebalanceListener.isRunning());
+			root.put("tieringResult", StorageTierListener.getLastResult());
+			root.put("recoveryResult", IntentRecoveryListener.getLastResult());
+			root.put("deltaResult", DeltaRepackListener.getLastResult());
+			root.put("deltaRunning", DeltaRepackListener.isRunning());
+			root.put("deltaSaved", DeltaRepackListener.getSaved());
+			root.put("archiveCache", ArchiveCache.getStatistics());
+			root.put("reconcile", DeploymentReconcileListener.getStatistics());
 			
 			// render template
 			root.put("title", "Dashboard");
@@ -47,6 +47,7 @@ public class DeleteWineryServerServlet extends AbstractServlet {
 				this.redirect(request, response, WineryServerDetailsServlet.PATH.replace("*", "" + wineryServerId));
 				return;
 			}
+			WinerySyncListener.invalidate(wineryServerId);
 			AbstractServlet.addSuccess(request, "WineryServer deleted successfully");
 			this.redirect(request, response, ListWineryServerServlet.PATH);
 		} catch (AuthenticationException e) {
@@ -0,0 +1,138 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.service.RepackDeltasService;
+import org.opentosca.csarrepo.util.DeltaRepackResult;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+
+/**
+ * Repacks the archives of old versions as deltas periodically and on demand
+ *
+ * The interval can be configured with the property <code>deltaInterval</code>
+ * in milliseconds. Since reading a delta costs more than reading the whole
+ * archive, the periodic repacking is disabled by default with <code>0</code>.
+ * Only one repacking runs at a time.
+ */
+public class DeltaRepackListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(DeltaRepackListener.class);
+
+	private static final long DEFAULT_INTERVAL = 0;
+
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong SAVED = new AtomicLong();
+
+	private static volatile DeltaRepackResult lastResult;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("deltaInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Periodic delta repacking disabled");
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if (RUNNING.compareAndSet(false, true)) {
+					runRepack();
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (DeltaRepackListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts a repacking in the background.
+	 *
+	 * @return <code>false</code> if a repacking is already running
+	 */
+	public static boolean repack() {
+		if (!RUNNING.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			getScheduler().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					runRepack();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the outcome of the last repacking or <code>null</code>
+	 */
+	public static DeltaRepackResult getLastResult() {
+		return lastResult;
+	}
+
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * @return number of repackings since the start
+	 */
+	public static long getRuns() {
+		return RUNS.get();
+	}
+
+	/**
+	 * @return bytes saved since the start
+	 */
+	public static long getSaved() {
+		return SAVED.get();
+	}
+
+	private static void runRepack() {
+		try {
+			DeltaRepackResult result = new RepackDeltasService(0L).getResult();
+			lastResult = result;
+			RUNS.incrementAndGet();
+			SAVED.addAndGet(result.getSavedBytes());
+		} catch (RuntimeException e) {
+			// keep the periodic repacking alive
+			LOGGER.error("Delta repacking failed", e);
+		} finally {
+			RUNNING.set(false);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("delta-repack"));
+		}
+		return scheduler;
+	}
+}
@@ -4,6 +4,8 @@
 package org.opentosca.csarrepo.servlet;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -17,7 +19,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.AuthenticationException;
 import org.opentosca.csarrepo.model.User;
+import org.opentosca.csarrepo.service.DeployToOpenToscaServersService;
 import org.opentosca.csarrepo.service.DeployToOpenToscaService;
+import org.opentosca.csarrepo.service.DeployToOpenToscaService.DuplicatePolicy;
 
 /**
  * Servlet implementation class UploadCSARServlet
@@ -30,6 +34,7 @@ public class DeployCsarFileServlet extends AbstractServlet {
 
 	private static final String PARAM_CSARFILE_ID = "csarfileId";
 	private static final String PARAM_OT_ID = "opentoscaId";
+	private static final String PARAM_DUPLICATES = "duplicates";
 	public static final String PATH = "/deploycsarfile";
 
 	@Override
@@ -47,16 +52,38 @@ public class DeployCsarFileServlet extends AbstractServlet {
 		try {
 			User user = checkUserAuthentication(request, response);
 
-			int openToscaId = Integer.parseInt(request.getParameter(PARAM_OT_ID));
+			String[] openToscaIds = request.getParameterValues(PARAM_OT_ID);
 			int csarFileId = Integer.parseInt(request.getParameter(PARAM_CSARFILE_ID));
+			DuplicatePolicy duplicatePolicy = DuplicatePolicy.parse(request.getParameter(PARAM_DUPLICATES));
 
-			DeployToOpenToscaService deployService = new DeployToOpenToscaService(user.getId(), openToscaId, csarFileId);
-			AbstractServlet.addErrors(request, deployService.getErrors());
+			if (null != openToscaIds && openToscaIds.length > 1) {
+				// several targets are deployed in the background
+				List<Long> targetIds = new ArrayList<Long>();
+				for (String openToscaId : openToscaIds) {
+					targetIds.add(Long.parseLong(openToscaId));
+				}
+				DeployToOpenToscaServersService deployService = new DeployToOpenToscaServersService(user.getId(),
+						csarFileId, targetIds, duplicatePolicy);
+				AbstractServlet.addErrors(request, deployService.getErrors());
+				if (!deployService.hasErrors()) {
+					AbstractServlet.addSuccess(request,
+							String.format("Deployment to %d OpenTOSCA servers started", targetIds.size()));
+				}
+			} else {
+				int openToscaId = Integer.parseInt(request.getParameter(PARAM_OT_ID));
+				DeployToOpenToscaService deployService = new DeployToOpenToscaService(user.getId(), openToscaId,
+						csarFileId, duplicatePolicy);
+				AbstractServlet.addErrors(request, deployService.getErrors());
+				if (!deployService.hasErrors() && deployService.isReused()) {
+					AbstractServlet.addSuccess(request, "Identical content was already deployed, the deployment "
+							+ deployService.getLocation() + " is reused");
+				}
+			}
 			this.redirect(request, response, CsarFileDetailsServlet.PATH.replace("*", "" + csarFileId));
 
 		} catch (AuthenticationException e) {
 			return;
-		} catch (NumberFormatException | ZipException e) {
+		} catch (IllegalArgumentException | ZipException e) {
 			AbstractServlet.addError(request, e.getMessage());
 			this.redirect(request, response, DashboardServlet.PATH);
 			LOGGER.error(e);
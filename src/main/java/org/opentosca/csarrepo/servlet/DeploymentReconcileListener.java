@@ -0,0 +1,211 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.service.ReconcileOpenToscaServerService;
+import org.opentosca.csarrepo.util.FanOut;
+import org.opentosca.csarrepo.util.ReconcileResult;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+import org.opentosca.csarrepo.util.StringUtils;
+
+/**
+ * Reconciles the stored deployments of all OpenTOSCA servers with their
+ * containers periodically
+ *
+ * The interval can be configured with the property
+ * <code>reconcileInterval</code> in milliseconds, <code>0</code> disables the
+ * reconciliation. Servers are reconciled in parallel, at most
+ * <code>reconcileConcurrency</code> at a time, each within
+ * <code>reconcileTimeout</code> milliseconds.
+ */
+public class DeploymentReconcileListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(DeploymentReconcileListener.class);
+
+	private static final long DEFAULT_INTERVAL = 600000;
+	private static final int DEFAULT_CONCURRENCY = 4;
+	private static final long DEFAULT_TIMEOUT = 60000;
+
+	private static final Map<Long, ReconcileResult> RESULTS = new ConcurrentHashMap<Long, ReconcileResult>();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong REMOVED = new AtomicLong();
+	private static final AtomicLong FAILURES = new AtomicLong();
+
+	private static volatile Date lastRun;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("reconcileInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Reconciliation of deployments disabled");
+			return;
+		}
+		synchronized (DeploymentReconcileListener.class) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("deployment-reconcile"));
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					reconcileAll();
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (DeploymentReconcileListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param openToscaServerId
+	 * @return the outcome of the last reconciliation or <code>null</code>
+	 */
+	public static ReconcileResult getLastResult(long openToscaServerId) {
+		return RESULTS.get(openToscaServerId);
+	}
+
+	/**
+	 * @return the drift found by all reconciliations so far
+	 */
+	public static Statistics getStatistics() {
+		int pending = 0;
+		int untracked = 0;
+		for (ReconcileResult result : RESULTS.values()) {
+			pending += result.getPending();
+			untracked += result.getUntracked();
+		}
+		return new Statistics(lastRun, RUNS.get(), REMOVED.get(), FAILURES.get(), pending, untracked);
+	}
+
+	private static void reconcileAll() {
+		try {
+			Map<Long, Callable<ReconcileResult>> reconciliations = new LinkedHashMap<Long, Callable<ReconcileResult>>();
+			for (OpenToscaServer openToscaServer : new OpenToscaServerRepository().getAll()) {
+				final long openToscaServerId = openToscaServer.getId();
+				reconciliations.put(openToscaServerId, new Callable<ReconcileResult>() {
+
+					@Override
+					public ReconcileResult call() throws Exception {
+						ReconcileOpenToscaServerService reconcileService = new ReconcileOpenToscaServerService(0L,
+								openToscaServerId);
+						if (null == reconcileService.getResult()) {
+							throw new Exception(StringUtils.join(reconcileService.getErrors()));
+						}
+						return reconcileService.getResult();
+					}
+				});
+			}
+
+			FanOut.Result<Long, ReconcileResult> reconciled = FanOut.invokeAll(reconciliations,
+					Integer.getInteger("reconcileConcurrency", DEFAULT_CONCURRENCY),
+					Long.getLong("reconcileTimeout", DEFAULT_TIMEOUT));
+
+			RESULTS.keySet().retainAll(reconciliations.keySet());
+			for (Map.Entry<Long, ReconcileResult> entry : reconciled.getResults().entrySet()) {
+				RESULTS.put(entry.getKey(), entry.getValue());
+				REMOVED.addAndGet(entry.getValue().getRemoved());
+				if (!entry.getValue().getErrors().isEmpty()) {
+					FAILURES.incrementAndGet();
+				}
+			}
+			for (Map.Entry<Long, String> failure : reconciled.getFailures().entrySet()) {
+				LOGGER.warn("Reconciliation of OpenTOSCA server {} failed: {}", failure.getKey(), failure.getValue());
+				FAILURES.incrementAndGet();
+			}
+			RUNS.incrementAndGet();
+			lastRun = new Date();
+		} catch (PersistenceException e) {
+			LOGGER.error("Could not load OpenTOSCA servers for reconciliation", e);
+		} catch (RuntimeException e) {
+			// keep the periodic reconciliation alive
+			LOGGER.error("Reconciliation of deployments failed", e);
+		}
+	}
+
+	/**
+	 * Drift found by the reconciliations
+	 */
+	public static class Statistics {
+
+		private final Date lastRun;
+		private final long runs;
+		private final long removed;
+		private final long failures;
+		private final int pending;
+		private final int untracked;
+
+		Statistics(Date lastRun, long runs, long removed, long failures, int pending, int untracked) {
+			this.lastRun = lastRun;
+			this.runs = runs;
+			this.removed = removed;
+			this.failures = failures;
+			this.pending = pending;
+			this.untracked = untracked;
+		}
+
+		/**
+		 * @return the end of the last reconciliation or <code>null</code>
+		 */
+		public Date getLastRun() {
+			return lastRun;
+		}
+
+		public long getRuns() {
+			return runs;
+		}
+
+		/**
+		 * @return number of stored deployments removed so far
+		 */
+		public long getRemoved() {
+			return removed;
+		}
+
+		/**
+		 * @return number of servers which could not be reconciled so far
+		 */
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * @return number of stored deployments currently missing in their
+		 *         container
+		 */
+		public int getPending() {
+			return pending;
+		}
+
+		/**
+		 * @return number of CSARs currently in a container without a stored
+		 *         deployment
+		 */
+		public int getUntracked() {
+			return untracked;
+		}
+	}
+}
@@ -17,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.AuthenticationException;
 import org.opentosca.csarrepo.model.User;
 import org.opentosca.csarrepo.service.DownloadCsarFileService;
+import org.opentosca.csarrepo.util.ArchiveCache;
 import org.opentosca.csarrepo.util.DownloadCsarFileObject;
 
 /**
@@ -60,19 +61,23 @@ public class DownloadCsarFileServlet extends AbstractServlet {
 			File file = downloadCsarFileObject.getFile();
 			String filename = downloadCsarFileObject.getFilename();
 
-			ServletOutputStream outputStream = response.getOutputStream();
-			response.setContentType("application/octet-stream");
-			response.setHeader("Content-Length", String.valueOf(file.length()));
-			String contentDisposition = String.format("attachment; filename=%s", '"' + filename + '"');
-			response.setHeader("Content-Disposition", contentDisposition);
-			byte[] byteBuffer = new byte[BUFFER_SIZE];
-			DataInputStream dataInputStream = new DataInputStream(new FileInputStream(file));
-			int length = 0;
-			while ((null != dataInputStream) && ((length = dataInputStream.read(byteBuffer)) != -1)) {
-				outputStream.write(byteBuffer, 0, length);
+			try {
+				ServletOutputStream outputStream = response.getOutputStream();
+				response.setContentType("application/octet-stream");
+				response.setHeader("Content-Length", String.valueOf(file.length()));
+				String contentDisposition = String.format("attachment; filename=%s", '"' + filename + '"');
+				response.setHeader("Content-Disposition", contentDisposition);
+				byte[] byteBuffer = new byte[BUFFER_SIZE];
+				try (DataInputStream dataInputStream = new DataInputStream(new FileInputStream(file))) {
+					int length = 0;
+					while ((length = dataInputStream.read(byteBuffer)) != -1) {
+						outputStream.write(byteBuffer, 0, length);
+					}
+				}
+				outputStream.close();
+			} finally {
+				ArchiveCache.release(file);
 			}
-			dataInputStream.close();
-			outputStream.close();
 		} catch (AuthenticationException e) {
 			return;
 		} catch (Exception e) {
@@ -0,0 +1,171 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.io.IOException;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.util.ServerHealth;
+import org.opentosca.csarrepo.util.StringUtils;
+
+import freemarker.cache.MruCacheStorage;
+import freemarker.ext.beans.BeansWrapper;
+import freemarker.ext.beans.BeansWrapperBuilder;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateExceptionHandler;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * Holds the application wide FreeMarker configuration
+ *
+ * The configuration, its template cache and the static models used inside the
+ * templates are created once when the context starts. All templates of the web
+ * application root are parsed at startup, so rendering a page only has to
+ * process the data model.
+ */
+public class FreemarkerConfiguration implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(FreemarkerConfiguration.class);
+
+	private static final String TEMPLATE_EXTENSION = ".ftl";
+	private static final int STRONG_CACHE_SIZE = 50;
+	private static final int SOFT_CACHE_SIZE = 250;
+	// templates are part of the war, so changes only have to be picked up
+	// during development
+	private static final int TEMPLATE_UPDATE_DELAY = 60;
+
+	// published through volatile fields, so rendering a page takes no lock
+	private static volatile Configuration configuration;
+	private static volatile StaticModels staticModels;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		ServletContext servletContext = event.getServletContext();
+		Configuration cfg = getConfiguration(servletContext);
+
+		try {
+			getStaticModels();
+		} catch (TemplateModelException e) {
+			LOGGER.error("Failed to build static template models", e);
+		}
+
+		Set<String> resourcePaths = servletContext.getResourcePaths("/");
+		if (null == resourcePaths) {
+			return;
+		}
+
+		int loaded = 0;
+		for (String resourcePath : resourcePaths) {
+			if (!resourcePath.endsWith(TEMPLATE_EXTENSION)) {
+				continue;
+			}
+			String templateName = resourcePath.substring(resourcePath.lastIndexOf('/') + 1);
+			try {
+				cfg.getTemplate(templateName);
+				loaded++;
+			} catch (IOException e) {
+				LOGGER.warn("Failed to preload template " + templateName, e);
+			}
+		}
+		LOGGER.info("Preloaded {} templates", loaded);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		synchronized (FreemarkerConfiguration.class) {
+			if (null != configuration) {
+				configuration.clearTemplateCache();
+			}
+			configuration = null;
+		}
+	}
+
+	/**
+	 * Returns the shared configuration and creates it on first access.
+	 *
+	 * @param servletContext
+	 *            the context the templates are loaded from
+	 * @return the shared configuration
+	 */
+	public static Configuration getConfiguration(ServletContext servletContext) {
+		Configuration cfg = configuration;
+		if (null != cfg) {
+			return cfg;
+		}
+		synchronized (FreemarkerConfiguration.class) {
+			if (null == configuration) {
+				cfg = new Configuration(Configuration.VERSION_2_3_21);
+				cfg.setDefaultEncoding("UTF-8");
+				cfg.setTemplateExceptionHandler(TemplateExceptionHandler.HTML_DEBUG_HANDLER);
+				cfg.setServletContextForTemplateLoading(servletContext, "/");
+				cfg.setCacheStorage(new MruCacheStorage(STRONG_CACHE_SIZE, SOFT_CACHE_SIZE));
+				cfg.setTemplateUpdateDelay(TEMPLATE_UPDATE_DELAY);
+				configuration = cfg;
+			}
+			return configuration;
+		}
+	}
+
+	/**
+	 * @param servletContext
+	 *            the context the template is loaded from
+	 * @param templateName
+	 *            the name of the template
+	 * @return the cached template
+	 * @throws IOException
+	 */
+	public static Template getTemplate(ServletContext servletContext, String templateName) throws IOException {
+		return getConfiguration(servletContext).getTemplate(templateName);
+	}
+
+	/**
+	 * @return the static model of {@link StringUtils}
+	 * @throws TemplateModelException
+	 */
+	public static TemplateHashModel getStringUtils() throws TemplateModelException {
+		return getStaticModels().stringUtils;
+	}
+
+	/**
+	 * @return the static model of {@link ServerHealth}
+	 * @throws TemplateModelException
+	 */
+	public static TemplateHashModel getServerHealth() throws TemplateModelException {
+		return getStaticModels().serverHealth;
+	}
+
+	private static StaticModels getStaticModels() throws TemplateModelException {
+		StaticModels models = staticModels;
+		if (null != models) {
+			return models;
+		}
+		synchronized (FreemarkerConfiguration.class) {
+			if (null == staticModels) {
+				staticModels = new StaticModels();
+			}
+			return staticModels;
+		}
+	}
+
+	/**
+	 * The static models, built at once so they are published together
+	 */
+	private static class StaticModels {
+
+		private final TemplateHashModel stringUtils;
+		private final TemplateHashModel serverHealth;
+
+		StaticModels() throws TemplateModelException {
+			BeansWrapper beansWrapper = new BeansWrapperBuilder(Configuration.VERSION_2_3_21).build();
+			TemplateHashModel models = beansWrapper.getStaticModels();
+			this.stringUtils = (TemplateHashModel) models.get(StringUtils.class.getCanonicalName());
+			this.serverHealth = (TemplateHashModel) models.get(ServerHealth.class.getCanonicalName());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.service.CollectGarbageService;
+import org.opentosca.csarrepo.util.GarbageCollectionResult;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+
+/**
+ * Collects the garbage of the storage periodically and on demand
+ *
+ * The interval can be configured with the property <code>gcInterval</code> in
+ * milliseconds, <code>0</code> disables the periodic collection. With
+ * <code>gcDryRun</code> the periodic collection only reports what it would
+ * remove. Only one collection runs at a time.
+ */
+public class GarbageCollectionListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(GarbageCollectionListener.class);
+
+	private static final long DEFAULT_INTERVAL = 86400000;
+
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong RECLAIMED = new AtomicLong();
+
+	private static volatile GarbageCollectionResult lastResult;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("gcInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Periodic garbage collection disabled");
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if (RUNNING.compareAndSet(false, true)) {
+					runCollection(Boolean.getBoolean("gcDryRun"));
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (GarbageCollectionListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts a garbage collection in the background.
+	 *
+	 * @param dryRun
+	 *            <code>true</code> to only determine what would be removed
+	 * @return <code>false</code> if a collection is already running
+	 */
+	public static boolean collect(final boolean dryRun) {
+		if (!RUNNING.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			getScheduler().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					runCollection(dryRun);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the outcome of the last collection or <code>null</code>
+	 */
+	public static GarbageCollectionResult getLastResult() {
+		return lastResult;
+	}
+
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * @return number of collections since the start, including dry runs
+	 */
+	public static long getRuns() {
+		return RUNS.get();
+	}
+
+	/**
+	 * @return bytes removed since the start
+	 */
+	public static long getReclaimed() {
+		return RECLAIMED.get();
+	}
+
+	private static void runCollection(boolean dryRun) {
+		try {
+			GarbageCollectionResult result = new CollectGarbageService(0L, dryRun).getResult();
+			lastResult = result;
+			RUNS.incrementAndGet();
+			if (!result.isDryRun()) {
+				RECLAIMED.addAndGet(result.getBytes());
+			}
+		} catch (RuntimeException e) {
+			// keep the periodic collection alive
+			LOGGER.error("Garbage collection failed", e);
+		} finally {
+			RUNNING.set(false);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("garbage-collection"));
+		}
+		return scheduler;
+	}
+}
@@ -0,0 +1,54 @@
+package org.opentosca.csarrepo.servlet;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.service.RecoverIntentsService;
+import org.opentosca.csarrepo.util.RepositoryProperties;
+import org.opentosca.csarrepo.util.RecoveryResult;
+
+/**
+ * Resolves the operations interrupted by a crash at the start, before any
+ * request is served
+ *
+ * The time depends on the number of operations which were running at the
+ * crash, since the intent journal only keeps the open ones. Declared in
+ * <code>web.xml</code> right after {@link RepositoryProperties}, since it needs
+ * the storage paths.
+ */
+public class IntentRecoveryListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(IntentRecoveryListener.class);
+
+	private static volatile RecoveryResult lastResult;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		if (null == System.getProperty("csarFilePath")) {
+			// touching the file system now would break it until a restart
+			LOGGER.error("Recovery of interrupted operations skipped: property csarFilePath is not set, "
+					+ "check WEB-INF/repository.properties");
+			return;
+		}
+		try {
+			lastResult = new RecoverIntentsService(0L).getResult();
+		} catch (RuntimeException | ExceptionInInitializerError e) {
+			// the operations stay in the journal for the next start
+			LOGGER.error("Recovery of interrupted operations failed", e);
+		}
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		// nothing to clean up
+	}
+
+	/**
+	 * @return the outcome of the recovery at the start or <code>null</code>
+	 */
+	public static RecoveryResult getLastResult() {
+		return lastResult;
+	}
+}
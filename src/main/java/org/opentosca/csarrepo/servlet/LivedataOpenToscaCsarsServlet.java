@@ -1,18 +1,13 @@
 package org.opentosca.csarrepo.servlet;
 
-import java.io.IOException;
-import java.net.InetAddress;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
-import org.opentosca.csarrepo.exception.AuthenticationException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
 import org.opentosca.csarrepo.model.User;
 import org.opentosca.csarrepo.service.LivedataOpenToscaCsarService;
@@ -20,16 +15,13 @@ import org.opentosca.csarrepo.service.ShowOpenToscaServerService;
 import org.opentosca.csarrepo.util.DeployedCsarObject;
 import org.opentosca.csarrepo.util.StringUtils;
 
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
-
 /**
  * 
  * @author Dennis Przytarski
  */
 @SuppressWarnings("serial")
-@WebServlet(LivedataOpenToscaCsarsServlet.PATH)
-public class LivedataOpenToscaCsarsServlet extends AbstractServlet {
+@WebServlet(value = LivedataOpenToscaCsarsServlet.PATH, asyncSupported = true)
+public class LivedataOpenToscaCsarsServlet extends AbstractAsyncServlet {
 
 	private static final String TEMPLATE_NAME = "livedataOpenToscaServerCsars.ftl";
 	public static final String PATH = "/livedata/opentoscaserver/csars/*";
@@ -39,43 +31,38 @@ public class LivedataOpenToscaCsarsServlet extends AbstractServlet {
 	}
 
 	@Override
-	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		try {
-			User user = checkUserAuthentication(request, response);
-			Map<String, Object> root = getRoot(request);
-			Template template = getTemplate(this.getServletContext(), TEMPLATE_NAME);
+	protected String getTemplateName() {
+		return TEMPLATE_NAME;
+	}
 
-			long openToscaServerId = StringUtils.getURLParameter(request.getPathInfo());
-			ShowOpenToscaServerService showService = new ShowOpenToscaServerService(user.getId(), openToscaServerId);
+	@Override
+	protected void loadData(String pathInfo, Map<String, String> parameters, HttpSession session, User user,
+			Map<String, Object> root) throws ServletException {
+		long openToscaServerId = StringUtils.getURLParameter(pathInfo);
+		ShowOpenToscaServerService showService = new ShowOpenToscaServerService(user.getId(), openToscaServerId);
 
-			if (showService.hasErrors()) {
-				AbstractServlet.addErrors(request, showService.getErrors());
-				root.put("errorMessages", StringUtils.join(showService.getErrors()));
-			} else {
-				OpenToscaServer openToscaServer = showService.getResult();
+		if (showService.hasErrors()) {
+			AbstractServlet.addErrors(session, showService.getErrors());
+			root.put("errorMessages", StringUtils.join(showService.getErrors()));
+		} else {
+			OpenToscaServer openToscaServer = showService.getResult();
 
-				// get deployed csar data
-				LivedataOpenToscaCsarService livedataOpenToscaCsarService = new LivedataOpenToscaCsarService(
-						user.getId(), openToscaServer);
-				root.put("openToscaServer", openToscaServer);
-				
-				// get opentosca server url
-				root.put("otHost", openToscaServer.getAddress().getHost());
+			// get deployed csar data
+			LivedataOpenToscaCsarService livedataOpenToscaCsarService = new LivedataOpenToscaCsarService(
+					user.getId(), openToscaServer, parameters.containsKey("refresh"));
+			root.put("snapshot", livedataOpenToscaCsarService.getSnapshot());
+			root.put("openToscaServer", openToscaServer);
 
-				List<DeployedCsarObject> deployedCsars = new ArrayList<DeployedCsarObject>();
-				if (livedataOpenToscaCsarService.hasErrors()) {
-					root.put("errorMessages", StringUtils.join(livedataOpenToscaCsarService.getErrors()));
-				} else {
-					deployedCsars = livedataOpenToscaCsarService.getResult();
-				}
-				root.put("deployedCsars", deployedCsars);
-			}
+			// get opentosca server url
+			root.put("otHost", openToscaServer.getAddress().getHost());
 
-			template.process(root, response.getWriter());
-		} catch (AuthenticationException e) {
-			return;
-		} catch (TemplateException e) {
-			response.getWriter().print(e.getMessage());
+			List<DeployedCsarObject> deployedCsars = new ArrayList<DeployedCsarObject>();
+			if (livedataOpenToscaCsarService.hasErrors()) {
+				root.put("errorMessages", StringUtils.join(livedataOpenToscaCsarService.getErrors()));
+			} else {
+				deployedCsars = livedataOpenToscaCsarService.getResult();
+			}
+			root.put("deployedCsars", deployedCsars);
 		}
 	}
 
@@ -1,6 +1,5 @@
 package org.opentosca.csarrepo.servlet;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -8,9 +7,8 @@ import java.util.Map;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
-import org.opentosca.csarrepo.exception.AuthenticationException;
 import org.opentosca.csarrepo.model.User;
 import org.opentosca.csarrepo.model.WineryServer;
 import org.opentosca.csarrepo.service.ShowWineryServerService;
@@ -18,18 +16,17 @@ import org.opentosca.csarrepo.service.WineryServicetemplateListService;
 import org.opentosca.csarrepo.util.Servicetemplate;
 import org.opentosca.csarrepo.util.StringUtils;
 
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
-
 /**
  * 
  * @author Dennis Przytarski
  */
 @SuppressWarnings("serial")
-@WebServlet(LivedataWineryServerTemplatesServlet.PATH)
-public class LivedataWineryServerTemplatesServlet extends AbstractServlet {
+@WebServlet(value = LivedataWineryServerTemplatesServlet.PATH, asyncSupported = true)
+public class LivedataWineryServerTemplatesServlet extends AbstractAsyncServlet {
 
 	private static final String TEMPLATE_NAME = "livedataWineryServerTemplates.ftl";
+	private static final String PARAM_FILTER = "filter";
+	private static final String PARAM_PAGE = "page";
 	public static final String PATH = "/livedata/wineryserver/templates/*";
 
 	public LivedataWineryServerTemplatesServlet() {
@@ -37,39 +34,46 @@ public class LivedataWineryServerTemplatesServlet extends AbstractServlet {
 	}
 
 	@Override
-	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		try {
-			User user = checkUserAuthentication(request, response);
-			Map<String, Object> root = getRoot(request);
-			Template template = getTemplate(this.getServletContext(), TEMPLATE_NAME);
+	protected String getTemplateName() {
+		return TEMPLATE_NAME;
+	}
 
-			long wineryServerId = StringUtils.getURLParameter(request.getPathInfo());
-			ShowWineryServerService showWineryService = new ShowWineryServerService(user.getId(), wineryServerId);
+	@Override
+	protected void loadData(String pathInfo, Map<String, String> parameters, HttpSession session, User user,
+			Map<String, Object> root) throws ServletException {
+		long wineryServerId = StringUtils.getURLParameter(pathInfo);
+		ShowWineryServerService showWineryService = new ShowWineryServerService(user.getId(), wineryServerId);
 
-			if (showWineryService.hasErrors()) {
-				AbstractServlet.addErrors(request, showWineryService.getErrors());
-				root.put("errorMessages", StringUtils.join(showWineryService.getErrors()));
-			} else {
-				WineryServer wineryServer = showWineryService.getResult();
+		if (showWineryService.hasErrors()) {
+			AbstractServlet.addErrors(session, showWineryService.getErrors());
+			root.put("errorMessages", StringUtils.join(showWineryService.getErrors()));
+		} else {
+			WineryServer wineryServer = showWineryService.getResult();
 
-				WineryServicetemplateListService stListService = new WineryServicetemplateListService(user.getId(),
-						wineryServer.getAddress());
-				root.put("wineryServer", wineryServer);
+			WineryServicetemplateListService stListService = new WineryServicetemplateListService(user.getId(),
+					wineryServer.getAddress(), parameters.get(PARAM_FILTER), getPage(parameters.get(PARAM_PAGE)));
+			root.put("wineryServer", wineryServer);
 
-				List<Servicetemplate> serviceTemplates = new ArrayList<Servicetemplate>();
-				if (stListService.hasErrors()) {
-					root.put("errorMessages", StringUtils.join(stListService.getErrors()));
-				} else {
-					serviceTemplates = stListService.getResult();
-				}
-				root.put("servicetemplates", serviceTemplates);
+			List<Servicetemplate> serviceTemplates = new ArrayList<Servicetemplate>();
+			if (stListService.hasErrors()) {
+				root.put("errorMessages", StringUtils.join(stListService.getErrors()));
+			} else {
+				serviceTemplates = stListService.getResult();
+				root.put("page", stListService.getPage());
 			}
+			root.put("servicetemplates", serviceTemplates);
+		}
+	}
 
-			template.process(root, response.getWriter());
-		} catch (AuthenticationException e) {
-			return;
-		} catch (TemplateException e) {
-			response.getWriter().print(e.getMessage());
+	static int getPage(HttpServletRequest request) {
+		return getPage(request.getParameter(PARAM_PAGE));
+	}
+
+	private static int getPage(String page) {
+		try {
+			return Integer.parseInt(page);
+		} catch (NumberFormatException e) {
+			return 1;
 		}
 	}
 
@@ -33,6 +33,7 @@ public class NewVersionFromWineryServlet extends AbstractServlet {
 	private static final String PARAM_WINERY_SERVER_ID = "wineryId";
 	private static final String PARAM_SERVICETEMPLATE = "servicetemplate";
 	private static final String PARAM_CSAR_ID = "csarId";
+	private static final String PARAM_FILTER = "filter";
 	public static final String PATH = "/newversionfromwinery";
 	public static final String TEMPLATE_NAME = "newVersionFromWinery.ftl";
 
@@ -96,7 +97,8 @@ public class NewVersionFromWineryServlet extends AbstractServlet {
 						return;
 					}
 					WineryServicetemplateListService stList = new WineryServicetemplateListService(user.getId(), winery
-							.getResult().getAddress());
+							.getResult().getAddress(), request.getParameter(PARAM_FILTER),
+							LivedataWineryServerTemplatesServlet.getPage(request));
 					if (stList.hasErrors()) {
 						AbstractServlet.addErrors(request, stList.getErrors());
 						redirect(request, response,
@@ -109,6 +111,7 @@ public class NewVersionFromWineryServlet extends AbstractServlet {
 					root.put("csar", showCsarService.getResult());
 					root.put("winery", winery.getResult());
 					root.put("servicetemplates", stList.getResult());
+					root.put("page", stList.getPage());
 
 					template.process(root, response.getWriter());
 					return;
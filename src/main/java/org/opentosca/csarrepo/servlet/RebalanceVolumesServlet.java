@@ -0,0 +1,51 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.opentosca.csarrepo.exception.AuthenticationException;
+
+/**
+ * Starts a rebalancing of the storage volumes
+ */
+@SuppressWarnings("serial")
+@WebServlet(RebalanceVolumesServlet.PATH)
+public class RebalanceVolumesServlet extends AbstractServlet {
+
+	public static final String PATH = "/rebalancevolumes";
+
+	public RebalanceVolumesServlet() {
+		super();
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.sendError(405, "Method Not Allowed");
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
+	 *      response)
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		try {
+			checkUserAuthentication(request, response);
+			if (VolumeRebalanceListener.rebalance()) {
+				AbstractServlet.addSuccess(request, "Rebalancing started");
+			} else {
+				AbstractServlet.addError(request, "Rebalancing is already running");
+			}
+			this.redirect(request, response, DashboardServlet.PATH);
+		} catch (AuthenticationException e) {
+			return;
+		}
+	}
+}
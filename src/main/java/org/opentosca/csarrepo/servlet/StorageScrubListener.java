@@ -0,0 +1,234 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.repository.FileSystemRepository;
+import org.opentosca.csarrepo.service.ScrubStorageService;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+import org.opentosca.csarrepo.util.ScrubResult;
+import org.opentosca.csarrepo.util.TimeWindow;
+
+/**
+ * Checks the integrity of the stored archives periodically and on demand
+ *
+ * Every <code>scrubInterval</code> milliseconds the scrubber continues where
+ * it stopped, as long as the off-peak window <code>scrubWindow</code> (e.g.
+ * <code>01:00-05:00</code>) is open; <code>0</code> disables the periodic
+ * check. A check started on demand ignores the window. Damaged archives are
+ * reported until a later check finds them intact or they are deleted.
+ */
+public class StorageScrubListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(StorageScrubListener.class);
+
+	private static final long DEFAULT_INTERVAL = 3600000;
+
+	private static final Map<Long, ScrubResult.Finding> DAMAGED = new ConcurrentHashMap<Long, ScrubResult.Finding>();
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong PASSES = new AtomicLong();
+	private static final AtomicLong CHECKED = new AtomicLong();
+	private static final AtomicLong BYTES = new AtomicLong();
+
+	private static volatile ScrubResult lastResult;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("scrubInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Periodic integrity check disabled");
+			return;
+		}
+		final TimeWindow window;
+		try {
+			window = TimeWindow.parse(System.getProperty("scrubWindow"));
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Periodic integrity check disabled: {}", e.getMessage());
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if ((null == window || window.isOpen()) && RUNNING.compareAndSet(false, true)) {
+					runScrub(window);
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (StorageScrubListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts an integrity check in the background, which runs until the end
+	 * of the store.
+	 *
+	 * @return <code>false</code> if a check is already running
+	 */
+	public static boolean scrub() {
+		if (!RUNNING.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			getScheduler().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					runScrub(null);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the outcome of the last check or <code>null</code>
+	 */
+	public static ScrubResult getLastResult() {
+		return lastResult;
+	}
+
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * @return the hashed files found damaged and not found intact since
+	 */
+	public static List<ScrubResult.Finding> getDamaged() {
+		return new ArrayList<ScrubResult.Finding>(DAMAGED.values());
+	}
+
+	/**
+	 * @return the figures of the checks since the start
+	 */
+	public static Statistics getStatistics() {
+		return new Statistics(RUNS.get(), PASSES.get(), CHECKED.get(), BYTES.get(), DAMAGED.size());
+	}
+
+	private static void runScrub(TimeWindow window) {
+		try {
+			ScrubResult result = new ScrubStorageService(0L, window).getResult();
+			for (Long hashedFileId : result.getIntact()) {
+				DAMAGED.remove(hashedFileId);
+			}
+			for (ScrubResult.Finding finding : result.getDamaged()) {
+				DAMAGED.put(finding.getHashedFileId(), finding);
+			}
+			if (result.isPassCompleted()) {
+				PASSES.incrementAndGet();
+				removeDeleted();
+			}
+			lastResult = result;
+			RUNS.incrementAndGet();
+			CHECKED.addAndGet(result.getChecked());
+			BYTES.addAndGet(result.getBytes());
+		} catch (RuntimeException e) {
+			// keep the periodic check alive
+			LOGGER.error("Integrity check failed", e);
+		} finally {
+			RUNNING.set(false);
+		}
+	}
+
+	private static void removeDeleted() {
+		FileSystemRepository fileSystemRepository = new FileSystemRepository();
+		try {
+			for (Iterator<Long> iterator = DAMAGED.keySet().iterator(); iterator.hasNext();) {
+				if (null == fileSystemRepository.getbyId(iterator.next())) {
+					iterator.remove();
+				}
+			}
+		} catch (PersistenceException e) {
+			LOGGER.warn("Could not remove deleted hashed files from the damaged ones", e);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("storage-scrub"));
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Figures of the integrity checks
+	 */
+	public static class Statistics {
+
+		private final long runs;
+		private final long passes;
+		private final long checked;
+		private final long bytes;
+		private final long damaged;
+
+		Statistics(long runs, long passes, long checked, long bytes, long damaged) {
+			this.runs = runs;
+			this.passes = passes;
+			this.checked = checked;
+			this.bytes = bytes;
+			this.damaged = damaged;
+		}
+
+		public long getRuns() {
+			return runs;
+		}
+
+		/**
+		 * @return number of checks which reached the end of the store
+		 */
+		public long getPasses() {
+			return passes;
+		}
+
+		/**
+		 * @return number of checked hashed files
+		 */
+		public long getChecked() {
+			return checked;
+		}
+
+		/**
+		 * @return number of read bytes
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return number of damaged hashed files currently known
+		 */
+		public long getDamaged() {
+			return damaged;
+		}
+	}
+}
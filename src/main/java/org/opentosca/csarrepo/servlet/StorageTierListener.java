@@ -0,0 +1,112 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.service.TierStorageService;
+import org.opentosca.csarrepo.util.TieringResult;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+
+/**
+ * Moves stored files between the cold tier and the other volumes periodically
+ *
+ * The interval can be configured with the property <code>tierInterval</code>
+ * in milliseconds, <code>0</code> disables the tiering. Nothing is done
+ * without a cold tier.
+ */
+public class StorageTierListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(StorageTierListener.class);
+
+	private static final long DEFAULT_INTERVAL = 86400000;
+
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong MOVED = new AtomicLong();
+
+	private static volatile TieringResult lastResult;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("tierInterval", DEFAULT_INTERVAL);
+		if (interval <= 0 || System.getProperty("coldStoragePath", "").trim().isEmpty()) {
+			LOGGER.info("Storage tiering disabled");
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if (RUNNING.compareAndSet(false, true)) {
+					runTiering();
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (StorageTierListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the outcome of the last tiering or <code>null</code>
+	 */
+	public static TieringResult getLastResult() {
+		return lastResult;
+	}
+
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * @return number of tierings since the start
+	 */
+	public static long getRuns() {
+		return RUNS.get();
+	}
+
+	/**
+	 * @return bytes moved between the tiers since the start
+	 */
+	public static long getMoved() {
+		return MOVED.get();
+	}
+
+	private static void runTiering() {
+		try {
+			TieringResult result = new TierStorageService(0L).getResult();
+			lastResult = result;
+			RUNS.incrementAndGet();
+			MOVED.addAndGet(result.getBytes());
+		} catch (RuntimeException e) {
+			// keep the periodic tiering alive
+			LOGGER.error("Tiering failed", e);
+		} finally {
+			RUNNING.set(false);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("storage-tier"));
+		}
+		return scheduler;
+	}
+}
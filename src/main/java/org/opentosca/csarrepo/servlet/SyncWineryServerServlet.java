@@ -0,0 +1,57 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.opentosca.csarrepo.exception.AuthenticationException;
+import org.opentosca.csarrepo.util.StringUtils;
+
+/**
+ * Starts the synchronization of a winery server
+ */
+@SuppressWarnings("serial")
+@WebServlet(SyncWineryServerServlet.PATH)
+public class SyncWineryServerServlet extends AbstractServlet {
+
+	public static final String PATH = "/syncwineryserver/*";
+
+	public SyncWineryServerServlet() {
+		super();
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.sendError(405, "Method Not Allowed");
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
+	 *      response)
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		try {
+			checkUserAuthentication(request, response);
+			long wineryServerId = StringUtils.getURLParameter(request.getPathInfo());
+
+			if (WinerySyncListener.sync(wineryServerId)) {
+				AbstractServlet.addSuccess(request, "Synchronization started");
+			} else {
+				AbstractServlet.addError(request, "Synchronization is already running");
+			}
+			this.redirect(request, response, WineryServerDetailsServlet.PATH.replace("*", "" + wineryServerId));
+		} catch (AuthenticationException e) {
+			return;
+		} catch (ServletException e) {
+			AbstractServlet.addError(request, e.getMessage());
+			this.redirect(request, response, ListWineryServerServlet.PATH);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.service.RebalanceVolumesService;
+import org.opentosca.csarrepo.util.RebalanceResult;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+
+/**
+ * Rebalances the storage volumes periodically and on demand
+ *
+ * The interval can be configured with the property
+ * <code>rebalanceInterval</code> in milliseconds, <code>0</code> disables the
+ * periodic rebalancing. Only one rebalancing runs at a time.
+ */
+public class VolumeRebalanceListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(VolumeRebalanceListener.class);
+
+	private static final long DEFAULT_INTERVAL = 3600000;
+
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static final AtomicLong RUNS = new AtomicLong();
+	private static final AtomicLong MOVED = new AtomicLong();
+
+	private static volatile RebalanceResult lastResult;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("rebalanceInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Periodic rebalancing disabled");
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if (RUNNING.compareAndSet(false, true)) {
+					runRebalance();
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (VolumeRebalanceListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts a rebalancing in the background.
+	 *
+	 * @return <code>false</code> if a rebalancing is already running
+	 */
+	public static boolean rebalance() {
+		if (!RUNNING.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			getScheduler().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					runRebalance();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the outcome of the last rebalancing or <code>null</code>
+	 */
+	public static RebalanceResult getLastResult() {
+		return lastResult;
+	}
+
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * @return number of rebalancings since the start
+	 */
+	public static long getRuns() {
+		return RUNS.get();
+	}
+
+	/**
+	 * @return bytes moved since the start
+	 */
+	public static long getMoved() {
+		return MOVED.get();
+	}
+
+	private static void runRebalance() {
+		try {
+			RebalanceResult result = new RebalanceVolumesService(0L).getResult();
+			lastResult = result;
+			RUNS.incrementAndGet();
+			MOVED.addAndGet(result.getBytes());
+		} catch (RuntimeException e) {
+			// keep the periodic rebalancing alive
+			LOGGER.error("Rebalancing failed", e);
+		} finally {
+			RUNNING.set(false);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("volume-rebalance"));
+		}
+		return scheduler;
+	}
+}
@@ -59,6 +59,8 @@ public class WineryServerDetailsServlet extends AbstractServlet {
 
 			WineryServer wineryServer = showWineryService.getResult();
 			root.put("wineryServer", wineryServer);
+			root.put("syncResult", WinerySyncListener.getLastResult(wineryServerId));
+			root.put("syncRunning", WinerySyncListener.isRunning(wineryServerId));
 
 			root.put("title", String.format("%s: %s", wineryServer.getId(), wineryServer.getName()));
 
@@ -0,0 +1,153 @@
+package org.opentosca.csarrepo.servlet;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.WineryServer;
+import org.opentosca.csarrepo.model.repository.WineryServerRepository;
+import org.opentosca.csarrepo.service.SyncWineryServerService;
+import org.opentosca.csarrepo.util.RemoteIoExecutor.NamedThreadFactory;
+import org.opentosca.csarrepo.util.WinerySyncResult;
+
+/**
+ * Synchronizes all winery servers periodically and on demand
+ *
+ * The interval can be configured with the property
+ * <code>winerySyncInterval</code> in milliseconds, <code>0</code> disables the
+ * periodic synchronization. Servers are synchronized one after another, a
+ * server is never synchronized twice at the same time.
+ */
+public class WinerySyncListener implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(WinerySyncListener.class);
+
+	private static final long DEFAULT_INTERVAL = 900000;
+
+	private static final Map<Long, WinerySyncResult> RESULTS = new ConcurrentHashMap<Long, WinerySyncResult>();
+	private static final Set<Long> RUNNING = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		long interval = Long.getLong("winerySyncInterval", DEFAULT_INTERVAL);
+		if (interval <= 0) {
+			LOGGER.info("Periodic winery synchronization disabled");
+			return;
+		}
+		getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				syncAll();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (WinerySyncListener.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts the synchronization of the given server in the background.
+	 *
+	 * @param wineryServerId
+	 * @return <code>false</code> if the server is already being synchronized
+	 */
+	public static boolean sync(final long wineryServerId) {
+		if (!RUNNING.add(wineryServerId)) {
+			return false;
+		}
+		try {
+			getScheduler().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					runSync(wineryServerId);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.remove(wineryServerId);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param wineryServerId
+	 * @return the outcome of the last synchronization or <code>null</code>
+	 */
+	public static WinerySyncResult getLastResult(long wineryServerId) {
+		return RESULTS.get(wineryServerId);
+	}
+
+	/**
+	 * @param wineryServerId
+	 * @return <code>true</code> if the server is being synchronized
+	 */
+	public static boolean isRunning(long wineryServerId) {
+		return RUNNING.contains(wineryServerId);
+	}
+
+	/**
+	 * Drops the state of the given server, e.g. after it was deleted.
+	 *
+	 * @param wineryServerId
+	 */
+	public static void invalidate(long wineryServerId) {
+		RESULTS.remove(wineryServerId);
+	}
+
+	private static void syncAll() {
+		try {
+			for (WineryServer wineryServer : new WineryServerRepository().getAll()) {
+				if (RUNNING.add(wineryServer.getId())) {
+					runSync(wineryServer.getId());
+				}
+			}
+		} catch (PersistenceException e) {
+			LOGGER.error("Could not load winery servers for synchronization", e);
+		} catch (RuntimeException e) {
+			// keep the periodic synchronization alive
+			LOGGER.error("Winery synchronization failed", e);
+		}
+	}
+
+	private static void runSync(long wineryServerId) {
+		try {
+			SyncWineryServerService syncService = new SyncWineryServerService(0L, wineryServerId);
+			WinerySyncResult result = syncService.getResult();
+			if (null != result) {
+				RESULTS.put(wineryServerId, result);
+			}
+		} finally {
+			RUNNING.remove(wineryServerId);
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("winery-sync"));
+		}
+		return scheduler;
+	}
+}
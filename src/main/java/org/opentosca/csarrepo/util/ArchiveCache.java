@@ -0,0 +1,375 @@
+package org.opentosca.csarrepo.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.lingala.zip4j.exception.ZipException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+import org.opentosca.csarrepo.model.CsarFile;
+
+/**
+ * Bounded on-disk cache of the archives handed out for download and
+ * deployment, i.e. a CSAR file with the CSAR-REPOSITORY.txt containing its id
+ *
+ * The archives are keyed by CSAR file id and hash and evicted in least
+ * recently used order once their total size exceeds the property
+ * <code>archiveCacheSize</code> in bytes, <code>0</code> disables the cache.
+ * They are stored in the directory <code>archiveCachePath</code> and adopted
+ * again after a restart.
+ *
+ * An archive returned by {@link #acquire(CsarFile)} is not deleted before it
+ * was given back with {@link #release(File)}.
+ */
+public class ArchiveCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(ArchiveCache.class);
+
+	private static final long DEFAULT_MAX_SIZE = 1073741824L;
+	private static final String CSAR_REPOSITORY_FILENAME = "CSAR-REPOSITORY.txt";
+	private static final String SUFFIX = ".csar";
+
+	private static final ArchiveCache INSTANCE = new ArchiveCache(new File(System.getProperty("archiveCachePath",
+			System.getProperty("java.io.tmpdir") + File.separator + "csarrepo-archives")), Long.getLong(
+			"archiveCacheSize", DEFAULT_MAX_SIZE));
+
+	private final File directory;
+	private final long maxSize;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<File, Entry> leased = new HashMap<File, Entry>();
+
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	ArchiveCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			LOGGER.warn("Could not create archive cache {}", directory);
+		}
+		adopt();
+	}
+
+	/**
+	 * Returns the archive of the given CSAR file and builds it if it is not
+	 * cached.
+	 *
+	 * @param csarFile
+	 * @return the archive, to be given back with {@link #release(File)}
+	 * @throws ZipException
+	 * @throws IOException
+	 */
+	public static File acquire(final CsarFile csarFile) throws ZipException, IOException {
+		return INSTANCE.get(csarFile.getId(), csarFile.getHashedFile().getHash(), new Source() {
+
+			@Override
+			public InputStream open() throws IOException {
+				return new FileSystem().getInputStream(csarFile.getHashedFile().getFilename());
+			}
+		});
+	}
+
+	/**
+	 * Gives back an archive returned by {@link #acquire(CsarFile)}. Archives
+	 * which were evicted meanwhile are deleted once they are not used anymore.
+	 *
+	 * @param archive
+	 */
+	public static void release(File archive) {
+		INSTANCE.put(archive);
+	}
+
+	/**
+	 * Drops the archives of the given CSAR file, e.g. after it was deleted.
+	 *
+	 * @param csarFileId
+	 */
+	public static void invalidate(long csarFileId) {
+		INSTANCE.remove(csarFileId);
+	}
+
+	/**
+	 * @return the current size, hit rate and evictions of the cache
+	 */
+	public static Statistics getStatistics() {
+		return INSTANCE.statistics();
+	}
+
+	File get(long csarFileId, String hash, final File source) throws ZipException, IOException {
+		return get(csarFileId, hash, new Source() {
+
+			@Override
+			public InputStream open() throws IOException {
+				return new FileInputStream(source);
+			}
+		});
+	}
+
+	private File get(long csarFileId, String hash, Source source) throws ZipException, IOException {
+		String key = csarFileId + "-" + hash;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (null != entry && entry.file.isFile()) {
+				hits++;
+				return lease(entry);
+			}
+			if (null != entry) {
+				// deleted from outside of the cache
+				entries.remove(key);
+				size -= entry.length;
+			}
+			misses++;
+		}
+
+		File archive = build(csarFileId, source);
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (null != entry) {
+				// built concurrently
+				archive.delete();
+				return lease(entry);
+			}
+
+			entry = new Entry(key, archive);
+			File target = new File(directory, key + SUFFIX);
+			if (entry.length > maxSize || leased.containsKey(target)) {
+				// too large to be cached or an evicted copy is still in use,
+				// deleted when released
+				entry.evicted = true;
+				return lease(entry);
+			}
+			entry.file = target;
+			Files.move(archive.toPath(), entry.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			entries.put(key, entry);
+			size += entry.length;
+			File result = lease(entry);
+			evict();
+			return result;
+		}
+	}
+
+	synchronized void put(File archive) {
+		Entry entry = leased.get(archive);
+		if (null == entry) {
+			LOGGER.warn("Released unknown archive {}", archive);
+			return;
+		}
+		entry.leases--;
+		if (0 == entry.leases) {
+			leased.remove(archive);
+			if (entry.evicted) {
+				delete(entry);
+			}
+		}
+	}
+
+	synchronized void remove(long csarFileId) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.key.startsWith(csarFileId + "-")) {
+				iterator.remove();
+				drop(entry);
+			}
+		}
+	}
+
+	synchronized Statistics statistics() {
+		return new Statistics(entries.size(), size, maxSize, hits, misses, evictions);
+	}
+
+	private File lease(Entry entry) {
+		entry.leases++;
+		leased.put(entry.file, entry);
+		return entry.file;
+	}
+
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			iterator.remove();
+			evictions++;
+			LOGGER.debug("Evicting archive {} ({} bytes)", entry.key, entry.length);
+			drop(entry);
+		}
+	}
+
+	private void drop(Entry entry) {
+		size -= entry.length;
+		entry.evicted = true;
+		if (0 == entry.leases) {
+			delete(entry);
+		}
+	}
+
+	private static void delete(Entry entry) {
+		if (!entry.file.delete() && entry.file.exists()) {
+			LOGGER.warn("Could not delete archive {}", entry.file);
+		}
+	}
+
+	private File build(long csarFileId, Source source) throws ZipException, IOException {
+		File archive = File.createTempFile("build", ".tmp", directory);
+		File metaDirectory = Files.createTempDirectory(directory.toPath(), "meta").toFile();
+		File csarRepositoryFile = new File(metaDirectory, CSAR_REPOSITORY_FILENAME);
+		try {
+			try (InputStream inputStream = source.open()) {
+				Files.copy(inputStream, archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.write(csarRepositoryFile.toPath(), Long.toString(csarFileId).getBytes(StandardCharsets.UTF_8));
+			ZipUtils.add(archive, csarRepositoryFile);
+		} catch (ZipException | IOException e) {
+			archive.delete();
+			throw e;
+		} finally {
+			csarRepositoryFile.delete();
+			metaDirectory.delete();
+		}
+		return archive;
+	}
+
+	/**
+	 * Adopts the archives of a previous run, oldest first, and removes
+	 * leftovers of interrupted builds.
+	 */
+	private void adopt() {
+		File[] files = directory.listFiles();
+		if (null == files) {
+			return;
+		}
+		List<File> archives = new ArrayList<File>();
+		for (File file : files) {
+			if (file.isFile() && file.getName().endsWith(SUFFIX)) {
+				archives.add(file);
+			} else {
+				deleteRecursively(file);
+			}
+		}
+		File[] sorted = archives.toArray(new File[archives.size()]);
+		Arrays.sort(sorted, new Comparator<File>() {
+
+			@Override
+			public int compare(File first, File second) {
+				return Long.compare(first.lastModified(), second.lastModified());
+			}
+		});
+		for (File file : sorted) {
+			String key = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+			Entry entry = new Entry(key, file);
+			entries.put(key, entry);
+			size += entry.length;
+		}
+		evict();
+		if (!entries.isEmpty()) {
+			LOGGER.info("Adopted {} archives ({} bytes) from {}", entries.size(), size, directory);
+		}
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (null != children) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Content of the archive to build
+	 */
+	private interface Source {
+
+		InputStream open() throws IOException;
+	}
+
+	private static class Entry {
+
+		private final String key;
+		private final long length;
+		private File file;
+		private int leases;
+		private boolean evicted;
+
+		Entry(String key, File file) {
+			this.key = key;
+			this.file = file;
+			this.length = file.length();
+		}
+	}
+
+	/**
+	 * Metrics of the cache at one point in time
+	 */
+	public static class Statistics {
+
+		private final int entries;
+		private final long size;
+		private final long maxSize;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+
+		Statistics(int entries, long size, long maxSize, long hits, long misses, long evictions) {
+			this.entries = entries;
+			this.size = size;
+			this.maxSize = maxSize;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @return the size of the cached archives in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		public long getMaxSize() {
+			return maxSize;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the share of requests served from the cache in percent
+		 */
+		public int getHitRate() {
+			long requests = hits + misses;
+			return 0 == requests ? 0 : (int) (hits * 100 / requests);
+		}
+	}
+}
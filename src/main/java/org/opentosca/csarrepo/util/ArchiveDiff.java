@@ -0,0 +1,177 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Differences between the entries of two archives
+ *
+ * Entries are matched by name and compared by size and CRC as stored in the
+ * central directories, so no entry has to be read for the comparison.
+ * Directories are left out, they have no content.
+ */
+public class ArchiveDiff {
+
+	private final String fromHash;
+	private final String toHash;
+	private final List<ZipDirectory.Entry> added;
+	private final List<ZipDirectory.Entry> removed;
+	private final List<Change> changed;
+	private final int unchanged;
+
+	private ArchiveDiff(String fromHash, String toHash, List<ZipDirectory.Entry> added,
+			List<ZipDirectory.Entry> removed, List<Change> changed, int unchanged) {
+		this.fromHash = fromHash;
+		this.toHash = toHash;
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+		this.changed = Collections.unmodifiableList(changed);
+		this.unchanged = unchanged;
+	}
+
+	/**
+	 * @param fromHash
+	 *            hash of the older archive
+	 * @param from
+	 *            directory of the older archive
+	 * @param toHash
+	 *            hash of the newer archive
+	 * @param to
+	 *            directory of the newer archive
+	 * @return the differences, sorted by name
+	 */
+	public static ArchiveDiff compare(String fromHash, ZipDirectory from, String toHash, ZipDirectory to) {
+		Map<String, ZipDirectory.Entry> fromEntries = byName(from);
+		Map<String, ZipDirectory.Entry> toEntries = byName(to);
+
+		List<ZipDirectory.Entry> added = new ArrayList<ZipDirectory.Entry>();
+		List<ZipDirectory.Entry> removed = new ArrayList<ZipDirectory.Entry>();
+		List<Change> changed = new ArrayList<Change>();
+		int unchanged = 0;
+		for (ZipDirectory.Entry fromEntry : fromEntries.values()) {
+			ZipDirectory.Entry toEntry = toEntries.get(fromEntry.getName());
+			if (null == toEntry) {
+				removed.add(fromEntry);
+			} else if (fromEntry.getSize() != toEntry.getSize() || fromEntry.getCrc() != toEntry.getCrc()) {
+				changed.add(new Change(fromEntry, toEntry));
+			} else {
+				unchanged++;
+			}
+		}
+		for (ZipDirectory.Entry toEntry : toEntries.values()) {
+			if (!fromEntries.containsKey(toEntry.getName())) {
+				added.add(toEntry);
+			}
+		}
+		return new ArchiveDiff(fromHash, toHash, added, removed, changed, unchanged);
+	}
+
+	private static Map<String, ZipDirectory.Entry> byName(ZipDirectory directory) {
+		Map<String, ZipDirectory.Entry> entries = new TreeMap<String, ZipDirectory.Entry>();
+		for (ZipDirectory.Entry entry : directory.getEntries()) {
+			if (!entry.isDirectory()) {
+				entries.put(entry.getName(), entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @param name
+	 *            name of an entry
+	 * @return <code>true</code> if the entry is an XML document, e.g. a
+	 *         definitions file or a schema
+	 */
+	public static boolean isXml(String name) {
+		String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+		return lowerCaseName.endsWith(".xml") || lowerCaseName.endsWith(".tosca") || lowerCaseName.endsWith(".xsd")
+				|| lowerCaseName.endsWith(".wsdl") || lowerCaseName.endsWith(".bpel");
+	}
+
+	/**
+	 * @return <code>true</code> if both archives contain the same entries
+	 *         with the same content
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	public String getFromHash() {
+		return fromHash;
+	}
+
+	public String getToHash() {
+		return toHash;
+	}
+
+	/**
+	 * @return the entries only the newer archive contains
+	 */
+	public List<ZipDirectory.Entry> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return the entries only the older archive contains
+	 */
+	public List<ZipDirectory.Entry> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return the entries whose size or CRC differ
+	 */
+	public List<Change> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * @return number of entries which are the same in both archives
+	 */
+	public int getUnchanged() {
+		return unchanged;
+	}
+
+	/**
+	 * An entry contained by both archives with different content
+	 */
+	public static class Change {
+
+		private final ZipDirectory.Entry from;
+		private final ZipDirectory.Entry to;
+		private volatile String textDiff;
+
+		Change(ZipDirectory.Entry from, ZipDirectory.Entry to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		public String getName() {
+			return to.getName();
+		}
+
+		public ZipDirectory.Entry getFrom() {
+			return from;
+		}
+
+		public ZipDirectory.Entry getTo() {
+			return to;
+		}
+
+		/**
+		 * @return the unified diff of the content or <code>null</code> if it
+		 *         was not computed
+		 */
+		public String getTextDiff() {
+			return textDiff;
+		}
+
+		public void setTextDiff(String textDiff) {
+			this.textDiff = textDiff;
+		}
+	}
+}
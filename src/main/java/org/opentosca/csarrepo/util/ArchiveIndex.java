@@ -0,0 +1,66 @@
+package org.opentosca.csarrepo.util;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.opentosca.csarrepo.filesystem.ArchiveChannel;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+
+/**
+ * Index of the central directories of stored archives
+ *
+ * A stored archive never changes, so its directory is kept in memory for the
+ * most recently used <code>archiveIndexSize</code> archives. Listing an
+ * archive or finding one of its entries then needs no access to the storage.
+ * The index is lost on restart. On a miss the directory is read from the
+ * archive: from the manifest of an archive stored by its entries, otherwise
+ * from the end of the archive, which for an archive stored as delta means
+ * decoding it as a whole.
+ */
+public class ArchiveIndex {
+
+	private static final int DEFAULT_SIZE = 1000;
+
+	private static final Map<UUID, ZipDirectory> DIRECTORIES = Collections
+			.synchronizedMap(new LinkedHashMap<UUID, ZipDirectory>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<UUID, ZipDirectory> eldest) {
+					return size() > Integer.getInteger("archiveIndexSize", DEFAULT_SIZE);
+				}
+			});
+
+	/**
+	 * @param fileSystem
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 * @return the central directory of the archive
+	 * @throws IOException
+	 *             if the archive could not be read or is no zip archive
+	 */
+	public static ZipDirectory getDirectory(FileSystem fileSystem, UUID filename) throws IOException {
+		ZipDirectory directory = DIRECTORIES.get(filename);
+		if (null == directory) {
+			try (ArchiveChannel channel = fileSystem.getDirectoryChannel(filename)) {
+				directory = ZipDirectory.read(channel);
+			}
+			DIRECTORIES.put(filename, directory);
+		}
+		return directory;
+	}
+
+	/**
+	 * Removes the directory of the given archive, e.g. after it was deleted.
+	 *
+	 * @param filename
+	 *            the filename (= UUID) of the hashed file
+	 */
+	public static void invalidate(UUID filename) {
+		DIRECTORIES.remove(filename);
+	}
+}
@@ -0,0 +1,266 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.CircuitOpenException;
+
+/**
+ * Circuit breaker and bulkhead for the calls to one remote server
+ *
+ * After a number of consecutive failures the circuit opens and calls fail
+ * immediately instead of waiting for the timeouts of an unavailable server.
+ * Once the open time has passed, a single probe call is let through: if it
+ * succeeds the circuit closes again, otherwise it stays open. Independent of
+ * the state, only a limited number of calls may be in flight at the same time.
+ *
+ * Connection problems and server errors (5xx) count as failures. The breakers
+ * can be configured with the properties <code>circuitFailureThreshold</code>,
+ * <code>circuitOpenTime</code>, <code>remoteMaxConcurrentCalls</code> and
+ * <code>remoteBulkheadWait</code>.
+ */
+public class CircuitBreaker {
+
+	private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+	private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	private static final long DEFAULT_OPEN_TIME = 30000;
+	private static final int DEFAULT_MAX_CONCURRENT_CALLS = 20;
+	private static final long DEFAULT_BULKHEAD_WAIT = 2000;
+
+	private static final Map<String, CircuitBreaker> BREAKERS = new HashMap<String, CircuitBreaker>();
+
+	/**
+	 * State of a circuit
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openTime;
+	private final int maxConcurrentCalls;
+	private final long bulkheadWait;
+	private final Semaphore permits;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean probing;
+	private long calls;
+	private long failures;
+	private long rejectedCalls;
+	private String lastFailure;
+
+	CircuitBreaker(String name, int failureThreshold, long openTime, int maxConcurrentCalls, long bulkheadWait) {
+		this.name = name;
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openTime = openTime;
+		this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+		this.bulkheadWait = bulkheadWait;
+		this.permits = new Semaphore(this.maxConcurrentCalls, true);
+	}
+
+	/**
+	 * Returns the breaker of the server of the given address and creates it on
+	 * first access.
+	 *
+	 * @param address
+	 *            address of the remote server
+	 * @return the breaker
+	 */
+	public static CircuitBreaker forAddress(URL address) {
+		String key = RemoteClientRegistry.getKey(address);
+		synchronized (BREAKERS) {
+			CircuitBreaker breaker = BREAKERS.get(key);
+			if (null == breaker) {
+				breaker = new CircuitBreaker(key, Integer.getInteger("circuitFailureThreshold",
+						DEFAULT_FAILURE_THRESHOLD), Long.getLong("circuitOpenTime", DEFAULT_OPEN_TIME),
+						Integer.getInteger("remoteMaxConcurrentCalls", DEFAULT_MAX_CONCURRENT_CALLS), Long.getLong(
+								"remoteBulkheadWait", DEFAULT_BULKHEAD_WAIT));
+				BREAKERS.put(key, breaker);
+			}
+			return breaker;
+		}
+	}
+
+	/**
+	 * Returns the breaker of the server of the given address without creating
+	 * it.
+	 *
+	 * @param address
+	 *            address of the remote server
+	 * @return the breaker or <code>null</code>, if the server was never called
+	 */
+	public static CircuitBreaker find(URL address) {
+		synchronized (BREAKERS) {
+			return BREAKERS.get(RemoteClientRegistry.getKey(address));
+		}
+	}
+
+	/**
+	 * Invokes the given request through the breaker.
+	 *
+	 * @param invocation
+	 *            the prepared request
+	 * @return the response of the server
+	 * @throws CircuitOpenException
+	 *             if the call was rejected
+	 * @throws ProcessingException
+	 *             if the server was not reachable
+	 */
+	public Response invoke(Invocation invocation) {
+		acquire();
+		boolean success = false;
+		try {
+			Response response = invocation.invoke();
+			success = response.getStatus() < 500;
+			if (!success) {
+				recordFailure("Server returned " + response.getStatus());
+			}
+			return response;
+		} catch (ProcessingException e) {
+			recordFailure(null == e.getMessage() ? e.getClass().getSimpleName() : e.getMessage());
+			throw e;
+		} finally {
+			release(success);
+		}
+	}
+
+	/**
+	 * Reserves a call.
+	 *
+	 * @throws CircuitOpenException
+	 *             if the circuit is open or too many calls are in flight
+	 */
+	void acquire() {
+		synchronized (this) {
+			if (State.OPEN == state && System.currentTimeMillis() - openedAt >= openTime) {
+				LOGGER.info("Probing {}", name);
+				state = State.HALF_OPEN;
+				probing = false;
+			}
+			if (State.OPEN == state || (State.HALF_OPEN == state && probing)) {
+				rejectedCalls++;
+				throw new CircuitOpenException(String.format("%s is unavailable: %s", name, lastFailure));
+			}
+			if (State.HALF_OPEN == state) {
+				probing = true;
+			}
+		}
+
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(bulkheadWait, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		if (!acquired) {
+			synchronized (this) {
+				rejectedCalls++;
+				probing = false;
+			}
+			throw new CircuitOpenException(String.format("%s is busy: too many calls in flight", name));
+		}
+	}
+
+	/**
+	 * Finishes a call reserved with {@link #acquire()}.
+	 *
+	 * @param success
+	 *            <code>true</code> if the server answered the call
+	 */
+	void release(boolean success) {
+		permits.release();
+		synchronized (this) {
+			calls++;
+			if (success) {
+				if (State.CLOSED != state) {
+					LOGGER.info("Closing circuit of {}", name);
+				}
+				state = State.CLOSED;
+				consecutiveFailures = 0;
+			} else {
+				failures++;
+				consecutiveFailures++;
+				if (State.HALF_OPEN == state || consecutiveFailures >= failureThreshold) {
+					if (State.OPEN != state) {
+						LOGGER.warn("Opening circuit of {} after {} failures: {}", name, consecutiveFailures,
+								lastFailure);
+					}
+					state = State.OPEN;
+					openedAt = System.currentTimeMillis();
+				}
+			}
+			probing = false;
+		}
+	}
+
+	private synchronized void recordFailure(String message) {
+		lastFailure = message;
+	}
+
+	/**
+	 * @return the current state, an open circuit whose open time has passed is
+	 *         reported as half open
+	 */
+	public synchronized State getState() {
+		if (State.OPEN == state && System.currentTimeMillis() - openedAt >= openTime) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * @return <code>true</code> unless the circuit is open
+	 */
+	public boolean isAvailable() {
+		return State.OPEN != getState();
+	}
+
+	/**
+	 * @return the number of finished calls
+	 */
+	public synchronized long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the number of failed calls
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the number of calls rejected without contacting the server
+	 */
+	public synchronized long getRejectedCalls() {
+		return rejectedCalls;
+	}
+
+	/**
+	 * @return the number of calls in flight
+	 */
+	public int getActiveCalls() {
+		return Math.max(0, maxConcurrentCalls - permits.availablePermits());
+	}
+
+	/**
+	 * @return the message of the last failure or <code>null</code>
+	 */
+	public synchronized String getLastFailure() {
+		return lastFailure;
+	}
+}
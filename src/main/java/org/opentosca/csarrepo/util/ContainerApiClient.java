@@ -6,26 +6,26 @@ package org.opentosca.csarrepo.util;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
-import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.opentosca.csarrepo.exception.DeploymentException;
 import org.opentosca.csarrepo.model.OpenToscaServer;
 import org.opentosca.csarrepo.util.jaxb.DeployedCsars;
@@ -46,20 +46,28 @@ public class ContainerApiClient {
 
 	private WebTarget baseWebTarget;
 	private Client client;
+	private CircuitBreaker circuitBreaker;
 
 	private static final Logger LOGGER = LogManager.getLogger(ContainerApiClient.class);
 
+	private static final int DEFAULT_CONCURRENCY = 8;
+	private static final long DEFAULT_INSTANCE_TIMEOUT = 10000;
+	private static final int SERVICE_INSTANCE_CACHE_SIZE = 5000;
+	private static final EtagCache<ServiceInstanceEntry> SERVICE_INSTANCE_CACHE = new EtagCache<ServiceInstanceEntry>(
+			SERVICE_INSTANCE_CACHE_SIZE);
+
 	/**
 	 * Creates a ContainerApiClient which connects to the given URI
 	 * 
+	 * The underlying HTTP client and the {@link CircuitBreaker} are shared by
+	 * all clients of the same server.
+	 * 
 	 * @param address
 	 * @throws URISyntaxException
 	 */
 	public ContainerApiClient(OpenToscaServer openToscaServer) throws URISyntaxException {
-		ClientConfig clientConfig = new ClientConfig();
-		clientConfig.register(MultiPartFeature.class);
-		clientConfig.property(ClientProperties.CHUNKED_ENCODING_SIZE, 1024);
-		this.client = ClientBuilder.newClient(clientConfig);
+		this.client = RemoteClientRegistry.getClient(openToscaServer.getAddress());
+		this.circuitBreaker = CircuitBreaker.forAddress(openToscaServer.getAddress());
 		// TODO: check if it possible to store address as URI instead of URL
 		baseWebTarget = client.target(openToscaServer.getAddress().toURI());
 	}
@@ -94,14 +102,19 @@ public class ContainerApiClient {
 			// submit the request
 			WebTarget path = baseWebTarget.path("CSARs");
 			Builder request = path.request();
-			Response response = request.post(entity);
+			Response response = circuitBreaker.invoke(request.buildPost(entity));
 
 			// handle response
-			if (Status.CREATED.getStatusCode() == response.getStatus()) {
-				return response.getHeaderString("location");
-			} else {
-				LOGGER.warn("Failed to deploy: " + file.getAbsolutePath() + " to " + path);
-				throw new DeploymentException("Deployment failed - OpenTOSCA Server returned " + response.getStatus());
+			try {
+				if (Status.CREATED.getStatusCode() == response.getStatus()) {
+					return response.getHeaderString("location");
+				} else {
+					LOGGER.warn("Failed to deploy: " + file.getAbsolutePath() + " to " + path);
+					throw new DeploymentException("Deployment failed - OpenTOSCA Server returned "
+							+ response.getStatus());
+				}
+			} finally {
+				response.close();
 			}
 		} catch (ProcessingException e) {
 			LOGGER.warn("Failed to upload CSAR: Server - server was not reachable", e);
@@ -121,7 +134,8 @@ public class ContainerApiClient {
 		try {
 			WebTarget deleteTarget = client.target(location);
 			Builder request = deleteTarget.request();
-			Response response = request.delete();
+			Response response = circuitBreaker.invoke(request.buildDelete());
+			response.close();
 			if (Status.OK.getStatusCode() == response.getStatus()) {
 				return;
 			} else {
@@ -139,28 +153,60 @@ public class ContainerApiClient {
 	 * Submits a GET on the instancedata/serviceInstances Path of the given
 	 * openToscaServer
 	 * 
-	 * @param openToscaServer
-	 * @return
+	 * Instances which could not be retrieved are logged and skipped, see
+	 * {@link #fetchServiceInstances()} to get them as well.
+	 * 
+	 * @return the service instances
 	 * @throws DeploymentException
 	 * 
 	 */
+	public List<ServiceInstanceEntry> getServiceInstances() throws DeploymentException {
+		FanOut.Result<String, ServiceInstanceEntry> result = fetchServiceInstances();
+		for (Map.Entry<String, String> failure : result.getFailures().entrySet()) {
+			LOGGER.warn("Failed to get service instance {}: {}", failure.getKey(), failure.getValue());
+		}
+		return new ArrayList<ServiceInstanceEntry>(result.getResults().values());
+	}
 
+	/**
+	 * Gets the list of service instances and fetches the single instances in
+	 * parallel
+	 * 
+	 * The number of parallel requests and the timeout of a single request can
+	 * be configured with the properties <code>serviceInstanceConcurrency</code>
+	 * and <code>serviceInstanceTimeout</code>. Unchanged instances are
+	 * revalidated with their entity tag instead of being transferred again.
+	 * 
+	 * @return the instances by their link and the instances which could not be
+	 *         retrieved
+	 * @throws DeploymentException
+	 *             if the list of instances could not be retrieved
+	 */
 	// TODO: maybe we can extend the containerAPI to supply all needed
 	// attributes inside the serviceInstances resource directly
-	public List<ServiceInstanceEntry> getServiceInstances() throws DeploymentException {
+	public FanOut.Result<String, ServiceInstanceEntry> fetchServiceInstances() throws DeploymentException {
 		try {
 			WebTarget path = baseWebTarget.path("instancedata/serviceInstances");
 			Builder request = path.request().accept(MediaType.APPLICATION_XML_TYPE);
-			ServiceInstanceList serviceInstanceList = request.get().readEntity(ServiceInstanceList.class);
-
-			List<ServiceInstanceEntry> results = new ArrayList<ServiceInstanceEntry>();
-			for (SimpleXLink link : serviceInstanceList.getLinks()) {
-				WebTarget target = client.target(link.getHref());
-				ServiceInstanceEntry serviceInstanceEntry = target.request().accept(MediaType.APPLICATION_XML_TYPE)
-						.get(ServiceInstanceEntry.class);
-				results.add(serviceInstanceEntry);
+			ServiceInstanceList serviceInstanceList = circuitBreaker.invoke(request.buildGet()).readEntity(
+					ServiceInstanceList.class);
+
+			Map<String, Callable<ServiceInstanceEntry>> calls = new LinkedHashMap<String, Callable<ServiceInstanceEntry>>();
+			if (null != serviceInstanceList.getLinks()) {
+				for (SimpleXLink link : serviceInstanceList.getLinks()) {
+					final String href = link.getHref();
+					calls.put(href, new Callable<ServiceInstanceEntry>() {
+
+						@Override
+						public ServiceInstanceEntry call() throws Exception {
+							return getServiceInstance(href);
+						}
+					});
+				}
 			}
-			return results;
+
+			return FanOut.invokeAll(calls, Integer.getInteger("serviceInstanceConcurrency", DEFAULT_CONCURRENCY),
+					Long.getLong("serviceInstanceTimeout", DEFAULT_INSTANCE_TIMEOUT));
 		} catch (ProcessingException e) {
 			LOGGER.warn("Failed to get running InstancesLiveList - Server was not reachable.", e);
 			throw new DeploymentException(
@@ -168,6 +214,44 @@ public class ContainerApiClient {
 		}
 	}
 
+	/**
+	 * Gets a single service instance with a conditional GET
+	 * 
+	 * @param href
+	 *            link of the service instance
+	 * @return the service instance
+	 * @throws DeploymentException
+	 *             if the server did not return the instance
+	 */
+	private ServiceInstanceEntry getServiceInstance(String href) throws DeploymentException {
+		EtagCache.Entry<ServiceInstanceEntry> cached = SERVICE_INSTANCE_CACHE.get(href);
+		Builder request = client.target(href).request().accept(MediaType.APPLICATION_XML_TYPE);
+		if (null != cached) {
+			request.header(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+		}
+
+		Response response = circuitBreaker.invoke(request.buildGet());
+		try {
+			if (null != cached && Status.NOT_MODIFIED.getStatusCode() == response.getStatus()) {
+				LOGGER.debug("Service instance {} not modified", href);
+				return cached.getValue();
+			}
+			if (Status.OK.getStatusCode() != response.getStatus()) {
+				SERVICE_INSTANCE_CACHE.remove(href);
+				throw new DeploymentException("OpenTOSCA Server returned " + response.getStatus());
+			}
+
+			ServiceInstanceEntry serviceInstanceEntry = response.readEntity(ServiceInstanceEntry.class);
+			String etag = response.getHeaderString(HttpHeaders.ETAG);
+			if (null != etag) {
+				SERVICE_INSTANCE_CACHE.put(href, etag, serviceInstanceEntry);
+			}
+			return serviceInstanceEntry;
+		} finally {
+			response.close();
+		}
+	}
+
 	/**
 	 * Gets all deployed CSARs
 	 * 
@@ -178,7 +262,7 @@ public class ContainerApiClient {
 		try {
 			WebTarget path = baseWebTarget.path("CSARs");
 			Builder request = path.request();
-			DeployedCsars deployedCsars = request.get().readEntity(DeployedCsars.class);
+			DeployedCsars deployedCsars = circuitBreaker.invoke(request.buildGet()).readEntity(DeployedCsars.class);
 
 			List<SimpleXLink> results = new ArrayList<SimpleXLink>();
 			for (SimpleXLink link : deployedCsars.getLinks()) {
@@ -205,13 +289,14 @@ public class ContainerApiClient {
 		try {
 			WebTarget path = baseWebTarget.path(String.format("CSARs/%s/Content/CSAR-REPOSITORY.txt", csarFileName));
 			Builder request = path.request().accept(MediaType.APPLICATION_OCTET_STREAM_TYPE);
-			Response response = request.get();
+			Response response = circuitBreaker.invoke(request.buildGet());
 			if (200 == response.getStatus()) {
 				String data = response.readEntity(String.class);
 				Long csarFileId = Long.valueOf(data);
 				LOGGER.debug("CSAR file id for {} found: {}", csarFileName, csarFileId);
 				return csarFileId;
 			} else {
+				response.close();
 				LOGGER.debug("CSAR file id for {} not found: Status code was not 200.", csarFileName);
 			}
 		} catch (ProcessingException e) {
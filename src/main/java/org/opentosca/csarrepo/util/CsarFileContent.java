@@ -0,0 +1,58 @@
+package org.opentosca.csarrepo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import org.opentosca.csarrepo.filesystem.ArchiveChannel;
+import org.opentosca.csarrepo.filesystem.FileSystem;
+
+/**
+ * Wrapper object for BrowseCsarFileService, gives access to the entries of
+ * the stored archive of a CSAR file
+ */
+public class CsarFileContent {
+
+	private final FileSystem fileSystem;
+	private final UUID filename;
+	private final String hash;
+	private final ZipDirectory directory;
+
+	public CsarFileContent(FileSystem fileSystem, UUID filename, String hash, ZipDirectory directory) {
+		this.fileSystem = fileSystem;
+		this.filename = filename;
+		this.hash = hash;
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the hash of the stored archive, which identifies its content
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	public ZipDirectory getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Opens a single entry, only the entry is read from the storage.
+	 *
+	 * @param entry
+	 *            an entry of the directory
+	 * @return the content of the entry, has to be closed
+	 * @throws IOException
+	 *             if the archive could not be read or the entry is not
+	 *             readable
+	 */
+	public InputStream open(ZipDirectory.Entry entry) throws IOException {
+		ArchiveChannel channel = fileSystem.getChannel(filename);
+		try {
+			return ZipDirectory.open(channel, entry);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.DeploymentException;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.join.CsarFileOpenToscaServer;
+
+/**
+ * Resolves the names of CSARs deployed on an OpenTOSCA container to the ids of
+ * the matching CSAR files
+ *
+ * CSARs deployed by the repository are resolved from their
+ * {@link CsarFileOpenToscaServer} mappings without any remote call. Only for
+ * other CSARs the <code>CSAR-REPOSITORY.txt</code> is read from the container;
+ * these results are cached per server and CSAR name, names without such a file
+ * for a shorter time.
+ *
+ * The cache times can be configured with the properties
+ * <code>csarFileIdTtl</code> and <code>csarFileIdNegativeTtl</code>, the
+ * parallel lookups with <code>csarFileIdConcurrency</code> and
+ * <code>csarFileIdTimeout</code>.
+ */
+public class CsarFileIdResolver {
+
+	private static final Logger LOGGER = LogManager.getLogger(CsarFileIdResolver.class);
+
+	private static final long DEFAULT_TTL = 3600000;
+	private static final long DEFAULT_NEGATIVE_TTL = 300000;
+	private static final int DEFAULT_CONCURRENCY = 8;
+	private static final long DEFAULT_TIMEOUT = 10000;
+
+	private static final Map<String, CachedId> REMOTE_IDS = new ConcurrentHashMap<String, CachedId>();
+
+	/**
+	 * Resolves a single CSAR name.
+	 *
+	 * @param openToscaServer
+	 *            the server the CSAR is deployed on
+	 * @param csarName
+	 *            the name of the CSAR inside the container
+	 * @return the id of the CSAR file or <code>null</code>, if it is unknown
+	 * @throws DeploymentException
+	 * @throws URISyntaxException
+	 */
+	public static Long resolve(OpenToscaServer openToscaServer, String csarName) throws DeploymentException,
+			URISyntaxException {
+		Long csarFileId = getDeployedIds(openToscaServer).get(csarName);
+		if (null != csarFileId) {
+			return csarFileId;
+		}
+
+		CachedId cachedId = REMOTE_IDS.get(getKey(openToscaServer, csarName));
+		if (null != cachedId && !cachedId.isExpired()) {
+			return cachedId.csarFileId;
+		}
+
+		return lookup(openToscaServer, csarName);
+	}
+
+	/**
+	 * Resolves all given CSAR names. Names which are neither mapped nor cached
+	 * are looked up in parallel.
+	 *
+	 * @param openToscaServer
+	 *            the server the CSARs are deployed on
+	 * @param csarNames
+	 *            the names of the CSARs inside the container
+	 * @return the ids of the CSAR files by CSAR name, <code>null</code> for
+	 *         unknown CSARs
+	 */
+	public static Map<String, Long> resolveAll(final OpenToscaServer openToscaServer, List<String> csarNames) {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		Map<String, Long> deployedIds = getDeployedIds(openToscaServer);
+		Map<String, Callable<Long>> lookups = new LinkedHashMap<String, Callable<Long>>();
+
+		for (final String csarName : csarNames) {
+			result.put(csarName, null);
+			if (deployedIds.containsKey(csarName)) {
+				result.put(csarName, deployedIds.get(csarName));
+				continue;
+			}
+			CachedId cachedId = REMOTE_IDS.get(getKey(openToscaServer, csarName));
+			if (null != cachedId && !cachedId.isExpired()) {
+				result.put(csarName, cachedId.csarFileId);
+				continue;
+			}
+			lookups.put(csarName, new Callable<Long>() {
+
+				@Override
+				public Long call() throws Exception {
+					return lookup(openToscaServer, csarName);
+				}
+			});
+		}
+
+		if (!lookups.isEmpty()) {
+			LOGGER.debug("Looking up {} of {} CSAR file ids on {}", lookups.size(), csarNames.size(),
+					openToscaServer.getAddress());
+			FanOut.Result<String, Long> lookedUp = FanOut.invokeAll(lookups,
+					Integer.getInteger("csarFileIdConcurrency", DEFAULT_CONCURRENCY),
+					Long.getLong("csarFileIdTimeout", DEFAULT_TIMEOUT));
+			result.putAll(lookedUp.getResults());
+			for (Map.Entry<String, String> failure : lookedUp.getFailures().entrySet()) {
+				LOGGER.warn("Failed to get CSAR file id for {}: {}", failure.getKey(), failure.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the cached id of the given CSAR, e.g. after it was deployed or
+	 * undeployed.
+	 *
+	 * @param openToscaServer
+	 *            the server the CSAR is deployed on
+	 * @param csarName
+	 *            the name of the CSAR inside the container
+	 */
+	public static void invalidate(OpenToscaServer openToscaServer, String csarName) {
+		REMOTE_IDS.remove(getKey(openToscaServer, csarName));
+	}
+
+	private static Long lookup(OpenToscaServer openToscaServer, String csarName) throws DeploymentException,
+			URISyntaxException {
+		ContainerApiClient client = new ContainerApiClient(openToscaServer);
+		Long csarFileId = client.getRepositoryCsarFileId(csarName);
+		long ttl = null == csarFileId ? Long.getLong("csarFileIdNegativeTtl", DEFAULT_NEGATIVE_TTL) : Long.getLong(
+				"csarFileIdTtl", DEFAULT_TTL);
+		REMOTE_IDS.put(getKey(openToscaServer, csarName), new CachedId(csarFileId, ttl));
+		return csarFileId;
+	}
+
+	private static Map<String, Long> getDeployedIds(OpenToscaServer openToscaServer) {
+		Map<String, Long> deployedIds = new LinkedHashMap<String, Long>();
+		if (null == openToscaServer.getCsarFileOpenToscaServer()) {
+			return deployedIds;
+		}
+		for (CsarFileOpenToscaServer mapping : openToscaServer.getCsarFileOpenToscaServer()) {
+			if (null != mapping.getCsarFile() && null != mapping.getCsarName()) {
+				// a reused deployment is mapped to several CSAR files, prefer
+				// the oldest one which uploaded it
+				Long csarFileId = deployedIds.get(mapping.getCsarName());
+				if (null == csarFileId || mapping.getCsarFile().getId() < csarFileId) {
+					deployedIds.put(mapping.getCsarName(), mapping.getCsarFile().getId());
+				}
+			}
+		}
+		return deployedIds;
+	}
+
+	private static String getKey(OpenToscaServer openToscaServer, String csarName) {
+		return openToscaServer.getAddress().toExternalForm() + "|" + csarName;
+	}
+
+	private static class CachedId {
+
+		private final Long csarFileId;
+		private final long expires;
+
+		CachedId(Long csarFileId, long ttl) {
+			this.csarFileId = csarFileId;
+			this.expires = System.currentTimeMillis() + ttl;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() > expires;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of repacking the archives of old versions as deltas
+ */
+public class DeltaRepackResult {
+
+	private final Date started;
+	private final Date finished;
+	private final long encoded;
+	private final long inflated;
+	private final long savedBytes;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param encoded
+	 *            number of archives stored as delta
+	 * @param inflated
+	 *            number of deltas stored as a whole again
+	 * @param savedBytes
+	 *            bytes saved by the new deltas minus the bytes used by the
+	 *            inflated ones
+	 * @param errors
+	 */
+	public DeltaRepackResult(Date started, long encoded, long inflated, long savedBytes, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.encoded = encoded;
+		this.inflated = inflated;
+		this.savedBytes = savedBytes;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public long getEncoded() {
+		return encoded;
+	}
+
+	public long getInflated() {
+		return inflated;
+	}
+
+	public long getSavedBytes() {
+		return savedBytes;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
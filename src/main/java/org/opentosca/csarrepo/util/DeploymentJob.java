@@ -0,0 +1,301 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+
+/**
+ * Progress of the deployment of a CSAR file to several OpenTOSCA servers
+ *
+ * Jobs are kept in memory. Only the most recent jobs are retained, the number
+ * can be configured with the property <code>deploymentJobRetention</code>.
+ */
+public class DeploymentJob {
+
+	private static final int DEFAULT_RETENTION = 100;
+
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+	private static final Map<Long, DeploymentJob> JOBS = new LinkedHashMap<Long, DeploymentJob>() {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, DeploymentJob> eldest) {
+			return size() > Integer.getInteger("deploymentJobRetention", DEFAULT_RETENTION);
+		}
+	};
+
+	/**
+	 * State of a single target
+	 */
+	public enum Status {
+		PENDING, UPLOADING, DEPLOYED, REUSED, FAILED
+	}
+
+	private final long id;
+	private final long csarFileId;
+	private final String csarFileName;
+	private final Date created = new Date();
+	private final Map<Long, Target> targets = new LinkedHashMap<Long, Target>();
+
+	private DeploymentJob(long id, CsarFile csarFile, List<OpenToscaServer> openToscaServers) {
+		this.id = id;
+		this.csarFileId = csarFile.getId();
+		this.csarFileName = csarFile.getName();
+		for (OpenToscaServer openToscaServer : openToscaServers) {
+			targets.put(openToscaServer.getId(), new Target(openToscaServer));
+		}
+	}
+
+	/**
+	 * Creates and registers a job with all targets pending.
+	 *
+	 * @param csarFile
+	 *            the CSAR file to deploy
+	 * @param openToscaServers
+	 *            the target servers
+	 * @return the job
+	 */
+	public static DeploymentJob create(CsarFile csarFile, List<OpenToscaServer> openToscaServers) {
+		DeploymentJob job = new DeploymentJob(SEQUENCE.incrementAndGet(), csarFile, openToscaServers);
+		synchronized (JOBS) {
+			JOBS.put(job.getId(), job);
+		}
+		return job;
+	}
+
+	/**
+	 * @param id
+	 * @return the job or <code>null</code>, if it is unknown or was dropped
+	 */
+	public static DeploymentJob get(long id) {
+		synchronized (JOBS) {
+			return JOBS.get(id);
+		}
+	}
+
+	/**
+	 * @param csarFileId
+	 * @return the retained jobs of the given CSAR file, newest first
+	 */
+	public static List<DeploymentJob> getByCsarFile(long csarFileId) {
+		List<DeploymentJob> result = new ArrayList<DeploymentJob>();
+		synchronized (JOBS) {
+			for (DeploymentJob job : JOBS.values()) {
+				if (csarFileId == job.getCsarFileId()) {
+					result.add(0, job);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Marks the upload to the given server as started, unless it has already
+	 * finished.
+	 *
+	 * @param openToscaServerId
+	 */
+	public synchronized void start(long openToscaServerId) {
+		Target target = targets.get(openToscaServerId);
+		if (target.isFinished()) {
+			return;
+		}
+		target.status = Status.UPLOADING;
+		target.started = new Date();
+	}
+
+	/**
+	 * Marks the deployment to the given server as successful. If it has
+	 * already finished, e.g. failed by the timeout, the outcome stays and the
+	 * late deployment is recorded as warning, since the CSAR is deployed on
+	 * the server nonetheless.
+	 *
+	 * @param openToscaServerId
+	 * @param location
+	 *            the location of the CSAR inside the container
+	 */
+	public synchronized void succeed(long openToscaServerId, String location) {
+		Target target = targets.get(openToscaServerId);
+		if (target.isFinished() && Status.DEPLOYED != target.status) {
+			target.warning = "Deployed at " + location + " after the deployment was given up";
+			return;
+		}
+		finish(openToscaServerId, Status.DEPLOYED, location);
+	}
+
+	/**
+	 * Marks the given server as done without an upload, because the content
+	 * was already deployed there, unless it has already finished.
+	 *
+	 * @param openToscaServerId
+	 * @param location
+	 *            the location of the reused CSAR inside the container
+	 */
+	public synchronized void reuse(long openToscaServerId, String location) {
+		finish(openToscaServerId, Status.REUSED, location);
+	}
+
+	/**
+	 * Marks the deployment to the given server as failed, unless it has
+	 * already finished.
+	 *
+	 * @param openToscaServerId
+	 * @param message
+	 *            the reason
+	 */
+	public synchronized void fail(long openToscaServerId, String message) {
+		finish(openToscaServerId, Status.FAILED, message);
+	}
+
+	private void finish(long openToscaServerId, Status status, String message) {
+		Target target = targets.get(openToscaServerId);
+		if (target.isFinished()) {
+			// the first outcome stays, e.g. a timeout is not overwritten by
+			// an upload finishing late
+			return;
+		}
+		target.status = status;
+		target.message = message;
+		target.finished = new Date();
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getCsarFileId() {
+		return csarFileId;
+	}
+
+	public String getCsarFileName() {
+		return csarFileName;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	/**
+	 * @return copies of the targets in the order they were given
+	 */
+	public synchronized List<Target> getTargets() {
+		List<Target> result = new ArrayList<Target>();
+		for (Target target : targets.values()) {
+			result.add(new Target(target));
+		}
+		return result;
+	}
+
+	/**
+	 * @param status
+	 * @return the number of targets with the given status
+	 */
+	public synchronized int count(Status status) {
+		int count = 0;
+		for (Target target : targets.values()) {
+			if (status == target.status) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return <code>true</code> if all targets are deployed, reused or failed
+	 */
+	public synchronized boolean isFinished() {
+		for (Target target : targets.values()) {
+			if (!target.isFinished()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Deployment of the job to a single server
+	 */
+	public static class Target {
+
+		private final long openToscaServerId;
+		private final String name;
+		private final String address;
+		private Status status = Status.PENDING;
+		private String message;
+		private String warning;
+		private Date started;
+		private Date finished;
+
+		Target(OpenToscaServer openToscaServer) {
+			this.openToscaServerId = openToscaServer.getId();
+			this.name = openToscaServer.getName();
+			this.address = openToscaServer.getAddress().toExternalForm();
+		}
+
+		Target(Target target) {
+			this.openToscaServerId = target.openToscaServerId;
+			this.name = target.name;
+			this.address = target.address;
+			this.status = target.status;
+			this.message = target.message;
+			this.warning = target.warning;
+			this.started = target.started;
+			this.finished = target.finished;
+		}
+
+		public long getOpenToscaServerId() {
+			return openToscaServerId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the location of the deployed CSAR or the reason of the
+		 *         failure
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return what happened after the target finished, e.g. an upload
+		 *         which succeeded after the timeout, or <code>null</code>
+		 */
+		public String getWarning() {
+			return warning;
+		}
+
+		public Date getStarted() {
+			return started;
+		}
+
+		public Date getFinished() {
+			return finished;
+		}
+
+		/**
+		 * @return <code>true</code> if the target is deployed, reused or
+		 *         failed
+		 */
+		public boolean isFinished() {
+			return Status.DEPLOYED == status || Status.REUSED == status || Status.FAILED == status;
+		}
+	}
+}
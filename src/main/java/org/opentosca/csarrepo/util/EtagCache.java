@@ -0,0 +1,87 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of remote resources and their entity tags
+ *
+ * Used for conditional GET requests: the cached entity tag is sent with
+ * <code>If-None-Match</code>, and on <code>304 Not Modified</code> the cached
+ * value is reused instead of transferring and parsing the resource again. The
+ * least recently used entries are evicted first.
+ *
+ * @param <V>
+ *            type of the cached resources
+ */
+public class EtagCache<V> {
+
+	private final Map<String, Entry<V>> entries;
+
+	/**
+	 * @param maxEntries
+	 *            maximum number of cached resources
+	 */
+	public EtagCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param url
+	 *            the url of the resource
+	 * @return the cached entry or <code>null</code>
+	 */
+	public synchronized Entry<V> get(String url) {
+		return entries.get(url);
+	}
+
+	/**
+	 * @param url
+	 *            the url of the resource
+	 * @param etag
+	 *            the entity tag returned by the server
+	 * @param value
+	 *            the parsed resource
+	 */
+	public synchronized void put(String url, String etag, V value) {
+		entries.put(url, new Entry<V>(etag, value));
+	}
+
+	/**
+	 * @param url
+	 *            the url of the resource
+	 */
+	public synchronized void remove(String url) {
+		entries.remove(url);
+	}
+
+	/**
+	 * Cached resource with its entity tag
+	 */
+	public static class Entry<V> {
+
+		private final String etag;
+		private final V value;
+
+		Entry(String etag, V value) {
+			this.etag = etag;
+			this.value = value;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public V getValue() {
+			return value;
+		}
+	}
+}
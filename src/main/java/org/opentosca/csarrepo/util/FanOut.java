@@ -0,0 +1,205 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs a set of remote calls in parallel with a bounded number of calls in
+ * flight
+ *
+ * Every call has its own timeout. Calls which fail or time out are reported
+ * in the result next to the successful ones, so callers can show partial
+ * results.
+ */
+public class FanOut {
+
+	private static final Logger LOGGER = LogManager.getLogger(FanOut.class);
+
+	/**
+	 * Runs the given calls on the fan-out executor of {@link RemoteIoExecutor}.
+	 *
+	 * @param calls
+	 *            the calls to run, identified by their key
+	 * @param concurrency
+	 *            maximum number of calls in flight
+	 * @param timeout
+	 *            timeout of a single call in milliseconds
+	 * @return the results and failures by key
+	 */
+	public static <K, T> Result<K, T> invokeAll(Map<K, ? extends Callable<T>> calls, int concurrency, long timeout) {
+		return invokeAll(RemoteIoExecutor.getFanOutExecutor(), calls, concurrency, timeout);
+	}
+
+	/**
+	 * Runs the given calls on the given executor.
+	 *
+	 * @param executor
+	 *            the executor to run the calls on
+	 * @param calls
+	 *            the calls to run, identified by their key
+	 * @param concurrency
+	 *            maximum number of calls in flight
+	 * @param timeout
+	 *            timeout of a single call in milliseconds
+	 * @return the results and failures by key
+	 */
+	public static <K, T> Result<K, T> invokeAll(ExecutorService executor, Map<K, ? extends Callable<T>> calls,
+			int concurrency, long timeout) {
+		Result<K, T> result = new Result<K, T>(calls.keySet());
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+		Iterator<? extends Map.Entry<K, ? extends Callable<T>>> pending = calls.entrySet().iterator();
+		Map<Future<T>, K> inFlight = new HashMap<Future<T>, K>();
+		Map<Future<T>, Long> deadlines = new HashMap<Future<T>, Long>();
+		int limit = Math.max(1, concurrency);
+
+		try {
+			while (true) {
+				while (inFlight.size() < limit && pending.hasNext()) {
+					Map.Entry<K, ? extends Callable<T>> call = pending.next();
+					Future<T> future = completionService.submit(call.getValue());
+					inFlight.put(future, call.getKey());
+					deadlines.put(future, System.currentTimeMillis() + timeout);
+				}
+				if (inFlight.isEmpty()) {
+					break;
+				}
+
+				long wait = Math.max(0, Collections.min(deadlines.values()) - System.currentTimeMillis());
+				Future<T> done = completionService.poll(wait, TimeUnit.MILLISECONDS);
+				if (null != done) {
+					// futures cancelled after a timeout are queued as well
+					K key = inFlight.remove(done);
+					deadlines.remove(done);
+					if (null != key) {
+						collect(result, key, done);
+					}
+				} else {
+					expire(result, inFlight, deadlines, timeout);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (Map.Entry<Future<T>, K> call : inFlight.entrySet()) {
+				call.getKey().cancel(true);
+				result.fail(call.getValue(), "Interrupted");
+			}
+			while (pending.hasNext()) {
+				result.fail(pending.next().getKey(), "Interrupted");
+			}
+		}
+		return result;
+	}
+
+	private static <K, T> void collect(Result<K, T> result, K key, Future<T> done) throws InterruptedException {
+		try {
+			result.succeed(key, done.get());
+		} catch (ExecutionException e) {
+			Throwable cause = null == e.getCause() ? e : e.getCause();
+			LOGGER.debug("Call " + key + " failed", cause);
+			result.fail(key, null == cause.getMessage() ? cause.getClass().getSimpleName() : cause.getMessage());
+		}
+	}
+
+	private static <K, T> void expire(Result<K, T> result, Map<Future<T>, K> inFlight, Map<Future<T>, Long> deadlines,
+			long timeout) {
+		long now = System.currentTimeMillis();
+		List<Future<T>> expired = new ArrayList<Future<T>>();
+		for (Map.Entry<Future<T>, Long> deadline : deadlines.entrySet()) {
+			if (deadline.getValue() <= now) {
+				expired.add(deadline.getKey());
+			}
+		}
+		for (Future<T> future : expired) {
+			future.cancel(true);
+			K key = inFlight.remove(future);
+			deadlines.remove(future);
+			LOGGER.debug("Call {} timed out after {} ms", key, timeout);
+			result.fail(key, String.format("Timed out after %d ms", timeout));
+		}
+	}
+
+	/**
+	 * Results and failures of a fan-out, in the order of the calls
+	 *
+	 * @param <K>
+	 *            type of the keys identifying the calls
+	 * @param <T>
+	 *            type of the results
+	 */
+	public static class Result<K, T> {
+
+		private final List<K> keys;
+		private final Map<K, T> results = new HashMap<K, T>();
+		private final Map<K, String> failures = new HashMap<K, String>();
+
+		Result(Iterable<K> keys) {
+			this.keys = new ArrayList<K>();
+			for (K key : keys) {
+				this.keys.add(key);
+			}
+		}
+
+		synchronized void succeed(K key, T value) {
+			results.put(key, value);
+		}
+
+		synchronized void fail(K key, String message) {
+			failures.put(key, message);
+		}
+
+		/**
+		 * @return the results of the successful calls
+		 */
+		public synchronized Map<K, T> getResults() {
+			Map<K, T> ordered = new LinkedHashMap<K, T>();
+			for (K key : keys) {
+				if (results.containsKey(key)) {
+					ordered.put(key, results.get(key));
+				}
+			}
+			return ordered;
+		}
+
+		/**
+		 * @return the error messages of the failed calls
+		 */
+		public synchronized Map<K, String> getFailures() {
+			Map<K, String> ordered = new LinkedHashMap<K, String>();
+			for (K key : keys) {
+				if (failures.containsKey(key)) {
+					ordered.put(key, failures.get(key));
+				}
+			}
+			return ordered;
+		}
+
+		/**
+		 * @return <code>true</code> if all calls succeeded
+		 */
+		public synchronized boolean isComplete() {
+			return failures.isEmpty() && results.size() == keys.size();
+		}
+
+		/**
+		 * @return the number of calls
+		 */
+		public int getTotal() {
+			return keys.size();
+		}
+	}
+}
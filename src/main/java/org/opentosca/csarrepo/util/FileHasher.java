@@ -0,0 +1,262 @@
+package org.opentosca.csarrepo.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Computes several digests of a file while reading it once
+ *
+ * Files are read through a channel in chunks of <code>hashBufferSize</code>
+ * bytes. Files of at least <code>hashParallelThreshold</code> bytes are read
+ * double buffered: the next chunk is read while the digests of the current
+ * chunk are computed, every algorithm on its own thread.
+ */
+public class FileHasher {
+
+	private static final int DEFAULT_BUFFER_SIZE = 1048576;
+	private static final long DEFAULT_PARALLEL_THRESHOLD = 67108864L;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static ExecutorService executor;
+
+	/**
+	 * Supported digest algorithms
+	 */
+	public enum Algorithm {
+		SHA256("SHA-256"), MD5("MD5"), CRC32(null);
+
+		private final String messageDigest;
+
+		private Algorithm(String messageDigest) {
+			this.messageDigest = messageDigest;
+		}
+
+		Updater newUpdater() throws NoSuchAlgorithmException {
+			if (null == messageDigest) {
+				return new Crc32Updater();
+			}
+			return new MessageDigestUpdater(MessageDigest.getInstance(messageDigest));
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the file to hash
+	 * @param algorithms
+	 *            the digests to compute
+	 * @return the digests of the file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static Digests hash(File file, Algorithm... algorithms) throws IOException {
+		Map<Algorithm, Updater> updaters = new EnumMap<Algorithm, Updater>(Algorithm.class);
+		try {
+			for (Algorithm algorithm : algorithms) {
+				updaters.put(algorithm, algorithm.newUpdater());
+			}
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		int bufferSize = Integer.getInteger("hashBufferSize", DEFAULT_BUFFER_SIZE);
+		try (FileInputStream inputStream = new FileInputStream(file)) {
+			FileChannel channel = inputStream.getChannel();
+			if (channel.size() >= Long.getLong("hashParallelThreshold", DEFAULT_PARALLEL_THRESHOLD)) {
+				hashParallel(channel, bufferSize, updaters.values());
+			} else {
+				byte[] buffer = new byte[bufferSize];
+				int read;
+				while (0 < (read = fill(channel, buffer))) {
+					for (Updater updater : updaters.values()) {
+						updater.update(buffer, read);
+					}
+				}
+			}
+		}
+
+		Map<Algorithm, byte[]> digests = new EnumMap<Algorithm, byte[]>(Algorithm.class);
+		for (Map.Entry<Algorithm, Updater> updater : updaters.entrySet()) {
+			digests.put(updater.getKey(), updater.getValue().digest());
+		}
+		return new Digests(digests);
+	}
+
+	private static void hashParallel(FileChannel channel, int bufferSize, Iterable<Updater> updaters)
+			throws IOException {
+		byte[][] buffers = new byte[][] { new byte[bufferSize], new byte[bufferSize] };
+		int current = 0;
+		List<Future<Void>> pending = Collections.emptyList();
+		try {
+			while (true) {
+				final byte[] buffer = buffers[current];
+				final int read = fill(channel, buffer);
+				// the other buffer may only be reused once it was hashed
+				for (Future<Void> future : pending) {
+					future.get();
+				}
+				if (0 >= read) {
+					return;
+				}
+				pending = new ArrayList<Future<Void>>();
+				for (final Updater updater : updaters) {
+					pending.add(getExecutor().submit(new Callable<Void>() {
+
+						@Override
+						public Void call() {
+							updater.update(buffer, read);
+							return null;
+						}
+					}));
+				}
+				current = 1 - current;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Hashing was interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			for (Future<Void> future : pending) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Reads until the buffer is full or the end of the channel is reached.
+	 *
+	 * @return number of bytes read, <code>0</code> at the end of the channel
+	 */
+	private static int fill(FileChannel channel, byte[] buffer) throws IOException {
+		ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+		while (byteBuffer.hasRemaining()) {
+			if (-1 == channel.read(byteBuffer)) {
+				break;
+			}
+		}
+		return byteBuffer.position();
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (null == executor) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new RemoteIoExecutor.NamedThreadFactory("hash"));
+		}
+		return executor;
+	}
+
+	/**
+	 * @param bytes
+	 * @return the bytes as lower case hexadecimal string
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+			hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Digests of a file by algorithm
+	 */
+	public static class Digests {
+
+		private final Map<Algorithm, byte[]> digests;
+
+		Digests(Map<Algorithm, byte[]> digests) {
+			this.digests = new LinkedHashMap<Algorithm, byte[]>(digests);
+		}
+
+		/**
+		 * @param algorithm
+		 * @return the digest or <code>null</code>, if it was not computed
+		 */
+		public byte[] get(Algorithm algorithm) {
+			byte[] digest = digests.get(algorithm);
+			return null == digest ? null : digest.clone();
+		}
+
+		/**
+		 * @param algorithm
+		 * @return the digest as hexadecimal string, e.g. for the hash of a
+		 *         hashed file
+		 */
+		public String getHex(Algorithm algorithm) {
+			byte[] digest = digests.get(algorithm);
+			return null == digest ? null : toHex(digest);
+		}
+
+		/**
+		 * @param algorithm
+		 * @return the digest in base 64, e.g. for Content-MD5 or Digest
+		 *         headers
+		 */
+		public String getBase64(Algorithm algorithm) {
+			byte[] digest = digests.get(algorithm);
+			return null == digest ? null : DatatypeConverter.printBase64Binary(digest);
+		}
+	}
+
+	interface Updater {
+
+		void update(byte[] buffer, int length);
+
+		byte[] digest();
+	}
+
+	private static class MessageDigestUpdater implements Updater {
+
+		private final MessageDigest messageDigest;
+
+		MessageDigestUpdater(MessageDigest messageDigest) {
+			this.messageDigest = messageDigest;
+		}
+
+		@Override
+		public void update(byte[] buffer, int length) {
+			messageDigest.update(buffer, 0, length);
+		}
+
+		@Override
+		public byte[] digest() {
+			return messageDigest.digest();
+		}
+	}
+
+	private static class Crc32Updater implements Updater {
+
+		private final CRC32 crc32 = new CRC32();
+
+		@Override
+		public void update(byte[] buffer, int length) {
+			crc32.update(buffer, 0, length);
+		}
+
+		@Override
+		public byte[] digest() {
+			return ByteBuffer.allocate(4).putInt((int) crc32.getValue()).array();
+		}
+	}
+}
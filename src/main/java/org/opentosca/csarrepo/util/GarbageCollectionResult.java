@@ -0,0 +1,79 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of a garbage collection of the stored archives
+ */
+public class GarbageCollectionResult {
+
+	private final Date started;
+	private final Date finished;
+	private final boolean dryRun;
+	private final int hashedFiles;
+	private final long archives;
+	private final long blobs;
+	private final long bytes;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param dryRun
+	 *            <code>true</code> if nothing was removed
+	 * @param hashedFiles
+	 *            number of removed hashed files, including their plans
+	 * @param archives
+	 *            number of removed archives and leftovers of uploads
+	 * @param blobs
+	 *            number of removed blobs
+	 * @param bytes
+	 *            size of the removed files
+	 * @param errors
+	 */
+	public GarbageCollectionResult(Date started, boolean dryRun, int hashedFiles, long archives, long blobs,
+			long bytes, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.dryRun = dryRun;
+		this.hashedFiles = hashedFiles;
+		this.archives = archives;
+		this.blobs = blobs;
+		this.bytes = bytes;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public int getHashedFiles() {
+		return hashedFiles;
+	}
+
+	public long getArchives() {
+		return archives;
+	}
+
+	public long getBlobs() {
+		return blobs;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
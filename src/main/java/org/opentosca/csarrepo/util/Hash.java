@@ -1,9 +1,7 @@
 package org.opentosca.csarrepo.util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -29,25 +27,8 @@ public class Hash {
 	 */
 	public static String sha256(final File file) throws PersistenceException {
 		try {
-			final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-			InputStream inputStream = new FileInputStream(file);
-
-			int read = 0;
-			byte[] bytes = new byte[1024];
-
-			while ((read = inputStream.read(bytes)) != -1) {
-				messageDigest.update(bytes, 0, read);
-			}
-			inputStream.close();
-
-			byte[] sha256 = messageDigest.digest();
-			StringBuffer stringBuffer = new StringBuffer();
-			for (int i = 0; i < sha256.length; i++) {
-				stringBuffer.append(Integer.toString((sha256[i] & 0xFF) + 0x100, 16).substring(1));
-			}
-
-			return stringBuffer.toString();
-		} catch (IOException | NoSuchAlgorithmException e) {
+			return FileHasher.hash(file, FileHasher.Algorithm.SHA256).getHex(FileHasher.Algorithm.SHA256);
+		} catch (IOException e) {
 			throw new PersistenceException(e);
 		}
 	}
@@ -64,12 +45,7 @@ public class Hash {
 			messageDigest = MessageDigest.getInstance("SHA-256");
 			messageDigest.update(password.getBytes("UTF-8"));
 
-			byte[] sha256 = messageDigest.digest();
-			StringBuffer stringBuffer = new StringBuffer();
-			for (int i = 0; i < sha256.length; i++) {
-				stringBuffer.append(Integer.toString((sha256[i] & 0xFF) + 0x100, 16).substring(1));
-			}
-			return stringBuffer.toString();
+			return FileHasher.toHex(messageDigest.digest());
 		} catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
 			e.printStackTrace();
 		}
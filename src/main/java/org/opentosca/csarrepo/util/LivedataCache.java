@@ -0,0 +1,366 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opentosca.csarrepo.exception.DeploymentException;
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+import org.opentosca.csarrepo.model.Plan;
+import org.opentosca.csarrepo.model.repository.OpenToscaServerRepository;
+import org.opentosca.csarrepo.util.PlanInvocationHelper.HtmlLink;
+import org.opentosca.csarrepo.util.jaxb.ServiceInstanceEntry;
+import org.opentosca.csarrepo.util.jaxb.SimpleXLink;
+
+/**
+ * Stale-while-revalidate cache of the live data of OpenTOSCA containers
+ *
+ * Pages are served from the last {@link LivedataSnapshot} of a server, only
+ * the very first request of a server waits for the container. Snapshots are
+ * refreshed in the background once they are older than the refresh interval,
+ * on demand, and periodically with a random jitter as long as the server is
+ * viewed. If a refresh fails, the data of the previous snapshot is kept and
+ * the error is recorded.
+ *
+ * The refresh can be configured with the properties
+ * <code>livedataRefreshInterval</code>, <code>livedataRefreshJitter</code>,
+ * <code>livedataMinRefreshInterval</code>, <code>livedataIdleTimeout</code>
+ * and <code>livedataRefreshThreads</code>.
+ */
+public class LivedataCache implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(LivedataCache.class);
+
+	private static final long DEFAULT_REFRESH_INTERVAL = 60000;
+	private static final long DEFAULT_REFRESH_JITTER = 10000;
+	private static final long DEFAULT_MIN_REFRESH_INTERVAL = 5000;
+	private static final long DEFAULT_IDLE_TIMEOUT = 600000;
+	private static final long DEFAULT_WAIT_TIMEOUT = 30000;
+	private static final int DEFAULT_THREADS = 4;
+
+	private static final Map<Long, Entry> ENTRIES = new ConcurrentHashMap<Long, Entry>();
+	private static final Random RANDOM = new Random();
+
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		return;
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ScheduledThreadPoolExecutor toShutdown;
+		synchronized (LivedataCache.class) {
+			toShutdown = scheduler;
+			scheduler = null;
+		}
+		ENTRIES.clear();
+		if (null != toShutdown) {
+			toShutdown.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the current snapshot of the given server. Waits for the first
+	 * refresh, if there is no snapshot yet, and starts a background refresh,
+	 * if the snapshot is stale.
+	 *
+	 * @param openToscaServerId
+	 *            id of the server
+	 * @return the snapshot
+	 */
+	public static LivedataSnapshot getSnapshot(long openToscaServerId) {
+		return getSnapshot(openToscaServerId, false);
+	}
+
+	/**
+	 * Returns the snapshot of the given server.
+	 *
+	 * @param openToscaServerId
+	 *            id of the server
+	 * @param fresh
+	 *            <code>true</code> to wait for a refresh, unless the last one
+	 *            was only moments ago
+	 * @return the snapshot
+	 */
+	public static LivedataSnapshot getSnapshot(long openToscaServerId, boolean fresh) {
+		Entry entry = getEntry(openToscaServerId);
+		entry.lastAccess = System.currentTimeMillis();
+		LivedataSnapshot snapshot = entry.snapshot;
+
+		if (null == snapshot
+				|| (fresh && snapshot.isStale(Long.getLong("livedataMinRefreshInterval",
+						DEFAULT_MIN_REFRESH_INTERVAL)))) {
+			return await(entry, refresh(entry));
+		}
+		if (snapshot.isStale(Long.getLong("livedataRefreshInterval", DEFAULT_REFRESH_INTERVAL))) {
+			refresh(entry);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Starts a background refresh of the given server, e.g. after a CSAR was
+	 * deployed. Servers which were not viewed yet are ignored.
+	 *
+	 * @param openToscaServerId
+	 *            id of the server
+	 */
+	public static void refresh(long openToscaServerId) {
+		Entry entry = ENTRIES.get(openToscaServerId);
+		if (null != entry) {
+			refresh(entry);
+		}
+	}
+
+	/**
+	 * Drops the snapshot of the given server, e.g. after it was changed or
+	 * deleted.
+	 *
+	 * @param openToscaServerId
+	 *            id of the server
+	 */
+	public static void invalidate(long openToscaServerId) {
+		Entry entry = ENTRIES.remove(openToscaServerId);
+		if (null != entry) {
+			entry.cancel();
+		}
+	}
+
+	private static Entry getEntry(long openToscaServerId) {
+		Entry entry = ENTRIES.get(openToscaServerId);
+		if (null == entry) {
+			synchronized (ENTRIES) {
+				entry = ENTRIES.get(openToscaServerId);
+				if (null == entry) {
+					entry = new Entry(openToscaServerId);
+					ENTRIES.put(openToscaServerId, entry);
+				}
+			}
+		}
+		return entry;
+	}
+
+	private static Future<LivedataSnapshot> refresh(final Entry entry) {
+		synchronized (entry) {
+			if (null != entry.pending && !entry.pending.isDone()) {
+				return entry.pending;
+			}
+			entry.pending = getScheduler().submit(new Callable<LivedataSnapshot>() {
+
+				@Override
+				public LivedataSnapshot call() throws Exception {
+					LivedataSnapshot snapshot = load(entry.openToscaServerId, entry.snapshot);
+					entry.snapshot = snapshot;
+					scheduleNext(entry);
+					return snapshot;
+				}
+			});
+			return entry.pending;
+		}
+	}
+
+	private static void scheduleNext(final Entry entry) {
+		if (ENTRIES.get(entry.openToscaServerId) != entry) {
+			return;
+		}
+		if (System.currentTimeMillis() - entry.lastAccess > Long.getLong("livedataIdleTimeout", DEFAULT_IDLE_TIMEOUT)) {
+			LOGGER.debug("Stopping periodic refresh of idle OpenTOSCA server {}", entry.openToscaServerId);
+			return;
+		}
+
+		long jitter = Long.getLong("livedataRefreshJitter", DEFAULT_REFRESH_JITTER);
+		long delay = Long.getLong("livedataRefreshInterval", DEFAULT_REFRESH_INTERVAL)
+				+ (jitter > 0 ? (long) (RANDOM.nextDouble() * jitter) : 0);
+		synchronized (entry) {
+			if (null != entry.scheduled) {
+				entry.scheduled.cancel(false);
+			}
+			try {
+				entry.scheduled = getScheduler().schedule(new Runnable() {
+
+					@Override
+					public void run() {
+						if (ENTRIES.get(entry.openToscaServerId) == entry) {
+							refresh(entry);
+						}
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				LOGGER.debug("Refresh of OpenTOSCA server {} not scheduled, shutting down", entry.openToscaServerId);
+			}
+		}
+	}
+
+	private static LivedataSnapshot await(Entry entry, Future<LivedataSnapshot> refresh) {
+		long timeout = Long.getLong("livedataTimeout", DEFAULT_WAIT_TIMEOUT);
+		String error;
+		try {
+			return refresh.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = "Interrupted";
+		} catch (ExecutionException e) {
+			LOGGER.error("Refresh of OpenTOSCA server " + entry.openToscaServerId + " failed", e.getCause());
+			error = e.getCause().getMessage();
+		} catch (TimeoutException e) {
+			error = "Server did not respond in time";
+		}
+
+		// keep serving the old data while the refresh is still running
+		LivedataSnapshot snapshot = entry.snapshot;
+		if (null != snapshot) {
+			return snapshot;
+		}
+		return failed(null, System.currentTimeMillis(), error);
+	}
+
+	private static LivedataSnapshot load(long openToscaServerId, LivedataSnapshot previous) {
+		long now = System.currentTimeMillis();
+		OpenToscaServer openToscaServer;
+		try {
+			openToscaServer = new OpenToscaServerRepository().getbyId(openToscaServerId);
+		} catch (PersistenceException e) {
+			return failed(previous, now, e.getMessage());
+		}
+		if (null == openToscaServer) {
+			return failed(previous, now, "invalidOpenToscaServer");
+		}
+
+		ContainerApiClient client;
+		try {
+			client = new ContainerApiClient(openToscaServer);
+		} catch (URISyntaxException e) {
+			return failed(previous, now, e.getMessage());
+		}
+
+		List<String> errors = new ArrayList<String>();
+		List<DeployedCsarObject> deployedCsars = null == previous ? null : previous.getDeployedCsars();
+		Map<String, List<HtmlLink>> buildPlans = null == previous ? new LinkedHashMap<String, List<HtmlLink>>()
+				: previous.getBuildPlanLinks();
+		List<ServiceInstanceEntry> serviceInstances = null == previous ? null : previous.getServiceInstances();
+		Map<String, List<HtmlLink>> managementPlans = null == previous ? new LinkedHashMap<String, List<HtmlLink>>()
+				: previous.getManagementPlanLinks();
+		List<String> warnings = null == previous ? new ArrayList<String>() : previous.getWarnings();
+
+		try {
+			List<String> csarNames = new ArrayList<String>();
+			for (SimpleXLink link : client.getDeployedCsars()) {
+				csarNames.add(link.getTitle());
+			}
+
+			Map<String, Long> csarFileIds = CsarFileIdResolver.resolveAll(openToscaServer, csarNames);
+			csarFileIds.values().removeAll(Collections.singleton(null));
+			deployedCsars = new ArrayList<DeployedCsarObject>();
+			for (Map.Entry<String, Long> csarFileId : csarFileIds.entrySet()) {
+				deployedCsars.add(new DeployedCsarObject(csarFileId.getValue(), csarFileId.getKey()));
+			}
+			buildPlans = getPlanLinks(openToscaServer, csarFileIds, Plan.Type.BUILD);
+		} catch (DeploymentException e) {
+			errors.add(e.getMessage());
+		}
+
+		try {
+			FanOut.Result<String, ServiceInstanceEntry> result = client.fetchServiceInstances();
+			serviceInstances = new ArrayList<ServiceInstanceEntry>(result.getResults().values());
+			Set<String> csarNames = new LinkedHashSet<String>();
+			for (ServiceInstanceEntry serviceInstance : serviceInstances) {
+				if (null != serviceInstance.getCsarID()) {
+					csarNames.add(serviceInstance.getCsarID());
+				}
+			}
+			managementPlans = getPlanLinks(openToscaServer,
+					CsarFileIdResolver.resolveAll(openToscaServer, new ArrayList<String>(csarNames)), Plan.Type.OTHERS);
+			warnings = new ArrayList<String>();
+			for (Map.Entry<String, String> failure : result.getFailures().entrySet()) {
+				warnings.add(String.format("Service instance %s could not be retrieved: %s", failure.getKey(),
+						failure.getValue()));
+			}
+		} catch (DeploymentException e) {
+			errors.add(e.getMessage());
+		}
+
+		if (!errors.isEmpty()) {
+			LOGGER.warn("Refresh of OpenTOSCA server {} failed: {}", openToscaServerId, errors);
+		}
+		long timestamp = errors.isEmpty() ? now : (null == previous ? 0 : previous.getTimestamp());
+		return new LivedataSnapshot(deployedCsars, buildPlans, serviceInstances, managementPlans, warnings,
+				timestamp, now, errors.isEmpty() ? null : StringUtils.join(errors));
+	}
+
+	private static Map<String, List<HtmlLink>> getPlanLinks(OpenToscaServer openToscaServer,
+			Map<String, Long> csarFileIds, Plan.Type planType) {
+		try {
+			return PlanInvocationHelper.generateLinksToPlans(openToscaServer, csarFileIds, planType);
+		} catch (PersistenceException e) {
+			LOGGER.warn("Failed to get plans of CSARs {}: {}", csarFileIds.keySet(), e.getMessage());
+			Map<String, List<HtmlLink>> planLinks = new LinkedHashMap<String, List<HtmlLink>>();
+			for (String csarName : csarFileIds.keySet()) {
+				planLinks.put(csarName, new ArrayList<HtmlLink>());
+			}
+			return planLinks;
+		}
+	}
+
+	private static LivedataSnapshot failed(LivedataSnapshot previous, long now, String error) {
+		if (null == previous) {
+			return new LivedataSnapshot(null, new LinkedHashMap<String, List<HtmlLink>>(), null,
+					new LinkedHashMap<String, List<HtmlLink>>(), new ArrayList<String>(), 0, now, error);
+		}
+		return new LivedataSnapshot(previous.getDeployedCsars(), previous.getBuildPlanLinks(),
+				previous.getServiceInstances(), previous.getManagementPlanLinks(), previous.getWarnings(),
+				previous.getTimestamp(), now, error);
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (null == scheduler) {
+			int threads = Integer.getInteger("livedataRefreshThreads", DEFAULT_THREADS);
+			scheduler = new ScheduledThreadPoolExecutor(threads, new RemoteIoExecutor.NamedThreadFactory(
+					"livedata-refresh"));
+			scheduler.setRemoveOnCancelPolicy(true);
+			LOGGER.info("Created live data refresh executor with {} threads", threads);
+		}
+		return scheduler;
+	}
+
+	private static class Entry {
+
+		private final long openToscaServerId;
+		private volatile LivedataSnapshot snapshot;
+		private volatile long lastAccess;
+		private Future<LivedataSnapshot> pending;
+		private ScheduledFuture<?> scheduled;
+
+		Entry(long openToscaServerId) {
+			this.openToscaServerId = openToscaServerId;
+		}
+
+		synchronized void cancel() {
+			if (null != scheduled) {
+				scheduled.cancel(false);
+			}
+		}
+	}
+}
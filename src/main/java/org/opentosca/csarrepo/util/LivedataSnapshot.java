@@ -0,0 +1,161 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opentosca.csarrepo.util.PlanInvocationHelper.HtmlLink;
+import org.opentosca.csarrepo.util.jaxb.ServiceInstanceEntry;
+
+/**
+ * Live data of an OpenTOSCA container as seen at one point in time
+ *
+ * Holds the deployed CSARs, the running service instances and the links to
+ * their plans. Parts which could not be loaded yet are <code>null</code>. A
+ * snapshot is never modified after it was created.
+ */
+public class LivedataSnapshot {
+
+	private final List<DeployedCsarObject> deployedCsars;
+	private final Map<String, List<HtmlLink>> buildPlans;
+	private final List<ServiceInstanceEntry> serviceInstances;
+	private final Map<String, List<HtmlLink>> managementPlans;
+	private final List<String> warnings;
+	private final long timestamp;
+	private final long lastAttempt;
+	private final String lastError;
+
+	/**
+	 * @param deployedCsars
+	 *            the deployed CSARs or <code>null</code>
+	 * @param buildPlans
+	 *            links to the build plans by CSAR name
+	 * @param serviceInstances
+	 *            the service instances or <code>null</code>
+	 * @param managementPlans
+	 *            links to the management plans by CSAR name
+	 * @param warnings
+	 *            messages for service instances which could not be retrieved
+	 * @param timestamp
+	 *            time of the last complete refresh, <code>0</code> if there
+	 *            was none
+	 * @param lastAttempt
+	 *            time of the last refresh
+	 * @param lastError
+	 *            error of the last refresh or <code>null</code>
+	 */
+	public LivedataSnapshot(List<DeployedCsarObject> deployedCsars, Map<String, List<HtmlLink>> buildPlans,
+			List<ServiceInstanceEntry> serviceInstances, Map<String, List<HtmlLink>> managementPlans,
+			List<String> warnings, long timestamp, long lastAttempt, String lastError) {
+		this.deployedCsars = null == deployedCsars ? null : Collections
+				.unmodifiableList(new ArrayList<DeployedCsarObject>(deployedCsars));
+		this.buildPlans = Collections.unmodifiableMap(new LinkedHashMap<String, List<HtmlLink>>(buildPlans));
+		this.serviceInstances = null == serviceInstances ? null : Collections
+				.unmodifiableList(new ArrayList<ServiceInstanceEntry>(serviceInstances));
+		this.managementPlans = Collections.unmodifiableMap(new LinkedHashMap<String, List<HtmlLink>>(
+				managementPlans));
+		this.warnings = Collections.unmodifiableList(new ArrayList<String>(warnings));
+		this.timestamp = timestamp;
+		this.lastAttempt = lastAttempt;
+		this.lastError = lastError;
+	}
+
+	/**
+	 * @return the deployed CSARs or <code>null</code>, if they were never
+	 *         loaded
+	 */
+	public List<DeployedCsarObject> getDeployedCsars() {
+		return deployedCsars;
+	}
+
+	/**
+	 * @param csarName
+	 *            the name of the CSAR inside the container
+	 * @return the links to the build plans of the CSAR
+	 */
+	public List<HtmlLink> getBuildPlans(String csarName) {
+		return getLinks(buildPlans, csarName);
+	}
+
+	/**
+	 * @return the service instances or <code>null</code>, if they were never
+	 *         loaded
+	 */
+	public List<ServiceInstanceEntry> getServiceInstances() {
+		return serviceInstances;
+	}
+
+	/**
+	 * @param csarName
+	 *            the name of the CSAR inside the container
+	 * @return the links to the management plans of the CSAR
+	 */
+	public List<HtmlLink> getManagementPlans(String csarName) {
+		return getLinks(managementPlans, csarName);
+	}
+
+	/**
+	 * @return messages for the service instances which could not be retrieved
+	 */
+	public List<String> getWarnings() {
+		return warnings;
+	}
+
+	/**
+	 * @return time of the last complete refresh, <code>0</code> if there was
+	 *         none
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return time of the last refresh, successful or not
+	 */
+	public long getLastAttempt() {
+		return lastAttempt;
+	}
+
+	/**
+	 * @return error of the last refresh or <code>null</code>, if it succeeded
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * @return age of the data in seconds, <code>-1</code> if there was no
+	 *         complete refresh yet
+	 */
+	public long getAge() {
+		if (0 == timestamp) {
+			return -1;
+		}
+		return Math.max(0, (System.currentTimeMillis() - timestamp) / 1000);
+	}
+
+	/**
+	 * @param maxAge
+	 *            maximum age in milliseconds
+	 * @return <code>true</code> if the last refresh is older than the given
+	 *         age
+	 */
+	public boolean isStale(long maxAge) {
+		return System.currentTimeMillis() - lastAttempt > maxAge;
+	}
+
+	Map<String, List<HtmlLink>> getBuildPlanLinks() {
+		return buildPlans;
+	}
+
+	Map<String, List<HtmlLink>> getManagementPlanLinks() {
+		return managementPlans;
+	}
+
+	private static List<HtmlLink> getLinks(Map<String, List<HtmlLink>> links, String csarName) {
+		List<HtmlLink> result = links.get(csarName);
+		return null == result ? new ArrayList<HtmlLink>() : result;
+	}
+}
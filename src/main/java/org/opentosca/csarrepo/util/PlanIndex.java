@@ -0,0 +1,100 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opentosca.csarrepo.exception.PersistenceException;
+import org.opentosca.csarrepo.model.Plan;
+import org.opentosca.csarrepo.model.repository.CsarPlanRepository;
+
+/**
+ * Index of the plan names of CSAR files by plan type
+ *
+ * The plans of a CSAR file never change, so they are loaded once, for all
+ * requested CSAR files with a single query, and kept for the most recently
+ * used <code>planIndexSize</code> CSAR files.
+ */
+public class PlanIndex {
+
+	private static final int DEFAULT_SIZE = 10000;
+
+	private static final Map<Long, Entry> ENTRIES = Collections.synchronizedMap(new LinkedHashMap<Long, Entry>(16,
+			0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+			return size() > Integer.getInteger("planIndexSize", DEFAULT_SIZE);
+		}
+	});
+
+	/**
+	 * @param csarFileIds
+	 *            ids of the CSAR files
+	 * @param type
+	 *            type of the plans
+	 * @return the names of the plans of the given type by CSAR file id
+	 * @throws PersistenceException
+	 *             if plans which are not indexed yet could not be loaded
+	 */
+	public static Map<Long, List<String>> getPlanNames(Collection<Long> csarFileIds, Plan.Type type)
+			throws PersistenceException {
+		Map<Long, List<String>> planNames = new LinkedHashMap<Long, List<String>>();
+		List<Long> missing = new ArrayList<Long>();
+		for (Long csarFileId : csarFileIds) {
+			Entry entry = ENTRIES.get(csarFileId);
+			if (null == entry) {
+				missing.add(csarFileId);
+			} else {
+				planNames.put(csarFileId, entry.get(type));
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			Map<Long, List<Plan>> plans = new CsarPlanRepository().getByCsarFileIds(missing);
+			for (Long csarFileId : missing) {
+				Entry entry = new Entry(plans.get(csarFileId));
+				ENTRIES.put(csarFileId, entry);
+				planNames.put(csarFileId, entry.get(type));
+			}
+		}
+		return planNames;
+	}
+
+	/**
+	 * Removes the plans of the given CSAR file, e.g. after it was deleted.
+	 *
+	 * @param csarFileId
+	 */
+	public static void invalidate(long csarFileId) {
+		ENTRIES.remove(csarFileId);
+	}
+
+	private static class Entry {
+
+		private final List<String> buildPlans = new ArrayList<String>();
+		private final List<String> otherPlans = new ArrayList<String>();
+
+		Entry(List<Plan> plans) {
+			if (null == plans) {
+				return;
+			}
+			for (Plan plan : plans) {
+				if (Plan.Type.BUILD.equals(plan.getType())) {
+					buildPlans.add(plan.getName());
+				} else {
+					otherPlans.add(plan.getName());
+				}
+			}
+		}
+
+		List<String> get(Plan.Type type) {
+			return Collections.unmodifiableList(Plan.Type.BUILD.equals(type) ? buildPlans : otherPlans);
+		}
+	}
+}
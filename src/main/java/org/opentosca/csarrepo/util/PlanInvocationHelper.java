@@ -5,17 +5,17 @@ package org.opentosca.csarrepo.util;
 
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.opentosca.csarrepo.exception.DeploymentException;
 import org.opentosca.csarrepo.exception.PersistenceException;
-import org.opentosca.csarrepo.model.CsarFile;
 import org.opentosca.csarrepo.model.OpenToscaServer;
 import org.opentosca.csarrepo.model.Plan;
-import org.opentosca.csarrepo.model.repository.CsarFileRepository;
 
 /**
  * This class generates links to specific BPS URLs
@@ -27,12 +27,9 @@ import org.opentosca.csarrepo.model.repository.CsarFileRepository;
  */
 public class PlanInvocationHelper {
 
-	private static final Logger LOGGER = LogManager.getLogger(PlanInvocationHelper.class);
-
 	public static List<HtmlLink> generateLinkToMngmtPlan(OpenToscaServer openToscaServer, String openToscaCsarId)
 			throws PersistenceException, URISyntaxException, DeploymentException {
-		ContainerApiClient client = new ContainerApiClient(openToscaServer);
-		Long csarFileId = client.getRepositoryCsarFileId(openToscaCsarId);
+		Long csarFileId = CsarFileIdResolver.resolve(openToscaServer, openToscaCsarId);
 		if (csarFileId == null) {
 			return new ArrayList<HtmlLink>();
 		}
@@ -41,8 +38,7 @@ public class PlanInvocationHelper {
 
 	public static List<HtmlLink> generateLinkToBuildPlan(OpenToscaServer openToscaServer, String openToscaCsarId)
 			throws PersistenceException, DeploymentException, URISyntaxException {
-		ContainerApiClient client = new ContainerApiClient(openToscaServer);
-		Long csarFileId = client.getRepositoryCsarFileId(openToscaCsarId);
+		Long csarFileId = CsarFileIdResolver.resolve(openToscaServer, openToscaCsarId);
 		// no mapping was possible, maybe the meta files were not there
 		if (csarFileId == null) {
 			return new ArrayList<HtmlLink>();
@@ -52,37 +48,52 @@ public class PlanInvocationHelper {
 
 	public static Long getCsarFileId(OpenToscaServer openToscaServer, String openToscaCsarId)
 			throws DeploymentException, URISyntaxException {
-		ContainerApiClient client = new ContainerApiClient(openToscaServer);
-		Long csarFileId = client.getRepositoryCsarFileId(openToscaCsarId);
-		return csarFileId;
+		return CsarFileIdResolver.resolve(openToscaServer, openToscaCsarId);
+	}
+
+	/**
+	 * Generates the links to the plans of several deployed CSARs at once, the
+	 * plans are read from the {@link PlanIndex}.
+	 * 
+	 * @param openToscaServer
+	 *            the server the CSARs are deployed on
+	 * @param csarFileIds
+	 *            the ids of the CSAR files by name of the CSAR inside the
+	 *            container, <code>null</code> for unknown CSARs
+	 * @param planType
+	 * @return the links by name of the CSAR inside the container
+	 * @throws PersistenceException
+	 */
+	public static Map<String, List<HtmlLink>> generateLinksToPlans(OpenToscaServer openToscaServer,
+			Map<String, Long> csarFileIds, Plan.Type planType) throws PersistenceException {
+		Set<Long> ids = new HashSet<Long>(csarFileIds.values());
+		ids.remove(null);
+		Map<Long, List<String>> planNames = PlanIndex.getPlanNames(ids, planType);
+
+		Map<String, List<HtmlLink>> links = new LinkedHashMap<String, List<HtmlLink>>();
+		for (Map.Entry<String, Long> csarFileId : csarFileIds.entrySet()) {
+			List<String> names = null == csarFileId.getValue() ? null : planNames.get(csarFileId.getValue());
+			links.put(csarFileId.getKey(), generateLinks(openToscaServer, names));
+		}
+		return links;
 	}
 
 	private static List<HtmlLink> generateLinkToPlan(OpenToscaServer openToscaServer, long csarFileId,
 			Plan.Type planType) throws PersistenceException {
+		return generateLinks(openToscaServer,
+				PlanIndex.getPlanNames(Collections.singleton(csarFileId), planType).get(csarFileId));
+	}
 
-		List<Plan> matchedPlans = new ArrayList<Plan>();
-
-		CsarFileRepository csarFileRepo = new CsarFileRepository();
-		CsarFile csarFile = csarFileRepo.getbyId(csarFileId);
+	private static List<HtmlLink> generateLinks(OpenToscaServer openToscaServer, List<String> planNames) {
 		List<HtmlLink> resultLinks = new ArrayList<HtmlLink>();
-
-		if (null == csarFile) {
-			LOGGER.warn("CSAR file was {} for CSAR file id {}. Build-Plans could not be matched.", csarFile, csarFileId);
+		if (null == planNames) {
 			return resultLinks;
 		}
 
-		Map<String, Plan> plansOfHashedFile = csarFile.getHashedFile().getPlans();
-		for (Plan plan : plansOfHashedFile.values()) {
-			if (planType.equals(plan.getType())) {
-				matchedPlans.add(plan);
-			}
-		}
-
 		// Build links
 		String host = openToscaServer.getAddress().getHost();
 
-		for (Plan plan : matchedPlans) {
-			String planName = matchedPlans.get(0).getName();
+		for (String planName : planNames) {
 			String href = "http://" + host + ":9763/services/" + planName + "Service?tryit#";
 			resultLinks.add(new HtmlLink(planName, href));
 		}
@@ -0,0 +1,44 @@
+package org.opentosca.csarrepo.util;
+
+/**
+ * Limits background work to a number of permits per second, e.g. file
+ * operations or bytes read
+ *
+ * The caller sleeps as long as it is ahead of the allowed rate. A limiter is
+ * meant to be used by a single thread.
+ */
+public class RateLimiter {
+
+	private final double permitsPerSecond;
+	private final long started;
+	private double permits;
+
+	/**
+	 * @param permitsPerSecond
+	 *            allowed rate, <code>0</code> or less for no limit
+	 */
+	public RateLimiter(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.started = System.nanoTime();
+	}
+
+	/**
+	 * Takes the given number of permits and waits until they are allowed.
+	 *
+	 * @param count
+	 *            number of permits
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting
+	 */
+	public void acquire(long count) throws InterruptedException {
+		if (0 >= permitsPerSecond) {
+			return;
+		}
+		permits += count;
+		long due = started + (long) (permits / permitsPerSecond * 1000000000L);
+		long wait = due - System.nanoTime();
+		if (0 < wait) {
+			Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+		}
+	}
+}
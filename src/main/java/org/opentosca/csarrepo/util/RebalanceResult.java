@@ -0,0 +1,54 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of a rebalancing of the storage volumes
+ */
+public class RebalanceResult {
+
+	private final Date started;
+	private final Date finished;
+	private final long files;
+	private final long bytes;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param files
+	 *            number of moved archives, manifests and blobs
+	 * @param bytes
+	 *            size of the moved files
+	 * @param errors
+	 */
+	public RebalanceResult(Date started, long files, long bytes, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.files = files;
+		this.bytes = bytes;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public long getFiles() {
+		return files;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
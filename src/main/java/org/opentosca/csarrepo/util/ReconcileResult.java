@@ -0,0 +1,88 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of a reconciliation of the deployments stored for an OpenTOSCA
+ * server with the CSARs of its container
+ */
+public class ReconcileResult {
+
+	private final Date started;
+	private final Date finished;
+	private final int mappings;
+	private final int deployed;
+	private final int removed;
+	private final int pending;
+	private final int untracked;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param mappings
+	 *            number of stored deployments of the server
+	 * @param deployed
+	 *            number of CSARs in the container
+	 * @param removed
+	 *            number of stored deployments which were removed
+	 * @param pending
+	 *            number of stored deployments missing for the first time,
+	 *            they are removed if they are still missing next time
+	 * @param untracked
+	 *            number of CSARs in the container without a stored deployment
+	 * @param errors
+	 */
+	public ReconcileResult(Date started, int mappings, int deployed, int removed, int pending, int untracked,
+			List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.mappings = mappings;
+		this.deployed = deployed;
+		this.removed = removed;
+		this.pending = pending;
+		this.untracked = untracked;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public int getMappings() {
+		return mappings;
+	}
+
+	public int getDeployed() {
+		return deployed;
+	}
+
+	public int getRemoved() {
+		return removed;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public int getUntracked() {
+		return untracked;
+	}
+
+	/**
+	 * @return number of stored deployments which did not match the container
+	 */
+	public int getDrift() {
+		return removed + pending;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,54 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of resolving the operations interrupted by a crash
+ */
+public class RecoveryResult {
+
+	private final Date started;
+	private final Date finished;
+	private final long rolledForward;
+	private final long rolledBack;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param rolledForward
+	 *            number of completed operations
+	 * @param rolledBack
+	 *            number of undone operations
+	 * @param errors
+	 */
+	public RecoveryResult(Date started, long rolledForward, long rolledBack, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.rolledForward = rolledForward;
+		this.rolledBack = rolledBack;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public long getRolledForward() {
+		return rolledForward;
+	}
+
+	public long getRolledBack() {
+		return rolledBack;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,141 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+
+/**
+ * Registry of shared HTTP clients, one per remote server
+ *
+ * Every client uses its own pool of keep-alive connections, so repeated calls
+ * to the same OpenTOSCA or Winery server reuse connections instead of opening
+ * new ones. All clients are closed when the context is destroyed.
+ *
+ * The pool and the timeouts can be configured with the properties
+ * <code>remoteMaxConnections</code>, <code>remoteMaxConnectionsPerRoute</code>,
+ * <code>remoteConnectTimeout</code> and <code>remoteReadTimeout</code>.
+ */
+public class RemoteClientRegistry implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(RemoteClientRegistry.class);
+
+	private static final int DEFAULT_MAX_CONNECTIONS = 50;
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+	private static final int DEFAULT_READ_TIMEOUT = 20000;
+	private static final int CHUNK_SIZE = 8192;
+
+	private static final Map<String, RegisteredClient> CLIENTS = new HashMap<String, RegisteredClient>();
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		return;
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		closeAll();
+	}
+
+	/**
+	 * Returns the shared client for the server of the given address and
+	 * creates it on first access.
+	 *
+	 * @param address
+	 *            address of the remote server
+	 * @return the shared client
+	 */
+	public static Client getClient(URL address) {
+		String key = getKey(address);
+		synchronized (CLIENTS) {
+			RegisteredClient registeredClient = CLIENTS.get(key);
+			if (null == registeredClient) {
+				registeredClient = createClient();
+				CLIENTS.put(key, registeredClient);
+				LOGGER.info("Created HTTP client for {}", key);
+			}
+			return registeredClient.client;
+		}
+	}
+
+	/**
+	 * Closes all clients and their connection pools.
+	 */
+	public static void closeAll() {
+		List<RegisteredClient> registeredClients;
+		synchronized (CLIENTS) {
+			registeredClients = new ArrayList<RegisteredClient>(CLIENTS.values());
+			CLIENTS.clear();
+		}
+		for (RegisteredClient registeredClient : registeredClients) {
+			registeredClient.close();
+		}
+		LOGGER.info("Closed {} HTTP clients", registeredClients.size());
+	}
+
+	/**
+	 * @param address
+	 * @return protocol, host and port of the given address
+	 */
+	static String getKey(URL address) {
+		int port = -1 == address.getPort() ? address.getDefaultPort() : address.getPort();
+		return String.format("%s://%s:%d", address.getProtocol(), address.getHost().toLowerCase(), port);
+	}
+
+	private static RegisteredClient createClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(Integer.getInteger("remoteMaxConnections", DEFAULT_MAX_CONNECTIONS));
+		connectionManager.setDefaultMaxPerRoute(Integer.getInteger("remoteMaxConnectionsPerRoute",
+				DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+
+		ClientConfig clientConfig = new ClientConfig();
+		clientConfig.register(MultiPartFeature.class);
+		clientConfig.connectorProvider(new ApacheConnectorProvider());
+		clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+		// stream uploads instead of buffering whole archives in memory
+		clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
+		clientConfig.property(ClientProperties.CHUNKED_ENCODING_SIZE, CHUNK_SIZE);
+		clientConfig.property(ClientProperties.CONNECT_TIMEOUT,
+				Integer.getInteger("remoteConnectTimeout", DEFAULT_CONNECT_TIMEOUT));
+		clientConfig.property(ClientProperties.READ_TIMEOUT,
+				Integer.getInteger("remoteReadTimeout", DEFAULT_READ_TIMEOUT));
+
+		return new RegisteredClient(ClientBuilder.newClient(clientConfig), connectionManager);
+	}
+
+	private static class RegisteredClient {
+
+		private final Client client;
+		private final PoolingHttpClientConnectionManager connectionManager;
+
+		RegisteredClient(Client client, PoolingHttpClientConnectionManager connectionManager) {
+			this.client = client;
+			this.connectionManager = connectionManager;
+		}
+
+		void close() {
+			try {
+				client.close();
+			} finally {
+				connectionManager.shutdown();
+			}
+		}
+	}
+}
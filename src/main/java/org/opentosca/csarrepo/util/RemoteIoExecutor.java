@@ -0,0 +1,189 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Dedicated thread pool for blocking calls to remote OpenTOSCA and Winery
+ * servers
+ *
+ * Keeps remote I/O off the request threads of the servlet container. The pool
+ * is created on first use and shut down when the context is destroyed.
+ */
+public class RemoteIoExecutor implements ServletContextListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(RemoteIoExecutor.class);
+
+	private static final int DEFAULT_THREADS = 16;
+	private static final int DEFAULT_QUEUE_SIZE = 200;
+	private static final int DEFAULT_FAN_OUT_THREADS = 32;
+	private static final int DEFAULT_DEPLOY_THREADS = 2;
+	private static final int DEFAULT_DEPLOY_QUEUE_SIZE = 20;
+	private static final int DEFAULT_DEPLOY_UPLOAD_THREADS = 8;
+	private static final long SHUTDOWN_TIMEOUT = 10;
+
+	private static ThreadPoolExecutor executor;
+	private static ThreadPoolExecutor fanOutExecutor;
+	private static ThreadPoolExecutor deployExecutor;
+	private static ThreadPoolExecutor deployUploadExecutor;
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		return;
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		ExecutorService toShutdown;
+		ExecutorService fanOutToShutdown;
+		ExecutorService deployToShutdown;
+		ExecutorService deployUploadToShutdown;
+		synchronized (RemoteIoExecutor.class) {
+			toShutdown = executor;
+			fanOutToShutdown = fanOutExecutor;
+			deployToShutdown = deployExecutor;
+			deployUploadToShutdown = deployUploadExecutor;
+			executor = null;
+			fanOutExecutor = null;
+			deployExecutor = null;
+			deployUploadExecutor = null;
+		}
+		shutdown(deployUploadToShutdown);
+		shutdown(deployToShutdown);
+		shutdown(fanOutToShutdown);
+		shutdown(toShutdown);
+	}
+
+	private static void shutdown(ExecutorService toShutdown) {
+		if (null == toShutdown) {
+			return;
+		}
+		toShutdown.shutdownNow();
+		try {
+			if (!toShutdown.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				LOGGER.warn("Remote I/O threads did not terminate within {} seconds", SHUTDOWN_TIMEOUT);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the shared executor and creates it on first access.
+	 *
+	 * The size of the pool and its queue can be configured with the
+	 * properties <code>remoteIoThreads</code> and
+	 * <code>remoteIoQueueSize</code>.
+	 *
+	 * @return the executor for remote calls
+	 */
+	public static synchronized ExecutorService getExecutor() {
+		if (null == executor) {
+			int threads = Integer.getInteger("remoteIoThreads", DEFAULT_THREADS);
+			int queueSize = Integer.getInteger("remoteIoQueueSize", DEFAULT_QUEUE_SIZE);
+			executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(queueSize), new NamedThreadFactory("remote-io"));
+			executor.allowCoreThreadTimeOut(true);
+			LOGGER.info("Created remote I/O executor with {} threads", threads);
+		}
+		return executor;
+	}
+
+	/**
+	 * Returns the executor for the single requests of a fan-out, e.g. the
+	 * details of all service instances of a container.
+	 *
+	 * Fan-outs are started from threads of {@link #getExecutor()}, so they use
+	 * their own pool to avoid waiting for themselves. If all threads are busy,
+	 * the submitting thread runs the request itself. The size of the pool can
+	 * be configured with the property <code>remoteFanOutThreads</code>.
+	 *
+	 * @return the executor for fan-out requests
+	 */
+	public static synchronized ExecutorService getFanOutExecutor() {
+		if (null == fanOutExecutor) {
+			int threads = Integer.getInteger("remoteFanOutThreads", DEFAULT_FAN_OUT_THREADS);
+			fanOutExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new NamedThreadFactory("remote-fan-out"),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+			fanOutExecutor.allowCoreThreadTimeOut(true);
+			LOGGER.info("Created remote fan-out executor with {} threads", threads);
+		}
+		return fanOutExecutor;
+	}
+
+	/**
+	 * Returns the executor for deployment jobs.
+	 *
+	 * A deployment can block its thread for a long time, so jobs do not share
+	 * the threads serving the live data pages. The number of jobs running at
+	 * once and waiting can be configured with the properties
+	 * <code>deployThreads</code> and <code>deployQueueSize</code>.
+	 *
+	 * @return the executor for deployment jobs
+	 */
+	public static synchronized ExecutorService getDeployExecutor() {
+		if (null == deployExecutor) {
+			int threads = Integer.getInteger("deployThreads", DEFAULT_DEPLOY_THREADS);
+			int queueSize = Integer.getInteger("deployQueueSize", DEFAULT_DEPLOY_QUEUE_SIZE);
+			deployExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(queueSize), new NamedThreadFactory("deploy"));
+			deployExecutor.allowCoreThreadTimeOut(true);
+			LOGGER.info("Created deploy executor with {} threads", threads);
+		}
+		return deployExecutor;
+	}
+
+	/**
+	 * Returns the executor for the uploads of deployment jobs.
+	 *
+	 * Like {@link #getFanOutExecutor()}, but kept apart from it, so slow
+	 * uploads do not delay the fan-outs of the live data pages. The size of
+	 * the pool can be configured with the property
+	 * <code>deployUploadThreads</code>.
+	 *
+	 * @return the executor for uploads
+	 */
+	public static synchronized ExecutorService getDeployUploadExecutor() {
+		if (null == deployUploadExecutor) {
+			int threads = Integer.getInteger("deployUploadThreads", DEFAULT_DEPLOY_UPLOAD_THREADS);
+			deployUploadExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new NamedThreadFactory("deploy-upload"),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+			deployUploadExecutor.allowCoreThreadTimeOut(true);
+			LOGGER.info("Created deploy upload executor with {} threads", threads);
+		}
+		return deployUploadExecutor;
+	}
+
+	/**
+	 * Creates daemon threads with a common name prefix
+	 */
+	public static class NamedThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+		private final AtomicInteger counter = new AtomicInteger();
+
+		public NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
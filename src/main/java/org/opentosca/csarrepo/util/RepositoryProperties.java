@@ -6,12 +6,16 @@ import java.io.InputStream;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
-import javax.servlet.annotation.WebListener;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-@WebListener
+/**
+ * Loads <code>WEB-INF/repository.properties</code> into the system properties
+ *
+ * Declared first in <code>web.xml</code>, so the listeners declared after it
+ * can read the properties when they start.
+ */
 public class RepositoryProperties implements ServletContextListener {
 
 	private static final Logger LOGGER = LogManager.getLogger(RepositoryProperties.class);
@@ -0,0 +1,115 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.opentosca.csarrepo.filesystem.Integrity;
+
+/**
+ * Outcome of an integrity check of the stored archives
+ */
+public class ScrubResult {
+
+	private final Date started;
+	private final Date finished;
+	private final long checked;
+	private final long bytes;
+	private final boolean passCompleted;
+	private final List<Long> intact;
+	private final List<Finding> damaged;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param checked
+	 *            number of checked hashed files
+	 * @param bytes
+	 *            number of read bytes
+	 * @param passCompleted
+	 *            <code>true</code> if the end of the store was reached
+	 * @param intact
+	 *            ids of the hashed files found intact
+	 * @param damaged
+	 *            hashed files found missing, truncated or corrupt
+	 * @param errors
+	 */
+	public ScrubResult(Date started, long checked, long bytes, boolean passCompleted, List<Long> intact,
+			List<Finding> damaged, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.checked = checked;
+		this.bytes = bytes;
+		this.passCompleted = passCompleted;
+		this.intact = Collections.unmodifiableList(new ArrayList<Long>(intact));
+		this.damaged = Collections.unmodifiableList(new ArrayList<Finding>(damaged));
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public long getChecked() {
+		return checked;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public boolean isPassCompleted() {
+		return passCompleted;
+	}
+
+	public List<Long> getIntact() {
+		return intact;
+	}
+
+	public List<Finding> getDamaged() {
+		return damaged;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * A damaged hashed file
+	 */
+	public static class Finding {
+
+		private final long hashedFileId;
+		private final String hash;
+		private final Integrity integrity;
+		private final Date found;
+
+		public Finding(long hashedFileId, String hash, Integrity integrity) {
+			this.hashedFileId = hashedFileId;
+			this.hash = hash;
+			this.integrity = integrity;
+			this.found = new Date();
+		}
+
+		public long getHashedFileId() {
+			return hashedFileId;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public Integrity getIntegrity() {
+			return integrity;
+		}
+
+		public Date getFound() {
+			return found;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URL;
+
+/**
+ * Health of a remote server as seen by its {@link CircuitBreaker}
+ *
+ * Used by the templates to show whether a server is available.
+ */
+public class ServerHealth {
+
+	private static final ServerHealth UNKNOWN = new ServerHealth("Unknown", "default", null);
+
+	private final String label;
+	private final String cssClass;
+	private final String details;
+
+	private ServerHealth(String label, String cssClass, String details) {
+		this.label = label;
+		this.cssClass = cssClass;
+		this.details = details;
+	}
+
+	/**
+	 * @param address
+	 *            address of the remote server
+	 * @return the health of the server, unknown if it was never called
+	 */
+	public static ServerHealth of(URL address) {
+		CircuitBreaker breaker = CircuitBreaker.find(address);
+		if (null == breaker) {
+			return UNKNOWN;
+		}
+
+		switch (breaker.getState()) {
+		case OPEN:
+			return new ServerHealth("Unavailable", "danger", breaker.getLastFailure());
+		case HALF_OPEN:
+			return new ServerHealth("Recovering", "warning", breaker.getLastFailure());
+		default:
+			return new ServerHealth("Available", "success", String.format("%d calls, %d failed, %d rejected",
+					breaker.getCalls(), breaker.getFailures(), breaker.getRejectedCalls()));
+		}
+	}
+
+	/**
+	 * @return the text to show
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the bootstrap context class, e.g. <code>success</code>
+	 */
+	public String getCssClass() {
+		return cssClass;
+	}
+
+	/**
+	 * @return details, e.g. the last failure, or <code>null</code>
+	 */
+	public String getDetails() {
+		return details;
+	}
+}
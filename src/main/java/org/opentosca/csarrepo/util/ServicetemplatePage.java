@@ -0,0 +1,94 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One page of a filtered list of service templates
+ */
+public class ServicetemplatePage {
+
+	private final List<Servicetemplate> serviceTemplates;
+	private final String filter;
+	private final int page;
+	private final int pageSize;
+	private final int total;
+
+	/**
+	 * @param serviceTemplates
+	 *            all service templates
+	 * @param filter
+	 *            text the namespace or name has to contain, ignoring case,
+	 *            or <code>null</code>
+	 * @param page
+	 *            number of the page, starting at 1, values out of range are
+	 *            moved to the nearest page
+	 * @param pageSize
+	 *            maximum number of templates per page
+	 */
+	public ServicetemplatePage(List<Servicetemplate> serviceTemplates, String filter, int page, int pageSize) {
+		this.filter = null == filter ? "" : filter.trim();
+		this.pageSize = Math.max(1, pageSize);
+
+		List<Servicetemplate> matches = new ArrayList<Servicetemplate>();
+		String needle = this.filter.toLowerCase(Locale.ENGLISH);
+		for (Servicetemplate serviceTemplate : serviceTemplates) {
+			if (needle.isEmpty() || contains(serviceTemplate.getNamespace(), needle)
+					|| contains(serviceTemplate.getName(), needle)) {
+				matches.add(serviceTemplate);
+			}
+		}
+		this.total = matches.size();
+		this.page = Math.max(1, Math.min(page, getPages()));
+
+		int from = (this.page - 1) * this.pageSize;
+		this.serviceTemplates = new ArrayList<Servicetemplate>(matches.subList(from,
+				Math.min(from + this.pageSize, total)));
+	}
+
+	private static boolean contains(String value, String needle) {
+		return null != value && value.toLowerCase(Locale.ENGLISH).contains(needle);
+	}
+
+	/**
+	 * @return the service templates on this page
+	 */
+	public List<Servicetemplate> getServiceTemplates() {
+		return serviceTemplates;
+	}
+
+	public String getFilter() {
+		return filter;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return the number of matching service templates
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the number of pages, at least 1
+	 */
+	public int getPages() {
+		return Math.max(1, (total + pageSize - 1) / pageSize);
+	}
+
+	public boolean isFirst() {
+		return 1 == page;
+	}
+
+	public boolean isLast() {
+		return getPages() == page;
+	}
+}
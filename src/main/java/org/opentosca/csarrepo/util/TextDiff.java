@@ -0,0 +1,160 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line based diff in the unified format
+ *
+ * Common leading and trailing lines are cut off first, the remaining lines are
+ * compared by their longest common subsequence. If they are too many for
+ * that, i.e. more than <code>MAX_CELLS</code> pairs, they are shown as
+ * replaced as a whole.
+ */
+public class TextDiff {
+
+	private static final long MAX_CELLS = 1000000;
+	private static final char SAME = ' ';
+	private static final char REMOVED = '-';
+	private static final char ADDED = '+';
+
+	/**
+	 * @param fromName
+	 *            name of the old text
+	 * @param toName
+	 *            name of the new text
+	 * @param from
+	 *            lines of the old text
+	 * @param to
+	 *            lines of the new text
+	 * @param context
+	 *            number of unchanged lines shown around a change
+	 * @return the diff, empty if the texts are the same
+	 */
+	public static String unified(String fromName, String toName, List<String> from, List<String> to, int context) {
+		List<Line> lines = compare(from, to);
+		StringBuilder diff = new StringBuilder();
+
+		int[] fromBefore = new int[lines.size() + 1];
+		int[] toBefore = new int[lines.size() + 1];
+		for (int i = 0; i < lines.size(); i++) {
+			char type = lines.get(i).type;
+			fromBefore[i + 1] = fromBefore[i] + (ADDED == type ? 0 : 1);
+			toBefore[i + 1] = toBefore[i] + (REMOVED == type ? 0 : 1);
+		}
+
+		int i = 0;
+		while (i < lines.size()) {
+			if (SAME == lines.get(i).type) {
+				i++;
+				continue;
+			}
+			int start = Math.max(0, i - context);
+			int end = i;
+			while (true) {
+				while (end < lines.size() && SAME != lines.get(end).type) {
+					end++;
+				}
+				int next = end;
+				while (next < lines.size() && SAME == lines.get(next).type) {
+					next++;
+				}
+				if (next < lines.size() && next - end <= 2 * context) {
+					// close enough to join the next change
+					end = next;
+					continue;
+				}
+				end = Math.min(lines.size(), end + context);
+				break;
+			}
+
+			if (0 == diff.length()) {
+				diff.append("--- ").append(fromName).append('\n');
+				diff.append("+++ ").append(toName).append('\n');
+			}
+			int fromCount = fromBefore[end] - fromBefore[start];
+			int toCount = toBefore[end] - toBefore[start];
+			diff.append("@@ -").append(fromBefore[start] + (0 == fromCount ? 0 : 1)).append(',').append(fromCount);
+			diff.append(" +").append(toBefore[start] + (0 == toCount ? 0 : 1)).append(',').append(toCount);
+			diff.append(" @@\n");
+			for (int j = start; j < end; j++) {
+				diff.append(lines.get(j).type).append(lines.get(j).text).append('\n');
+			}
+			i = end;
+		}
+		return diff.toString();
+	}
+
+	private static List<Line> compare(List<String> from, List<String> to) {
+		int prefix = 0;
+		while (prefix < from.size() && prefix < to.size() && from.get(prefix).equals(to.get(prefix))) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < from.size() - prefix && suffix < to.size() - prefix
+				&& from.get(from.size() - 1 - suffix).equals(to.get(to.size() - 1 - suffix))) {
+			suffix++;
+		}
+
+		List<Line> lines = new ArrayList<Line>(from.size() + to.size());
+		for (int i = 0; i < prefix; i++) {
+			lines.add(new Line(SAME, from.get(i)));
+		}
+		List<String> fromMiddle = from.subList(prefix, from.size() - suffix);
+		List<String> toMiddle = to.subList(prefix, to.size() - suffix);
+		if ((long) fromMiddle.size() * toMiddle.size() > MAX_CELLS) {
+			for (String text : fromMiddle) {
+				lines.add(new Line(REMOVED, text));
+			}
+			for (String text : toMiddle) {
+				lines.add(new Line(ADDED, text));
+			}
+		} else {
+			compareMiddle(fromMiddle, toMiddle, lines);
+		}
+		for (int i = from.size() - suffix; i < from.size(); i++) {
+			lines.add(new Line(SAME, from.get(i)));
+		}
+		return lines;
+	}
+
+	private static void compareMiddle(List<String> from, List<String> to, List<Line> lines) {
+		// length of the longest common subsequence of the remaining lines
+		int[][] common = new int[from.size() + 1][to.size() + 1];
+		for (int i = from.size() - 1; i >= 0; i--) {
+			for (int j = to.size() - 1; j >= 0; j--) {
+				common[i][j] = from.get(i).equals(to.get(j)) ? common[i + 1][j + 1] + 1 : Math.max(common[i + 1][j],
+						common[i][j + 1]);
+			}
+		}
+		int i = 0;
+		int j = 0;
+		while (i < from.size() && j < to.size()) {
+			if (from.get(i).equals(to.get(j))) {
+				lines.add(new Line(SAME, from.get(i++)));
+				j++;
+			} else if (common[i + 1][j] >= common[i][j + 1]) {
+				lines.add(new Line(REMOVED, from.get(i++)));
+			} else {
+				lines.add(new Line(ADDED, to.get(j++)));
+			}
+		}
+		while (i < from.size()) {
+			lines.add(new Line(REMOVED, from.get(i++)));
+		}
+		while (j < to.size()) {
+			lines.add(new Line(ADDED, to.get(j++)));
+		}
+	}
+
+	private static class Line {
+
+		private final char type;
+		private final String text;
+
+		Line(char type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of moving stored files between the cold tier and the other volumes
+ */
+public class TieringResult {
+
+	private final Date started;
+	private final Date finished;
+	private final long demoted;
+	private final long promoted;
+	private final long bytes;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param demoted
+	 *            number of files moved to the cold tier
+	 * @param promoted
+	 *            number of files moved back from the cold tier
+	 * @param bytes
+	 *            size of the moved files
+	 * @param errors
+	 */
+	public TieringResult(Date started, long demoted, long promoted, long bytes, List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.demoted = demoted;
+		this.promoted = promoted;
+		this.bytes = bytes;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public long getDemoted() {
+		return demoted;
+	}
+
+	public long getPromoted() {
+		return promoted;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,92 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.Calendar;
+
+/**
+ * Daily period of time, e.g. the off-peak hours for background work
+ *
+ * A window is written as <code>HH:mm-HH:mm</code> in local time and may span
+ * midnight, e.g. <code>22:00-06:00</code>. The start is included, the end is
+ * not.
+ */
+public class TimeWindow {
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	private final int start;
+	private final int end;
+
+	/**
+	 * @param start
+	 *            minute of the day the window opens
+	 * @param end
+	 *            minute of the day the window closes
+	 */
+	public TimeWindow(int start, int end) {
+		if (start < 0 || start >= MINUTES_PER_DAY || end < 0 || end >= MINUTES_PER_DAY) {
+			throw new IllegalArgumentException("Minutes must be between 0 and " + (MINUTES_PER_DAY - 1));
+		}
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @param window
+	 *            the window as <code>HH:mm-HH:mm</code>
+	 * @return the window or <code>null</code> if the given string is empty,
+	 *         meaning always
+	 * @throws IllegalArgumentException
+	 *             if the given string is no window
+	 */
+	public static TimeWindow parse(String window) {
+		if (null == window || window.trim().isEmpty()) {
+			return null;
+		}
+		String[] times = window.trim().split("-");
+		if (2 != times.length) {
+			throw new IllegalArgumentException("Invalid time window: " + window);
+		}
+		return new TimeWindow(parseTime(times[0]), parseTime(times[1]));
+	}
+
+	private static int parseTime(String time) {
+		String[] parts = time.trim().split(":");
+		if (2 != parts.length) {
+			throw new IllegalArgumentException("Invalid time: " + time);
+		}
+		try {
+			int hours = Integer.parseInt(parts[0]);
+			int minutes = Integer.parseInt(parts[1]);
+			if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+				throw new IllegalArgumentException("Invalid time: " + time);
+			}
+			return hours * 60 + minutes;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid time: " + time, e);
+		}
+	}
+
+	/**
+	 * @param time
+	 * @return <code>true</code> if the given time is within the window
+	 */
+	public boolean contains(Calendar time) {
+		int minute = time.get(Calendar.HOUR_OF_DAY) * 60 + time.get(Calendar.MINUTE);
+		if (start <= end) {
+			return start <= minute && minute < end;
+		}
+		return start <= minute || minute < end;
+	}
+
+	/**
+	 * @return <code>true</code> if the window is open right now
+	 */
+	public boolean isOpen() {
+		return contains(Calendar.getInstance());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%02d:%02d-%02d:%02d", start / 60, start % 60, end / 60, end % 60);
+	}
+}
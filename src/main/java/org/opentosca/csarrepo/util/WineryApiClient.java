@@ -1,32 +1,34 @@
 package org.opentosca.csarrepo.util;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
-import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.opentosca.csarrepo.filesystem.FileSystem;
 import org.opentosca.csarrepo.model.CsarFile;
 
@@ -35,6 +37,7 @@ public class WineryApiClient {
 	private static final Logger LOGGER = LogManager.getLogger(WineryApiClient.class);
 
 	private Client client;
+	private CircuitBreaker circuitBreaker;
 	private String url;
 
 	public WineryApiClient(URL url) {
@@ -42,14 +45,14 @@ public class WineryApiClient {
 		if (this.url.charAt(this.url.length() - 1) != '/') {
 			this.url += "/";
 		}
-		this.client = ClientBuilder.newClient(new ClientConfig().register(MultiPartFeature.class));
+		this.client = RemoteClientRegistry.getClient(url);
+		this.circuitBreaker = CircuitBreaker.forAddress(url);
 	}
 
 	public void uploadToWinery(CsarFile file) throws Exception {
 		FileSystem fs = new FileSystem();
-		File f = fs.getFile(file.getHashedFile().getFilename());
 
-		if (f == null) {
+		if (!fs.exists(file.getHashedFile().getFilename())) {
 			throw new FileNotFoundException(file.getName() + " not found");
 		}
 
@@ -59,22 +62,26 @@ public class WineryApiClient {
 				.name("file");
 
 		dispositionBuilder.fileName(file.getName());
-		dispositionBuilder.size(f.getTotalSpace());
+		dispositionBuilder.size(file.getHashedFile().getSize());
 		FormDataContentDisposition formDataContentDisposition = dispositionBuilder.build();
 
-		multiPart.bodyPart(new FormDataBodyPart("file", f, MediaType.APPLICATION_OCTET_STREAM_TYPE)
-				.contentDisposition(formDataContentDisposition));
+		Response response;
+		try (InputStream inputStream = fs.getInputStream(file.getHashedFile().getFilename())) {
+			multiPart.bodyPart(new FormDataBodyPart("file", inputStream, MediaType.APPLICATION_OCTET_STREAM_TYPE)
+					.contentDisposition(formDataContentDisposition));
 
-		Entity<FormDataMultiPart> entity = Entity.entity(multiPart, MediaType.MULTIPART_FORM_DATA_TYPE);
+			Entity<FormDataMultiPart> entity = Entity.entity(multiPart, MediaType.MULTIPART_FORM_DATA_TYPE);
 
-		// send request
-		WebTarget target = client.target(this.url);
-		Builder request = target.request();
-		request.accept("application/json");
-		Response response = request.post(entity);
+			// send request
+			WebTarget target = client.target(this.url);
+			Builder request = target.request();
+			request.accept("application/json");
+			response = circuitBreaker.invoke(request.buildPost(entity));
+		}
 
 		// handle response
 		if (Status.NO_CONTENT.getStatusCode() == response.getStatus()) {
+			response.close();
 			return;
 		}
 
@@ -86,18 +93,45 @@ public class WineryApiClient {
 			throw new Exception(StringUtils.join(errors));
 		}
 
+		response.close();
 		throw new Exception("failed to push to winery");
 	}
 
 	public WineryCsarFileObject pullFromWinery(String id) throws Exception {
+		return pullFromWinery(id, null);
+	}
+
+	/**
+	 * Pulls the given service template, unless it is unchanged.
+	 * 
+	 * @param id
+	 *            the address of the service template relative to
+	 *            servicetemplates/
+	 * @param etag
+	 *            entity tag of the last pull or <code>null</code>
+	 * @return the service template or <code>null</code>, if it matches the
+	 *         given entity tag
+	 * @throws Exception
+	 */
+	public WineryCsarFileObject pullFromWinery(String id, String etag) throws Exception {
 		// send request
 		WebTarget target = client.target(this.url + "servicetemplates/" + id);
 		Builder request = target.request();
 		request.accept("application/zip");
-		Response response = request.get();
+		if (null != etag) {
+			request.header(HttpHeaders.IF_NONE_MATCH, etag);
+		}
+		Response response = circuitBreaker.invoke(request.buildGet());
+
+		if (Status.NOT_MODIFIED.getStatusCode() == response.getStatus()) {
+			// 304
+			response.close();
+			return null;
+		}
 
 		if (Status.NOT_FOUND.getStatusCode() == response.getStatus()) {
 			// 404
+			response.close();
 			throw new Exception("No corresponding servicetemplate found");
 		}
 
@@ -112,14 +146,15 @@ public class WineryApiClient {
 				if (regexMatcher.find()) {
 					filename = regexMatcher.group();
 				}
-				return new WineryCsarFileObject(stream, filename);
+				return new WineryCsarFileObject(stream, filename, response.getHeaderString(HttpHeaders.ETAG));
 			} catch (Exception e) {
-				e.printStackTrace();
-				return null;
+				response.close();
+				throw new Exception("Invalid response of winery: " + e.getMessage(), e);
 			}
 		}
 
 		// other status code
+		response.close();
 		throw new Exception("Error connecting to winery");
 	}
 
@@ -128,40 +163,63 @@ public class WineryApiClient {
 		WebTarget target = client.target(this.url + "servicetemplates/");
 		Builder request = target.request();
 		request.accept("application/json");
-		Response response = request.get();
+		Response response = circuitBreaker.invoke(request.buildGet());
 
 		if (Status.NOT_FOUND.getStatusCode() == response.getStatus()) {
 			// 404
+			response.close();
 			throw new Exception("Invalid call to winery");
 		}
 
 		if (Status.OK.getStatusCode() == response.getStatus()) {
 			// 200
-			String json = response.readEntity(String.class);
-			return this.parseServicetemplateJsonToList(json);
+			try (Reader reader = new InputStreamReader(response.readEntity(InputStream.class), StandardCharsets.UTF_8)) {
+				return parseServicetemplates(reader);
+			} catch (JSONException e) {
+				LOGGER.error(e);
+				throw new Exception("Invalid list of servicetemplates: " + e.getMessage(), e);
+			}
 		}
 
+		response.close();
 		throw new Exception("Error connecting to winery");
 	}
 
-	private List<Servicetemplate> parseServicetemplateJsonToList(String json) {
-		JSONArray jsonArray;
-
+	/**
+	 * Parses the list of service templates element by element, without
+	 * holding the whole document in memory.
+	 * 
+	 * @param reader
+	 *            the JSON array returned by winery
+	 * @return the service templates
+	 * @throws JSONException
+	 */
+	static List<Servicetemplate> parseServicetemplates(Reader reader) throws JSONException {
 		List<Servicetemplate> result = new ArrayList<Servicetemplate>();
-		try {
-			jsonArray = new JSONArray(json);
-
-			for (int i = 0; i < jsonArray.length(); i++) {
-				String tmpId = jsonArray.getJSONObject(i).getString("id");
-				String tmpNamespace = jsonArray.getJSONObject(i).getString("namespace");
-				String tmpName = jsonArray.getJSONObject(i).getString("name");
-
-				result.add(new Servicetemplate(tmpId, tmpNamespace, tmpName));
+		JSONTokener tokener = new JSONTokener(reader);
+		if ('[' != tokener.nextClean()) {
+			throw tokener.syntaxError("A JSONArray text must start with '['");
+		}
+		if (']' == tokener.nextClean()) {
+			return result;
+		}
+		tokener.back();
+
+		while (true) {
+			Object value = tokener.nextValue();
+			if (value instanceof JSONObject) {
+				JSONObject serviceTemplate = (JSONObject) value;
+				result.add(new Servicetemplate(serviceTemplate.getString("id"), serviceTemplate
+						.getString("namespace"), serviceTemplate.getString("name")));
+			}
+			char next = tokener.nextClean();
+			if (']' == next) {
+				return result;
+			}
+			if (',' != next) {
+				throw tokener.syntaxError("Expected ',' or ']'");
 			}
-		} catch (JSONException e) {
-			LOGGER.error(e);
 		}
-		return result;
 	}
 
 	private List<String> parseErrorsJson(String json) {
@@ -9,10 +9,16 @@ public class WineryCsarFileObject {
 
 	private InputStream inputStream;
 	private String filename;
+	private String etag;
 
 	public WineryCsarFileObject(InputStream inputStream, String filename) {
+		this(inputStream, filename, null);
+	}
+
+	public WineryCsarFileObject(InputStream inputStream, String filename, String etag) {
 		this.inputStream = inputStream;
 		this.filename = filename;
+		this.etag = etag;
 	}
 
 	public InputStream getInputStream() {
@@ -23,4 +29,11 @@ public class WineryCsarFileObject {
 		return filename;
 	}
 
+	/**
+	 * @return the entity tag sent by winery or <code>null</code>
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
 }
@@ -0,0 +1,83 @@
+package org.opentosca.csarrepo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of a synchronization of the service templates of a winery server
+ */
+public class WinerySyncResult {
+
+	private final Date started;
+	private final Date finished;
+	private final int templates;
+	private final int unchanged;
+	private final int updated;
+	private final int imported;
+	private final List<String> errors;
+
+	/**
+	 * @param started
+	 * @param templates
+	 *            number of service templates offered by winery
+	 * @param unchanged
+	 *            number of templates which were not modified
+	 * @param updated
+	 *            number of new versions of existing CSARs
+	 * @param imported
+	 *            number of templates imported as new CSARs
+	 * @param errors
+	 *            messages of the templates which could not be synchronized
+	 */
+	public WinerySyncResult(Date started, int templates, int unchanged, int updated, int imported,
+			List<String> errors) {
+		this.started = started;
+		this.finished = new Date();
+		this.templates = templates;
+		this.unchanged = unchanged;
+		this.updated = updated;
+		this.imported = imported;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public Date getFinished() {
+		return finished;
+	}
+
+	public int getTemplates() {
+		return templates;
+	}
+
+	public int getUnchanged() {
+		return unchanged;
+	}
+
+	public int getUpdated() {
+		return updated;
+	}
+
+	public int getImported() {
+		return imported;
+	}
+
+	public int getFailed() {
+		return errors.size();
+	}
+
+	/**
+	 * @return number of templates which are not mirrored
+	 */
+	public int getSkipped() {
+		return Math.max(0, templates - unchanged - updated - imported - getFailed());
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,131 @@
+package org.opentosca.csarrepo.util;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of the service template listings of winery servers
+ *
+ * A listing is kept for <code>wineryTemplateCacheTtl</code> milliseconds.
+ * Older listings are still served while a refresh runs in the background, only
+ * the first request of a server waits for winery. If a refresh fails, the old
+ * listing is kept.
+ */
+public class WineryTemplateCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(WineryTemplateCache.class);
+
+	private static final long DEFAULT_TTL = 300000;
+
+	private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * @param address
+	 *            address of the winery
+	 * @return the service templates of the winery
+	 * @throws Exception
+	 *             if there is no listing yet and winery could not be reached
+	 */
+	public static List<Servicetemplate> getServiceTemplates(URL address) throws Exception {
+		Entry entry = getEntry(address);
+		List<Servicetemplate> serviceTemplates = entry.serviceTemplates;
+		if (null == serviceTemplates) {
+			synchronized (entry) {
+				// another request may have loaded it meanwhile
+				if (null == entry.serviceTemplates) {
+					entry.store(new WineryApiClient(address).getServiceTemplates());
+				}
+				return entry.serviceTemplates;
+			}
+		}
+		if (System.currentTimeMillis() - entry.loaded > Long.getLong("wineryTemplateCacheTtl", DEFAULT_TTL)) {
+			refresh(address, entry);
+		}
+		return serviceTemplates;
+	}
+
+	/**
+	 * Replaces the listing of the given winery, e.g. with the one of a
+	 * synchronization.
+	 *
+	 * @param address
+	 *            address of the winery
+	 * @param serviceTemplates
+	 *            the current service templates
+	 */
+	public static void put(URL address, List<Servicetemplate> serviceTemplates) {
+		getEntry(address).store(serviceTemplates);
+	}
+
+	/**
+	 * Drops the listing of the given winery, e.g. after it was changed or
+	 * deleted.
+	 *
+	 * @param address
+	 *            address of the winery
+	 */
+	public static void invalidate(URL address) {
+		ENTRIES.remove(address.toExternalForm());
+	}
+
+	private static Entry getEntry(URL address) {
+		String key = address.toExternalForm();
+		Entry entry = ENTRIES.get(key);
+		if (null == entry) {
+			synchronized (ENTRIES) {
+				entry = ENTRIES.get(key);
+				if (null == entry) {
+					entry = new Entry();
+					ENTRIES.put(key, entry);
+				}
+			}
+		}
+		return entry;
+	}
+
+	private static void refresh(final URL address, final Entry entry) {
+		synchronized (entry) {
+			if (entry.refreshing) {
+				return;
+			}
+			entry.refreshing = true;
+		}
+		try {
+			RemoteIoExecutor.getExecutor().submit(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						entry.store(new WineryApiClient(address).getServiceTemplates());
+					} catch (Exception e) {
+						LOGGER.warn("Refresh of service templates of {} failed: {}", address, e.getMessage());
+					} finally {
+						entry.refreshing = false;
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing = false;
+		}
+	}
+
+	private static class Entry {
+
+		private volatile List<Servicetemplate> serviceTemplates;
+		private volatile long loaded;
+		private volatile boolean refreshing;
+
+		void store(List<Servicetemplate> serviceTemplates) {
+			this.serviceTemplates = Collections.unmodifiableList(new ArrayList<Servicetemplate>(serviceTemplates));
+			this.loaded = System.currentTimeMillis();
+		}
+	}
+}
@@ -0,0 +1,456 @@
+package org.opentosca.csarrepo.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Central directory of a zip archive
+ *
+ * The directory is read from the end of the archive, so listing the entries of
+ * an archive or reading a single one doesn't read or decompress the others.
+ * The metadata of the entries, i.e. name, sizes and CRC, is taken as it is
+ * from the directory.
+ */
+public class ZipDirectory {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int CENTRAL_HEADER_LENGTH = 46;
+	private static final int END_LENGTH = 22;
+	private static final int ZIP64_END_LENGTH = 56;
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+	private static final int MAX_COMMENT_LENGTH = 65535;
+	private static final int ENCRYPTED_FLAG = 1;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final List<Entry> entries;
+	private final Map<String, Entry> byName;
+
+	private ZipDirectory(List<Entry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.byName = new LinkedHashMap<String, Entry>();
+		for (Entry entry : entries) {
+			byName.put(entry.name, entry);
+		}
+	}
+
+	/**
+	 * Reads the central directory of the given archive.
+	 *
+	 * @param channel
+	 *            the archive
+	 * @return the directory
+	 * @throws ZipException
+	 *             if the archive is no zip archive or damaged
+	 * @throws IOException
+	 *             if the archive could not be read
+	 */
+	public static ZipDirectory read(SeekableByteChannel channel) throws IOException {
+		long length = channel.size();
+		int tailLength = (int) Math.min(length, END_LENGTH + MAX_COMMENT_LENGTH);
+		ByteBuffer tail = readFully(channel, length - tailLength, tailLength);
+		int end = -1;
+		for (int i = tailLength - END_LENGTH; i >= 0; i--) {
+			if (END_SIGNATURE == tail.getInt(i) && i + END_LENGTH + (tail.getShort(i + 20) & 0xFFFF) == tailLength) {
+				end = i;
+				break;
+			}
+		}
+		if (-1 == end) {
+			throw new ZipException("No zip archive");
+		}
+
+		long count = tail.getShort(end + 10) & 0xFFFF;
+		long directoryLength = tail.getInt(end + 12) & 0xFFFFFFFFL;
+		long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+		if (0xFFFF == count || 0xFFFFFFFFL == directoryLength || 0xFFFFFFFFL == directoryOffset) {
+			long endPosition = length - tailLength + end;
+			if (endPosition < ZIP64_LOCATOR_LENGTH) {
+				throw new ZipException("Missing ZIP64 end of central directory");
+			}
+			ByteBuffer locator = readFully(channel, endPosition - ZIP64_LOCATOR_LENGTH, ZIP64_LOCATOR_LENGTH);
+			if (ZIP64_LOCATOR_SIGNATURE != locator.getInt(0)) {
+				throw new ZipException("Missing ZIP64 end of central directory");
+			}
+			ByteBuffer zip64End = readFully(channel, locator.getLong(8), ZIP64_END_LENGTH);
+			if (ZIP64_END_SIGNATURE != zip64End.getInt(0)) {
+				throw new ZipException("Damaged ZIP64 end of central directory");
+			}
+			count = zip64End.getLong(32);
+			directoryLength = zip64End.getLong(40);
+			directoryOffset = zip64End.getLong(48);
+		}
+		if (0 > directoryOffset || directoryOffset + directoryLength > length || Integer.MAX_VALUE < directoryLength) {
+			throw new ZipException("Damaged central directory");
+		}
+
+		ByteBuffer directory = readFully(channel, directoryOffset, (int) directoryLength);
+		List<Entry> entries = new ArrayList<Entry>((int) Math.min(count, 65536));
+		int position = 0;
+		for (long i = 0; i < count; i++) {
+			if (position + CENTRAL_HEADER_LENGTH > directoryLength
+					|| CENTRAL_HEADER_SIGNATURE != directory.getInt(position)) {
+				throw new ZipException("Damaged central directory");
+			}
+			int nameLength = directory.getShort(position + 28) & 0xFFFF;
+			int extraLength = directory.getShort(position + 30) & 0xFFFF;
+			int commentLength = directory.getShort(position + 32) & 0xFFFF;
+			int next = position + CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+			if (next > directoryLength) {
+				throw new ZipException("Damaged central directory");
+			}
+			entries.add(readEntry(directory, position, nameLength, extraLength));
+			position = next;
+		}
+		return new ZipDirectory(entries);
+	}
+
+	private static Entry readEntry(ByteBuffer directory, int position, int nameLength, int extraLength)
+			throws ZipException {
+		byte[] name = new byte[nameLength];
+		for (int i = 0; i < nameLength; i++) {
+			name[i] = directory.get(position + CENTRAL_HEADER_LENGTH + i);
+		}
+		long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+		long size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+		long offset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+
+		// the ZIP64 extra field holds the values which don't fit, in this order
+		int extra = position + CENTRAL_HEADER_LENGTH + nameLength;
+		int extraEnd = extra + extraLength;
+		while (extra + 4 <= extraEnd) {
+			int id = directory.getShort(extra) & 0xFFFF;
+			int dataLength = directory.getShort(extra + 2) & 0xFFFF;
+			int data = extra + 4;
+			if (ZIP64_EXTRA_ID == id) {
+				int dataEnd = Math.min(data + dataLength, extraEnd);
+				if (0xFFFFFFFFL == size && data + 8 <= dataEnd) {
+					size = directory.getLong(data);
+					data += 8;
+				}
+				if (0xFFFFFFFFL == compressedSize && data + 8 <= dataEnd) {
+					compressedSize = directory.getLong(data);
+					data += 8;
+				}
+				if (0xFFFFFFFFL == offset && data + 8 <= dataEnd) {
+					offset = directory.getLong(data);
+				}
+				break;
+			}
+			extra = data + dataLength;
+		}
+		if (0 > size || 0 > compressedSize || 0 > offset) {
+			throw new ZipException("Damaged central directory");
+		}
+
+		return new Entry(new String(name, StandardCharsets.UTF_8), directory.getShort(position + 8) & 0xFFFF,
+				directory.getShort(position + 10) & 0xFFFF, directory.getInt(position + 16) & 0xFFFFFFFFL,
+				compressedSize, size, toTime(directory.getInt(position + 12)), offset);
+	}
+
+	private static long toTime(int dosTime) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(((dosTime >> 25) & 0x7F) + 1980, ((dosTime >> 21) & 0x0F) - 1, (dosTime >> 16) & 0x1F,
+				(dosTime >> 11) & 0x1F, (dosTime >> 5) & 0x3F, (dosTime << 1) & 0x3E);
+		return calendar.getTimeInMillis();
+	}
+
+	private static ByteBuffer readFully(SeekableByteChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		synchronized (channel) {
+			channel.position(position);
+			while (buffer.hasRemaining()) {
+				if (-1 == channel.read(buffer)) {
+					throw new EOFException("Unexpected end of archive");
+				}
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @return the entries in the order of the directory
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param name
+	 *            the path of the entry in the archive
+	 * @return the entry or <code>null</code> if there is none
+	 */
+	public Entry getEntry(String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * Lists the content of a directory of the archive. Directories which have
+	 * no entry of their own, but contain entries, are listed as well.
+	 *
+	 * @param directory
+	 *            path of the directory, empty for the root
+	 * @param recursive
+	 *            whether the content of subdirectories is listed too
+	 * @return the entries below the directory, sorted by name, or
+	 *         <code>null</code> if there is no such directory
+	 */
+	public List<Entry> list(String directory, boolean recursive) {
+		String prefix = directory.isEmpty() || directory.endsWith("/") ? directory : directory + "/";
+		Map<String, Entry> listed = new TreeMap<String, Entry>();
+		boolean exists = prefix.isEmpty() || byName.containsKey(prefix);
+		for (Entry entry : entries) {
+			if (!entry.name.startsWith(prefix) || entry.name.length() == prefix.length()) {
+				continue;
+			}
+			exists = true;
+			int separator = entry.name.indexOf('/', prefix.length());
+			while (-1 != separator && separator < entry.name.length() - 1) {
+				String parent = entry.name.substring(0, separator + 1);
+				if (!listed.containsKey(parent)) {
+					Entry parentEntry = byName.get(parent);
+					listed.put(parent, null == parentEntry ? new Entry(parent) : parentEntry);
+				}
+				if (!recursive) {
+					break;
+				}
+				separator = entry.name.indexOf('/', separator + 1);
+			}
+			if (recursive || -1 == separator || separator == entry.name.length() - 1) {
+				listed.put(entry.name, entry);
+			}
+		}
+		return exists ? new ArrayList<Entry>(listed.values()) : null;
+	}
+
+	/**
+	 * Opens the content of an entry, decompressing it if needed. Closing the
+	 * stream closes the channel.
+	 *
+	 * @param channel
+	 *            the archive this directory was read from
+	 * @param entry
+	 *            an entry of this directory
+	 * @return the content of the entry
+	 * @throws ZipException
+	 *             if the entry is encrypted, uses an unsupported compression
+	 *             method or its local header is damaged
+	 * @throws IOException
+	 *             if the archive could not be read
+	 */
+	public static InputStream open(SeekableByteChannel channel, Entry entry) throws IOException {
+		if (entry.isDirectory()) {
+			throw new ZipException(entry.name + " is a directory");
+		}
+		if (0 != (entry.flags & ENCRYPTED_FLAG)) {
+			throw new ZipException(entry.name + " is encrypted");
+		}
+		if (STORED != entry.method && DEFLATED != entry.method) {
+			throw new ZipException(entry.name + " uses the unsupported compression method " + entry.method);
+		}
+		ByteBuffer header = readFully(channel, entry.offset, LOCAL_HEADER_LENGTH);
+		if (LOCAL_HEADER_SIGNATURE != header.getInt(0)) {
+			throw new ZipException("Damaged local header of " + entry.name);
+		}
+		long dataOffset = entry.offset + LOCAL_HEADER_LENGTH + (header.getShort(26) & 0xFFFF)
+				+ (header.getShort(28) & 0xFFFF);
+		if (dataOffset + entry.compressedSize > channel.size()) {
+			throw new ZipException("Damaged local header of " + entry.name);
+		}
+
+		InputStream data = new ChannelInputStream(channel, dataOffset, entry.compressedSize);
+		if (STORED == entry.method) {
+			return data;
+		}
+		return new EntryInflaterInputStream(data);
+	}
+
+	/**
+	 * An entry of the directory
+	 */
+	public static class Entry {
+
+		private final String name;
+		private final int flags;
+		private final int method;
+		private final long crc;
+		private final long compressedSize;
+		private final long size;
+		private final long lastModified;
+		private final long offset;
+
+		Entry(String name, int flags, int method, long crc, long compressedSize, long size, long lastModified,
+				long offset) {
+			this.name = name;
+			this.flags = flags;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.offset = offset;
+		}
+
+		/**
+		 * A directory without entry of its own
+		 */
+		Entry(String name) {
+			this(name, 0, STORED, 0, 0, 0, 0, -1);
+		}
+
+		/**
+		 * @return the path of the entry in the archive, ending with
+		 *         <code>/</code> for directories
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public long getCrc() {
+			return crc;
+		}
+
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the time of the last modification in milliseconds,
+		 *         <code>0</code> for directories without entry
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+	}
+
+	/**
+	 * Reads a part of the archive, skipping is a seek
+	 */
+	private static class ChannelInputStream extends InputStream {
+
+		private final SeekableByteChannel channel;
+		private long position;
+		private long remaining;
+
+		ChannelInputStream(SeekableByteChannel channel, long position, long length) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return -1 == read(single, 0, 1) ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (0 >= remaining) {
+				return -1;
+			}
+			if (0 == length) {
+				return 0;
+			}
+			ByteBuffer target = ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining));
+			int read;
+			synchronized (channel) {
+				channel.position(position);
+				read = channel.read(target);
+			}
+			if (0 >= read) {
+				throw new EOFException("Unexpected end of archive");
+			}
+			position += read;
+			remaining -= read;
+			return read;
+		}
+
+		@Override
+		public long skip(long count) {
+			long skipped = Math.max(0, Math.min(count, remaining));
+			position += skipped;
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(remaining, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Inflates raw deflate data, the inflater is released on close
+	 */
+	private static class EntryInflaterInputStream extends InflaterInputStream {
+
+		private boolean dummyByte;
+
+		EntryInflaterInputStream(InputStream data) {
+			super(data, new Inflater(true), BUFFER_SIZE);
+		}
+
+		@Override
+		protected void fill() throws IOException {
+			int read = in.read(buf, 0, buf.length);
+			if (-1 == read) {
+				// the inflater may need an extra byte for raw deflate data
+				if (dummyByte) {
+					throw new EOFException("Unexpected end of compressed data");
+				}
+				dummyByte = true;
+				buf[0] = 0;
+				read = 1;
+			}
+			len = read;
+			inf.setInput(buf, 0, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				inf.end();
+			}
+		}
+	}
+}
@@ -48,11 +48,23 @@
 						<div class="form-group">
 					  		<label class="col-sm-2 control-label" for="sel1">OpenTOSCA Server</label>
 					  		<div class="col-sm-10">
-					  			<select class="form-control" id="opentoscaId" name="opentoscaId">
+					  			<select class="form-control" id="opentoscaId" name="opentoscaId" multiple>
 									<#list allOpentoscaServers as otServer>
 					    				<option value="${otServer.id}">${otServer.name} | ${otServer.address}</option>
 									</#list>
 					  			</select>
+					  			<span class="help-block">Several servers are deployed to in the background, see Deployment Jobs below.</span>
+					  		</div>
+						</div>
+						<div class="form-group">
+					  		<label class="col-sm-2 control-label" for="duplicates">Identical content</label>
+					  		<div class="col-sm-10">
+					  			<select class="form-control" id="duplicates" name="duplicates">
+					  				<option value="reuse">Reuse the existing deployment</option>
+					  				<option value="fail">Fail</option>
+					  				<option value="upload">Upload anyway</option>
+					  			</select>
+					  			<span class="help-block">What to do if a server already hosts another version with the same content.</span>
 					  		</div>
 						</div>
 						
@@ -159,6 +171,35 @@
     </div>
 </div>   
 
+<#if deploymentJobs?has_content>
+<div class="row" style="margin-bottom: 20px;">
+    <div class="col-lg-12">
+        <h2>Deployment Jobs</h2>
+        <#list deploymentJobs as job>
+            <h4>Job ${job.id?c} started ${job.created?datetime}<#if !job.finished> <small>(running, <a href="">reload</a>)</small></#if></h4>
+            <table class="table table-striped table-bordered" border="1">
+                <thead>
+                    <tr>
+                        <th>OpenTOSCA</th>
+                        <th>Status</th>
+                        <th>Location / Error</th>
+                    </tr>
+                </thead>
+                <tbody>
+                    <#list job.targets as target>
+                        <tr>
+                            <td><a href="${basePath}/opentoscaserver/${target.openToscaServerId?c}">${target.name}</a></td>
+                            <td>${target.status}</td>
+                            <td>${target.message!}<#if target.warning??><br/><span class="text-warning">${target.warning}</span></#if></td>
+                        </tr>
+                    </#list>
+                </tbody>
+            </table>
+        </#list>
+    </div>
+</div>
+</#if>
+
 <div class="row" style="margin-bottom: 20px;">
 	<div class="col-lg-12">
 		<h2>Cloud Instances</h2>
@@ -96,9 +96,173 @@
                 </a>
             </div>
         </div>
+        <!-- storage -->
+        <div class="col-lg-3 col-md-6">
+        	<div class="panel panel-info">
+            	<div class="panel-heading">
+                	<div class="row">
+                    	<div class="col-xs-3">
+                        	<i class="fa fa-database fa-5x"></i>
+                        </div>
+                        <div class="col-xs-9 text-right">
+                        	<div class="huge"><#if storage??>${storage.dedupRatio}%<#else>-</#if></div>
+                            <div>Stored of used space</div>
+                        </div>
+                    </div>
+                </div>
+                <div class="panel-footer">
+                	<#if storage??>
+                	<span class="pull-left">${(storage.logicalSize / 1048576)?round} MB in ${(storage.physicalSize / 1048576)?round} MB</span>
+                    <span class="pull-right">${storage.reused} of ${storage.entries} entries reused, ${storage.writtenRatio}% written</span>
+                    </#if>
+                    <div class="clearfix"></div>
+                </div>
+            </div>
+        </div>
+        <!-- garbage collection -->
+        <div class="col-lg-3 col-md-6">
+        	<div class="panel panel-info">
+            	<div class="panel-heading">
+                	<div class="row">
+                    	<div class="col-xs-3">
+                        	<i class="fa fa-trash-o fa-5x"></i>
+                        </div>
+                        <div class="col-xs-9 text-right">
+                        	<div class="huge">${(gcReclaimed / 1048576)?round} MB</div>
+                            <div>Reclaimed by garbage collection</div>
+                        </div>
+                    </div>
+                </div>
+                <div class="panel-footer">
+                	<span class="pull-left">
+                	<#if gcResult??>
+                		${gcResult.finished?datetime}<#if gcResult.dryRun> (dry run)</#if>: ${gcResult.hashedFiles} hashed files, ${gcResult.archives?c} archives, ${gcResult.blobs?c} blobs, ${(gcResult.bytes / 1048576)?round} MB
+                		<#if gcResult.errors?has_content><span class="text-danger">${gcResult.errors?join(", ")?html}</span></#if>
+                	<#else>
+                		not run yet
+                	</#if>
+                	</span>
+                    <span class="pull-right">
+                    	<form action="${basePath}/collectgarbage" method="POST" style="display: inline;">
+                    		<button type="submit" name="dryrun" value="1" class="btn btn-default btn-xs"<#if gcRunning> disabled</#if>>Dry run</button>
+                    		<button type="submit" class="btn btn-default btn-xs"<#if gcRunning> disabled</#if>>Collect</button>
+                    	</form>
+                    </span>
+                    <div class="clearfix"></div>
+                </div>
+            </div>
+        </div>
+        <!-- integrity check -->
+        <div class="col-lg-3 col-md-6">
+        	<div class="panel <#if scrub.damaged == 0>panel-info<#else>panel-danger</#if>">
+            	<div class="panel-heading">
+                	<div class="row">
+                    	<div class="col-xs-3">
+                        	<i class="fa fa-check-square-o fa-5x"></i>
+                        </div>
+                        <div class="col-xs-9 text-right">
+                        	<div class="huge">${scrub.damaged}</div>
+                            <div>Damaged archives</div>
+                        </div>
+                    </div>
+                </div>
+                <div class="panel-footer">
+                	<span class="pull-left">
+                	<#if scrubResult??>
+                		${scrubResult.finished?datetime}: ${scrub.checked?c} checked, ${(scrub.bytes / 1048576)?round} MB read, ${scrub.passes} passes
+                		<#if scrubResult.errors?has_content><span class="text-danger">${scrubResult.errors?join(", ")?html}</span></#if>
+                	<#else>
+                		not run yet
+                	</#if>
+                	</span>
+                    <span class="pull-right">
+                    	<form action="${basePath}/scrubstorage" method="POST" style="display: inline;">
+                    		<button type="submit" class="btn btn-default btn-xs"<#if scrubRunning> disabled</#if>>Check</button>
+                    	</form>
+                    </span>
+                    <div class="clearfix"></div>
+                    <#list scrubDamaged as finding>
+                    <div class="text-danger"><small>${finding.hash?html}: ${finding.integrity?lower_case} since ${finding.found?datetime}</small></div>
+                    </#list>
+                </div>
+            </div>
+        </div>
+        <!-- archive cache -->
+        <div class="col-lg-3 col-md-6">
+        	<div class="panel panel-info">
+            	<div class="panel-heading">
+                	<div class="row">
+                    	<div class="col-xs-3">
+                        	<i class="fa fa-hdd-o fa-5x"></i>
+                        </div>
+                        <div class="col-xs-9 text-right">
+                        	<div class="huge">${archiveCache.hitRate}%</div>
+                            <div>Archive cache hit rate</div>
+                        </div>
+                    </div>
+                </div>
+                <div class="panel-footer">
+                	<span class="pull-left">${archiveCache.entries} archives, ${(archiveCache.size / 1048576)?round} of ${(archiveCache.maxSize / 1048576)?round} MB</span>
+                    <span class="pull-right">${archiveCache.hits} hits, ${archiveCache.misses} misses, ${archiveCache.evictions} evictions</span>
+                    <div class="clearfix"></div>
+                </div>
+            </div>
+        </div>
 	</div>
 </div>
 
+<#if storage??>
+<div class="row" style="margin-bottom: 20px;">
+    <div class="col-lg-12">
+        <h2>Storage Volumes</h2>
+        <table class="table table-striped table-bordered" border="1">
+            <thead>
+                <tr>
+                    <th>Path</th>
+                    <th>Tier</th>
+                    <th>Free</th>
+                    <th>Used</th>
+                    <th>Read</th>
+                    <th>Written</th>
+                </tr>
+            </thead>
+            <tbody>
+                <#list storage.volumes as volume>
+                    <tr>
+                        <td>${volume.path?html}</td>
+                        <td><#if volume.cold>cold<#else>hot</#if></td>
+                        <td>${(volume.freeSpace / 1048576)?round} of ${(volume.totalSpace / 1048576)?round} MB</td>
+                        <td>${volume.usedRatio}%</td>
+                        <td>${(volume.readBytes / 1048576)?round} MB, ${(volume.readThroughput / 1024)?round} KB/s</td>
+                        <td>${(volume.writtenBytes / 1048576)?round} MB, ${(volume.writtenThroughput / 1024)?round} KB/s</td>
+                    </tr>
+                </#list>
+            </tbody>
+        </table>
+        <p><small>Pack store: ${storage.packRecords} small archives in ${storage.packSegments} segments, ${(storage.packSize / 1048576)?round} MB, ${storage.packGarbageRatio}% deleted</small></p>
+        <p><small>Intent journal: ${storage.openIntents} running uploads and deletions<#if recoveryResult??>, at the start ${recoveryResult.rolledForward?c} interrupted operations completed and ${recoveryResult.rolledBack?c} undone<#if recoveryResult.errors?has_content> <span class="text-danger">${recoveryResult.errors?join(", ")?html}</span></#if></#if></small></p>
+        <form action="${basePath}/repackdeltas" method="POST">
+            <button type="submit" class="btn btn-default btn-sm"<#if deltaRunning> disabled</#if>>Repack deltas</button>
+            <#if deltaResult??>
+                <small>Last delta repacking ${deltaResult.finished?datetime}: ${deltaResult.encoded?c} old versions stored as delta, ${deltaResult.inflated?c} as a whole again, ${(deltaResult.savedBytes / 1048576)?round} MB saved (${(deltaSaved / 1048576)?round} MB since the start)</small>
+                <#if deltaResult.errors?has_content><small class="text-danger">${deltaResult.errors?join(", ")?html}</small></#if>
+            </#if>
+        </form>
+        <form action="${basePath}/rebalancevolumes" method="POST">
+            <button type="submit" class="btn btn-default btn-sm"<#if rebalanceRunning> disabled</#if>>Rebalance</button>
+            <#if rebalanceResult??>
+                <small>Last rebalancing ${rebalanceResult.finished?datetime}: ${rebalanceResult.files?c} files, ${(rebalanceResult.bytes / 1048576)?round} MB moved</small>
+                <#if rebalanceResult.errors?has_content><small class="text-danger">${rebalanceResult.errors?join(", ")?html}</small></#if>
+            </#if>
+            <#if tieringResult??>
+                <small>Last tiering ${tieringResult.finished?datetime}: ${tieringResult.demoted?c} files to the cold tier, ${tieringResult.promoted?c} back, ${storage.recalls} recalled on access</small>
+                <#if tieringResult.errors?has_content><small class="text-danger">${tieringResult.errors?join(", ")?html}</small></#if>
+            </#if>
+        </form>
+    </div>
+</div>
+</#if>
+
 <div class="row" style="margin-bottom: 20px;">
     <div class="col-lg-12">
 		<h2>OpenTosca Server Information</h2>
@@ -148,6 +312,27 @@
                 </a>
             </div>
         </div>
+        <!-- reconcile -->
+        <div class="col-lg-3 col-md-6">
+        	<div class="panel panel-success">
+            	<div class="panel-heading">
+                	<div class="row">
+                    	<div class="col-xs-3">
+                        	<i class="fa fa-refresh fa-5x"></i>
+                        </div>
+                        <div class="col-xs-9 text-right">
+                        	<div class="huge">${reconcile.removed?c}</div>
+                            <div>Stale deployments removed</div>
+                        </div>
+                    </div>
+                </div>
+                <div class="panel-footer">
+                	<span class="pull-left">${reconcile.pending} missing, ${reconcile.untracked} untracked, ${reconcile.failures?c} failures</span>
+                    <span class="pull-right"><#if reconcile.lastRun??>${reconcile.lastRun?datetime}<#else>not run yet</#if></span>
+                    <div class="clearfix"></div>
+                </div>
+            </div>
+        </div>
 	</div>
 </div>
 
@@ -50,6 +50,7 @@
 						<th>ID</th>
 						<th>Name</th>
 						<th>URL</th>
+						<th>Health</th>
 					</tr>
 				</thead>
 				<tbody>
@@ -58,6 +59,8 @@
 					<td>${ot_server.id}</td>
 					<td><a href="${basePath}/opentoscaserver/${ot_server.id}">${ot_server.name}</a></td>
 					<td><a href="${ot_server.address}" target="_blank">${ot_server.address}</a></td>
+					<#assign health = ServerHealth.of(ot_server.address)>
+					<td><span class="label label-${health.cssClass}"<#if health.details??> title="${health.details}"</#if>>${health.label}</span></td>
 				</tr>
 			</#list>
 			</tbody>
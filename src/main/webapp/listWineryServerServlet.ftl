@@ -49,6 +49,7 @@
 					    <th>ID</th>
 						<th>Name</th>
 						<th>URL</th>
+						<th>Health</th>
 					</tr>
 				</thead>
 				<tbody>
@@ -57,6 +58,8 @@
 				    <td>${winery.id}</td>
 					<td><a href="${basePath}/wineryserver/${winery.id}">${winery.name}</a></td>
 					<td><a href="${winery.address}" target="_blank">${winery.address}</a></td>
+					<#assign health = ServerHealth.of(winery.address)>
+					<td><span class="label label-${health.cssClass}"<#if health.details??> title="${health.details}"</#if>>${health.label}</span></td>
 				</tr>
 			</#list>
 			</tbody>
@@ -1,3 +1,8 @@
+<#if snapshot??>
+    <#assign refreshUrl = "${basePath}/livedata/opentoscaserver/csars/${openToscaServer.id}">
+    <#assign refreshTarget = "#livedataCsars">
+    <#include "livedataSnapshotStatus.ftl">
+</#if>
 <#if errorMessages??>
     <div class="alert alert-warning" role="alert">${errorMessages}</div>
 <#elseif deployedCsars?has_content>
@@ -11,7 +16,7 @@
     </thead>
     <tbody>
         <#list deployedCsars as deployedCsar>
-            <#assign buildPlans = PlanInvocationHelper.generateLinkToBuildPlan(openToscaServer, deployedCsar.title)> 
+            <#assign buildPlans = snapshot.getBuildPlans(deployedCsar.title)> 
             <tr>
                 <td><a href="${basePath}/csarfile/${deployedCsar.id}">${deployedCsar.title}</a></td>
                 <td><a href="http://${otHost}:8080/vinothek/ApplicationElement.jsp?applicationId=http://${otHost}:1337/containerapi/CSARs/${deployedCsar.title}/Content/SELFSERVICE-Metadata/&container=${otHost}" target="_blank">Vinothek</a></td>
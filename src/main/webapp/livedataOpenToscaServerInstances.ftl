@@ -1,3 +1,13 @@
+<#if snapshot??>
+    <#assign refreshUrl = "${basePath}/livedata/opentoscaserver/instances/${openToscaServer.id}">
+    <#assign refreshTarget = "#livedataInstances">
+    <#include "livedataSnapshotStatus.ftl">
+</#if>
+<#if warningMessages??>
+    <#list warningMessages as warningMessage>
+    <div class="alert alert-warning" role="alert">${warningMessage}</div>
+    </#list>
+</#if>
 <#if errorMessages??>
     <div class="alert alert-warning" role="alert">${errorMessages}</div>
 <#elseif liveEntries?has_content>
@@ -12,7 +22,7 @@
 	</thead>
 	<tbody>
 		<#list liveEntries as live>
-		    <#assign managementPlans = PlanInvocationHelper.generateLinkToMngmtPlan(openToscaServer, live.csarID)>
+		    <#assign managementPlans = snapshot.getManagementPlans(live.csarID)>
 			<tr>
     			<td><a href="${live.getSelfLink()}">${live.serviceInstanceID}</a></td>
 				<td>${live.csarID}</td>
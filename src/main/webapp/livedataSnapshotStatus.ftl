@@ -0,0 +1,7 @@
+<p class="text-muted small">
+    <#if snapshot.age gte 0>Updated ${snapshot.age?c} seconds ago<#else>Not loaded yet</#if>
+    (<a href="#" onclick="repoLoadAsync('${refreshUrl}?refresh=true', '${refreshTarget}'); return false;">Refresh <span class="glyphicon glyphicon-refresh"></span></a>)
+</p>
+<#if snapshot.lastError?? && !errorMessages??>
+    <div class="alert alert-warning" role="alert">Last refresh failed, showing older data: ${snapshot.lastError}</div>
+</#if>
@@ -1,3 +1,17 @@
+<#if page??>
+	<#assign templatesUrl = basePath + "/livedata/wineryserver/templates/" + wineryServer.id?c>
+	<form class="form-inline" style="margin-bottom: 20px;" onsubmit="repoLoadAsync('${templatesUrl}?filter=' + encodeURIComponent($('#templateFilter').val()), '#serviceTemplates'); return false;">
+		<input id="templateFilter" type="text" class="form-control" placeholder="Namespace or name" value="${page.filter?html}" />
+		<button type="submit" class="btn btn-default"><span class="glyphicon glyphicon-search"></span> Filter</button>
+		<span class="text-muted">${page.total} templates, page ${page.page} of ${page.pages}</span>
+		<#if !page.first>
+			<a href="#serviceTemplates" onclick="repoLoadAsync('${templatesUrl}?filter=${page.filter?url}&page=${(page.page - 1)?c}', '#serviceTemplates'); return false;">&laquo; previous</a>
+		</#if>
+		<#if !page.last>
+			<a href="#serviceTemplates" onclick="repoLoadAsync('${templatesUrl}?filter=${page.filter?url}&page=${(page.page + 1)?c}', '#serviceTemplates'); return false;">next &raquo;</a>
+		</#if>
+	</form>
+</#if>
 <#if errorMessages??>
     <div class="alert alert-warning" role="alert">${errorMessages}</div>
 <#elseif servicetemplates?has_content>
@@ -2,6 +2,28 @@
 <@layout.sb_admin>
 
 <h2>Import Servicetemplate from ${winery.getName()}</h2>
+<#macro listForm targetPage label>
+	<form action="${basePath}/newversionfromwinery" method="post" style="display: inline;">
+		<input type="hidden" name="wineryId" value="${winery.id}" />
+		<input type="hidden" name="csarId" value="${csar.id}" />
+		<input type="hidden" name="servicetemplate" value="" />
+		<input type="hidden" name="filter" value="${page.filter?html}" />
+		<input type="hidden" name="page" value="${targetPage?c}" />
+		<button type="submit" class="btn btn-link">${label}</button>
+	</form>
+</#macro>
+<#if page??>
+	<form action="${basePath}/newversionfromwinery" method="post" class="form-inline" style="display: inline;">
+		<input type="hidden" name="wineryId" value="${winery.id}" />
+		<input type="hidden" name="csarId" value="${csar.id}" />
+		<input type="hidden" name="servicetemplate" value="" />
+		<input name="filter" type="text" class="form-control" placeholder="Namespace or name" value="${page.filter?html}" />
+		<button type="submit" class="btn btn-default"><span class="glyphicon glyphicon-search"></span> Filter</button>
+	</form>
+	<span class="text-muted">${page.total} templates, page ${page.page} of ${page.pages}</span>
+	<#if !page.first><@listForm targetPage=page.page - 1 label="&laquo; previous" /></#if>
+	<#if !page.last><@listForm targetPage=page.page + 1 label="next &raquo;" /></#if>
+</#if>
 <#if servicetemplates?size gt 0>
 	<hr />
 	<#list servicetemplates as st>
@@ -81,6 +81,11 @@
 				(<a href="${openToscaServer.address}" target="_blank">Visit <span class="glyphicon glyphicon-share"></span></a>) 
 			</div>
 		</div>
+		<div class="row">
+			<div class="col-md-2 col-md-offset-1" style="font-weight: bold;">Health:</div>
+			<#assign health = ServerHealth.of(openToscaServer.address)>
+			<div class="col-md-9"><span class="label label-${health.cssClass}"<#if health.details??> title="${health.details}"</#if>>${health.label}</span></div>
+		</div>
 	</div>
 </div>
 
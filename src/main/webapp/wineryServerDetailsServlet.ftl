@@ -85,6 +85,35 @@
 				(<a href="${wineryServer.address}" target="_blank">Visit <span class="glyphicon glyphicon-share"></span></a>) 
 			</div>
 		</div>
+		<div class="row">
+			<div class="col-md-2 col-md-offset-1" style="font-weight: bold;">Health:</div>
+			<#assign health = ServerHealth.of(wineryServer.address)>
+			<div class="col-md-9"><span class="label label-${health.cssClass}"<#if health.details??> title="${health.details}"</#if>>${health.label}</span></div>
+		</div>
+		<div class="row">
+			<div class="col-md-2 col-md-offset-1" style="font-weight: bold;">Synchronization:</div>
+			<div class="col-md-9">
+				<#if syncRunning>
+					running
+				<#elseif syncResult??>
+					${syncResult.finished?datetime}: ${syncResult.templates} templates, ${syncResult.unchanged} unchanged, ${syncResult.updated} updated, ${syncResult.imported} imported, ${syncResult.skipped} not mirrored, ${syncResult.failed} failed
+				<#else>
+					not synchronized yet
+				</#if>
+				<form action="${basePath}/syncwineryserver/${wineryServer.id}" method="POST" style="display: inline;">
+					<button type="submit" class="btn btn-default btn-xs"<#if syncRunning> disabled</#if>>
+						<span class="glyphicon glyphicon-refresh"></span> Synchronize now
+					</button>
+				</form>
+				<#if syncResult?? && syncResult.errors?has_content>
+					<ul class="text-danger">
+					<#list syncResult.errors as error>
+						<li>${error}</li>
+					</#list>
+					</ul>
+				</#if>
+			</div>
+		</div>
 	</div>
 </div>
 
@@ -0,0 +1,87 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for DeltaIndex
+ */
+public class DeltaIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+	}
+
+	@Test
+	public void testReadsStoredDeltas() throws IOException {
+		UUID base = UUID.randomUUID();
+		UUID delta = UUID.randomUUID();
+		writeDelta(delta, base);
+
+		DeltaIndex index = new DeltaIndex(new VolumePool(Arrays.asList(directory), null, 0));
+
+		assertTrue(index.isBase(base));
+		assertFalse(index.isBase(delta));
+		assertEquals(Collections.singleton(delta), index.getDeltas(base));
+	}
+
+	@Test
+	public void testFollowsChanges() {
+		UUID base = UUID.randomUUID();
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		DeltaIndex index = new DeltaIndex(new VolumePool(Arrays.asList(directory), null, 0));
+
+		index.put(first, base);
+		index.put(second, base);
+		index.remove(first);
+		assertTrue(index.isBase(base));
+
+		index.remove(second);
+		assertFalse(index.isBase(base));
+		assertTrue(index.getDeltas(base).isEmpty());
+	}
+
+	@Test
+	public void testKeepsAllWhileDeltaIsUnreadable() throws IOException {
+		UUID delta = UUID.randomUUID();
+		Files.write(new File(directory, delta + DeltaStore.DELTA_SUFFIX).toPath(), new byte[] { 1, 2, 3 });
+		DeltaIndex index = new DeltaIndex(new VolumePool(Arrays.asList(directory), null, 0));
+
+		assertTrue(index.isBase(UUID.randomUUID()));
+
+		index.remove(delta);
+		assertFalse(index.isBase(UUID.randomUUID()));
+	}
+
+	private void writeDelta(UUID filename, UUID base) throws IOException {
+		byte[] content = new byte[1000];
+		File baseFile = new File(directory, "base.tmp");
+		File target = new File(directory, "target.tmp");
+		Files.write(baseFile.toPath(), content);
+		Files.write(target.toPath(), content);
+		new DeltaStore(16).encode(target, baseFile, base, new File(directory, filename + DeltaStore.DELTA_SUFFIX),
+				content.length);
+		baseFile.delete();
+		target.delete();
+	}
+}
@@ -0,0 +1,109 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for DeltaStore
+ */
+public class DeltaStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+	}
+
+	@Test
+	public void testDecodesChangedArchive() throws IOException {
+		byte[] base = random(200000, 1);
+		// changed in the middle, with bytes inserted and removed
+		ByteArrayOutputStream changed = new ByteArrayOutputStream();
+		changed.write(base, 0, 50000);
+		changed.write(random(1000, 2));
+		changed.write(base, 50000, 100000);
+		changed.write(base, 160000, 40000);
+		byte[] target = changed.toByteArray();
+
+		UUID baseFilename = UUID.randomUUID();
+		File delta = new File(directory, "target" + DeltaStore.DELTA_SUFFIX);
+		File baseFile = write("base", base);
+		DeltaStore deltaStore = new DeltaStore(64);
+		long length = deltaStore.encode(write("target", target), baseFile, baseFilename, delta, target.length);
+
+		assertTrue(length < target.length / 10);
+		assertEquals(length, delta.length());
+		assertEquals(baseFilename, DeltaStore.readHeader(delta).getBase());
+		assertEquals(target.length, DeltaStore.readHeader(delta).getLength());
+		assertArrayEquals(target, read(deltaStore.open(delta, baseFile, false)));
+		assertTrue(baseFile.isFile());
+	}
+
+	@Test
+	public void testGivesUpUnrelatedArchive() throws IOException {
+		File delta = new File(directory, "target" + DeltaStore.DELTA_SUFFIX);
+		byte[] target = random(100000, 3);
+		long length = new DeltaStore(64).encode(write("target", target), write("base", random(100000, 4)),
+				UUID.randomUUID(), delta, target.length / 2);
+
+		assertEquals(-1, length);
+		assertFalse(delta.exists());
+	}
+
+	@Test
+	public void testDeletesTemporaryBase() throws IOException {
+		byte[] content = random(1000, 5);
+		File delta = new File(directory, "target" + DeltaStore.DELTA_SUFFIX);
+		File baseFile = write("base", content);
+		DeltaStore deltaStore = new DeltaStore(16);
+		deltaStore.encode(write("target", content), baseFile, UUID.randomUUID(), delta, content.length);
+
+		assertArrayEquals(content, read(deltaStore.open(delta, baseFile, true)));
+		assertFalse(baseFile.exists());
+	}
+
+	private File write(String name, byte[] content) throws IOException {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), content);
+		return file;
+	}
+
+	private static byte[] random(int length, long seed) {
+		byte[] bytes = new byte[length];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static byte[] read(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[4096];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				outputStream.write(buffer, 0, read);
+			}
+		} finally {
+			inputStream.close();
+		}
+		return outputStream.toByteArray();
+	}
+}
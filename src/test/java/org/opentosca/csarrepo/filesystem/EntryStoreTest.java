@@ -0,0 +1,147 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opentosca.csarrepo.util.FileHasher;
+import org.opentosca.csarrepo.util.FileHasher.Algorithm;
+
+/**
+ * Tests for EntryStore
+ */
+public class EntryStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private EntryStore entryStore;
+	private byte[] artifact;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+		entryStore = new EntryStore(new VolumePool(Collections.singletonList(directory), null, 0), 1024);
+		artifact = new byte[200000];
+		new Random(42).nextBytes(artifact);
+	}
+
+	@Test
+	public void testRestoresArchive() throws IOException {
+		File archive = createArchive("version1.zip", "<Definitions id=\"1\"/>");
+		File manifest = new File(directory, "version1.manifest");
+
+		EntryStore.PackResult result = entryStore.pack(archive, hash(archive), manifest);
+
+		assertNotNull(result);
+		assertEquals(1, result.getBlobs());
+		assertEquals(0, result.getReused());
+		assertEquals(archive.length(), entryStore.getLength(manifest));
+		assertArrayEquals(Files.readAllBytes(archive.toPath()), read(manifest));
+	}
+
+	@Test
+	public void testReadsArchiveAtRandom() throws IOException {
+		File archive = createArchive("version1.zip", "<Definitions id=\"1\"/>");
+		File manifest = new File(directory, "version1.manifest");
+		entryStore.pack(archive, hash(archive), manifest);
+		byte[] expected = Files.readAllBytes(archive.toPath());
+
+		try (ArchiveChannel channel = new ArchiveChannel(entryStore.getParts(manifest), null)) {
+			assertEquals(expected.length, channel.size());
+			// a range across the inline header and the blob of the artifact
+			ByteBuffer buffer = ByteBuffer.allocate(1000);
+			assertEquals(1000, channel.read(10, buffer));
+			assertArrayEquals(Arrays.copyOfRange(expected, 10, 1010), buffer.array());
+			buffer.clear();
+			channel.position(expected.length - 500);
+			assertEquals(500, channel.read(buffer));
+			assertArrayEquals(Arrays.copyOfRange(expected, expected.length - 500, expected.length),
+					Arrays.copyOf(buffer.array(), 500));
+			assertEquals(-1, channel.read(buffer));
+		}
+	}
+
+	@Test
+	public void testSharesEntriesBetweenVersions() throws IOException {
+		File first = createArchive("version1.zip", "<Definitions id=\"1\"/>");
+		File second = createArchive("version2.zip", "<Definitions id=\"2\"/>");
+		File firstManifest = new File(directory, "version1.manifest");
+		File secondManifest = new File(directory, "version2.manifest");
+
+		entryStore.pack(first, hash(first), firstManifest);
+		EntryStore.PackResult result = entryStore.pack(second, hash(second), secondManifest);
+
+		assertEquals(1, result.getReused());
+		assertEquals(entryStore.getBlobHashes(firstManifest), entryStore.getBlobHashes(secondManifest));
+		assertArrayEquals(Files.readAllBytes(second.toPath()), read(secondManifest));
+	}
+
+	@Test
+	public void testKeepsArchivesWithoutLargeEntries() throws IOException {
+		File archive = new File(directory, "small.zip");
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+			outputStream.putNextEntry(new ZipEntry("Definitions/small.xml"));
+			outputStream.write("<Definitions/>".getBytes(StandardCharsets.UTF_8));
+		}
+
+		assertNull(entryStore.pack(archive, hash(archive), new File(directory, "small.manifest")));
+	}
+
+	@Test
+	public void testKeepsNonArchives() throws IOException {
+		File file = new File(directory, "plain.txt");
+		Files.write(file.toPath(), artifact);
+
+		assertNull(entryStore.pack(file, hash(file), new File(directory, "plain.manifest")));
+	}
+
+	private File createArchive(String name, String definitions) throws IOException {
+		File archive = new File(directory, name);
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+			outputStream.putNextEntry(new ZipEntry("Definitions/service.xml"));
+			outputStream.write(definitions.getBytes(StandardCharsets.UTF_8));
+			outputStream.putNextEntry(new ZipEntry("artifacts/application.war"));
+			outputStream.write(artifact);
+			outputStream.putNextEntry(new ZipEntry("TOSCA-Metadata/TOSCA.meta"));
+			outputStream.write("Entry-Definitions: Definitions/service.xml".getBytes(StandardCharsets.UTF_8));
+		}
+		return archive;
+	}
+
+	private static String hash(File file) throws IOException {
+		return FileHasher.hash(file, Algorithm.SHA256).getHex(Algorithm.SHA256);
+	}
+
+	private byte[] read(File manifest) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (InputStream inputStream = entryStore.open(manifest)) {
+			byte[] buffer = new byte[777];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				outputStream.write(buffer, 0, read);
+			}
+		}
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,186 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opentosca.csarrepo.util.FileHasher;
+import org.opentosca.csarrepo.util.FileHasher.Algorithm;
+import org.opentosca.csarrepo.util.RateLimiter;
+
+/**
+ * Tests for GarbageSweeper
+ */
+public class GarbageSweeperTest {
+
+	private static final long GRACE_PERIOD = 3600000;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File volume;
+	private File uploads;
+	private ArchiveStore store;
+	private GarbageSweeper sweeper;
+	private RateLimiter rateLimiter;
+	private byte[] artifact;
+
+	@Before
+	public void before() throws IOException {
+		volume = temporaryFolder.newFolder("volume");
+		uploads = temporaryFolder.newFolder("uploads");
+		store = new ArchiveStore(new VolumePool(Collections.singletonList(volume), null, 0));
+		sweeper = new GarbageSweeper(store);
+		rateLimiter = new RateLimiter(1000000);
+		artifact = new byte[200000];
+		new Random(42).nextBytes(artifact);
+	}
+
+	@Test
+	public void testKeepsFilesWithinGracePeriod() throws IOException, InterruptedException {
+		UUID archive = storeWhole(new byte[] { 1, 2, 3 });
+		UUID manifest = storeByEntries("<Definitions id=\"1\"/>");
+
+		SweepResult result = sweeper.sweep(Collections.<UUID> emptySet(), GRACE_PERIOD, false, rateLimiter);
+
+		assertEquals(0, result.getArchives());
+		assertEquals(0, result.getBlobs());
+		assertTrue(store.exists(archive));
+		assertTrue(store.exists(manifest));
+	}
+
+	@Test
+	public void testDryRunDeletesNothing() throws IOException, InterruptedException {
+		UUID archive = storeWhole(new byte[] { 1, 2, 3 });
+		UUID manifest = storeByEntries("<Definitions id=\"1\"/>");
+		age(volume);
+
+		SweepResult dryRun = sweeper.sweep(Collections.<UUID> emptySet(), GRACE_PERIOD, true, rateLimiter);
+
+		assertEquals(2, dryRun.getArchives());
+		assertEquals(1, dryRun.getBlobs());
+		assertTrue(store.exists(archive));
+		assertTrue(store.exists(manifest));
+		assertEquals(1, countBlobs());
+
+		SweepResult result = sweeper.sweep(Collections.<UUID> emptySet(), GRACE_PERIOD, false, rateLimiter);
+
+		assertEquals(result.getArchives(), dryRun.getArchives());
+		assertEquals(result.getBlobs(), dryRun.getBlobs());
+		assertEquals(result.getBytes(), dryRun.getBytes());
+		assertEquals(0, result.getFailed());
+	}
+
+	@Test
+	public void testRemovesUnreferencedArchiveAndBlobs() throws IOException, InterruptedException {
+		UUID kept = storeWhole(new byte[] { 1, 2, 3 });
+		UUID archive = storeWhole(new byte[] { 4, 5, 6 });
+		UUID manifest = storeByEntries("<Definitions id=\"1\"/>");
+		age(volume);
+
+		SweepResult result = sweeper.sweep(Collections.singleton(kept), GRACE_PERIOD, false, rateLimiter);
+
+		assertEquals(2, result.getArchives());
+		assertEquals(1, result.getBlobs());
+		assertTrue(store.exists(kept));
+		assertFalse(store.exists(archive));
+		assertFalse(store.exists(manifest));
+		assertEquals(0, countBlobs());
+	}
+
+	@Test
+	public void testKeepsBlobsOfOtherManifests() throws IOException, InterruptedException {
+		UUID kept = storeByEntries("<Definitions id=\"1\"/>");
+		UUID removed = storeByEntries("<Definitions id=\"2\"/>");
+		age(volume);
+
+		SweepResult result = sweeper.sweep(Collections.singleton(kept), GRACE_PERIOD, false, rateLimiter);
+
+		assertEquals(1, result.getArchives());
+		assertEquals(0, result.getBlobs());
+		assertFalse(store.exists(removed));
+		assertEquals(1, countBlobs());
+		assertTrue(store.getEntryStore().getBlobHashes(store.getManifest(kept)).size() > 0);
+		for (String hash : store.getEntryStore().getBlobHashes(store.getManifest(kept))) {
+			assertTrue(store.getEntryStore().getBlob(hash).isFile());
+		}
+	}
+
+	@Test
+	public void testKeepsDeltaBaseOfLiveArchive() throws IOException, InterruptedException {
+		byte[] content = new byte[1000];
+		UUID base = storeWhole(content);
+		UUID delta = UUID.randomUUID();
+		File target = new File(uploads, "target");
+		Files.write(target.toPath(), content);
+		new DeltaStore(16).encode(target, new File(volume, base.toString()), base, new File(volume, delta
+				+ DeltaStore.DELTA_SUFFIX), content.length);
+		age(volume);
+
+		SweepResult result = sweeper.sweep(Collections.singleton(delta), GRACE_PERIOD, false, rateLimiter);
+
+		assertEquals(0, result.getArchives());
+		assertTrue(store.exists(base));
+		assertTrue(store.exists(delta));
+	}
+
+	private UUID storeWhole(byte[] content) throws IOException {
+		UUID filename = UUID.randomUUID();
+		Files.write(new File(volume, filename.toString()).toPath(), content);
+		return filename;
+	}
+
+	private UUID storeByEntries(String definitions) throws IOException {
+		File archive = new File(uploads, UUID.randomUUID() + ".zip");
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+			outputStream.putNextEntry(new ZipEntry("Definitions/service.xml"));
+			outputStream.write(definitions.getBytes(StandardCharsets.UTF_8));
+			outputStream.putNextEntry(new ZipEntry("artifacts/application.war"));
+			outputStream.write(artifact);
+		}
+		UUID filename = UUID.randomUUID();
+		String hash = FileHasher.hash(archive, Algorithm.SHA256).getHex(Algorithm.SHA256);
+		File manifest = new File(volume, filename + ArchiveStore.MANIFEST_SUFFIX);
+		assertTrue(null != store.getEntryStore().pack(archive, hash, manifest));
+		return filename;
+	}
+
+	private int countBlobs() {
+		int count = 0;
+		File[] blobDirectories = new File(volume, EntryStore.BLOB_DIRECTORY).listFiles();
+		if (null != blobDirectories) {
+			for (File blobDirectory : blobDirectories) {
+				count += blobDirectory.list().length;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Moves the files out of the grace period
+	 */
+	private static void age(File file) {
+		File[] children = file.listFiles();
+		if (null != children) {
+			for (File child : children) {
+				age(child);
+			}
+		}
+		file.setLastModified(System.currentTimeMillis() - 2 * GRACE_PERIOD);
+	}
+}
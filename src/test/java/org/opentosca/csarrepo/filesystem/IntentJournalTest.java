@@ -0,0 +1,86 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opentosca.csarrepo.exception.PersistenceException;
+
+/**
+ * Tests for IntentJournal
+ */
+public class IntentJournalTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private File file;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+		file = new File(directory, "intents.journal");
+	}
+
+	@Test
+	public void testRecoversOpenIntents() throws PersistenceException {
+		IntentJournal journal = new IntentJournal(file, 1048576);
+		IntentJournal.Intent committed = journal.begin(IntentJournal.Kind.DELETE_CSAR,
+				Collections.singletonMap(IntentJournal.CSAR_ID, "1"));
+		IntentJournal.Intent interrupted = journal.begin(IntentJournal.Kind.INGEST,
+				Collections.singletonMap(IntentJournal.CSAR_ID, "2"));
+		interrupted.set(IntentJournal.NAMESPACE, "http://example.org/a b");
+		committed.commit();
+
+		List<IntentJournal.Intent> recovered = new IntentJournal(file, 1048576).getRecovered();
+		assertEquals(1, recovered.size());
+		assertEquals(IntentJournal.Kind.INGEST, recovered.get(0).getKind());
+		assertEquals("2", recovered.get(0).get(IntentJournal.CSAR_ID));
+		assertEquals("http://example.org/a b", recovered.get(0).get(IntentJournal.NAMESPACE));
+
+		recovered.get(0).abort();
+		assertTrue(new IntentJournal(file, 1048576).getRecovered().isEmpty());
+	}
+
+	@Test
+	public void testCutsOffTornRecord() throws IOException, PersistenceException {
+		IntentJournal journal = new IntentJournal(file, 1048576);
+		journal.begin(IntentJournal.Kind.INGEST, Collections.singletonMap(IntentJournal.CSAR_ID, "1"));
+		IntentJournal.Intent torn = journal.begin(IntentJournal.Kind.INGEST,
+				Collections.singletonMap(IntentJournal.CSAR_ID, "2"));
+		torn.commit();
+		try (RandomAccessFile journalFile = new RandomAccessFile(file, "rw")) {
+			journalFile.setLength(journalFile.length() - 3);
+		}
+
+		// the commit is lost, so both uploads are recovered
+		assertEquals(2, new IntentJournal(file, 1048576).getRecovered().size());
+	}
+
+	@Test
+	public void testCompactsFinishedIntents() throws PersistenceException {
+		IntentJournal journal = new IntentJournal(file, 1024);
+		IntentJournal.Intent running = journal.begin(IntentJournal.Kind.INGEST,
+				Collections.singletonMap(IntentJournal.CSAR_ID, "1"));
+		for (int i = 0; i < 100; i++) {
+			journal.begin(IntentJournal.Kind.DELETE_CSAR, Collections.singletonMap(IntentJournal.CSAR_ID, "" + i))
+					.commit();
+		}
+
+		assertTrue(file.length() <= 1024);
+		assertEquals(1, journal.getOpenCount());
+		List<IntentJournal.Intent> recovered = new IntentJournal(file, 1024).getRecovered();
+		assertEquals(1, recovered.size());
+		assertEquals(running.getId(), recovered.get(0).getId());
+	}
+}
@@ -0,0 +1,113 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for PackStore
+ */
+public class PackStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private File packs;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+		packs = new File(directory, "packs");
+	}
+
+	@Test
+	public void testReloadsRecordsAndTombstones() throws IOException {
+		PackStore packStore = new PackStore(packs, 1024);
+		UUID kept = put(packStore, "kept");
+		UUID deleted = put(packStore, "deleted");
+		assertTrue(packStore.delete(deleted));
+
+		PackStore reloaded = new PackStore(packs, 1024);
+		assertTrue(reloaded.contains(kept));
+		assertFalse(reloaded.contains(deleted));
+		assertArrayEquals(bytes("kept"), read(reloaded, kept));
+		assertEquals(bytes("kept").length, reloaded.getLength(kept));
+	}
+
+	@Test
+	public void testCutsOffTornRecord() throws IOException {
+		PackStore packStore = new PackStore(packs, 1024);
+		UUID kept = put(packStore, "kept");
+		File segment = packs.listFiles()[0];
+		long length = segment.length();
+		put(packStore, "torn");
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(file.length() - 2);
+		}
+
+		PackStore reloaded = new PackStore(packs, 1024);
+		assertEquals(1, reloaded.getRecordCount());
+		assertArrayEquals(bytes("kept"), read(reloaded, kept));
+		assertEquals(length, segment.length());
+	}
+
+	@Test
+	public void testCompactsDeletedRecords() throws IOException {
+		// every record starts a new segment
+		PackStore packStore = new PackStore(packs, 1);
+		UUID first = put(packStore, "first");
+		UUID second = put(packStore, "second");
+		UUID third = put(packStore, "third");
+		packStore.delete(first);
+		packStore.delete(second);
+		long size = packStore.getSize();
+
+		assertTrue(0 < packStore.compact(0.5));
+		assertTrue(packStore.getSize() < size);
+		assertArrayEquals(bytes("third"), read(packStore, third));
+
+		PackStore reloaded = new PackStore(packs, 1);
+		assertEquals(1, reloaded.getRecordCount());
+		assertArrayEquals(bytes("third"), read(reloaded, third));
+	}
+
+	private UUID put(PackStore packStore, String content) throws IOException {
+		File file = new File(directory, content);
+		Files.write(file.toPath(), bytes(content));
+		UUID filename = UUID.randomUUID();
+		packStore.put(filename, file);
+		return filename;
+	}
+
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] read(PackStore packStore, UUID filename) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (InputStream inputStream = packStore.open(filename)) {
+			byte[] buffer = new byte[3];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				outputStream.write(buffer, 0, read);
+			}
+		}
+		return outputStream.toByteArray();
+	}
+}
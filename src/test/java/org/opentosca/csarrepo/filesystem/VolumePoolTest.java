@@ -0,0 +1,79 @@
+package org.opentosca.csarrepo.filesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for VolumePool
+ */
+public class VolumePoolTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private File first;
+	private File second;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+		first = new File(directory, "first");
+		second = new File(directory, "second");
+	}
+
+	@Test
+	public void testLocatesFilesOnAnyVolume() throws IOException {
+		VolumePool pool = new VolumePool(Arrays.asList(first, second), null, 0);
+		File blob = new File(second, "blobs/ab/abc");
+		blob.getParentFile().mkdirs();
+		Files.write(blob.toPath(), new byte[] { 1 });
+
+		assertEquals(blob.getAbsoluteFile(), pool.locate("blobs/ab/abc"));
+		assertSame(pool.getVolumes().get(1), pool.getVolume(blob));
+		assertNull(pool.locate("blobs/ab/missing"));
+	}
+
+	@Test
+	public void testPlacesOnVolumeWithFewerWrites() {
+		VolumePool pool = new VolumePool(Arrays.asList(first, second), null, 0);
+		// both volumes are on the same disk and have the same free space
+		pool.getVolumes().get(0).beginWrite();
+
+		assertSame(pool.getVolumes().get(1), pool.place(1));
+	}
+
+	@Test
+	public void testKeepsMinimumFreeSpace() {
+		VolumePool pool = new VolumePool(Arrays.asList(first), null, Long.MAX_VALUE);
+
+		// no volume fits, the one with the most free space is taken anyway
+		assertSame(pool.getPrimary(), pool.place(1));
+	}
+
+	@Test
+	public void testSearchesColdTierLast() throws IOException {
+		File cold = new File(directory, "cold");
+		VolumePool pool = new VolumePool(Arrays.asList(first), cold, 0);
+		Files.write(new File(cold, "archive").toPath(), new byte[] { 1 });
+
+		assertEquals(1, pool.getVolumes().size());
+		assertEquals(new File(cold, "archive").getAbsoluteFile(), pool.locate("archive"));
+		assertSame(pool.getCold(), pool.getVolume(pool.locate("archive")));
+
+		Files.write(new File(first, "archive").toPath(), new byte[] { 1 });
+		assertEquals(new File(first, "archive").getAbsoluteFile(), pool.locate("archive"));
+		assertSame(pool.getPrimary(), pool.place(1));
+	}
+}
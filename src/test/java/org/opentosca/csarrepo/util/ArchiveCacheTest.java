@@ -0,0 +1,81 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.lingala.zip4j.exception.ZipException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for ArchiveCache
+ */
+public class ArchiveCacheTest {
+
+	private static final String SOURCE_FILE = "test.zip";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private File source;
+
+	@Before
+	public void before() {
+		directory = temporaryFolder.getRoot();
+		source = new File(getClass().getClassLoader().getResource(SOURCE_FILE).getPath());
+	}
+
+	@Test
+	public void testHit() throws ZipException, IOException {
+		ArchiveCache cache = new ArchiveCache(directory, 10 * source.length());
+		File first = cache.get(1, "abc", source);
+		cache.put(first);
+		File second = cache.get(1, "abc", source);
+		cache.put(second);
+
+		assertEquals(first, second);
+		assertTrue(ZipUtils.exists(second, "CSAR-REPOSITORY.txt"));
+		assertEquals(1, cache.statistics().getHits());
+		assertEquals(1, cache.statistics().getMisses());
+		assertEquals(50, cache.statistics().getHitRate());
+	}
+
+	@Test
+	public void testEvictionWaitsForRelease() throws ZipException, IOException {
+		// room for a single archive
+		ArchiveCache cache = new ArchiveCache(directory, 2 * source.length());
+		File first = cache.get(1, "abc", source);
+		File second = cache.get(2, "abc", source);
+		assertNotEquals(first, second);
+		assertEquals(1, cache.statistics().getEvictions());
+		assertEquals(1, cache.statistics().getEntries());
+
+		// the evicted archive is still in use
+		assertTrue(first.isFile());
+		cache.put(first);
+		assertFalse(first.isFile());
+
+		cache.put(second);
+		assertTrue(second.isFile());
+	}
+
+	@Test
+	public void testAdoptAfterRestart() throws ZipException, IOException {
+		ArchiveCache cache = new ArchiveCache(directory, 10 * source.length());
+		cache.put(cache.get(1, "abc", source));
+
+		ArchiveCache restarted = new ArchiveCache(directory, 10 * source.length());
+		assertEquals(1, restarted.statistics().getEntries());
+		restarted.put(restarted.get(1, "abc", source));
+		assertEquals(1, restarted.statistics().getHits());
+	}
+}
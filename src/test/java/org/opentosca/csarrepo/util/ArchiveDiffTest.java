@@ -0,0 +1,87 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for ArchiveDiff
+ */
+public class ArchiveDiffTest {
+
+	private File first;
+	private File second;
+
+	@After
+	public void after() {
+		first.delete();
+		second.delete();
+	}
+
+	@Test
+	public void testComparesEntries() throws IOException {
+		first = createArchive("TOSCA-Metadata/TOSCA.meta", "meta", "Definitions/Service.tosca", "<Definitions/>",
+				"Plans/old.zip", "old");
+		second = createArchive("TOSCA-Metadata/TOSCA.meta", "meta", "Definitions/Service.tosca",
+				"<Definitions id=\"2\"/>", "Plans/new.zip", "new");
+
+		ArchiveDiff diff = ArchiveDiff.compare("1", read(first), "2", read(second));
+
+		assertEquals(1, diff.getUnchanged());
+		assertEquals("Plans/new.zip", diff.getAdded().get(0).getName());
+		assertEquals("Plans/old.zip", diff.getRemoved().get(0).getName());
+		assertEquals(1, diff.getChanged().size());
+		assertEquals("Definitions/Service.tosca", diff.getChanged().get(0).getName());
+		assertTrue(ArchiveDiff.isXml(diff.getChanged().get(0).getName()));
+		assertFalse(diff.isEmpty());
+	}
+
+	@Test
+	public void testIgnoresRezipping() throws IOException {
+		first = createArchive(1420070400000L, "TOSCA-Metadata/TOSCA.meta", "meta", "Definitions/Service.tosca",
+				"<Definitions/>");
+		second = createArchive(1420156800000L, "TOSCA-Metadata/TOSCA.meta", "meta", "Definitions/Service.tosca",
+				"<Definitions/>");
+
+		ArchiveDiff diff = ArchiveDiff.compare("1", read(first), "2", read(second));
+
+		assertTrue(diff.isEmpty());
+		assertEquals(2, diff.getUnchanged());
+	}
+
+	private static File createArchive(String... entries) throws IOException {
+		return createArchive(System.currentTimeMillis(), entries);
+	}
+
+	private static File createArchive(long time, String... entries) throws IOException {
+		File archive = File.createTempFile("archivediff", ".zip");
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+			outputStream.putNextEntry(new ZipEntry("Definitions/"));
+			for (int i = 0; i < entries.length; i += 2) {
+				ZipEntry entry = new ZipEntry(entries[i]);
+				entry.setTime(time);
+				outputStream.putNextEntry(entry);
+				outputStream.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		return archive;
+	}
+
+	private static ZipDirectory read(File archive) throws IOException {
+		try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+			return ZipDirectory.read(channel);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.opentosca.csarrepo.exception.CircuitOpenException;
+
+/**
+ * Tests for CircuitBreaker
+ */
+public class CircuitBreakerTest {
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 3, 60000, 5, 0);
+		call(breaker, false);
+		call(breaker, false);
+		call(breaker, true);
+		call(breaker, false);
+		call(breaker, false);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		call(breaker, false);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertRejected(breaker);
+		assertEquals(1, breaker.getRejectedCalls());
+	}
+
+	@Test
+	public void testHalfOpenProbe() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 50, 5, 0);
+		call(breaker, false);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		Thread.sleep(100);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+		// only a single probe is let through
+		breaker.acquire();
+		assertRejected(breaker);
+
+		// a failed probe opens the circuit again
+		breaker.release(false);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		Thread.sleep(100);
+		call(breaker, true);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testBulkhead() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 60000, 2, 0);
+		breaker.acquire();
+		breaker.acquire();
+		assertEquals(2, breaker.getActiveCalls());
+		assertRejected(breaker);
+
+		breaker.release(true);
+		breaker.acquire();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	private static void call(CircuitBreaker breaker, boolean success) {
+		breaker.acquire();
+		breaker.release(success);
+	}
+
+	private static void assertRejected(CircuitBreaker breaker) {
+		try {
+			breaker.acquire();
+			fail("Call was not rejected");
+		} catch (CircuitOpenException e) {
+			return;
+		}
+	}
+}
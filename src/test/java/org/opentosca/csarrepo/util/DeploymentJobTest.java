@@ -0,0 +1,55 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.opentosca.csarrepo.model.CsarFile;
+import org.opentosca.csarrepo.model.OpenToscaServer;
+
+/**
+ * Tests for DeploymentJob
+ */
+public class DeploymentJobTest {
+
+	@Test
+	public void testLateSuccessKeepsTimeout() throws Exception {
+		DeploymentJob job = createJob();
+
+		job.start(1L);
+		job.fail(1L, "Timeout");
+		job.succeed(1L, "late");
+
+		DeploymentJob.Target target = job.getTargets().get(0);
+		assertEquals(DeploymentJob.Status.FAILED, target.getStatus());
+		assertEquals("Timeout", target.getMessage());
+		assertTrue(target.getWarning().contains("late"));
+		assertTrue(job.isFinished());
+	}
+
+	@Test
+	public void testFinishedTargetIsNotChanged() throws Exception {
+		DeploymentJob job = createJob();
+
+		job.fail(1L, "CSAR file was deleted");
+		job.reuse(1L, "reused");
+		job.start(1L);
+
+		DeploymentJob.Target target = job.getTargets().get(0);
+		assertEquals(DeploymentJob.Status.FAILED, target.getStatus());
+		assertEquals("CSAR file was deleted", target.getMessage());
+	}
+
+	private static DeploymentJob createJob() throws Exception {
+		CsarFile csarFile = new CsarFile();
+		csarFile.setId(1L);
+		csarFile.setName("test.csar");
+		OpenToscaServer openToscaServer = new OpenToscaServer(1L);
+		openToscaServer.setName("container");
+		openToscaServer.setAddress(new URL("http://localhost:1337/containerapi"));
+		return DeploymentJob.create(csarFile, Arrays.asList(openToscaServer));
+	}
+}
@@ -0,0 +1,109 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for FanOut
+ */
+public class FanOutTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(8);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testResultsInOrderOfCalls() {
+		Map<String, Callable<Integer>> calls = new LinkedHashMap<String, Callable<Integer>>();
+		for (int i = 5; i > 0; i--) {
+			calls.put("call" + i, constant(i, 10 * i));
+		}
+
+		FanOut.Result<String, Integer> result = FanOut.invokeAll(executor, calls, 3, 5000);
+
+		assertTrue(result.isComplete());
+		assertEquals(Arrays.asList("call5", "call4", "call3", "call2", "call1"),
+				Arrays.asList(result.getResults().keySet().toArray()));
+	}
+
+	@Test
+	public void testPartialResults() {
+		Map<String, Callable<Integer>> calls = new LinkedHashMap<String, Callable<Integer>>();
+		calls.put("ok", constant(1, 0));
+		calls.put("failing", new Callable<Integer>() {
+
+			@Override
+			public Integer call() throws Exception {
+				throw new IllegalStateException("broken");
+			}
+		});
+		calls.put("slow", constant(3, 10000));
+
+		FanOut.Result<String, Integer> result = FanOut.invokeAll(executor, calls, 3, 200);
+
+		assertFalse(result.isComplete());
+		assertEquals(3, result.getTotal());
+		assertEquals(Integer.valueOf(1), result.getResults().get("ok"));
+		assertEquals("broken", result.getFailures().get("failing"));
+		assertTrue(result.getFailures().get("slow").startsWith("Timed out"));
+	}
+
+	@Test
+	public void testConcurrencyLimit() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		Map<Integer, Callable<Integer>> calls = new LinkedHashMap<Integer, Callable<Integer>>();
+		for (int i = 0; i < 20; i++) {
+			calls.put(i, new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws Exception {
+					int current = running.incrementAndGet();
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(maxRunning.get(), current));
+					}
+					Thread.sleep(10);
+					running.decrementAndGet();
+					return current;
+				}
+			});
+		}
+
+		FanOut.Result<Integer, Integer> result = FanOut.invokeAll(executor, calls, 2, 5000);
+
+		assertTrue(result.isComplete());
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	private static Callable<Integer> constant(final int value, final long delay) {
+		return new Callable<Integer>() {
+
+			@Override
+			public Integer call() throws Exception {
+				Thread.sleep(delay);
+				return value;
+			}
+		};
+	}
+}
@@ -0,0 +1,87 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentosca.csarrepo.util.FileHasher.Algorithm;
+import org.opentosca.csarrepo.util.FileHasher.Digests;
+
+/**
+ * Tests for FileHasher
+ */
+public class FileHasherTest {
+
+	private File file;
+
+	@Before
+	public void before() throws IOException {
+		file = File.createTempFile("filehasher", ".bin");
+	}
+
+	@After
+	public void after() {
+		file.delete();
+		System.clearProperty("hashBufferSize");
+		System.clearProperty("hashParallelThreshold");
+	}
+
+	@Test
+	public void testKnownDigests() throws IOException {
+		Files.write(file.toPath(), "abc".getBytes(StandardCharsets.US_ASCII));
+
+		Digests digests = FileHasher.hash(file, Algorithm.SHA256, Algorithm.MD5, Algorithm.CRC32);
+
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				digests.getHex(Algorithm.SHA256));
+		assertEquals("900150983cd24fb0d6963f7d28e17f72", digests.getHex(Algorithm.MD5));
+		assertEquals("kAFQmDzST7DWlj99KOF/cg==", digests.getBase64(Algorithm.MD5));
+		assertEquals("352441c2", digests.getHex(Algorithm.CRC32));
+	}
+
+	@Test
+	public void testOnlyRequestedDigests() throws IOException {
+		Files.write(file.toPath(), "abc".getBytes(StandardCharsets.US_ASCII));
+
+		Digests digests = FileHasher.hash(file, Algorithm.SHA256);
+
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				digests.getHex(Algorithm.SHA256));
+		assertNull(digests.get(Algorithm.MD5));
+	}
+
+	@Test
+	public void testParallelMatchesSequential() throws IOException {
+		byte[] content = new byte[100003];
+		new Random(42).nextBytes(content);
+		Files.write(file.toPath(), content);
+
+		System.setProperty("hashBufferSize", "4096");
+		Digests sequential = FileHasher.hash(file, Algorithm.SHA256, Algorithm.MD5, Algorithm.CRC32);
+		System.setProperty("hashParallelThreshold", "0");
+		Digests parallel = FileHasher.hash(file, Algorithm.SHA256, Algorithm.MD5, Algorithm.CRC32);
+
+		for (Algorithm algorithm : Algorithm.values()) {
+			assertArrayEquals(sequential.get(algorithm), parallel.get(algorithm));
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		System.setProperty("hashParallelThreshold", "0");
+
+		Digests digests = FileHasher.hash(file, Algorithm.SHA256);
+
+		assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+				digests.getHex(Algorithm.SHA256));
+	}
+}
@@ -0,0 +1,79 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+/**
+ * Tests for ServicetemplatePage and the parsing of winery listings
+ */
+public class ServicetemplatePageTest {
+
+	@Test
+	public void testPaging() {
+		List<Servicetemplate> serviceTemplates = createServiceTemplates(5);
+
+		ServicetemplatePage page = new ServicetemplatePage(serviceTemplates, null, 2, 2);
+		assertEquals(5, page.getTotal());
+		assertEquals(3, page.getPages());
+		assertEquals(2, page.getServiceTemplates().size());
+		assertEquals("id2", page.getServiceTemplates().get(0).getId());
+		assertFalse(page.isFirst());
+		assertFalse(page.isLast());
+
+		// out of range pages are moved to the last one
+		page = new ServicetemplatePage(serviceTemplates, null, 10, 2);
+		assertEquals(3, page.getPage());
+		assertEquals(1, page.getServiceTemplates().size());
+		assertTrue(page.isLast());
+	}
+
+	@Test
+	public void testFilter() {
+		List<Servicetemplate> serviceTemplates = createServiceTemplates(5);
+		serviceTemplates.add(new Servicetemplate("moodle", "http://example.org/lms", "Moodle"));
+
+		ServicetemplatePage page = new ServicetemplatePage(serviceTemplates, " MOOD ", 1, 10);
+		assertEquals(1, page.getTotal());
+		assertEquals("moodle", page.getServiceTemplates().get(0).getId());
+
+		page = new ServicetemplatePage(serviceTemplates, "example.org/lms", 1, 10);
+		assertEquals(1, page.getTotal());
+
+		page = new ServicetemplatePage(serviceTemplates, "unknown", 1, 10);
+		assertEquals(0, page.getTotal());
+		assertEquals(1, page.getPages());
+		assertTrue(page.getServiceTemplates().isEmpty());
+	}
+
+	@Test
+	public void testParseServicetemplates() throws JSONException {
+		String json = "[ {\"id\":\"a\",\"namespace\":\"ns\",\"name\":\"A\"},\n"
+				+ "{\"id\":\"b\",\"namespace\":\"ns\",\"name\":\"B\",\"extra\":[1,2]} ]";
+		List<Servicetemplate> serviceTemplates = WineryApiClient.parseServicetemplates(new StringReader(json));
+		assertEquals(2, serviceTemplates.size());
+		assertEquals("B", serviceTemplates.get(1).getName());
+
+		assertTrue(WineryApiClient.parseServicetemplates(new StringReader(" [ ] ")).isEmpty());
+	}
+
+	@Test(expected = JSONException.class)
+	public void testParseInvalidServicetemplates() throws JSONException {
+		WineryApiClient.parseServicetemplates(new StringReader("[{\"id\":\"a\",\"namespace\":\"ns\",\"name\":\"A\"}"));
+	}
+
+	private static List<Servicetemplate> createServiceTemplates(int count) {
+		List<Servicetemplate> serviceTemplates = new ArrayList<Servicetemplate>();
+		for (int i = 0; i < count; i++) {
+			serviceTemplates.add(new Servicetemplate("id" + i, "http://example.org/ns" + i, "Template " + i));
+		}
+		return serviceTemplates;
+	}
+}
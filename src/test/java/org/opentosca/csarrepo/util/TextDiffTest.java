@@ -0,0 +1,34 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for TextDiff
+ */
+public class TextDiffTest {
+
+	@Test
+	public void testSameTexts() {
+		assertEquals("", TextDiff.unified("a", "b", Arrays.asList("1", "2"), Arrays.asList("1", "2"), 3));
+	}
+
+	@Test
+	public void testChangedLine() {
+		String diff = TextDiff.unified("a", "b", Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8"),
+				Arrays.asList("1", "2", "3", "4", "five", "6", "7", "8"), 1);
+
+		assertEquals("--- a\n+++ b\n@@ -4,3 +4,3 @@\n 4\n-5\n+five\n 6\n", diff);
+	}
+
+	@Test
+	public void testSeparateHunks() {
+		String diff = TextDiff.unified("a", "b", Arrays.asList("1", "2", "3", "4", "5", "6"),
+				Arrays.asList("0", "1", "2", "3", "4", "5"), 1);
+
+		assertEquals("--- a\n+++ b\n@@ -1,1 +1,2 @@\n+0\n 1\n@@ -5,2 +6,1 @@\n 5\n-6\n", diff);
+	}
+}
@@ -0,0 +1,55 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+
+import org.junit.Test;
+
+/**
+ * Tests for TimeWindow
+ */
+public class TimeWindowTest {
+
+	@Test
+	public void testWithinDay() {
+		TimeWindow window = TimeWindow.parse("01:30-05:00");
+
+		assertFalse(window.contains(time(1, 29)));
+		assertTrue(window.contains(time(1, 30)));
+		assertTrue(window.contains(time(4, 59)));
+		assertFalse(window.contains(time(5, 0)));
+		assertEquals("01:30-05:00", window.toString());
+	}
+
+	@Test
+	public void testSpansMidnight() {
+		TimeWindow window = TimeWindow.parse("22:00-06:00");
+
+		assertTrue(window.contains(time(23, 15)));
+		assertTrue(window.contains(time(0, 0)));
+		assertTrue(window.contains(time(5, 59)));
+		assertFalse(window.contains(time(12, 0)));
+	}
+
+	@Test
+	public void testEmptyMeansAlways() {
+		assertNull(TimeWindow.parse(""));
+		assertNull(TimeWindow.parse(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsInvalidTime() {
+		TimeWindow.parse("25:00-06:00");
+	}
+
+	private static Calendar time(int hours, int minutes) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, hours);
+		calendar.set(Calendar.MINUTE, minutes);
+		return calendar;
+	}
+}
@@ -0,0 +1,122 @@
+package org.opentosca.csarrepo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ZipDirectory
+ */
+public class ZipDirectoryTest {
+
+	private static final byte[] DEFINITIONS = "<Definitions id=\"1\"/>".getBytes(StandardCharsets.UTF_8);
+
+	private File archive;
+	private byte[] artifact;
+
+	@Before
+	public void before() throws IOException {
+		archive = File.createTempFile("zipdirectory", ".zip");
+		artifact = new byte[100000];
+		new Random(42).nextBytes(artifact);
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+			outputStream.putNextEntry(new ZipEntry("TOSCA-Metadata/TOSCA.meta"));
+			outputStream.write("TOSCA-Meta-Version: 1.0".getBytes(StandardCharsets.UTF_8));
+			outputStream.putNextEntry(new ZipEntry("Definitions/Service.tosca"));
+			outputStream.write(DEFINITIONS);
+			ZipEntry stored = new ZipEntry("Plans/plan.zip");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(artifact.length);
+			CRC32 crc = new CRC32();
+			crc.update(artifact);
+			stored.setCrc(crc.getValue());
+			outputStream.putNextEntry(stored);
+			outputStream.write(artifact);
+		}
+	}
+
+	@After
+	public void after() {
+		archive.delete();
+	}
+
+	@Test
+	public void testReadsEntries() throws IOException {
+		ZipDirectory directory = read();
+
+		assertEquals(3, directory.getEntries().size());
+		ZipDirectory.Entry definitions = directory.getEntry("Definitions/Service.tosca");
+		CRC32 crc = new CRC32();
+		crc.update(DEFINITIONS);
+		assertEquals(crc.getValue(), definitions.getCrc());
+		assertEquals(DEFINITIONS.length, definitions.getSize());
+		assertNull(directory.getEntry("Definitions/Missing.tosca"));
+	}
+
+	@Test
+	public void testOpensSingleEntries() throws IOException {
+		ZipDirectory directory = read();
+
+		assertArrayEquals(DEFINITIONS, readEntry(directory.getEntry("Definitions/Service.tosca")));
+		assertArrayEquals(artifact, readEntry(directory.getEntry("Plans/plan.zip")));
+	}
+
+	@Test
+	public void testListsDirectories() throws IOException {
+		ZipDirectory directory = read();
+
+		List<ZipDirectory.Entry> root = directory.list("", false);
+		assertEquals(3, root.size());
+		assertEquals("Definitions/", root.get(0).getName());
+		assertTrue(root.get(0).isDirectory());
+		assertEquals(6, directory.list("", true).size());
+		assertEquals(1, directory.list("Plans", false).size());
+		assertNull(directory.list("Missing", false));
+	}
+
+	@Test(expected = ZipException.class)
+	public void testRejectsNonArchives() throws IOException {
+		Files.write(archive.toPath(), artifact);
+		read();
+	}
+
+	private ZipDirectory read() throws IOException {
+		try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+			return ZipDirectory.read(channel);
+		}
+	}
+
+	private byte[] readEntry(ZipDirectory.Entry entry) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (InputStream inputStream = ZipDirectory.open(
+				FileChannel.open(archive.toPath(), StandardOpenOption.READ), entry)) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while (-1 != (read = inputStream.read(buffer))) {
+				outputStream.write(buffer, 0, read);
+			}
+		}
+		return outputStream.toByteArray();
+	}
+}